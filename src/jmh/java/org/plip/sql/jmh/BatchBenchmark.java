@@ -0,0 +1,149 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql.jmh;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.plip.sql.BatchWriter;
+import org.plip.sql.ParameterStatement;
+import org.plip.sql.ParameterStatement.ParameterProvider;
+import org.plip.sql.ParsedQuery;
+import org.plip.sql.SQLParameter;
+
+/**
+ * Building batches of {@value #ROWS} rows, through {@link BatchWriter} and by hand on a {@link ParameterStatement}.
+ * Scores are per row.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchBenchmark {
+	static final String QUERY = "INSERT INTO foo (id, name, value) VALUES (:id, :name, :value)";
+	static final int ROWS = 1000;
+
+	/** Rows per multi-row insert for {@link BatchWriter}, 1 disables rewriting. */
+	@State(Scope.Thread)
+	public static class Rewrite {
+		@Param({"1", "16"})
+		public int valuesRows;
+	}
+
+	private final StubConnection connection = new StubConnection();
+	private ParsedQuery query;
+	private ParameterStatement stmt;
+	private ParsedQuery.Slot id, name, value;
+
+	/** Reusable row source, yields itself as provider for each row. */
+	private static final class Rows implements Iterator<ParameterProvider>, ParameterProvider {
+		private int row;
+		private int count;
+
+		Rows reset(int count) {
+			this.row = 0;
+			this.count = count;
+			return this;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return row < count;
+		}
+
+		@Override
+		public ParameterProvider next() {
+			if (row >= count) {
+				throw new NoSuchElementException();
+			}
+			row++;
+			return this;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public SQLParameter get(String paramName) {
+			switch (paramName) {
+			case "id":		return new SQLParameter.OfInt(row);
+			case "name":	return new SQLParameter("name");
+			case "value":	return new SQLParameter.OfDouble(row);
+			default:		return null;
+			}
+		}
+	}
+
+	private final Rows rows = new Rows();
+
+	@Setup
+	public void setup() throws SQLException {
+		query = ParsedQuery.parse(QUERY);
+		stmt = new ParameterStatement(connection, query);
+		id = stmt.getSlot("id");
+		name = stmt.getSlot("name");
+		value = stmt.getSlot("value");
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		stmt.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public BatchWriter.Result batchWriter(Rewrite rewrite) throws SQLException {
+		try (BatchWriter writer = new BatchWriter(connection, query)) {
+			writer.setBatchRows(ROWS).setValuesRows(rewrite.valuesRows);
+			return writer.write(rows.reset(ROWS));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int[] addBatch() throws SQLException {
+		for (int i = 0; i < ROWS; i++) {
+			stmt.setInt(id, i).setString(name, "name").setDouble(value, i);
+			stmt.addBatch();
+		}
+		return stmt.executeBatch();
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql.jmh;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.plip.sql.BeanParameters;
+import org.plip.sql.ParameterStatement;
+import org.plip.sql.ParameterStatement.ParameterProvider;
+import org.plip.sql.ParsedQuery;
+import org.plip.sql.SQLParameter;
+
+/**
+ * Binding of four parameters to an open statement by name, by slot, by map, by provider and from an object.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BindBenchmark {
+	static final String QUERY = "UPDATE foo SET a = :a, b = :b, c = :c WHERE id = :id";
+
+	private ParameterStatement stmt;
+	private ParsedQuery.Slot a, b, c, id;
+	private Map<String,SQLParameter> map;
+	private ParameterProvider provider;
+	private BeanParameters<Row> beanParameters;
+	private Row row;
+	private long counter;
+
+	public static final class Row {
+		long	a;
+		String	b;
+		double	c;
+		int		id;
+
+		public long getA() {
+			return a;
+		}
+
+		public String getB() {
+			return b;
+		}
+
+		public double getC() {
+			return c;
+		}
+
+		public int getId() {
+			return id;
+		}
+	}
+
+	@Setup
+	public void setup() throws SQLException {
+		stmt = new ParameterStatement(new StubConnection(), ParsedQuery.parse(QUERY));
+		a = stmt.getSlot("a");
+		b = stmt.getSlot("b");
+		c = stmt.getSlot("c");
+		id = stmt.getSlot("id");
+
+		map = new HashMap<>();
+		map.put("a", new SQLParameter(Long.valueOf(1)));
+		map.put("b", new SQLParameter("two"));
+		map.put("c", new SQLParameter(Double.valueOf(3.0)));
+		map.put("id", new SQLParameter(Integer.valueOf(4)));
+
+		provider = new ParameterProvider() {
+			@Override
+			public SQLParameter get(String paramName) {
+				return map.get(paramName);
+			}
+		};
+
+		beanParameters = BeanParameters.of(Row.class);
+		row = new Row();
+		row.b = "two";
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException {
+		stmt.close();
+	}
+
+	@Benchmark
+	public ParameterStatement byName() throws SQLException {
+		final long n = counter++;
+		return stmt.setLong("a", n).setString("b", "two").setDouble("c", n).setInt("id", (int)n);
+	}
+
+	@Benchmark
+	public ParameterStatement bySlot() throws SQLException {
+		final long n = counter++;
+		return stmt.setLong(a, n).setString(b, "two").setDouble(c, n).setInt(id, (int)n);
+	}
+
+	@Benchmark
+	public ParameterStatement byNameBoxed() throws SQLException {
+		final long n = counter++;
+		return stmt.setParameter("a", new SQLParameter(Long.valueOf(n)))
+				.setParameter("b", new SQLParameter("two"))
+				.setParameter("c", new SQLParameter(Double.valueOf(n)))
+				.setParameter("id", new SQLParameter(Integer.valueOf((int)n)));
+	}
+
+	@Benchmark
+	public ParameterStatement byNameTyped() throws SQLException {
+		final long n = counter++;
+		return stmt.setParameter("a", new SQLParameter.OfLong(n))
+				.setParameter("b", new SQLParameter("two"))
+				.setParameter("c", new SQLParameter.OfDouble(n))
+				.setParameter("id", new SQLParameter.OfInt((int)n));
+	}
+
+	@Benchmark
+	public ParameterStatement byMap() throws SQLException {
+		return stmt.setParameters(map);
+	}
+
+	@Benchmark
+	public ParameterStatement byProvider() throws SQLException {
+		return stmt.setParameters(provider);
+	}
+
+	@Benchmark
+	public ParameterStatement byBean() throws SQLException {
+		final long n = counter++;
+		row.a = n;
+		row.c = n;
+		row.id = (int)n;
+		return beanParameters.bind(stmt, row);
+	}
+
+	/**
+	 * Object converted to a map of boxed parameters, as needed without {@link BeanParameters}.
+	 */
+	@Benchmark
+	public ParameterStatement byBeanMap() throws SQLException {
+		final long n = counter++;
+		row.a = n;
+		row.c = n;
+		row.id = (int)n;
+		final Map<String,SQLParameter> m = new HashMap<>();
+		m.put("a", new SQLParameter(Long.valueOf(row.getA())));
+		m.put("b", new SQLParameter(row.getB()));
+		m.put("c", new SQLParameter(Double.valueOf(row.getC())));
+		m.put("id", new SQLParameter(Integer.valueOf(row.getId())));
+		return stmt.setParameters(m);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql.jmh;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.plip.sql.ParameterStatement;
+import org.plip.sql.ParsedQuery;
+import org.plip.sql.ResultCache;
+
+/**
+ * Query of a small result, per query, through the stub driver compared to a hit in {@link ResultCache}.
+ * The stub driver doesn't do any I/O, so this is the overhead of a hit rather than the gain.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheBenchmark {
+	static final String QUERY = "SELECT user_id, name, amount, quantity FROM orders WHERE user_id = :user_id AND status = :status";
+	static final int ROWS = 10;
+
+	private ParameterStatement stmt;
+	private ParameterStatement cached;
+
+	private static ParameterStatement prepare() throws SQLException {
+		final ParameterStatement s = new ParameterStatement(new StubConnection(), ParsedQuery.parse(QUERY));
+		((StubPreparedStatement)s.borrowStatement()).setQueryRows(ROWS);
+		return s;
+	}
+
+	@Setup
+	public void setup() throws SQLException {
+		stmt = prepare();
+		cached = prepare().setResultCache(new ResultCache(), "orders");
+	}
+
+	private static long read(ParameterStatement s) throws SQLException {
+		s.setLong("user_id", 42);
+		s.setString("status", "shipped");
+		long sum = 0;
+		try (ResultSet rs = s.executeQuery()) {
+			while (rs.next()) {
+				sum += rs.getLong(1) + rs.getString(2).length() + rs.getInt(4);
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long query() throws SQLException {
+		return read(stmt);
+	}
+
+	@Benchmark
+	public long cachedQuery() throws SQLException {
+		return read(cached);
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql.jmh;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.plip.sql.ResultExporter;
+
+/**
+ * Export of rows, per row, through strings and a {@link Writer} compared to {@link ResultExporter}.
+ * Output is discarded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExportBenchmark {
+	static final int ROWS = 1000;
+
+	private static final class NullChannel implements WritableByteChannel {
+		@Override
+		public int write(ByteBuffer src) {
+			final int n = src.remaining();
+			src.position(src.limit());
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static final class NullStream extends OutputStream {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+	private StubResultSet rs;
+	private WritableByteChannel channel;
+	private ResultExporter csv;
+	private ResultExporter binary;
+
+	@Setup
+	public void setup() {
+		rs = new StubResultSet(ROWS);
+		channel = new NullChannel();
+		csv = new ResultExporter(ResultExporter.Format.CSV);
+		binary = new ResultExporter(ResultExporter.Format.BINARY);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void writer() throws SQLException, IOException {
+		rs.reset();
+		final Writer w = new BufferedWriter(new OutputStreamWriter(new NullStream(), StandardCharsets.UTF_8), ResultExporter.DEFAULT_BUFFER_SIZE);
+		while (rs.next()) {
+			w.write(String.valueOf(rs.getLong(1)));
+			w.write(',');
+			w.write(rs.getString(2));
+			w.write(',');
+			w.write(String.valueOf(rs.getDouble(3)));
+			w.write(',');
+			w.write(String.valueOf(rs.getInt(4)));
+			w.write('\n');
+		}
+		w.flush();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public ResultExporter.Result exportCsv() throws SQLException, IOException {
+		rs.reset();
+		return csv.export(rs, channel);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public ResultExporter.Result exportBinary() throws SQLException, IOException {
+		rs.reset();
+		return binary.export(rs, channel);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql.jmh;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.plip.sql.BeanRowMapper;
+import org.plip.sql.ResultIterator;
+
+/**
+ * Mapping of rows to objects, per row, by hand by index, by hand by label and through {@link BeanRowMapper}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapBenchmark {
+	static final int ROWS = 1000;
+
+	public static final class Row {
+		long	userId;
+		String	name;
+		double	amount;
+		int		quantity;
+
+		public void setUserId(long userId) {
+			this.userId = userId;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public void setAmount(double amount) {
+			this.amount = amount;
+		}
+
+		public void setQuantity(int quantity) {
+			this.quantity = quantity;
+		}
+	}
+
+	private StubResultSet rs;
+
+	@Setup
+	public void setup() {
+		rs = new StubResultSet(ROWS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void byIndex(Blackhole bh) throws SQLException {
+		rs.reset();
+		while (rs.next()) {
+			final Row row = new Row();
+			row.setUserId(rs.getLong(1));
+			row.setName(rs.getString(2));
+			row.setAmount(rs.getDouble(3));
+			row.setQuantity(rs.getInt(4));
+			bh.consume(row);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void byLabel(Blackhole bh) throws SQLException {
+		rs.reset();
+		while (rs.next()) {
+			final Row row = new Row();
+			row.setUserId(((Number)rs.getObject("user_id")).longValue());
+			row.setName((String)rs.getObject("name"));
+			row.setAmount(((Number)rs.getObject("amount")).doubleValue());
+			row.setQuantity(((Number)rs.getObject("quantity")).intValue());
+			bh.consume(row);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void beanMapper(Blackhole bh) throws SQLException {
+		rs.reset();
+		for (Row row : new ResultIterator<Row>(rs, BeanRowMapper.of(Row.class))) {
+			bh.consume(row);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.plip.sql.ParsedQuery;
+import org.plip.sql.ParsedQueryCache;
+
+/**
+ * Parsing of named parameter queries, uncached and through {@link ParsedQueryCache}.
+ * Generated multi-KB queries mix parameters with quoted strings, casts and comments.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+	static final String SHORT_QUERY = "SELECT * FROM foo WHERE id = :id";
+
+	static final String LONG_QUERY;
+	static {
+		final StringBuilder sb = new StringBuilder("SELECT f.id, f.name, b.value, 'it''s :literal' AS note FROM foo f");
+		sb.append(" JOIN bar b ON b.foo_id = f.id");
+		sb.append(" WHERE f.created BETWEEN :from AND :to");
+		for (int i = 0; i < 20; i++) {
+			sb.append(" AND (f.c").append(i).append(" = :p").append(i).append(" OR f.c").append(i).append(" IS NULL)");
+		}
+		sb.append(" AND f.owner = :owner AND b.owner = :owner ORDER BY f.id");
+		LONG_QUERY = sb.toString();
+	}
+
+	private ParsedQueryCache cache;
+
+	/** Generated query of approximately {@link #size} characters. */
+	@State(Scope.Benchmark)
+	public static class Generated {
+		@Param({"4096", "65536"})
+		public int size;
+
+		String query;
+
+		@Setup
+		public void setup() {
+			query = generate(size);
+		}
+	}
+
+	static String generate(int size) {
+		final StringBuilder sb = new StringBuilder(size + 256);
+		sb.append("SELECT * FROM foo f -- :notAParameter\nWHERE f.owner = :owner");
+		for (int i = 0; sb.length() < size; i++) {
+			switch (i % 4) {
+			case 0:	sb.append("\n  AND f.c").append(i).append(" = :p").append(i % 64); break;
+			case 1:	sb.append("\n  AND f.s").append(i).append(" <> 'it''s :literal ").append(i).append('\''); break;
+			case 2:	sb.append("\n  AND f.t").append(i).append("::text = :owner"); break;
+			default:	sb.append("\n  /* generated :block ").append(i).append(" */ AND \"Col:").append(i).append("\" IS NOT NULL"); break;
+			}
+		}
+		return sb.toString();
+	}
+
+	@Setup
+	public void setup() {
+		cache = new ParsedQueryCache(16);
+		cache.get(SHORT_QUERY);
+		cache.get(LONG_QUERY);
+	}
+
+	@Benchmark
+	public ParsedQuery parseShort() {
+		return ParsedQuery.parse(SHORT_QUERY);
+	}
+
+	@Benchmark
+	public ParsedQuery parseLong() {
+		return ParsedQuery.parse(LONG_QUERY);
+	}
+
+	@Benchmark
+	public ParsedQuery parseGenerated(Generated generated) {
+		return ParsedQuery.parse(generated.query);
+	}
+
+	@Benchmark
+	public ParsedQuery cachedShort() {
+		return cache.get(SHORT_QUERY);
+	}
+
+	@Benchmark
+	public ParsedQuery cachedLong() {
+		return cache.get(LONG_QUERY);
+	}
+}
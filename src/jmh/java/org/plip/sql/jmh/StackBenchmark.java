@@ -0,0 +1,103 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql.jmh;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.plip.sql.ParameterStatement;
+import org.plip.sql.ParsedQuery;
+import org.plip.sql.SQLStack;
+import org.plip.sql.SQLTransaction;
+
+/**
+ * Push and close cycles of {@link SQLStack} variants, and the open/close paths of statements and transactions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StackBenchmark {
+	private final StubConnection connection = new StubConnection();
+	private final StubConnection txConnection = new StubConnection(false);
+	private PreparedStatement ps1, ps2, ps3;
+	private ParsedQuery query;
+
+	@Setup
+	public void setup() throws SQLException {
+		ps1 = connection.prepareStatement("");
+		ps2 = connection.prepareStatement("");
+		ps3 = connection.prepareStatement("");
+		query = ParsedQuery.parse(BindBenchmark.QUERY);
+	}
+
+	private static void cycle(SQLStack stack, Connection c, PreparedStatement ps1, PreparedStatement ps2, PreparedStatement ps3) throws SQLException {
+		stack.push(c);
+		stack.push(ps1);
+		stack.push(ps2);
+		stack.push(ps3);
+		stack.close();
+	}
+
+	@Benchmark
+	public void stackShared() throws SQLException {
+		cycle(new SQLStack(), connection, ps1, ps2, ps3);
+	}
+
+	@Benchmark
+	public void stackLocal() throws SQLException {
+		cycle(SQLStack.local(), connection, ps1, ps2, ps3);
+	}
+
+	@Benchmark
+	public void stackAcquire() throws SQLException {
+		cycle(SQLStack.acquire(), connection, ps1, ps2, ps3);
+	}
+
+	@Benchmark
+	public void statementOpenClose() throws SQLException {
+		try (ParameterStatement stmt = new ParameterStatement(connection, query)) {
+			stmt.setInt("id", 1);
+		}
+	}
+
+	@Benchmark
+	public void transactionCommit() throws SQLException {
+		try (SQLTransaction tx = new SQLTransaction(txConnection)) {
+			tx.commit();
+		}
+	}
+}
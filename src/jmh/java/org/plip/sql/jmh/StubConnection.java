@@ -0,0 +1,314 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql.jmh;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * In-process stub connection for benchmarks, performs no I/O and keeps no data.
+ *
+ * Only transaction state and statement creation are implemented, remaining methods return defaults.
+ */
+public class StubConnection implements Connection {
+	private boolean autoCommit = true;
+	private boolean closed;
+
+	public StubConnection() {
+	}
+
+	public StubConnection(boolean autoCommit) {
+		this.autoCommit = autoCommit;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		return new StubPreparedStatement(this);
+	}
+
+	@Override
+	public boolean getAutoCommit() throws SQLException {
+		return autoCommit;
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		this.autoCommit = autoCommit;
+	}
+
+	@Override
+	public void commit() throws SQLException {
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+	}
+
+	@Override
+	public void close() throws SQLException {
+		closed = true;
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return closed;
+	}
+
+	@Override
+	public void abort(Executor executor) throws SQLException {
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+	}
+
+	@Override
+	public Array createArrayOf(String name, Object[] elements) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Blob createBlob() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Clob createClob() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public NClob createNClob() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public SQLXML createSQLXML() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Struct createStruct(String name, Object[] elements) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public String getCatalog() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Properties getClientInfo() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public String getClientInfo(String name) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public DatabaseMetaData getMetaData() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getNetworkTimeout() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public String getSchema() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getTransactionIsolation() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public Map<String, Class<?>> getTypeMap() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isValid(int timeout) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public String nativeSQL(String sql) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+	}
+
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+	}
+
+	@Override
+	public void setCatalog(String name) throws SQLException {
+	}
+
+	@Override
+	public void setClientInfo(String name, String name2) throws SQLClientInfoException {
+	}
+
+	@Override
+	public void setClientInfo(Properties properties) throws SQLClientInfoException {
+	}
+
+	@Override
+	public void setHoldability(int holdability) throws SQLException {
+	}
+
+	@Override
+	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Savepoint setSavepoint(String name) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public void setSchema(String name) throws SQLException {
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+	}
+
+	@Override
+	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return null;
+	}
+}
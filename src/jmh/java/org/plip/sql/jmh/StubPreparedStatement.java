@@ -0,0 +1,509 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql.jmh;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * In-process stub prepared statement for benchmarks, discards all parameters.
+ *
+ * Batches are counted so {@link #executeBatch()} returns one update count per batch entry,
+ * queries return a {@link StubResultSet} of {@link #setQueryRows(int)} rows, remaining methods return defaults.
+ */
+public class StubPreparedStatement implements PreparedStatement {
+	private final Connection connection;
+	private int batchSize;
+	private int queryRows;
+	private boolean closed;
+
+	public StubPreparedStatement(Connection connection) {
+		this.connection = connection;
+	}
+
+	/**
+	 * Sets number of rows returned by queries, default is 0.
+	 */
+	public void setQueryRows(int rows) {
+		queryRows = rows;
+	}
+
+	@Override
+	public void addBatch() throws SQLException {
+		batchSize++;
+	}
+
+	@Override
+	public void clearBatch() throws SQLException {
+		batchSize = 0;
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		final int[] counts = new int[batchSize];
+		Arrays.fill(counts, 1);
+		batchSize = 0;
+		return counts;
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		return 1;
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return connection;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		closed = true;
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return closed;
+	}
+
+	@Override
+	public void addBatch(String sql) throws SQLException {
+	}
+
+	@Override
+	public void cancel() throws SQLException {
+	}
+
+	@Override
+	public void clearParameters() throws SQLException {
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+	}
+
+	@Override
+	public void closeOnCompletion() throws SQLException {
+	}
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		return new StubResultSet(queryRows);
+	}
+
+	@Override
+	public ResultSet executeQuery(String sql) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int executeUpdate(String sql) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean execute(String sql) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public ResultSet getGeneratedKeys() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getMaxFieldSize() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getMaxRows() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public boolean getMoreResults() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean getMoreResults(int current) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public ParameterMetaData getParameterMetaData() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getQueryTimeout() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getResultSetConcurrency() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getResultSetHoldability() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getResultSetType() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public ResultSet getResultSet() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getUpdateCount() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public boolean isCloseOnCompletion() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isPoolable() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public void setArray(int parameterIndex, Array x) throws SQLException {
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void setBlob(int parameterIndex, Blob x) throws SQLException {
+	}
+
+	@Override
+	public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+	}
+
+	@Override
+	public void setByte(int parameterIndex, byte x) throws SQLException {
+	}
+
+	@Override
+	public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader x, int length) throws SQLException {
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void setCharacterStream(int parameterIndex, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void setClob(int parameterIndex, Clob x) throws SQLException {
+	}
+
+	@Override
+	public void setCursorName(String name) throws SQLException {
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x, Calendar calendar) throws SQLException {
+	}
+
+	@Override
+	public void setDate(int parameterIndex, Date x) throws SQLException {
+	}
+
+	@Override
+	public void setDouble(int parameterIndex, double x) throws SQLException {
+	}
+
+	@Override
+	public void setEscapeProcessing(boolean enable) throws SQLException {
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException {
+	}
+
+	@Override
+	public void setFloat(int parameterIndex, float x) throws SQLException {
+	}
+
+	@Override
+	public void setInt(int parameterIndex, int x) throws SQLException {
+	}
+
+	@Override
+	public void setLong(int parameterIndex, long x) throws SQLException {
+	}
+
+	@Override
+	public void setMaxFieldSize(int max) throws SQLException {
+	}
+
+	@Override
+	public void setMaxRows(int max) throws SQLException {
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void setNCharacterStream(int parameterIndex, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void setNClob(int parameterIndex, NClob x) throws SQLException {
+	}
+
+	@Override
+	public void setNString(int parameterIndex, String x) throws SQLException {
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+	}
+
+	@Override
+	public void setNull(int parameterIndex, int sqlType) throws SQLException {
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+	}
+
+	@Override
+	public void setObject(int parameterIndex, Object x) throws SQLException {
+	}
+
+	@Override
+	public void setPoolable(boolean poolable) throws SQLException {
+	}
+
+	@Override
+	public void setQueryTimeout(int seconds) throws SQLException {
+	}
+
+	@Override
+	public void setRef(int parameterIndex, Ref x) throws SQLException {
+	}
+
+	@Override
+	public void setRowId(int parameterIndex, RowId x) throws SQLException {
+	}
+
+	@Override
+	public void setSQLXML(int parameterIndex, SQLXML x) throws SQLException {
+	}
+
+	@Override
+	public void setShort(int parameterIndex, short x) throws SQLException {
+	}
+
+	@Override
+	public void setString(int parameterIndex, String x) throws SQLException {
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x, Calendar calendar) throws SQLException {
+	}
+
+	@Override
+	public void setTime(int parameterIndex, Time x) throws SQLException {
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x, Calendar calendar) throws SQLException {
+	}
+
+	@Override
+	public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+	}
+
+	@Override
+	public void setURL(int parameterIndex, URL x) throws SQLException {
+	}
+
+	@Deprecated
+	@Override
+	public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		return null;
+	}
+}
@@ -0,0 +1,1072 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql.jmh;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * In-process stub result set for benchmarks, with a fixed number of rows of computed values.
+ *
+ * Columns are user_id (BIGINT), name (VARCHAR), amount (DOUBLE) and quantity (INTEGER).
+ * Labels are resolved by a linear scan, as by many drivers. Remaining methods return defaults.
+ */
+public class StubResultSet implements ResultSet {
+	static final String[] LABELS = { "user_id", "name", "amount", "quantity" };
+	static final int[] TYPES = { Types.BIGINT, Types.VARCHAR, Types.DOUBLE, Types.INTEGER };
+	static final String NAME = "name";
+
+	static final ResultSetMetaData META = new Meta();
+
+	private final int rows;
+	private int row;
+	private boolean closed;
+
+	public StubResultSet(int rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * Rewinds to before first row and reopens.
+	 */
+	public void reset() {
+		row = 0;
+		closed = false;
+	}
+
+	private static final class Meta implements ResultSetMetaData {
+		@Override
+		public String getCatalogName(int column) throws SQLException {
+			return null;
+		}
+
+		@Override
+		public String getColumnClassName(int column) throws SQLException {
+			return null;
+		}
+
+		@Override
+		public int getColumnCount() throws SQLException {
+				return LABELS.length;
+		}
+
+		@Override
+		public int getColumnDisplaySize(int column) throws SQLException {
+			return 0;
+		}
+
+		@Override
+		public String getColumnLabel(int column) throws SQLException {
+				return LABELS[column - 1];
+		}
+
+		@Override
+		public String getColumnName(int column) throws SQLException {
+				return LABELS[column - 1];
+		}
+
+		@Override
+		public String getColumnTypeName(int column) throws SQLException {
+			return null;
+		}
+
+		@Override
+		public int getColumnType(int column) throws SQLException {
+				return TYPES[column - 1];
+		}
+
+		@Override
+		public int getPrecision(int column) throws SQLException {
+			return 0;
+		}
+
+		@Override
+		public int getScale(int column) throws SQLException {
+			return 0;
+		}
+
+		@Override
+		public String getSchemaName(int column) throws SQLException {
+			return null;
+		}
+
+		@Override
+		public String getTableName(int column) throws SQLException {
+			return null;
+		}
+
+		@Override
+		public boolean isAutoIncrement(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public boolean isCaseSensitive(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public boolean isCurrency(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public boolean isDefinitelyWritable(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public int isNullable(int column) throws SQLException {
+			return 0;
+		}
+
+		@Override
+		public boolean isReadOnly(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public boolean isSearchable(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public boolean isSigned(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public boolean isWrapperFor(Class<?> type) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public boolean isWritable(int column) throws SQLException {
+			return false;
+		}
+
+		@Override
+		public <T> T unwrap(Class<T> type) throws SQLException {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean absolute(int row) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public void afterLast() throws SQLException {
+	}
+
+	@Override
+	public void beforeFirst() throws SQLException {
+	}
+
+	@Override
+	public void cancelRowUpdates() throws SQLException {
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+	}
+
+	@Override
+	public void close() throws SQLException {
+		closed = true;
+	}
+
+	@Override
+	public void deleteRow() throws SQLException {
+	}
+
+	@Override
+	public int findColumn(String columnLabel) throws SQLException {
+		for (int i = 0; i < LABELS.length; i++) {
+			if (LABELS[i].equalsIgnoreCase(columnLabel)) {
+				return i + 1;
+			}
+		}
+		throw new SQLException("Column not found: " + columnLabel);
+	}
+
+	@Override
+	public boolean first() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public Array getArray(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Array getArray(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public InputStream getAsciiStream(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public InputStream getAsciiStream(int column) throws SQLException {
+		return null;
+	}
+
+	@Deprecated
+	@Override
+	public BigDecimal getBigDecimal(String columnLabel, int value) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Deprecated
+	@Override
+	public BigDecimal getBigDecimal(int column, int value) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public InputStream getBinaryStream(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public InputStream getBinaryStream(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Blob getBlob(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Blob getBlob(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public boolean getBoolean(String columnLabel) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean getBoolean(int column) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public byte getByte(String columnLabel) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public byte getByte(int column) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public byte[] getBytes(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public byte[] getBytes(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Reader getCharacterStream(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Reader getCharacterStream(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Clob getClob(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Clob getClob(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getConcurrency() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public String getCursorName() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Date getDate(String columnLabel, Calendar Calendar) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Date getDate(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Date getDate(int column, Calendar Calendar) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Date getDate(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public double getDouble(String columnLabel) throws SQLException {
+		return getDouble(findColumn(columnLabel));
+	}
+
+	@Override
+	public double getDouble(int column) throws SQLException {
+		return row + column * 0.5;
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public float getFloat(String columnLabel) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public float getFloat(int column) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public int getInt(String columnLabel) throws SQLException {
+		return getInt(findColumn(columnLabel));
+	}
+
+	@Override
+	public int getInt(int column) throws SQLException {
+		return row + column;
+	}
+
+	@Override
+	public long getLong(String columnLabel) throws SQLException {
+		return getLong(findColumn(columnLabel));
+	}
+
+	@Override
+	public long getLong(int column) throws SQLException {
+		return row + column;
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		return META;
+	}
+
+	@Override
+	public Reader getNCharacterStream(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Reader getNCharacterStream(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public NClob getNClob(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public NClob getNClob(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public String getNString(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public String getNString(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Object getObject(String columnLabel) throws SQLException {
+		return getObject(findColumn(columnLabel));
+	}
+
+	@Override
+	public <T> T getObject(int column, Class<T> type) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Object getObject(int column, Map<String, Class<?>> map) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Object getObject(int column) throws SQLException {
+		switch (TYPES[column - 1]) {
+		case Types.BIGINT:
+			return getLong(column);
+		case Types.INTEGER:
+			return getInt(column);
+		case Types.DOUBLE:
+			return getDouble(column);
+		default:
+			return getString(column);
+		}
+	}
+
+	@Override
+	public Ref getRef(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Ref getRef(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public RowId getRowId(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public RowId getRowId(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getRow() throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public SQLXML getSQLXML(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public SQLXML getSQLXML(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public short getShort(String columnLabel) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public short getShort(int column) throws SQLException {
+		return 0;
+	}
+
+	@Override
+	public Statement getStatement() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public String getString(String columnLabel) throws SQLException {
+		return getString(findColumn(columnLabel));
+	}
+
+	@Override
+	public String getString(int column) throws SQLException {
+		return NAME;
+	}
+
+	@Override
+	public Time getTime(String columnLabel, Calendar Calendar) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Time getTime(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Time getTime(int column, Calendar Calendar) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Time getTime(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel, Calendar Calendar) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Timestamp getTimestamp(int column, Calendar Calendar) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public Timestamp getTimestamp(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public int getType() throws SQLException {
+		return TYPE_FORWARD_ONLY;
+	}
+
+	@Override
+	public URL getURL(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public URL getURL(int column) throws SQLException {
+		return null;
+	}
+
+	@Deprecated
+	@Override
+	public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+		return null;
+	}
+
+	@Deprecated
+	@Override
+	public InputStream getUnicodeStream(int column) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return null;
+	}
+
+	@Override
+	public void insertRow() throws SQLException {
+	}
+
+	@Override
+	public boolean isAfterLast() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isBeforeFirst() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return closed;
+	}
+
+	@Override
+	public boolean isFirst() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isLast() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> type) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean last() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public void moveToCurrentRow() throws SQLException {
+	}
+
+	@Override
+	public void moveToInsertRow() throws SQLException {
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+		return ++row <= rows;
+	}
+
+	@Override
+	public boolean previous() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public void refreshRow() throws SQLException {
+	}
+
+	@Override
+	public boolean relative(int rows) throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean rowDeleted() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean rowInserted() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public boolean rowUpdated() throws SQLException {
+		return false;
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException {
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> type) throws SQLException {
+		return null;
+	}
+
+	@Override
+	public void updateArray(String columnLabel, Array x) throws SQLException {
+	}
+
+	@Override
+	public void updateArray(int column, Array x) throws SQLException {
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void updateAsciiStream(int column, InputStream x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateAsciiStream(int column, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateAsciiStream(int column, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+	}
+
+	@Override
+	public void updateBigDecimal(int column, BigDecimal x) throws SQLException {
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void updateBinaryStream(int column, InputStream x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateBinaryStream(int column, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateBinaryStream(int column, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, Blob x) throws SQLException {
+	}
+
+	@Override
+	public void updateBlob(int column, InputStream x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateBlob(int column, InputStream x) throws SQLException {
+	}
+
+	@Override
+	public void updateBlob(int column, Blob x) throws SQLException {
+	}
+
+	@Override
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+	}
+
+	@Override
+	public void updateBoolean(int column, boolean x) throws SQLException {
+	}
+
+	@Override
+	public void updateByte(String columnLabel, byte x) throws SQLException {
+	}
+
+	@Override
+	public void updateByte(int column, byte x) throws SQLException {
+	}
+
+	@Override
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+	}
+
+	@Override
+	public void updateBytes(int column, byte[] x) throws SQLException {
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateCharacterStream(int column, Reader x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateCharacterStream(int column, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateCharacterStream(int column, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Clob x) throws SQLException {
+	}
+
+	@Override
+	public void updateClob(int column, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateClob(int column, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateClob(int column, Clob x) throws SQLException {
+	}
+
+	@Override
+	public void updateDate(String columnLabel, Date x) throws SQLException {
+	}
+
+	@Override
+	public void updateDate(int column, Date x) throws SQLException {
+	}
+
+	@Override
+	public void updateDouble(String columnLabel, double x) throws SQLException {
+	}
+
+	@Override
+	public void updateDouble(int column, double x) throws SQLException {
+	}
+
+	@Override
+	public void updateFloat(String columnLabel, float x) throws SQLException {
+	}
+
+	@Override
+	public void updateFloat(int column, float x) throws SQLException {
+	}
+
+	@Override
+	public void updateInt(String columnLabel, int x) throws SQLException {
+	}
+
+	@Override
+	public void updateInt(int column, int x) throws SQLException {
+	}
+
+	@Override
+	public void updateLong(String columnLabel, long x) throws SQLException {
+	}
+
+	@Override
+	public void updateLong(int column, long x) throws SQLException {
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateNCharacterStream(int column, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateNCharacterStream(int column, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, NClob x) throws SQLException {
+	}
+
+	@Override
+	public void updateNClob(int column, Reader x, long length) throws SQLException {
+	}
+
+	@Override
+	public void updateNClob(int column, Reader x) throws SQLException {
+	}
+
+	@Override
+	public void updateNClob(int column, NClob x) throws SQLException {
+	}
+
+	@Override
+	public void updateNString(String columnLabel, String x) throws SQLException {
+	}
+
+	@Override
+	public void updateNString(int column, String x) throws SQLException {
+	}
+
+	@Override
+	public void updateNull(String columnLabel) throws SQLException {
+	}
+
+	@Override
+	public void updateNull(int column) throws SQLException {
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x) throws SQLException {
+	}
+
+	@Override
+	public void updateObject(int column, Object x, int value) throws SQLException {
+	}
+
+	@Override
+	public void updateObject(int column, Object x) throws SQLException {
+	}
+
+	@Override
+	public void updateRef(String columnLabel, Ref x) throws SQLException {
+	}
+
+	@Override
+	public void updateRef(int column, Ref x) throws SQLException {
+	}
+
+	@Override
+	public void updateRowId(String columnLabel, RowId x) throws SQLException {
+	}
+
+	@Override
+	public void updateRowId(int column, RowId x) throws SQLException {
+	}
+
+	@Override
+	public void updateRow() throws SQLException {
+	}
+
+	@Override
+	public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException {
+	}
+
+	@Override
+	public void updateSQLXML(int column, SQLXML x) throws SQLException {
+	}
+
+	@Override
+	public void updateShort(String columnLabel, short x) throws SQLException {
+	}
+
+	@Override
+	public void updateShort(int column, short x) throws SQLException {
+	}
+
+	@Override
+	public void updateString(String columnLabel, String x) throws SQLException {
+	}
+
+	@Override
+	public void updateString(int column, String x) throws SQLException {
+	}
+
+	@Override
+	public void updateTime(String columnLabel, Time x) throws SQLException {
+	}
+
+	@Override
+	public void updateTime(int column, Time x) throws SQLException {
+	}
+
+	@Override
+	public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+	}
+
+	@Override
+	public void updateTimestamp(int column, Timestamp x) throws SQLException {
+	}
+
+	@Override
+	public boolean wasNull() throws SQLException {
+		return false;
+	}
+}
@@ -0,0 +1,315 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs statements asynchronously with a hard limit on the number of concurrent executions.
+ *
+ * Work is dispatched to an executor, at most <code>maxConcurrency</code> at a time, remaining
+ * work waits in a bounded queue without occupying any thread. Any executor may be used, such as
+ * a thread per task executor, or the built-in pool of <code>maxConcurrency</code> daemon threads.
+ *
+ * See {@link ParameterStatement#executeUpdateAsync(AsyncExecutor, SQLStack)} and siblings. Futures support
+ * cancellation through {@link Statement#cancel()}, and resources pushed to the given stack are closed when
+ * the work is done, before the future completes (unless cancelled while running, the stack is then closed
+ * as soon as the statement returns).
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  AsyncExecutor async = new AsyncExecutor(8);
+ *  ...
+ *  SQLStack stack = new SQLStack();
+ *  Connection connection = stack.push(dataSource.getConnection());
+ *  ParameterStatement stmt = stack.push(new ParameterStatement(connection, "UPDATE foo SET bar = :bar"));
+ *  stmt.setInt("bar", 1);
+ *  SQLFuture&lt;Integer&gt; f = stmt.executeUpdateAsync(async, stack);
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public class AsyncExecutor implements SQLClosable {
+	/** Default maximum number of queued executions. */
+	public static final int DEFAULT_MAX_QUEUED = 10000;
+
+	private static final AtomicInteger poolCount = new AtomicInteger();
+
+	private final Executor			executor;
+	private final ExecutorService	ownExecutor;
+	private final int				maxConcurrency;
+	private final int				maxQueued;
+
+	/** Work waiting for a free slot, guarded by this. */
+	private final Queue<Task<?>>	pending = new ArrayDeque<Task<?>>();
+	private int						running;
+	private boolean					closed;
+
+	/**
+	 * Unit of asynchronous work.
+	 * @param <T>	type of result
+	 */
+	abstract static class Work<T> {
+		/** Statement to cancel on cancellation, or null. */
+		final Statement statement;
+
+		Work(Statement statement) {
+			this.statement = statement;
+		}
+
+		abstract T run() throws SQLException;
+	}
+
+	private final class Task<T> extends SettableFuture<T> implements Runnable {
+		private final Work<T>	work;
+		private final SQLStack	stack;
+		private boolean			started;
+
+		Task(Work<T> work, SQLStack stack) {
+			this.work = work;
+			this.stack = stack;
+		}
+
+		@Override
+		public void run() {
+			try {
+				synchronized (this) {
+					if (isDone()) {
+						return;
+					}
+					started = true;
+				}
+				execute();
+			} finally {
+				finished();
+			}
+		}
+
+		private void execute() {
+			T result = null;
+			Throwable error = null;
+			try {
+				result = work.run();
+			} catch (SQLException | RuntimeException | Error e) {
+				error = e;
+			}
+			if (stack != null) {
+				try {
+					stack.close();
+				} catch (SQLException e) {
+					if (error == null) {
+						error = e;
+					} else {
+						error.addSuppressed(e);
+					}
+				}
+			}
+			if (error == null) {
+				set(result);
+			} else {
+				fail(error);
+			}
+		}
+
+		@Override
+		protected void cancelled(boolean mayInterruptIfRunning) {
+			final boolean running;
+			synchronized (this) {
+				running = started;
+			}
+			if (running) {
+				if (work.statement != null) {
+					try {
+						work.statement.cancel();
+					} catch (SQLException e) {
+						// not supported by driver, or already done
+					}
+				}
+			} else if (stack != null) {
+				stack.closeSuppress();
+			}
+		}
+	}
+
+	/**
+	 * Creates an executor running on an own pool of <code>maxConcurrency</code> daemon threads.
+	 * @param maxConcurrency	maximum number of concurrent executions
+	 */
+	public AsyncExecutor(int maxConcurrency) {
+		this(null, maxConcurrency, DEFAULT_MAX_QUEUED);
+	}
+
+	/**
+	 * Creates an executor dispatching to the given executor, which is not shut down on {@link #close()}.
+	 * @param executor			executor to run statements on
+	 * @param maxConcurrency	maximum number of concurrent executions
+	 * @param maxQueued			maximum number of executions waiting for a slot, further submissions fail
+	 */
+	public AsyncExecutor(Executor executor, int maxConcurrency, int maxQueued) {
+		if (maxConcurrency <= 0) {
+			throw new IllegalArgumentException("maxConcurrency must be positive");
+		}
+		if (maxQueued < 0) {
+			throw new IllegalArgumentException("maxQueued must not be negative");
+		}
+		this.maxConcurrency = maxConcurrency;
+		this.maxQueued = maxQueued;
+		if (executor != null) {
+			this.executor = executor;
+			this.ownExecutor = null;
+		} else {
+			final String prefix = "plipsql-async-" + poolCount.incrementAndGet() + "-";
+			this.ownExecutor = Executors.newFixedThreadPool(maxConcurrency, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable r) {
+					final Thread t = new Thread(r, prefix + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			this.executor = ownExecutor;
+		}
+	}
+
+	/**
+	 * Submits work, the future fails with {@link RejectedExecutionException} if the queue is full or this is closed.
+	 * @param stack		stack to close when work is done, or null
+	 */
+	<T> SQLFuture<T> submit(Work<T> work, SQLStack stack) {
+		final Task<T> task = new Task<T>(work, stack);
+		final boolean dispatch;
+		synchronized (this) {
+			if (closed) {
+				return reject(task, "async executor is closed");
+			}
+			if (running < maxConcurrency) {
+				running++;
+				dispatch = true;
+			} else if (pending.size() < maxQueued) {
+				pending.add(task);
+				dispatch = false;
+			} else {
+				return reject(task, "async executor queue is full");
+			}
+		}
+		if (dispatch && !dispatch(task)) {
+			finished();
+		}
+		return task;
+	}
+
+	private static <T> SQLFuture<T> reject(Task<T> task, String message) {
+		if (task.stack != null) {
+			task.stack.closeSuppress();
+		}
+		task.fail(new RejectedExecutionException(message));
+		return task;
+	}
+
+	/**
+	 * Hands work to the executor, failing it if rejected.
+	 * @return false if rejected, the slot of the work is then free
+	 */
+	private boolean dispatch(Task<?> task) {
+		try {
+			executor.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			if (task.stack != null) {
+				task.stack.closeSuppress();
+			}
+			task.fail(e);
+			return false;
+		}
+	}
+
+	/**
+	 * Hands the slot of finished work to the next pending one, skipping work the executor rejects.
+	 */
+	private void finished() {
+		while (true) {
+			final Task<?> next;
+			synchronized (this) {
+				next = pending.poll();
+				if (next == null) {
+					running--;
+					notifyAll();
+					return;
+				}
+			}
+			if (dispatch(next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns number of currently running executions.
+	 * @return running executions
+	 */
+	public synchronized int getRunning() {
+		return running;
+	}
+
+	/**
+	 * Returns number of executions waiting for a slot.
+	 * @return queued executions
+	 */
+	public synchronized int getQueued() {
+		return pending.size();
+	}
+
+	/**
+	 * Stops accepting work and waits for submitted work to finish, then shuts down the own thread pool if any.
+	 * @throws SQLException	if interrupted while waiting
+	 */
+	@Override
+	public void close() throws SQLException {
+		synchronized (this) {
+			closed = true;
+			try {
+				while (running > 0) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("interrupted while waiting for async work", e);
+			} finally {
+				if (ownExecutor != null) {
+					ownExecutor.shutdown();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,463 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.plip.sql.ParameterStatement.ParameterProvider;
+
+/**
+ * Writes a stream of rows through batched execution of a statement with named parameters.
+ *
+ * Batches are flushed every N rows or when the estimated payload reaches M bytes,
+ * and optionally committed every K batches through {@link SQLTransaction}.
+ * Only the current batch is kept in memory.
+ *
+ * Optionally single row inserts can be rewritten into multi-row inserts, see {@link #setValuesRows(int)}.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  try (BatchWriter writer = new BatchWriter(connection, "INSERT INTO foo (a,b) VALUES (:a,:b)")) {
+ *      writer.setBatchRows(500).setCommitBatches(20);
+ *      BatchWriter.Result result = writer.write(rows);
+ *  }
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public class BatchWriter implements SQLClosable {
+	/** Default number of rows per batch. */
+	public static final int DEFAULT_BATCH_ROWS = 1000;
+
+	/**
+	 * Aggregate result of a write.
+	 */
+	public static final class Result {
+		long	rows;
+		long	batches;
+		long	commits;
+		long	updateCount;
+		long	unknownCount;
+		long	elapsedNanos;
+
+		/**
+		 * @return number of rows written
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return number of executed batches
+		 */
+		public long getBatches() {
+			return batches;
+		}
+
+		/**
+		 * @return number of performed commits
+		 */
+		public long getCommits() {
+			return commits;
+		}
+
+		/**
+		 * Returns sum of reported update counts.
+		 * @return number of rows affected
+		 */
+		public long getUpdateCount() {
+			return updateCount;
+		}
+
+		/**
+		 * Returns number of statements where driver reported {@link Statement#SUCCESS_NO_INFO}.
+		 * @return number of unknown update counts
+		 */
+		public long getUnknownCount() {
+			return unknownCount;
+		}
+
+		/**
+		 * @return elapsed time in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "rows=" + rows + " batches=" + batches + " commits=" + commits
+					+ " updateCount=" + updateCount + " unknownCount=" + unknownCount
+					+ " elapsed=" + (elapsedNanos / 1000000) + "ms";
+		}
+	}
+
+	/** Reusable provider adapter for map input. */
+	private static final class MapProvider implements ParameterProvider {
+		Map<String, SQLParameter> map;
+
+		@Override
+		public SQLParameter get(String paramName) {
+			return map.get(paramName);
+		}
+	}
+
+	private final Connection	connection;
+	private final ParsedQuery	query;
+	private ParameterStatement	statement;
+
+	private int		batchRows = DEFAULT_BATCH_ROWS;
+	private long	batchBytes = 0;
+	private int		commitBatches = 0;
+	private int		valuesRows = 1;
+
+	/** Parameters of current multi-row chunk, indexed by row and slot ordinal. */
+	private SQLParameter[][]	chunk;
+
+	/**
+	 * Creates a batch writer.
+	 * @param connection	the database connection
+	 * @param query			the parameterized query
+	 */
+	public BatchWriter(Connection connection, CharSequence query) {
+		this(connection, ParsedQuery.parse(query));
+	}
+
+	/**
+	 * Creates a batch writer.
+	 * @param connection	the database connection
+	 * @param query			the parsed query
+	 */
+	public BatchWriter(Connection connection, ParsedQuery query) {
+		if (connection == null) {
+			throw new NullPointerException("connection mustn't be null");
+		}
+		this.connection = connection;
+		this.query = query;
+	}
+
+	/**
+	 * Sets maximum number of rows per batch, default is {@link #DEFAULT_BATCH_ROWS}.
+	 * @param rows	rows per batch
+	 * @return this
+	 */
+	public BatchWriter setBatchRows(int rows) {
+		if (rows <= 0) {
+			throw new IllegalArgumentException("rows must be positive");
+		}
+		this.batchRows = rows;
+		return this;
+	}
+
+	/**
+	 * Sets estimated payload size at which a batch is flushed, or 0 for no limit (default).
+	 * @param bytes	estimated bytes per batch
+	 * @return this
+	 */
+	public BatchWriter setBatchBytes(long bytes) {
+		if (bytes < 0) {
+			throw new IllegalArgumentException("bytes mustn't be negative");
+		}
+		this.batchBytes = bytes;
+		return this;
+	}
+
+	/**
+	 * Sets number of batches per commit, or 0 to leave transaction handling to caller (default).
+	 * Ignored if connection is in auto-commit mode.
+	 * @param batches	batches per commit
+	 * @return this
+	 */
+	public BatchWriter setCommitBatches(int batches) {
+		if (batches < 0) {
+			throw new IllegalArgumentException("batches mustn't be negative");
+		}
+		this.commitBatches = batches;
+		return this;
+	}
+
+	/**
+	 * Sets number of rows per statement for multi-row VALUES rewriting, default is 1 (disabled).
+	 *
+	 * When enabled, a single row insert such as <code>INSERT INTO t (a,b) VALUES (:a,:b)</code>
+	 * is rewritten into <code>INSERT INTO t (a,b) VALUES (?,?),(?,?),...</code> with the given number of rows,
+	 * and trailing rows are written using a statement of matching size.
+	 * All parameters must be within the VALUES tuple.
+	 * Batch limits still apply to number of rows, not statements.
+	 *
+	 * @param rows	rows per statement
+	 * @return this
+	 * @throws IllegalArgumentException	if query can't be rewritten
+	 */
+	public BatchWriter setValuesRows(int rows) {
+		if (rows <= 0) {
+			throw new IllegalArgumentException("rows must be positive");
+		}
+		if (rows != valuesRows) {
+			if (rows > 1) {
+				query.expandValues(1);	// validate
+			}
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					// statement is discarded anyway
+				}
+				statement = null;
+			}
+			valuesRows = rows;
+		}
+		return this;
+	}
+
+	/**
+	 * Writes all rows from a map iterator.
+	 * @param rows	rows to write
+	 * @return aggregate result
+	 * @throws SQLException
+	 * @see #write(java.util.Iterator)
+	 */
+	public Result writeMaps(final Iterator<? extends Map<String, SQLParameter>> rows) throws SQLException {
+		final MapProvider provider = new MapProvider();
+		return write(new Iterator<ParameterProvider>() {
+			@Override
+			public boolean hasNext() {
+				return rows.hasNext();
+			}
+
+			@Override
+			public ParameterProvider next() {
+				provider.map = rows.next();
+				return provider;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		});
+	}
+
+	/**
+	 * Writes all rows from a provider iterator.
+	 *
+	 * Providers are consumed as they are bound, so the iterator may reuse a single provider instance.
+	 * Every row must provide all parameters, values aren't kept from the previous row.
+	 * On failure the current batch is discarded and any uncommitted batches are rolled back.
+	 *
+	 * @param rows	rows to write
+	 * @return aggregate result
+	 * @throws SQLException
+	 * @throws IllegalArgumentException	if a row leaves parameters unbound
+	 */
+	public Result write(Iterator<? extends ParameterProvider> rows) throws SQLException {
+		final long start = System.nanoTime();
+		final Result result = new Result();
+
+		final boolean multi = valuesRows > 1;
+		if (statement == null) {
+			if (multi) {
+				statement = new ParameterStatement(connection, query.expandValues(valuesRows));
+				chunk = new SQLParameter[valuesRows][query.getSlotCount()];
+			} else {
+				statement = new ParameterStatement(connection, query);
+			}
+		}
+
+		final boolean commit = commitBatches > 0 && !connection.getAutoCommit();
+		SQLTransaction trans = commit ? new SQLTransaction(connection) : null;
+		try {
+			int pendingRows = 0;
+			long pendingBytes = 0;
+			int uncommitted = 0;
+			int chunkRows = 0;
+
+			while (rows.hasNext()) {
+				if (multi) {
+					pendingBytes += capture(rows.next(), chunkRows++);
+					if (chunkRows < valuesRows) {
+						continue;
+					}
+					bindChunk(statement.borrowStatement(), valuesRows);
+					statement.addBatch();
+					pendingRows += valuesRows;
+					chunkRows = 0;
+				} else {
+					pendingBytes += bind(rows.next());
+					statement.addBatch();
+					pendingRows++;
+				}
+
+				if (pendingRows >= batchRows || (batchBytes > 0 && pendingBytes >= batchBytes)) {
+					flush(result, pendingRows);
+					pendingRows = 0;
+					pendingBytes = 0;
+
+					if (commit && ++uncommitted >= commitBatches) {
+						trans.commit();
+						result.commits++;
+						trans = new SQLTransaction(connection);
+						uncommitted = 0;
+					}
+				}
+			}
+
+			if (pendingRows > 0) {
+				flush(result, pendingRows);
+				uncommitted++;
+			}
+			if (chunkRows > 0) {
+				writeTail(result, chunkRows);
+				uncommitted++;
+			}
+			if (commit && uncommitted > 0) {
+				trans.commit();
+				result.commits++;
+			}
+		} catch (SQLException | RuntimeException | Error e) {
+			discard(trans, e);
+			throw e;
+		}
+		if (trans != null) {
+			trans.close();
+		}
+
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/**
+	 * Rolls back uncommitted batches and discards the current batch after a failure.
+	 */
+	private void discard(SQLTransaction trans, Throwable failure) {
+		if (trans != null) {
+			try {
+				trans.close();
+			} catch (SQLException e) {
+				failure.addSuppressed(e);
+			}
+		}
+		try {
+			statement.clearBatch();
+		} catch (SQLException e) {
+			failure.addSuppressed(e);
+		}
+	}
+
+	private long bind(ParameterProvider provider) throws SQLException {
+		statement.unbind();
+		long bytes = BeanParameters.bindProvider(statement, provider);
+		if (bytes < 0) {
+			bytes = 0;
+			final int count = query.getSlotCount();
+			for (int i = 0; i < count; i++) {
+				final ParsedQuery.Slot slot = query.slot(i);
+				final SQLParameter p = provider.get(slot.getName());
+				if (p != null) {
+					statement.setParameter(slot, p);
+					bytes += p.estimateSize();
+				}
+			}
+		}
+		if (!statement.isBound()) {
+			throw new IllegalArgumentException("Unbound parameters: " + statement.getUnboundParameters());
+		}
+		return bytes;
+	}
+
+	/**
+	 * Captures parameters of a row into current chunk.
+	 */
+	private long capture(ParameterProvider provider, int row) {
+		long bytes = 0;
+		final SQLParameter[] params = chunk[row];
+		final int count = query.getSlotCount();
+		for (int i = 0; i < count; i++) {
+			final ParsedQuery.Slot slot = query.slot(i);
+			final SQLParameter p = provider.get(slot.getName());
+			if (p == null) {
+				throw new IllegalArgumentException("Unbound parameter: " + slot.getName());
+			}
+			params[i] = p;
+			bytes += p.estimateSize();
+		}
+		return bytes;
+	}
+
+	private void bindChunk(PreparedStatement ps, int rows) throws SQLException {
+		final int width = query.getIndexCount();
+		final int count = query.getSlotCount();
+		for (int row = 0; row < rows; row++) {
+			final int offset = row * width;
+			final SQLParameter[] params = chunk[row];
+			for (int i = 0; i < count; i++) {
+				for (int index : query.slot(i).indices) {
+					params[i].bind(ps, offset + index);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the last incomplete chunk of a multi-row write.
+	 */
+	private void writeTail(Result result, int rows) throws SQLException {
+		try (PreparedStatement ps = connection.prepareStatement(query.expandValues(rows))) {
+			bindChunk(ps, rows);
+			final int count = ps.executeUpdate();
+			result.updateCount += count;
+			result.rows += rows;
+			result.batches++;
+		}
+	}
+
+	private void flush(Result result, int pendingRows) throws SQLException {
+		final int[] counts = statement.executeBatch();
+		for (int count : counts) {
+			if (count >= 0) {
+				result.updateCount += count;
+			} else if (count == Statement.SUCCESS_NO_INFO) {
+				result.unknownCount++;
+			}
+		}
+		result.rows += pendingRows;
+		result.batches++;
+	}
+
+	/**
+	 * Closes the underlying statement.
+	 * @throws SQLException
+	 */
+	@Override
+	public void close() throws SQLException {
+		if (statement != null) {
+			statement.close();
+		}
+	}
+}
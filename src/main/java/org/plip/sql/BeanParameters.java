@@ -0,0 +1,517 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.plip.sql.ParameterStatement.ParameterProvider;
+
+/**
+ * Binds properties of plain Java objects to named parameters.
+ *
+ * A class is introspected once, its public getters (<code>getFoo()</code>, <code>isFoo()</code>), accessors named
+ * as a field (<code>foo()</code>, as of immutable value classes) and public fields become properties.
+ * Each property is read through a {@link MethodHandle} typed by the property, so primitives are bound
+ * through the typed setters of {@link ParameterStatement} without boxing.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  BeanParameters&lt;Foo&gt; params = BeanParameters.of(Foo.class);
+ *  try (ParameterStatement stmt = new ParameterStatement(connection, "INSERT INTO foo (id,name) VALUES (:id,:name)")) {
+ *      for (Foo foo : foos) {
+ *          params.bind(stmt, foo);
+ *          stmt.addBatch();
+ *      }
+ *      stmt.executeBatch();
+ *  }
+ * </code></pre>
+ *
+ * Providers returned by {@link #provider(Object)} and {@link #providers(Iterator)} are bound the same way
+ * by {@link ParameterStatement#setParameters(ParameterProvider)} and {@link BatchWriter}.
+ * Null property values are bound as SQL NULL, parameters without a property are left as is.
+ *
+ * Supported property types are primitives and their wrappers, String, BigDecimal, BigInteger,
+ * Date, Timestamp, byte[], enums (bound by name) and SQLParameter.
+ *
+ * @param <T> type of objects
+ * @since 1.1
+ */
+public final class BeanParameters<T> {
+
+	private static final ClassValue<BeanParameters<?>> _cache = new ClassValue<BeanParameters<?>>() {
+		@Override
+		protected BeanParameters<?> computeValue(Class<?> type) {
+			return new BeanParameters<Object>(type);
+		}
+	};
+
+	/**
+	 * Reads and binds a single property.
+	 */
+	private abstract static class Property {
+		final String		name;
+		final MethodHandle	getter;
+
+		Property(String name, MethodHandle getter, Class<?> type) {
+			this.name = name;
+			this.getter = getter.asType(MethodType.methodType(type, Object.class));
+		}
+
+		/**
+		 * Binds the property of an object.
+		 * @return estimated size in bytes
+		 */
+		abstract int bind(ParameterStatement statement, ParsedQuery.Slot slot, Object bean) throws SQLException;
+
+		abstract SQLParameter get(Object bean);
+	}
+
+	private static final class LongProperty extends Property {
+		LongProperty(String name, MethodHandle getter) {
+			super(name, getter, long.class);
+		}
+
+		long read(Object bean) {
+			try {
+				return (long)getter.invokeExact(bean);
+			} catch (Throwable t) {
+				throw failed(name, t);
+			}
+		}
+
+		@Override
+		int bind(ParameterStatement statement, ParsedQuery.Slot slot, Object bean) throws SQLException {
+			statement.setLong(slot, read(bean));
+			return 8;
+		}
+
+		@Override
+		SQLParameter get(Object bean) {
+			return new SQLParameter.OfLong(read(bean));
+		}
+	}
+
+	private static final class IntProperty extends Property {
+		IntProperty(String name, MethodHandle getter) {
+			super(name, getter, int.class);
+		}
+
+		int read(Object bean) {
+			try {
+				return (int)getter.invokeExact(bean);
+			} catch (Throwable t) {
+				throw failed(name, t);
+			}
+		}
+
+		@Override
+		int bind(ParameterStatement statement, ParsedQuery.Slot slot, Object bean) throws SQLException {
+			statement.setInt(slot, read(bean));
+			return 4;
+		}
+
+		@Override
+		SQLParameter get(Object bean) {
+			return new SQLParameter.OfInt(read(bean));
+		}
+	}
+
+	private static final class DoubleProperty extends Property {
+		DoubleProperty(String name, MethodHandle getter) {
+			super(name, getter, double.class);
+		}
+
+		double read(Object bean) {
+			try {
+				return (double)getter.invokeExact(bean);
+			} catch (Throwable t) {
+				throw failed(name, t);
+			}
+		}
+
+		@Override
+		int bind(ParameterStatement statement, ParsedQuery.Slot slot, Object bean) throws SQLException {
+			statement.setDouble(slot, read(bean));
+			return 8;
+		}
+
+		@Override
+		SQLParameter get(Object bean) {
+			return new SQLParameter.OfDouble(read(bean));
+		}
+	}
+
+	private static final class StringProperty extends Property {
+		StringProperty(String name, MethodHandle getter) {
+			super(name, getter, String.class);
+		}
+
+		String read(Object bean) {
+			try {
+				return (String)getter.invokeExact(bean);
+			} catch (Throwable t) {
+				throw failed(name, t);
+			}
+		}
+
+		@Override
+		int bind(ParameterStatement statement, ParsedQuery.Slot slot, Object bean) throws SQLException {
+			final String x = read(bean);
+			statement.setString(slot, x);
+			return x != null ? 2 * x.length() : 1;
+		}
+
+		@Override
+		SQLParameter get(Object bean) {
+			return new SQLParameter(read(bean));
+		}
+	}
+
+	/**
+	 * Reference typed property bound through {@link ParameterStatement#setObject(ParsedQuery.Slot, Object, int, Integer)},
+	 * or by {@link ParameterStatement#setParameter(ParsedQuery.Slot, SQLParameter)} if sqlType is null.
+	 */
+	private static final class ObjectProperty extends Property {
+		final Integer	sqlType;
+		final boolean	byName;
+
+		ObjectProperty(String name, MethodHandle getter, Integer sqlType, boolean byName) {
+			super(name, getter, Object.class);
+			this.sqlType = sqlType;
+			this.byName = byName;
+		}
+
+		Object read(Object bean) {
+			final Object x;
+			try {
+				x = (Object)getter.invokeExact(bean);
+			} catch (Throwable t) {
+				throw failed(name, t);
+			}
+			return byName && x != null ? ((Enum<?>)x).name() : x;
+		}
+
+		@Override
+		int bind(ParameterStatement statement, ParsedQuery.Slot slot, Object bean) throws SQLException {
+			final Object x = read(bean);
+			if (sqlType == null) {
+				final SQLParameter p = x != null ? (SQLParameter)x : new SQLParameter(null, java.sql.Types.NULL);
+				statement.setParameter(slot, p);
+				return p.estimateSize();
+			}
+			statement.setObject(slot, x, sqlType, null);
+			if (x instanceof CharSequence) {
+				return 2 * ((CharSequence)x).length();
+			} else if (x instanceof byte[]) {
+				return ((byte[])x).length;
+			}
+			return 8;
+		}
+
+		@Override
+		SQLParameter get(Object bean) {
+			final Object x = read(bean);
+			if (sqlType == null) {
+				return x != null ? (SQLParameter)x : new SQLParameter(null, java.sql.Types.NULL);
+			}
+			return new SQLParameter(x, sqlType);
+		}
+	}
+
+	/**
+	 * Properties resolved to the slots of a query, indexed by slot ordinal.
+	 */
+	static final class Binding {
+		final BeanParameters<?>		owner;
+		final ParsedQuery.Slot[]	slots;
+		final Property[]			properties;
+
+		Binding(BeanParameters<?> owner, ParsedQuery query, Map<String, Property> byName) {
+			this.owner = owner;
+			final int count = query.getSlotCount();
+			slots = new ParsedQuery.Slot[count];
+			properties = new Property[count];
+			for (int i = 0; i < count; i++) {
+				slots[i] = query.slot(i);
+				properties[i] = byName.get(slots[i].getName());
+			}
+		}
+	}
+
+	/**
+	 * Provider of the properties of one object.
+	 */
+	private static final class Provider implements ParameterProvider {
+		final BeanParameters<?>	owner;
+		Object					bean;
+
+		Provider(BeanParameters<?> owner) {
+			this.owner = owner;
+		}
+
+		@Override
+		public SQLParameter get(String paramName) {
+			final Property p = owner.properties.get(paramName);
+			return p != null ? p.get(bean) : null;
+		}
+	}
+
+	private final Class<?>				type;
+	private final Map<String, Property>	properties;
+
+	private BeanParameters(Class<?> type) {
+		this.type = type;
+		properties = Collections.unmodifiableMap(introspect(type));
+	}
+
+	/**
+	 * Returns the parameters of a class, introspecting it on first use.
+	 * @param <T>	type of objects
+	 * @param type	class of objects
+	 * @return shared instance for the class
+	 * @throws IllegalArgumentException	if a property can't be accessed
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> BeanParameters<T> of(Class<T> type) {
+		return (BeanParameters<T>)_cache.get(type);
+	}
+
+	/**
+	 * Returns names of the properties.
+	 * @return unmodifiable set of property names
+	 */
+	public Set<String> getProperties() {
+		return properties.keySet();
+	}
+
+	/**
+	 * Binds properties of an object to the parameters of a statement.
+	 * Parameters without a matching property are left as is.
+	 * @param statement	statement to bind
+	 * @param bean		object to read
+	 * @return statement
+	 * @throws SQLException
+	 */
+	public ParameterStatement bind(ParameterStatement statement, T bean) throws SQLException {
+		bindSize(statement, bean);
+		return statement;
+	}
+
+	/**
+	 * Binds properties of an object.
+	 * @return estimated size in bytes of bound values
+	 */
+	long bindSize(ParameterStatement statement, Object bean) throws SQLException {
+		if (!type.isInstance(bean)) {
+			throw new IllegalArgumentException("Not an instance of " + type.getName() + ": " + bean);
+		}
+		final ParsedQuery query = statement.getParsedQuery();
+		Binding b = query.getBinding();
+		if (b == null || b.owner != this) {
+			b = new Binding(this, query, properties);
+			query.setBinding(b);
+		}
+
+		long bytes = 0;
+		final Property[] props = b.properties;
+		for (int i = 0; i < props.length; i++) {
+			if (props[i] != null) {
+				bytes += props[i].bind(statement, b.slots[i], bean);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns a provider of the properties of an object.
+	 * @param bean	object to read
+	 * @return parameter provider
+	 */
+	public ParameterProvider provider(T bean) {
+		final Provider p = new Provider(this);
+		p.bean = bean;
+		return p;
+	}
+
+	/**
+	 * Returns a provider iterator over objects, for use with {@link BatchWriter#write(Iterator)}.
+	 * A single provider instance is reused for all objects.
+	 * @param beans	objects to read
+	 * @return provider iterator
+	 */
+	public Iterator<ParameterProvider> providers(final Iterator<? extends T> beans) {
+		final Provider p = new Provider(this);
+		return new Iterator<ParameterProvider>() {
+			@Override
+			public boolean hasNext() {
+				return beans.hasNext();
+			}
+
+			@Override
+			public ParameterProvider next() {
+				p.bean = beans.next();
+				return p;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Binds a provider directly if it's one of ours.
+	 * @return estimated size in bytes, or -1 if not a bean provider
+	 */
+	static long bindProvider(ParameterStatement statement, ParameterProvider provider) throws SQLException {
+		if (!(provider instanceof Provider)) {
+			return -1;
+		}
+		final Provider p = (Provider)provider;
+		return p.owner.bindSize(statement, p.bean);
+	}
+
+	private static Map<String, Property> introspect(Class<?> type) {
+		final Map<String, Property> props = new LinkedHashMap<String, Property>();
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			for (Field f : type.getFields()) {
+				if (!Modifier.isStatic(f.getModifiers())) {
+					f.setAccessible(true);
+					add(props, f.getName(), f.getType(), lookup.unreflectGetter(f));
+				}
+			}
+			for (Method m : type.getMethods()) {
+				if (Modifier.isStatic(m.getModifiers()) || m.getParameterTypes().length != 0
+						|| m.getReturnType() == void.class || m.getDeclaringClass() == Object.class) {
+					continue;
+				}
+				final String name = propertyName(type, m);
+				if (name != null) {
+					m.setAccessible(true);
+					add(props, name, m.getReturnType(), lookup.unreflect(m));
+				}
+			}
+		} catch (IllegalAccessException | SecurityException e) {
+			throw new IllegalArgumentException("Can't access properties of " + type.getName(), e);
+		}
+		return props;
+	}
+
+	/**
+	 * Returns property name of an accessor, or null if not an accessor.
+	 */
+	private static String propertyName(Class<?> type, Method m) {
+		final String name = m.getName();
+		if (name.length() > 3 && name.startsWith("get") && Character.isUpperCase(name.charAt(3))) {
+			return decapitalize(name.substring(3));
+		}
+		if (name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))
+				&& (m.getReturnType() == boolean.class || m.getReturnType() == Boolean.class)) {
+			return decapitalize(name.substring(2));
+		}
+		// accessor named as a field of the same type
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			try {
+				final Field f = c.getDeclaredField(name);
+				return !Modifier.isStatic(f.getModifiers()) && f.getType() == m.getReturnType() ? name : null;
+			} catch (NoSuchFieldException e) {
+				// try superclass
+			}
+		}
+		return null;
+	}
+
+	private static String decapitalize(String s) {
+		if (s.length() > 1 && Character.isUpperCase(s.charAt(1))) {
+			return s;	// URL stays URL, as by java.beans.Introspector
+		}
+		return Character.toLowerCase(s.charAt(0)) + s.substring(1);
+	}
+
+	private static void add(Map<String, Property> props, String name, Class<?> t, MethodHandle getter) {
+		final Property p;
+		if (t == long.class) {
+			p = new LongProperty(name, getter);
+		} else if (t == int.class || t == short.class || t == byte.class) {
+			p = new IntProperty(name, getter);
+		} else if (t == double.class || t == float.class) {
+			p = new DoubleProperty(name, getter);
+		} else if (t == String.class) {
+			p = new StringProperty(name, getter);
+		} else if (t == boolean.class || t == Boolean.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.BOOLEAN, false);
+		} else if (t == Long.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.BIGINT, false);
+		} else if (t == Integer.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.INTEGER, false);
+		} else if (t == Short.class || t == Byte.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.SMALLINT, false);
+		} else if (t == Double.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.DOUBLE, false);
+		} else if (t == Float.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.REAL, false);
+		} else if (t == BigDecimal.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.DECIMAL, false);
+		} else if (t == BigInteger.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.NUMERIC, false);
+		} else if (t == Timestamp.class || t == Date.class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.TIMESTAMP, false);
+		} else if (t == byte[].class) {
+			p = new ObjectProperty(name, getter, java.sql.Types.VARBINARY, false);
+		} else if (t.isEnum()) {
+			p = new ObjectProperty(name, getter, java.sql.Types.VARCHAR, true);
+		} else if (SQLParameter.class.isAssignableFrom(t)) {
+			p = new ObjectProperty(name, getter, null, false);
+		} else {
+			return;
+		}
+		props.put(name, p);
+	}
+
+	private static RuntimeException failed(String name, Throwable t) {
+		if (t instanceof RuntimeException) {
+			return (RuntimeException)t;
+		} else if (t instanceof Error) {
+			throw (Error)t;
+		}
+		return new IllegalStateException("Failed to read property " + name, t);
+	}
+}
@@ -0,0 +1,475 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps rows to objects by column label, without per row label lookups.
+ *
+ * For each result shape (column labels and types) the {@link ResultSetMetaData} is inspected once
+ * and a plan of column index to property bindings is cached, composed into a single {@link MethodHandle}.
+ * Rows are then read with the typed getter of each property type and passed to setters or constructor
+ * arguments, primitive long, int, double and boolean properties without boxing.
+ *
+ * Columns match properties by label ignoring case and underscores, so <code>user_id</code> maps to
+ * <code>userId</code>. Properties are public setters and public non-final fields. Objects are created
+ * through a constructor annotated with {@link ConstructorProperties}, taking matching columns as arguments,
+ * or otherwise through a no-argument constructor. Columns without a property are ignored.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  for (Foo foo : stmt.iterate(stack, BeanRowMapper.of(Foo.class))) {
+ *      ...
+ *  }
+ * </code></pre>
+ *
+ * Mappers are thread-safe and shared per class. {@link ResultIterator} resolves the plan once per result set
+ * through {@link #bind(ResultSet)}, when used directly the plan of the last result set is kept.
+ *
+ * @param <T> type of mapped rows
+ * @since 1.1
+ */
+public final class BeanRowMapper<T> extends RowMapper.Adapter<T> {
+
+	private static final ClassValue<BeanRowMapper<?>> _cache = new ClassValue<BeanRowMapper<?>>() {
+		@Override
+		protected BeanRowMapper<?> computeValue(Class<?> type) {
+			return new BeanRowMapper<Object>(type);
+		}
+	};
+
+	/** Kinds of column reads, by property type. */
+	private static final int LONG = 0, INT = 1, SHORT = 2, BYTE = 3, DOUBLE = 4, FLOAT = 5, BOOLEAN = 6,
+			STRING = 7, BIGDECIMAL = 8, BIGINTEGER = 9, TIMESTAMP = 10, DATE = 11, TIME = 12, BYTES = 13,
+			ENUM = 14, CHAR = 15, OBJECT = 16;
+
+	private static final MethodHandle GET_LONG, GET_INT, GET_DOUBLE, GET_BOOLEAN, READ;
+	static {
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			GET_LONG = lookup.findVirtual(ResultSet.class, "getLong", MethodType.methodType(long.class, int.class));
+			GET_INT = lookup.findVirtual(ResultSet.class, "getInt", MethodType.methodType(int.class, int.class));
+			GET_DOUBLE = lookup.findVirtual(ResultSet.class, "getDouble", MethodType.methodType(double.class, int.class));
+			GET_BOOLEAN = lookup.findVirtual(ResultSet.class, "getBoolean", MethodType.methodType(boolean.class, int.class));
+			READ = lookup.findVirtual(Column.class, "read", MethodType.methodType(Object.class, ResultSet.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Writable property of the target class.
+	 */
+	private static final class Property {
+		final Class<?>		type;
+		final MethodHandle	setter;	// (Object,type)void
+
+		Property(Class<?> type, MethodHandle setter) {
+			this.type = type;
+			this.setter = setter.asType(MethodType.methodType(void.class, Object.class, type));
+		}
+	}
+
+	/**
+	 * Reads a column of a reference type, or of a primitive type without a typed getter handle.
+	 */
+	private static final class Column {
+		final int		index;
+		final int		kind;
+		final Class<?>	type;
+
+		Column(int index, Class<?> type) {
+			this.index = index;
+			this.kind = kind(type);
+			this.type = type;
+		}
+
+		Object read(ResultSet rs) throws SQLException {
+			final Object x;
+			switch (kind) {
+			case LONG:			x = rs.getLong(index); break;
+			case INT:			x = rs.getInt(index); break;
+			case SHORT:			x = rs.getShort(index); break;
+			case BYTE:			x = rs.getByte(index); break;
+			case DOUBLE:		x = rs.getDouble(index); break;
+			case FLOAT:			x = rs.getFloat(index); break;
+			case BOOLEAN:		x = rs.getBoolean(index); break;
+			case STRING:		return rs.getString(index);
+			case BIGDECIMAL:	return rs.getBigDecimal(index);
+			case BIGINTEGER: {
+				final BigDecimal d = rs.getBigDecimal(index);
+				return d != null ? d.toBigInteger() : null;
+			}
+			case TIMESTAMP:		return rs.getTimestamp(index);
+			case DATE:			return rs.getDate(index);
+			case TIME:			return rs.getTime(index);
+			case BYTES:			return rs.getBytes(index);
+			case ENUM: {
+				final String s = rs.getString(index);
+				return s != null ? enumValue(type, s) : null;
+			}
+			case CHAR: {
+				final String s = rs.getString(index);
+				if (s == null) {
+					return type.isPrimitive() ? (char)0 : null;
+				} else if (s.length() != 1) {
+					throw new SQLException("Can't map value of length " + s.length() + " in column " + index + " to " + type.getName());
+				}
+				return s.charAt(0);
+			}
+			default:			return rs.getObject(index);
+			}
+			return !type.isPrimitive() && rs.wasNull() ? null : x;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private static Object enumValue(Class<?> type, String name) {
+			return Enum.valueOf((Class)type, name);
+		}
+	}
+
+	/**
+	 * Cached mapping of a result shape, a single (ResultSet)Object handle constructing an object
+	 * from typed column reads and setting the remaining properties.
+	 */
+	private final class Plan implements RowMapper<T> {
+		final MethodHandle	handle;
+
+		Plan(MethodHandle handle) {
+			this.handle = handle;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T map(ResultSet rs, int[] unused) throws SQLException {
+			try {
+				return (T)(Object)handle.invokeExact(rs);
+			} catch (SQLException | RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw failed(type.getName(), t);
+			}
+		}
+	}
+
+	/**
+	 * Plan of the last result set mapped directly.
+	 */
+	private static final class Last {
+		final ResultSet		rs;
+		final RowMapper<?>	plan;
+
+		Last(ResultSet rs, RowMapper<?> plan) {
+			this.rs = rs;
+			this.plan = plan;
+		}
+	}
+
+	private final Class<?>				type;
+
+	/** Writable properties by normalized name. */
+	private final Map<String, Property>	properties = new HashMap<String, Property>();
+
+	/** Normalized names, types and default values of constructor arguments, or null for no-argument constructor. */
+	private final String[]				argNames;
+	private final Class<?>[]			argTypes;
+	private final Object[]				defaults;
+
+	/** ()Object, or (argTypes)Object with argNames. */
+	private final MethodHandle			constructor;
+
+	private final ConcurrentHashMap<String, Plan>	plans = new ConcurrentHashMap<String, Plan>();
+	private volatile Last							last;
+
+	private BeanRowMapper(Class<?> type) {
+		this.type = type;
+		final MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			for (Field f : type.getFields()) {
+				if (!Modifier.isStatic(f.getModifiers()) && !Modifier.isFinal(f.getModifiers())) {
+					f.setAccessible(true);
+					addProperty(f.getName(), f.getType(), lookup.unreflectSetter(f));
+				}
+			}
+			for (Method m : type.getMethods()) {
+				final String name = m.getName();
+				if (!Modifier.isStatic(m.getModifiers()) && m.getParameterTypes().length == 1
+						&& name.length() > 3 && name.startsWith("set") && Character.isUpperCase(name.charAt(3))) {
+					m.setAccessible(true);
+					addProperty(name.substring(3), m.getParameterTypes()[0], lookup.unreflect(m));
+				}
+			}
+
+			Constructor<?> ctor = null;
+			for (Constructor<?> c : type.getConstructors()) {
+				if (c.isAnnotationPresent(ConstructorProperties.class)) {
+					ctor = c;
+					break;
+				}
+			}
+			if (ctor != null) {
+				final String[] names = ctor.getAnnotation(ConstructorProperties.class).value();
+				argTypes = ctor.getParameterTypes();
+				argNames = new String[names.length];
+				defaults = new Object[names.length];
+				for (int i = 0; i < names.length; i++) {
+					argNames[i] = normalize(names[i]);
+					defaults[i] = defaultValue(argTypes[i]);
+				}
+				ctor.setAccessible(true);
+				constructor = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class, argTypes));
+			} else {
+				ctor = type.getDeclaredConstructor();
+				ctor.setAccessible(true);
+				argNames = null;
+				argTypes = null;
+				defaults = null;
+				constructor = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+			}
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("No default or @ConstructorProperties constructor in " + type.getName(), e);
+		} catch (IllegalAccessException | SecurityException e) {
+			throw new IllegalArgumentException("Can't access properties of " + type.getName(), e);
+		}
+	}
+
+	/**
+	 * Returns the mapper of a class, introspecting it on first use.
+	 * @param <T>	type of mapped rows
+	 * @param type	class of mapped rows
+	 * @return shared instance for the class
+	 * @throws IllegalArgumentException	if the class has no usable constructor
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> BeanRowMapper<T> of(Class<T> type) {
+		return (BeanRowMapper<T>)_cache.get(type);
+	}
+
+	/**
+	 * Maps current row, resolving the plan if the result set differs from the previous call.
+	 * @param rs		result set positioned at row to map
+	 * @param columns	ignored, columns are matched by label
+	 * @return mapped row
+	 * @throws SQLException
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T map(ResultSet rs, int[] columns) throws SQLException {
+		Last l = last;
+		if (l == null || l.rs != rs) {
+			l = new Last(rs, bind(rs));
+			last = l;
+		}
+		return ((RowMapper<T>)l.plan).map(rs, columns);
+	}
+
+	/**
+	 * Returns the mapper for the shape of a result set.
+	 * @param rs	result set
+	 * @return row mapper bound to the column indices of the result set
+	 * @throws SQLException
+	 */
+	@Override
+	public RowMapper<T> bind(ResultSet rs) throws SQLException {
+		final ResultSetMetaData md = rs.getMetaData();
+		final int count = md.getColumnCount();
+		final String[] labels = new String[count];
+		final StringBuilder shape = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			labels[i] = md.getColumnLabel(i + 1);
+			shape.append(labels[i]).append(':').append(md.getColumnType(i + 1)).append(',');
+		}
+
+		final String key = shape.toString();
+		Plan plan = plans.get(key);
+		if (plan == null) {
+			plan = build(labels);
+			final Plan prev = plans.putIfAbsent(key, plan);
+			if (prev != null) {
+				plan = prev;
+			}
+		}
+		return plan;
+	}
+
+	private Plan build(String[] labels) {
+		final MethodHandle[] args = argNames != null ? new MethodHandle[argNames.length] : null;
+
+		// (Object,ResultSet)Object returning the object, preceded by each setter
+		MethodHandle sets = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1, ResultSet.class);
+		for (int i = labels.length - 1; i >= 0; i--) {
+			final String name = normalize(labels[i]);
+			final int arg = argIndex(name);
+			if (arg >= 0) {
+				args[arg] = getter(i + 1, argTypes[arg]);
+				continue;
+			}
+			final Property p = properties.get(name);
+			if (p != null) {
+				final MethodHandle set = MethodHandles.filterArguments(p.setter, 1, getter(i + 1, p.type));
+				sets = MethodHandles.foldArguments(sets, set);
+			}
+		}
+
+		// (ResultSet)Object constructing the object
+		MethodHandle create;
+		if (args == null) {
+			create = MethodHandles.dropArguments(constructor, 0, ResultSet.class);
+		} else {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i] == null) {
+					args[i] = MethodHandles.dropArguments(MethodHandles.constant(argTypes[i], defaults[i]), 0, ResultSet.class);
+				}
+			}
+			create = MethodHandles.permuteArguments(MethodHandles.filterArguments(constructor, 0, args),
+					MethodType.methodType(Object.class, ResultSet.class), new int[args.length]);
+		}
+		return new Plan(MethodHandles.foldArguments(sets, create));
+	}
+
+	/**
+	 * Returns a (ResultSet)type handle reading a column.
+	 */
+	private static MethodHandle getter(int index, Class<?> t) {
+		MethodHandle h;
+		if (t == long.class) {
+			h = GET_LONG;
+		} else if (t == int.class) {
+			h = GET_INT;
+		} else if (t == double.class) {
+			h = GET_DOUBLE;
+		} else if (t == boolean.class) {
+			h = GET_BOOLEAN;
+		} else {
+			return READ.bindTo(new Column(index, t)).asType(MethodType.methodType(t, ResultSet.class));
+		}
+		return MethodHandles.insertArguments(h, 1, index);
+	}
+
+	private int argIndex(String name) {
+		if (argNames != null) {
+			for (int i = 0; i < argNames.length; i++) {
+				if (argNames[i].equals(name)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void addProperty(String name, Class<?> t, MethodHandle setter) {
+		properties.put(normalize(name), new Property(t, setter));
+	}
+
+	private static String normalize(String label) {
+		return label.replace("_", "").toLowerCase(Locale.ROOT);
+	}
+
+	private static int kind(Class<?> t) {
+		if (t == long.class || t == Long.class) {
+			return LONG;
+		} else if (t == int.class || t == Integer.class) {
+			return INT;
+		} else if (t == short.class || t == Short.class) {
+			return SHORT;
+		} else if (t == byte.class || t == Byte.class) {
+			return BYTE;
+		} else if (t == double.class || t == Double.class) {
+			return DOUBLE;
+		} else if (t == float.class || t == Float.class) {
+			return FLOAT;
+		} else if (t == boolean.class || t == Boolean.class) {
+			return BOOLEAN;
+		} else if (t == String.class) {
+			return STRING;
+		} else if (t == BigDecimal.class) {
+			return BIGDECIMAL;
+		} else if (t == BigInteger.class) {
+			return BIGINTEGER;
+		} else if (t == java.sql.Timestamp.class || t == java.util.Date.class) {
+			return TIMESTAMP;
+		} else if (t == java.sql.Date.class) {
+			return DATE;
+		} else if (t == java.sql.Time.class) {
+			return TIME;
+		} else if (t == byte[].class) {
+			return BYTES;
+		} else if (t.isEnum()) {
+			return ENUM;
+		} else if (t == char.class || t == Character.class) {
+			return CHAR;
+		}
+		return OBJECT;
+	}
+
+	/**
+	 * Returns value of an argument without a column.
+	 */
+	private static Object defaultValue(Class<?> t) {
+		if (!t.isPrimitive()) {
+			return null;
+		} else if (t == boolean.class) {
+			return Boolean.FALSE;
+		} else if (t == char.class) {
+			return (char)0;
+		} else if (t == long.class) {
+			return 0L;
+		} else if (t == double.class) {
+			return 0.0;
+		} else if (t == float.class) {
+			return 0.0f;
+		} else if (t == short.class) {
+			return (short)0;
+		} else if (t == byte.class) {
+			return (byte)0;
+		}
+		return 0;
+	}
+
+	private static RuntimeException failed(String name, Throwable t) {
+		if (t instanceof RuntimeException) {
+			return (RuntimeException)t;
+		} else if (t instanceof Error) {
+			throw (Error)t;
+		}
+		return new IllegalStateException("Failed to map " + name, t);
+	}
+}
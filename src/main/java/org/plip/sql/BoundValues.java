@@ -0,0 +1,209 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.util.Arrays;
+
+/**
+ * Values currently bound to the slots of a statement, kept for diagnostics and as keys of cached results.
+ *
+ * Values are stored by reference and primitives unboxed, so capturing a value does not allocate.
+ */
+final class BoundValues {
+	private static final byte UNBOUND = 0;
+	private static final byte OBJECT = 1;
+	private static final byte PARAMETER = 2;
+	private static final byte LONG = 3;
+	private static final byte INT = 4;
+	private static final byte DOUBLE = 5;
+
+	private final byte[]	kinds;
+	private final Object[]	objects;
+	private final long[]	bits;
+
+	BoundValues(int slots) {
+		kinds = new byte[slots];
+		objects = new Object[slots];
+		bits = new long[slots];
+	}
+
+	void setObject(int ordinal, Object x) {
+		kinds[ordinal] = OBJECT;
+		objects[ordinal] = x;
+		bits[ordinal] = 0;
+	}
+
+	/**
+	 * Captures a value bound with a target type, which is part of the value as it may change how it's converted.
+	 */
+	void setObject(int ordinal, Object x, int targetSqlType, Integer scaleOrLength) {
+		kinds[ordinal] = OBJECT;
+		objects[ordinal] = x;
+		bits[ordinal] = (long)targetSqlType << 32 | (scaleOrLength != null ? scaleOrLength & 0xffffffffL : 0xffffffffL);
+	}
+
+	void setParameter(int ordinal, SQLParameter x) {
+		kinds[ordinal] = PARAMETER;
+		objects[ordinal] = x;
+	}
+
+	void setLong(int ordinal, long x) {
+		kinds[ordinal] = LONG;
+		objects[ordinal] = null;
+		bits[ordinal] = x;
+	}
+
+	void setInt(int ordinal, int x) {
+		kinds[ordinal] = INT;
+		objects[ordinal] = null;
+		bits[ordinal] = x;
+	}
+
+	void setDouble(int ordinal, double x) {
+		kinds[ordinal] = DOUBLE;
+		objects[ordinal] = null;
+		bits[ordinal] = Double.doubleToRawLongBits(x);
+	}
+
+	/**
+	 * Returns number of slots.
+	 */
+	int size() {
+		return kinds.length;
+	}
+
+	void clear() {
+		Arrays.fill(kinds, UNBOUND);
+		Arrays.fill(objects, null);
+	}
+
+	boolean isBound(int ordinal) {
+		return kinds[ordinal] != UNBOUND;
+	}
+
+	/**
+	 * Returns true if all slots are bound.
+	 */
+	boolean isComplete() {
+		for (byte kind : kinds) {
+			if (kind == UNBOUND) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a copy of the current values, byte arrays and dates are copied, also within parameters,
+	 * while other values are shared.
+	 */
+	BoundValues copy() {
+		final BoundValues c = new BoundValues(kinds.length);
+		System.arraycopy(kinds, 0, c.kinds, 0, kinds.length);
+		System.arraycopy(bits, 0, c.bits, 0, bits.length);
+		for (int i = 0; i < objects.length; i++) {
+			final Object o = objects[i];
+			c.objects[i] = kinds[i] == PARAMETER ? ((SQLParameter)o).copy() : SQLParameter.valueCopy(o);
+		}
+		return c;
+	}
+
+	/**
+	 * Returns hash code of the bound values, consistent with {@link #valuesEqual(BoundValues)}.
+	 */
+	int valuesHash() {
+		int h = 1;
+		for (int i = 0; i < kinds.length; i++) {
+			final byte kind = kinds[i];
+			final int v;
+			switch (kind) {
+			case OBJECT:
+				v = SQLParameter.valueHash(objects[i]) ^ (int)(bits[i] ^ (bits[i] >>> 32));
+				break;
+			case PARAMETER:
+				v = SQLParameter.valueHash(objects[i]);
+				break;
+			case LONG:
+			case INT:
+			case DOUBLE:
+				v = (int)(bits[i] ^ (bits[i] >>> 32));
+				break;
+			default:
+				v = 0;
+				break;
+			}
+			h = 31 * (31 * h + kind) + v;
+		}
+		return h;
+	}
+
+	/**
+	 * Returns true if the same kinds of values are bound to all slots, with equal values.
+	 */
+	boolean valuesEqual(BoundValues o) {
+		if (kinds.length != o.kinds.length) {
+			return false;
+		}
+		for (int i = 0; i < kinds.length; i++) {
+			final byte kind = kinds[i];
+			if (kind != o.kinds[i]) {
+				return false;
+			}
+			switch (kind) {
+			case OBJECT:
+				if (bits[i] != o.bits[i] || !SQLParameter.valueEquals(objects[i], o.objects[i])) {
+					return false;
+				}
+				break;
+			case PARAMETER:
+				if (!SQLParameter.valueEquals(objects[i], o.objects[i])) {
+					return false;
+				}
+				break;
+			case LONG:
+			case INT:
+			case DOUBLE:
+				if (bits[i] != o.bits[i]) {
+					return false;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a bound value, boxed for primitives.
+	 */
+	Object get(int ordinal) {
+		switch (kinds[ordinal]) {
+		case OBJECT:	return objects[ordinal];
+		case PARAMETER:	return ((SQLParameter)objects[ordinal]).getValue();
+		case LONG:		return bits[ordinal];
+		case INT:		return (int)bits[ordinal];
+		case DOUBLE:	return Double.longBitsToDouble(bits[ordinal]);
+		default:		return null;
+		}
+	}
+}
@@ -0,0 +1,1635 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * Read-only result set over rows materialized by {@link ResultCache}.
+ *
+ * The rows are shared by all result sets opened on the same {@link Rows}, so mutable values
+ * (byte arrays and dates) are copied when read. Values are converted between types roughly as by drivers.
+ */
+final class CachedResultSet implements ResultSet {
+	private final Rows		rows;
+	private int				cursor = -1;
+	private boolean			wasNull;
+	private boolean			closed;
+
+	CachedResultSet(Rows rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * Returns the rows read from a result set too heavy to cache, followed by its remaining rows.
+	 *
+	 * Calls are served by the rows until exhausted, then by the result set, which is closed when closing.
+	 * The statement, warnings and fetch size are always those of the result set.
+	 * @param head	rows read, not complete
+	 * @param rs	result set positioned at the first row not read
+	 * @return result set of all rows
+	 */
+	static ResultSet concat(Rows head, ResultSet rs) {
+		return new Concat(new CachedResultSet(head), rs);
+	}
+
+	/**
+	 * Reads rows of a cached result set, then of a result set.
+	 */
+	private static final class Concat extends ForwardingResultSet {
+		private final ResultSet		rs;
+
+		/** Cached rows, or null once exhausted. */
+		private CachedResultSet		head;
+
+		Concat(CachedResultSet head, ResultSet rs) {
+			super(head);
+			this.head = head;
+			this.rs = rs;
+		}
+
+		@Override
+		public boolean next() throws SQLException {
+			if (head == null) {
+				return rs.next();
+			} else if (!head.next()) {
+				// result set is already positioned at the row after the cached ones
+				head = null;
+				delegate = rs;
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws SQLException {
+			if (head != null) {
+				head.close();
+			}
+			rs.close();
+		}
+
+		@Override
+		public Statement getStatement() throws SQLException {
+			return rs.getStatement();
+		}
+
+		@Override
+		public SQLWarning getWarnings() throws SQLException {
+			return rs.getWarnings();
+		}
+
+		@Override
+		public void clearWarnings() throws SQLException {
+			rs.clearWarnings();
+		}
+
+		@Override
+		public int getFetchSize() throws SQLException {
+			return rs.getFetchSize();
+		}
+
+		@Override
+		public void setFetchSize(int rows) throws SQLException {
+			rs.setFetchSize(rows);
+		}
+
+		@Override
+		public String toString() {
+			return "CachedResultSet.concat(" + rs + ")";
+		}
+	}
+
+	/**
+	 * Materialized rows and column metadata of a result.
+	 */
+	static final class Rows implements ResultSetMetaData {
+		private final int			columns;
+		private final String[]		labels;
+		private final String[]		names;
+		private final String[]		tables;
+		private final int[]			types;
+		private final String[]		typeNames;
+		private final String[]		classNames;
+		private final int[]			precisions;
+		private final int[]			scales;
+		private final int[]			nullables;
+		private final boolean[]		signed;
+		private final Map<String, Integer>	columnIndices;
+
+		private final Object[][]	values;
+		private final long			weight;
+		private final boolean		complete;
+
+		private Rows(ResultSetMetaData md, List<Object[]> values, long weight, boolean complete) throws SQLException {
+			columns = md.getColumnCount();
+			labels = new String[columns];
+			names = new String[columns];
+			tables = new String[columns];
+			types = new int[columns];
+			typeNames = new String[columns];
+			classNames = new String[columns];
+			precisions = new int[columns];
+			scales = new int[columns];
+			nullables = new int[columns];
+			signed = new boolean[columns];
+			columnIndices = new HashMap<String, Integer>();
+			for (int i = 0; i < columns; i++) {
+				labels[i] = md.getColumnLabel(i + 1);
+				names[i] = md.getColumnName(i + 1);
+				tables[i] = md.getTableName(i + 1);
+				types[i] = md.getColumnType(i + 1);
+				typeNames[i] = md.getColumnTypeName(i + 1);
+				classNames[i] = md.getColumnClassName(i + 1);
+				precisions[i] = md.getPrecision(i + 1);
+				scales[i] = md.getScale(i + 1);
+				nullables[i] = md.isNullable(i + 1);
+				signed[i] = md.isSigned(i + 1);
+
+				// first column wins, as by findColumn() of drivers
+				final String key = labels[i].toLowerCase(Locale.ROOT);
+				if (!columnIndices.containsKey(key)) {
+					columnIndices.put(key, i + 1);
+				}
+			}
+			this.values = values.toArray(new Object[values.size()][]);
+			this.weight = weight;
+			this.complete = complete;
+		}
+
+		/**
+		 * Reads all remaining rows of a result set, which is not closed.
+		 * If heavier than max weight, reading stops with the result set positioned at the first row not read.
+		 * @param rs			result set
+		 * @param maxWeight		maximum weight of rows read
+		 * @return rows, not complete if heavier than max weight
+		 * @throws SQLException
+		 */
+		static Rows read(ResultSet rs, long maxWeight) throws SQLException {
+			final ResultSetMetaData md = rs.getMetaData();
+			final int columns = md.getColumnCount();
+			final List<Object[]> values = new ArrayList<Object[]>();
+			long weight = 64 + 64L * columns;
+			while (rs.next()) {
+				final Object[] row = new Object[columns];
+				weight += 16 + 4 * columns;
+				for (int i = 0; i < columns; i++) {
+					final Object v = materialize(rs.getObject(i + 1));
+					row[i] = v;
+					weight += weigh(v);
+				}
+				if (weight > maxWeight) {
+					return new Rows(md, values, weight, false);
+				}
+				values.add(row);
+			}
+			return new Rows(md, values, weight, true);
+		}
+
+		/**
+		 * Returns values that may refer to the connection as plain values.
+		 */
+		private static Object materialize(Object v) throws SQLException {
+			if (v instanceof Blob) {
+				final Blob b = (Blob)v;
+				return b.getBytes(1, (int)b.length());
+			} else if (v instanceof Clob) {
+				final Clob c = (Clob)v;
+				return c.getSubString(1, (int)c.length());
+			} else if (v instanceof Array) {
+				return ((Array)v).getArray();
+			}
+			return v;
+		}
+
+		/**
+		 * Returns a rough estimate of the heap size of a value.
+		 */
+		private static long weigh(Object v) {
+			if (v == null) {
+				return 0;
+			} else if (v instanceof String) {
+				return 40 + 2 * ((String)v).length();
+			} else if (v instanceof byte[]) {
+				return 16 + ((byte[])v).length;
+			} else if (v instanceof BigDecimal) {
+				return 64;
+			}
+			return 24;
+		}
+
+		/**
+		 * Returns number of rows.
+		 */
+		int size() {
+			return values.length;
+		}
+
+		/**
+		 * Returns true if all rows of the result were read.
+		 */
+		boolean isComplete() {
+			return complete;
+		}
+
+		/**
+		 * Returns estimated heap size in bytes.
+		 */
+		long weight() {
+			return weight;
+		}
+
+		int findColumn(String columnLabel) throws SQLException {
+			final Integer column = columnIndices.get(columnLabel.toLowerCase(Locale.ROOT));
+			if (column == null) {
+				throw new SQLException("no such column: " + columnLabel);
+			}
+			return column;
+		}
+
+		private int index(int column) throws SQLException {
+			if (column < 1 || column > columns) {
+				throw new SQLException("column index out of range: " + column);
+			}
+			return column - 1;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return columns;
+		}
+
+		@Override
+		public boolean isAutoIncrement(int column) throws SQLException {
+			index(column);
+			return false;
+		}
+
+		@Override
+		public boolean isCaseSensitive(int column) throws SQLException {
+			index(column);
+			return true;
+		}
+
+		@Override
+		public boolean isSearchable(int column) throws SQLException {
+			index(column);
+			return true;
+		}
+
+		@Override
+		public boolean isCurrency(int column) throws SQLException {
+			index(column);
+			return false;
+		}
+
+		@Override
+		public int isNullable(int column) throws SQLException {
+			return nullables[index(column)];
+		}
+
+		@Override
+		public boolean isSigned(int column) throws SQLException {
+			return signed[index(column)];
+		}
+
+		@Override
+		public int getColumnDisplaySize(int column) throws SQLException {
+			return precisions[index(column)];
+		}
+
+		@Override
+		public String getColumnLabel(int column) throws SQLException {
+			return labels[index(column)];
+		}
+
+		@Override
+		public String getColumnName(int column) throws SQLException {
+			return names[index(column)];
+		}
+
+		@Override
+		public String getSchemaName(int column) throws SQLException {
+			index(column);
+			return "";
+		}
+
+		@Override
+		public int getPrecision(int column) throws SQLException {
+			return precisions[index(column)];
+		}
+
+		@Override
+		public int getScale(int column) throws SQLException {
+			return scales[index(column)];
+		}
+
+		@Override
+		public String getTableName(int column) throws SQLException {
+			return tables[index(column)];
+		}
+
+		@Override
+		public String getCatalogName(int column) throws SQLException {
+			index(column);
+			return "";
+		}
+
+		@Override
+		public int getColumnType(int column) throws SQLException {
+			return types[index(column)];
+		}
+
+		@Override
+		public String getColumnTypeName(int column) throws SQLException {
+			return typeNames[index(column)];
+		}
+
+		@Override
+		public boolean isReadOnly(int column) throws SQLException {
+			index(column);
+			return true;
+		}
+
+		@Override
+		public boolean isWritable(int column) throws SQLException {
+			index(column);
+			return false;
+		}
+
+		@Override
+		public boolean isDefinitelyWritable(int column) throws SQLException {
+			index(column);
+			return false;
+		}
+
+		@Override
+		public String getColumnClassName(int column) throws SQLException {
+			return classNames[index(column)];
+		}
+
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			if (iface.isInstance(this)) {
+				return iface.cast(this);
+			}
+			throw new SQLException("not a wrapper for " + iface.getName());
+		}
+
+		@Override
+		public boolean isWrapperFor(Class<?> iface) {
+			return iface.isInstance(this);
+		}
+	}
+
+	private static SQLFeatureNotSupportedException readOnly() {
+		return new SQLFeatureNotSupportedException("cached result set is read-only");
+	}
+
+	private void checkOpen() throws SQLException {
+		if (closed) {
+			throw new SQLException("result set is closed");
+		}
+	}
+
+	/**
+	 * Returns a value of the current row, and remembers if it was null.
+	 */
+	private Object value(int columnIndex) throws SQLException {
+		checkOpen();
+		if (cursor < 0 || cursor >= rows.values.length) {
+			throw new SQLException("no current row");
+		}
+		final Object v = rows.values[cursor][rows.index(columnIndex)];
+		wasNull = v == null;
+		return v;
+	}
+
+	private Number number(int columnIndex) throws SQLException {
+		final Object v = value(columnIndex);
+		if (v == null || v instanceof Number) {
+			return (Number)v;
+		} else if (v instanceof Boolean) {
+			return ((Boolean)v) ? 1 : 0;
+		} else if (v instanceof String) {
+			try {
+				return new BigDecimal(((String)v).trim());
+			} catch (NumberFormatException e) {
+				throw new SQLDataException("not a number: " + v, e);
+			}
+		}
+		throw new SQLDataException("cannot convert " + v.getClass().getName() + " to number");
+	}
+
+	private java.util.Date date(int columnIndex) throws SQLException {
+		final Object v = value(columnIndex);
+		if (v == null || v instanceof java.util.Date) {
+			return (java.util.Date)v;
+		} else if (v instanceof String) {
+			final String s = ((String)v).trim();
+			try {
+				if (s.indexOf(' ') >= 0) {
+					return Timestamp.valueOf(s);
+				} else if (s.indexOf('-') >= 0) {
+					return Date.valueOf(s);
+				}
+				return Time.valueOf(s);
+			} catch (IllegalArgumentException e) {
+				throw new SQLDataException("not a date: " + v, e);
+			}
+		}
+		throw new SQLDataException("cannot convert " + v.getClass().getName() + " to date");
+	}
+
+	/**
+	 * Returns milliseconds of a date read in the default time zone, as if its fields were in the time zone of a calendar.
+	 */
+	private static long millis(java.util.Date d, Calendar cal) {
+		if (cal == null) {
+			return d.getTime();
+		}
+		final Calendar local = Calendar.getInstance();
+		local.setTime(d);
+		final Calendar c = (Calendar)cal.clone();
+		c.clear();
+		c.set(local.get(Calendar.ERA) == 0 ? 1 - local.get(Calendar.YEAR) : local.get(Calendar.YEAR),
+				local.get(Calendar.MONTH), local.get(Calendar.DAY_OF_MONTH),
+				local.get(Calendar.HOUR_OF_DAY), local.get(Calendar.MINUTE), local.get(Calendar.SECOND));
+		c.set(Calendar.MILLISECOND, local.get(Calendar.MILLISECOND));
+		return c.getTimeInMillis();
+	}
+
+	private static String hex(byte[] b) {
+		final char[] digits = "0123456789abcdef".toCharArray();
+		final char[] c = new char[b.length * 2];
+		for (int i = 0; i < b.length; i++) {
+			c[2 * i] = digits[(b[i] >> 4) & 0xf];
+			c[2 * i + 1] = digits[b[i] & 0xf];
+		}
+		return new String(c);
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+		checkOpen();
+		if (cursor < rows.values.length) {
+			cursor++;
+		}
+		return cursor < rows.values.length;
+	}
+
+	@Override
+	public boolean previous() throws SQLException {
+		checkOpen();
+		if (cursor >= 0) {
+			cursor--;
+		}
+		return cursor >= 0;
+	}
+
+	@Override
+	public boolean absolute(int row) throws SQLException {
+		checkOpen();
+		final int n = rows.values.length;
+		if (row > 0) {
+			cursor = Math.min(row - 1, n);
+		} else if (row < 0) {
+			cursor = Math.max(n + row, -1);
+		} else {
+			cursor = -1;
+		}
+		return cursor >= 0 && cursor < n;
+	}
+
+	@Override
+	public boolean relative(int rows) throws SQLException {
+		checkOpen();
+		final int n = this.rows.values.length;
+		if (cursor < 0 || cursor >= n) {
+			throw new SQLException("no current row");
+		}
+		cursor = (int)Math.max(-1, Math.min((long)cursor + rows, n));
+		return cursor >= 0 && cursor < n;
+	}
+
+	@Override
+	public boolean first() throws SQLException {
+		return absolute(1);
+	}
+
+	@Override
+	public boolean last() throws SQLException {
+		return absolute(-1);
+	}
+
+	@Override
+	public void beforeFirst() throws SQLException {
+		checkOpen();
+		cursor = -1;
+	}
+
+	@Override
+	public void afterLast() throws SQLException {
+		checkOpen();
+		cursor = rows.values.length;
+	}
+
+	@Override
+	public boolean isBeforeFirst() throws SQLException {
+		checkOpen();
+		return cursor < 0 && rows.values.length > 0;
+	}
+
+	@Override
+	public boolean isAfterLast() throws SQLException {
+		checkOpen();
+		return cursor >= rows.values.length && rows.values.length > 0;
+	}
+
+	@Override
+	public boolean isFirst() throws SQLException {
+		checkOpen();
+		return cursor == 0 && rows.values.length > 0;
+	}
+
+	@Override
+	public boolean isLast() throws SQLException {
+		checkOpen();
+		return cursor >= 0 && cursor == rows.values.length - 1;
+	}
+
+	@Override
+	public int getRow() throws SQLException {
+		checkOpen();
+		return cursor >= 0 && cursor < rows.values.length ? cursor + 1 : 0;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public boolean wasNull() throws SQLException {
+		checkOpen();
+		return wasNull;
+	}
+
+	@Override
+	public int findColumn(String columnLabel) throws SQLException {
+		checkOpen();
+		return rows.findColumn(columnLabel);
+	}
+
+	@Override
+	public ResultSetMetaData getMetaData() throws SQLException {
+		checkOpen();
+		return rows;
+	}
+
+	@Override
+	public String getString(int columnIndex) throws SQLException {
+		final Object v = value(columnIndex);
+		if (v == null) {
+			return null;
+		} else if (v instanceof byte[]) {
+			return hex((byte[])v);
+		} else if (v instanceof BigDecimal) {
+			return ((BigDecimal)v).toPlainString();
+		}
+		return v.toString();
+	}
+
+	@Override
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		final Object v = value(columnIndex);
+		if (v == null) {
+			return false;
+		} else if (v instanceof Boolean) {
+			return (Boolean)v;
+		} else if (v instanceof Number) {
+			return ((Number)v).doubleValue() != 0;
+		} else if (v instanceof String) {
+			final String s = ((String)v).trim();
+			return s.equalsIgnoreCase("true") || s.equals("1");
+		}
+		throw new SQLDataException("cannot convert " + v.getClass().getName() + " to boolean");
+	}
+
+	@Override
+	public byte getByte(int columnIndex) throws SQLException {
+		final Number n = number(columnIndex);
+		return n == null ? 0 : n.byteValue();
+	}
+
+	@Override
+	public short getShort(int columnIndex) throws SQLException {
+		final Number n = number(columnIndex);
+		return n == null ? 0 : n.shortValue();
+	}
+
+	@Override
+	public int getInt(int columnIndex) throws SQLException {
+		final Number n = number(columnIndex);
+		return n == null ? 0 : n.intValue();
+	}
+
+	@Override
+	public long getLong(int columnIndex) throws SQLException {
+		final Number n = number(columnIndex);
+		return n == null ? 0 : n.longValue();
+	}
+
+	@Override
+	public float getFloat(int columnIndex) throws SQLException {
+		final Number n = number(columnIndex);
+		return n == null ? 0 : n.floatValue();
+	}
+
+	@Override
+	public double getDouble(int columnIndex) throws SQLException {
+		final Number n = number(columnIndex);
+		return n == null ? 0 : n.doubleValue();
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		final Number n = number(columnIndex);
+		if (n == null || n instanceof BigDecimal) {
+			return (BigDecimal)n;
+		} else if (n instanceof BigInteger) {
+			return new BigDecimal((BigInteger)n);
+		} else if (n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte) {
+			return BigDecimal.valueOf(n.longValue());
+		} else if (n instanceof Double || n instanceof Float) {
+			return BigDecimal.valueOf(n.doubleValue());
+		}
+		return new BigDecimal(n.toString());
+	}
+
+	@Override
+	@Deprecated
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+		final BigDecimal d = getBigDecimal(columnIndex);
+		return d == null ? null : d.setScale(scale, RoundingMode.HALF_UP);
+	}
+
+	@Override
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		final Object v = value(columnIndex);
+		if (v == null) {
+			return null;
+		} else if (v instanceof byte[]) {
+			return ((byte[])v).clone();
+		}
+		throw new SQLDataException("cannot convert " + v.getClass().getName() + " to bytes");
+	}
+
+	@Override
+	public Date getDate(int columnIndex) throws SQLException {
+		return getDate(columnIndex, null);
+	}
+
+	@Override
+	public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+		final java.util.Date d = date(columnIndex);
+		return d == null ? null : new Date(millis(d, cal));
+	}
+
+	@Override
+	public Time getTime(int columnIndex) throws SQLException {
+		return getTime(columnIndex, null);
+	}
+
+	@Override
+	public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+		final java.util.Date d = date(columnIndex);
+		return d == null ? null : new Time(millis(d, cal));
+	}
+
+	@Override
+	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		return getTimestamp(columnIndex, null);
+	}
+
+	@Override
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+		final java.util.Date d = date(columnIndex);
+		if (d == null) {
+			return null;
+		}
+		final Timestamp t = new Timestamp(millis(d, cal));
+		if (d instanceof Timestamp) {
+			t.setNanos(((Timestamp)d).getNanos());
+		}
+		return t;
+	}
+
+	@Override
+	public Object getObject(int columnIndex) throws SQLException {
+		final Object v = value(columnIndex);
+		if (v instanceof byte[]) {
+			return ((byte[])v).clone();
+		} else if (v instanceof java.util.Date) {
+			return ((java.util.Date)v).clone();
+		}
+		return v;
+	}
+
+	@Override
+	public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+		return getObject(columnIndex);
+	}
+
+	@Override
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		final Object v;
+		if (type == String.class) {
+			v = getString(columnIndex);
+		} else if (type == Long.class) {
+			v = getLong(columnIndex);
+		} else if (type == Integer.class) {
+			v = getInt(columnIndex);
+		} else if (type == Short.class) {
+			v = getShort(columnIndex);
+		} else if (type == Byte.class) {
+			v = getByte(columnIndex);
+		} else if (type == Double.class) {
+			v = getDouble(columnIndex);
+		} else if (type == Float.class) {
+			v = getFloat(columnIndex);
+		} else if (type == Boolean.class) {
+			v = getBoolean(columnIndex);
+		} else if (type == BigDecimal.class) {
+			v = getBigDecimal(columnIndex);
+		} else if (type == byte[].class) {
+			v = getBytes(columnIndex);
+		} else if (type == Timestamp.class) {
+			v = getTimestamp(columnIndex);
+		} else if (type == Date.class) {
+			v = getDate(columnIndex);
+		} else if (type == Time.class) {
+			v = getTime(columnIndex);
+		} else {
+			v = getObject(columnIndex);
+			if (v != null && !type.isInstance(v)) {
+				throw new SQLDataException("cannot convert " + v.getClass().getName() + " to " + type.getName());
+			}
+		}
+		return wasNull ? null : type.cast(v);
+	}
+
+	@Override
+	public Reader getCharacterStream(int columnIndex) throws SQLException {
+		final String s = getString(columnIndex);
+		return s == null ? null : new StringReader(s);
+	}
+
+	@Override
+	public Reader getNCharacterStream(int columnIndex) throws SQLException {
+		return getCharacterStream(columnIndex);
+	}
+
+	@Override
+	public String getNString(int columnIndex) throws SQLException {
+		return getString(columnIndex);
+	}
+
+	@Override
+	public InputStream getAsciiStream(int columnIndex) throws SQLException {
+		final String s = getString(columnIndex);
+		return s == null ? null : new ByteArrayInputStream(s.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Override
+	@Deprecated
+	public InputStream getUnicodeStream(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getUnicodeStream");
+	}
+
+	@Override
+	public InputStream getBinaryStream(int columnIndex) throws SQLException {
+		final byte[] b = getBytes(columnIndex);
+		return b == null ? null : new ByteArrayInputStream(b);
+	}
+
+	@Override
+	public Blob getBlob(int columnIndex) throws SQLException {
+		final byte[] b = getBytes(columnIndex);
+		return b == null ? null : new SerialBlob(b);
+	}
+
+	@Override
+	public Clob getClob(int columnIndex) throws SQLException {
+		final String s = getString(columnIndex);
+		return s == null ? null : new SerialClob(s.toCharArray());
+	}
+
+	@Override
+	public NClob getNClob(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getNClob");
+	}
+
+	@Override
+	public Array getArray(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getArray, use getObject");
+	}
+
+	@Override
+	public Ref getRef(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getRef");
+	}
+
+	@Override
+	public RowId getRowId(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getRowId");
+	}
+
+	@Override
+	public SQLXML getSQLXML(int columnIndex) throws SQLException {
+		throw new SQLFeatureNotSupportedException("getSQLXML");
+	}
+
+	@Override
+	public URL getURL(int columnIndex) throws SQLException {
+		final Object v = value(columnIndex);
+		if (v == null || v instanceof URL) {
+			return (URL)v;
+		}
+		try {
+			return new URL(v.toString());
+		} catch (MalformedURLException e) {
+			throw new SQLDataException("not an URL: " + v, e);
+		}
+	}
+
+	@Override
+	public String getString(String columnLabel) throws SQLException {
+		return getString(findColumn(columnLabel));
+	}
+
+	@Override
+	public boolean getBoolean(String columnLabel) throws SQLException {
+		return getBoolean(findColumn(columnLabel));
+	}
+
+	@Override
+	public byte getByte(String columnLabel) throws SQLException {
+		return getByte(findColumn(columnLabel));
+	}
+
+	@Override
+	public short getShort(String columnLabel) throws SQLException {
+		return getShort(findColumn(columnLabel));
+	}
+
+	@Override
+	public int getInt(String columnLabel) throws SQLException {
+		return getInt(findColumn(columnLabel));
+	}
+
+	@Override
+	public long getLong(String columnLabel) throws SQLException {
+		return getLong(findColumn(columnLabel));
+	}
+
+	@Override
+	public float getFloat(String columnLabel) throws SQLException {
+		return getFloat(findColumn(columnLabel));
+	}
+
+	@Override
+	public double getDouble(String columnLabel) throws SQLException {
+		return getDouble(findColumn(columnLabel));
+	}
+
+	@Override
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {
+		return getBigDecimal(findColumn(columnLabel));
+	}
+
+	@Override
+	@Deprecated
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {
+		return getBigDecimal(findColumn(columnLabel), scale);
+	}
+
+	@Override
+	public byte[] getBytes(String columnLabel) throws SQLException {
+		return getBytes(findColumn(columnLabel));
+	}
+
+	@Override
+	public Date getDate(String columnLabel) throws SQLException {
+		return getDate(findColumn(columnLabel));
+	}
+
+	@Override
+	public Date getDate(String columnLabel, Calendar cal) throws SQLException {
+		return getDate(findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Time getTime(String columnLabel) throws SQLException {
+		return getTime(findColumn(columnLabel));
+	}
+
+	@Override
+	public Time getTime(String columnLabel, Calendar cal) throws SQLException {
+		return getTime(findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel) throws SQLException {
+		return getTimestamp(findColumn(columnLabel));
+	}
+
+	@Override
+	public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {
+		return getTimestamp(findColumn(columnLabel), cal);
+	}
+
+	@Override
+	public Object getObject(String columnLabel) throws SQLException {
+		return getObject(findColumn(columnLabel));
+	}
+
+	@Override
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {
+		return getObject(findColumn(columnLabel), map);
+	}
+
+	@Override
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {
+		return getObject(findColumn(columnLabel), type);
+	}
+
+	@Override
+	public Reader getCharacterStream(String columnLabel) throws SQLException {
+		return getCharacterStream(findColumn(columnLabel));
+	}
+
+	@Override
+	public Reader getNCharacterStream(String columnLabel) throws SQLException {
+		return getNCharacterStream(findColumn(columnLabel));
+	}
+
+	@Override
+	public String getNString(String columnLabel) throws SQLException {
+		return getNString(findColumn(columnLabel));
+	}
+
+	@Override
+	public InputStream getAsciiStream(String columnLabel) throws SQLException {
+		return getAsciiStream(findColumn(columnLabel));
+	}
+
+	@Override
+	@Deprecated
+	public InputStream getUnicodeStream(String columnLabel) throws SQLException {
+		return getUnicodeStream(findColumn(columnLabel));
+	}
+
+	@Override
+	public InputStream getBinaryStream(String columnLabel) throws SQLException {
+		return getBinaryStream(findColumn(columnLabel));
+	}
+
+	@Override
+	public Blob getBlob(String columnLabel) throws SQLException {
+		return getBlob(findColumn(columnLabel));
+	}
+
+	@Override
+	public Clob getClob(String columnLabel) throws SQLException {
+		return getClob(findColumn(columnLabel));
+	}
+
+	@Override
+	public NClob getNClob(String columnLabel) throws SQLException {
+		return getNClob(findColumn(columnLabel));
+	}
+
+	@Override
+	public Array getArray(String columnLabel) throws SQLException {
+		return getArray(findColumn(columnLabel));
+	}
+
+	@Override
+	public Ref getRef(String columnLabel) throws SQLException {
+		return getRef(findColumn(columnLabel));
+	}
+
+	@Override
+	public RowId getRowId(String columnLabel) throws SQLException {
+		return getRowId(findColumn(columnLabel));
+	}
+
+	@Override
+	public SQLXML getSQLXML(String columnLabel) throws SQLException {
+		return getSQLXML(findColumn(columnLabel));
+	}
+
+	@Override
+	public URL getURL(String columnLabel) throws SQLException {
+		return getURL(findColumn(columnLabel));
+	}
+
+	@Override
+	public Statement getStatement() {
+		return null;
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		checkOpen();
+		return null;
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		checkOpen();
+	}
+
+	@Override
+	public String getCursorName() throws SQLException {
+		throw new SQLFeatureNotSupportedException("getCursorName");
+	}
+
+	@Override
+	public int getType() throws SQLException {
+		checkOpen();
+		return TYPE_SCROLL_INSENSITIVE;
+	}
+
+	@Override
+	public int getConcurrency() throws SQLException {
+		checkOpen();
+		return CONCUR_READ_ONLY;
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		checkOpen();
+		return HOLD_CURSORS_OVER_COMMIT;
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+		checkOpen();
+		if (direction != FETCH_FORWARD && direction != FETCH_REVERSE && direction != FETCH_UNKNOWN) {
+			throw new SQLException("invalid fetch direction: " + direction);
+		}
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		checkOpen();
+		return FETCH_FORWARD;
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException {
+		checkOpen();
+		if (rows < 0) {
+			throw new SQLException("fetch size must not be negative");
+		}
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		checkOpen();
+		return 0;
+	}
+
+	@Override
+	public boolean rowUpdated() {
+		return false;
+	}
+
+	@Override
+	public boolean rowInserted() {
+		return false;
+	}
+
+	@Override
+	public boolean rowDeleted() {
+		return false;
+	}
+
+	@Override
+	public void refreshRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void insertRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void deleteRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void cancelRowUpdates() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void moveToInsertRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void moveToCurrentRow() throws SQLException {
+		checkOpen();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("not a wrapper for " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	@Override
+	public void updateArray(String columnLabel, Array x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateArray(int columnIndex, Array x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(String columnLabel, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateAsciiStream(int columnIndex, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBigDecimal(String columnLabel, BigDecimal x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBigDecimal(int columnIndex, BigDecimal x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(String columnLabel, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBinaryStream(int columnIndex, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(String columnLabel, Blob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, InputStream x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, InputStream x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBlob(int columnIndex, Blob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBoolean(String columnLabel, boolean x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBoolean(int columnIndex, boolean x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateByte(String columnLabel, byte x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateByte(int columnIndex, byte x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBytes(String columnLabel, byte[] x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateBytes(int columnIndex, byte[] x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(String columnLabel, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateCharacterStream(int columnIndex, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(String columnLabel, Clob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateClob(int columnIndex, Clob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDate(String columnLabel, Date x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDate(int columnIndex, Date x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDouble(String columnLabel, double x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateDouble(int columnIndex, double x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateFloat(String columnLabel, float x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateFloat(int columnIndex, float x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateInt(String columnLabel, int x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateInt(int columnIndex, int x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateLong(String columnLabel, long x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateLong(int columnIndex, long x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(String columnLabel, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(int columnIndex, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNCharacterStream(int columnIndex, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(String columnLabel, NClob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, Reader x, long length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, Reader x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNClob(int columnIndex, NClob x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNString(String columnLabel, String x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNString(int columnIndex, String x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNull(String columnLabel) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateNull(int columnIndex) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(String columnLabel, Object x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x, int length) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateObject(int columnIndex, Object x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRef(String columnLabel, Ref x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRef(int columnIndex, Ref x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRowId(String columnLabel, RowId x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRowId(int columnIndex, RowId x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateRow() throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateSQLXML(String columnLabel, SQLXML x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateSQLXML(int columnIndex, SQLXML x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateShort(String columnLabel, short x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateShort(int columnIndex, short x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateString(String columnLabel, String x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateString(int columnIndex, String x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTime(String columnLabel, Time x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTime(int columnIndex, Time x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTimestamp(String columnLabel, Timestamp x) throws SQLException {
+		throw readOnly();
+	}
+
+	@Override
+	public void updateTimestamp(int columnIndex, Timestamp x) throws SQLException {
+		throw readOnly();
+	}
+}
@@ -0,0 +1,539 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Query result materialized into typed column vectors.
+ *
+ * Integral, boolean and temporal columns (as epoch milliseconds) are read into {@link LongColumn}s,
+ * approximate and decimal numbers into {@link DoubleColumn}s, and remaining types into dictionary encoded
+ * {@link StringColumn}s. Each column tracks nulls in a bitmap.
+ * Numeric columns may optionally be backed by direct (off-heap) buffers, holding at most {@link #MAX_BUFFER_ROWS} rows.
+ *
+ * Numeric values are read with primitive getters, without allocating per row, except temporal values which
+ * are read through {@link ResultSet#getTimestamp(int)} as JDBC has no primitive getter for them.
+ * Reading columns never allocates, temporal values are returned as epoch milliseconds by {@link LongColumn#get(int)}.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  ColumnarResult result = ColumnarResult.read(stmt, false);
+ *  ColumnarResult.DoubleColumn amount = result.getDoubleColumn("amount");
+ *  double sum = 0;
+ *  for (int row = 0; row &lt; result.getRowCount(); row++) {
+ *      sum += amount.get(row);
+ *  }
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public final class ColumnarResult {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** Maximum number of rows of a column backed by a direct buffer, whose byte offsets must fit an int. */
+	public static final int MAX_BUFFER_ROWS = Integer.MAX_VALUE / 8;
+
+	/** Maximum number of rows of a column backed by an array. */
+	static final int MAX_ARRAY_ROWS = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Allocates a direct buffer of longs or doubles.
+	 * @throws IllegalArgumentException	if the capacity exceeds {@link #MAX_BUFFER_ROWS}
+	 */
+	static ByteBuffer allocate(int capacity) {
+		final long bytes = capacity * 8L;
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("capacity exceeds " + MAX_BUFFER_ROWS + " rows: " + capacity);
+		}
+		return ByteBuffer.allocateDirect((int)bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Growable column vector with null bitmap.
+	 */
+	public abstract static class Column {
+		private final String	label;
+		private final int		sqlType;
+		private long[]			nulls = new long[INITIAL_CAPACITY / 64];
+		private final int		maxCapacity;
+		int						size;
+		int						capacity = INITIAL_CAPACITY;
+
+		Column(String label, int sqlType, int maxCapacity) {
+			this.label = label;
+			this.sqlType = sqlType;
+			this.maxCapacity = maxCapacity;
+		}
+
+		/**
+		 * @return column label
+		 */
+		public String getLabel() {
+			return label;
+		}
+
+		/**
+		 * @return SQL type of column, see {@link java.sql.Types}
+		 */
+		public int getSqlType() {
+			return sqlType;
+		}
+
+		/**
+		 * @return number of values
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Returns true if value is SQL NULL.
+		 * @param row	row index
+		 * @return true if null
+		 */
+		public boolean isNull(int row) {
+			checkRow(row);
+			return (nulls[row >>> 6] & (1L << row)) != 0;
+		}
+
+		final void checkRow(int row) {
+			if (row < 0 || row >= size) {
+				throw new IndexOutOfBoundsException("row " + row + " of " + size);
+			}
+		}
+
+		final void append(ResultSet rs, int column) throws SQLException {
+			if (size == capacity) {
+				if (capacity == maxCapacity) {
+					throw new SQLException("column " + label + " exceeds " + maxCapacity + " rows");
+				}
+				capacity = (int)Math.min(capacity * 2L, maxCapacity);
+				grow(capacity);
+				nulls = Arrays.copyOf(nulls, (int)((capacity + 63L) >>> 6));
+			}
+			if (read(rs, column, size)) {
+				nulls[size >>> 6] |= 1L << size;
+			}
+			size++;
+		}
+
+		/**
+		 * Reads a value into row.
+		 * @return true if value was null
+		 */
+		abstract boolean read(ResultSet rs, int column, int row) throws SQLException;
+
+		abstract void grow(int capacity);
+	}
+
+	/**
+	 * Column of long values.
+	 */
+	public static final class LongColumn extends Column {
+		private long[]		array;
+		private ByteBuffer	buffer;
+
+		LongColumn(String label, int sqlType, boolean offHeap) {
+			super(label, sqlType, offHeap ? MAX_BUFFER_ROWS : MAX_ARRAY_ROWS);
+			if (offHeap) {
+				buffer = allocate(capacity);
+			} else {
+				array = new long[capacity];
+			}
+		}
+
+		/**
+		 * Returns value of row, 0 for NULL.
+		 * @param row	row index
+		 * @return value
+		 */
+		public long get(int row) {
+			checkRow(row);
+			return array != null ? array[row] : buffer.getLong(row << 3);
+		}
+
+		/**
+		 * Returns read-only view of backing direct buffer (native byte order), or null if heap backed.
+		 * @return buffer of {@link #size()} values
+		 */
+		public ByteBuffer getBuffer() {
+			if (buffer == null) {
+				return null;
+			}
+			final ByteBuffer view = buffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+			view.clear().limit(size << 3);
+			return view;
+		}
+
+		/**
+		 * Returns copy of values.
+		 * @return values
+		 */
+		public long[] toArray() {
+			if (array != null) {
+				return Arrays.copyOf(array, size);
+			}
+			final long[] ret = new long[size];
+			getBuffer().asLongBuffer().get(ret);
+			return ret;
+		}
+
+		@Override
+		boolean read(ResultSet rs, int column, int row) throws SQLException {
+			final long v;
+			switch (getSqlType()) {
+			case Types.BIT:
+			case Types.BOOLEAN:
+				v = rs.getBoolean(column) ? 1 : 0;
+				break;
+			case Types.DATE:
+			case Types.TIME:
+			case Types.TIMESTAMP:
+				final Timestamp ts = rs.getTimestamp(column);
+				v = ts != null ? ts.getTime() : 0;
+				break;
+			default:
+				v = rs.getLong(column);
+			}
+			if (array != null) {
+				array[row] = v;
+			} else {
+				buffer.putLong(row << 3, v);
+			}
+			return rs.wasNull();
+		}
+
+		@Override
+		void grow(int capacity) {
+			if (array != null) {
+				array = Arrays.copyOf(array, capacity);
+			} else {
+				final ByteBuffer b = allocate(capacity);
+				buffer.clear();
+				b.put(buffer).clear();
+				buffer = b;
+			}
+		}
+	}
+
+	/**
+	 * Column of double values.
+	 */
+	public static final class DoubleColumn extends Column {
+		private double[]	array;
+		private ByteBuffer	buffer;
+
+		DoubleColumn(String label, int sqlType, boolean offHeap) {
+			super(label, sqlType, offHeap ? MAX_BUFFER_ROWS : MAX_ARRAY_ROWS);
+			if (offHeap) {
+				buffer = allocate(capacity);
+			} else {
+				array = new double[capacity];
+			}
+		}
+
+		/**
+		 * Returns value of row, 0 for NULL.
+		 * @param row	row index
+		 * @return value
+		 */
+		public double get(int row) {
+			checkRow(row);
+			return array != null ? array[row] : buffer.getDouble(row << 3);
+		}
+
+		/**
+		 * Returns read-only view of backing direct buffer (native byte order), or null if heap backed.
+		 * @return buffer of {@link #size()} values
+		 */
+		public ByteBuffer getBuffer() {
+			if (buffer == null) {
+				return null;
+			}
+			final ByteBuffer view = buffer.asReadOnlyBuffer().order(ByteOrder.nativeOrder());
+			view.clear().limit(size << 3);
+			return view;
+		}
+
+		/**
+		 * Returns copy of values.
+		 * @return values
+		 */
+		public double[] toArray() {
+			if (array != null) {
+				return Arrays.copyOf(array, size);
+			}
+			final double[] ret = new double[size];
+			getBuffer().asDoubleBuffer().get(ret);
+			return ret;
+		}
+
+		@Override
+		boolean read(ResultSet rs, int column, int row) throws SQLException {
+			final double v = rs.getDouble(column);
+			if (array != null) {
+				array[row] = v;
+			} else {
+				buffer.putDouble(row << 3, v);
+			}
+			return rs.wasNull();
+		}
+
+		@Override
+		void grow(int capacity) {
+			if (array != null) {
+				array = Arrays.copyOf(array, capacity);
+			} else {
+				final ByteBuffer b = allocate(capacity);
+				buffer.clear();
+				b.put(buffer).clear();
+				buffer = b;
+			}
+		}
+	}
+
+	/**
+	 * Dictionary encoded column of strings.
+	 */
+	public static final class StringColumn extends Column {
+		private int[]						codes = new int[capacity];
+		private final List<String>			dictionary = new ArrayList<String>();
+		private final Map<String, Integer>	lookup = new HashMap<String, Integer>();
+
+		StringColumn(String label, int sqlType) {
+			super(label, sqlType, MAX_ARRAY_ROWS);
+		}
+
+		/**
+		 * Returns value of row.
+		 * @param row	row index
+		 * @return value, or null for NULL
+		 */
+		public String get(int row) {
+			final int code = getCode(row);
+			return code >= 0 ? dictionary.get(code) : null;
+		}
+
+		/**
+		 * Returns dictionary code of row.
+		 * @param row	row index
+		 * @return index into {@link #getDictionary()}, or -1 for NULL
+		 */
+		public int getCode(int row) {
+			checkRow(row);
+			return codes[row];
+		}
+
+		/**
+		 * Returns distinct values in order of first occurrence.
+		 * @return dictionary
+		 */
+		public String[] getDictionary() {
+			return dictionary.toArray(new String[dictionary.size()]);
+		}
+
+		@Override
+		boolean read(ResultSet rs, int column, int row) throws SQLException {
+			final String v = rs.getString(column);
+			if (v == null) {
+				codes[row] = -1;
+				return true;
+			}
+			Integer code = lookup.get(v);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(v);
+				lookup.put(v, code);
+			}
+			codes[row] = code;
+			return false;
+		}
+
+		@Override
+		void grow(int capacity) {
+			codes = Arrays.copyOf(codes, capacity);
+		}
+	}
+
+	private final Column[]	columns;
+	private final int		rowCount;
+
+	private ColumnarResult(Column[] columns, int rowCount) {
+		this.columns = columns;
+		this.rowCount = rowCount;
+	}
+
+	/**
+	 * Executes a query and reads the full result.
+	 * @param stmt		statement to execute
+	 * @param offHeap	true to back numeric columns by direct buffers
+	 * @return result
+	 * @throws SQLException
+	 */
+	public static ColumnarResult read(ParameterStatement stmt, boolean offHeap) throws SQLException {
+		try (ResultSet rs = stmt.executeQuery()) {
+			return read(rs, offHeap);
+		}
+	}
+
+	/**
+	 * Reads all remaining rows of a result set, the result set is not closed.
+	 * @param rs		result set
+	 * @param offHeap	true to back numeric columns by direct buffers
+	 * @return result
+	 * @throws SQLException
+	 */
+	public static ColumnarResult read(ResultSet rs, boolean offHeap) throws SQLException {
+		final ResultSetMetaData md = rs.getMetaData();
+		final Column[] columns = new Column[md.getColumnCount()];
+		for (int i = 0; i < columns.length; i++) {
+			final String label = md.getColumnLabel(i+1);
+			final int type = md.getColumnType(i+1);
+			switch (type) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+			case Types.BIGINT:
+			case Types.BIT:
+			case Types.BOOLEAN:
+			case Types.DATE:
+			case Types.TIME:
+			case Types.TIMESTAMP:
+				columns[i] = new LongColumn(label, type, offHeap);
+				break;
+			case Types.NUMERIC:
+			case Types.DECIMAL:
+				if (md.getScale(i+1) == 0 && md.getPrecision(i+1) > 0 && md.getPrecision(i+1) <= 18) {
+					columns[i] = new LongColumn(label, type, offHeap);
+				} else {
+					columns[i] = new DoubleColumn(label, type, offHeap);
+				}
+				break;
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				columns[i] = new DoubleColumn(label, type, offHeap);
+				break;
+			default:
+				columns[i] = new StringColumn(label, type);
+			}
+		}
+
+		int rows = 0;
+		while (rs.next()) {
+			for (int i = 0; i < columns.length; i++) {
+				columns[i].append(rs, i+1);
+			}
+			rows++;
+		}
+		return new ColumnarResult(columns, rows);
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return number of columns
+	 */
+	public int getColumnCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns column by index.
+	 * @param column	column index, starting at 1 as in JDBC
+	 * @return column
+	 */
+	public Column getColumn(int column) {
+		return columns[column-1];
+	}
+
+	/**
+	 * Returns column by label (case insensitive).
+	 * @param label	column label
+	 * @return column
+	 * @throws IllegalArgumentException if there is no such column
+	 */
+	public Column getColumn(String label) {
+		for (Column column : columns) {
+			if (column.getLabel().equalsIgnoreCase(label)) {
+				return column;
+			}
+		}
+		throw new IllegalArgumentException("Column not found: " + label);
+	}
+
+	/**
+	 * Returns long column by label.
+	 * @param label	column label
+	 * @return column
+	 * @throws IllegalArgumentException if there is no such column, or if of other type
+	 */
+	public LongColumn getLongColumn(String label) {
+		return cast(getColumn(label), LongColumn.class);
+	}
+
+	/**
+	 * Returns double column by label.
+	 * @param label	column label
+	 * @return column
+	 * @throws IllegalArgumentException if there is no such column, or if of other type
+	 */
+	public DoubleColumn getDoubleColumn(String label) {
+		return cast(getColumn(label), DoubleColumn.class);
+	}
+
+	/**
+	 * Returns string column by label.
+	 * @param label	column label
+	 * @return column
+	 * @throws IllegalArgumentException if there is no such column, or if of other type
+	 */
+	public StringColumn getStringColumn(String label) {
+		return cast(getColumn(label), StringColumn.class);
+	}
+
+	private static <C extends Column> C cast(Column column, Class<C> type) {
+		if (!type.isInstance(column)) {
+			throw new IllegalArgumentException("Column " + column.getLabel() + " is not a " + type.getSimpleName());
+		}
+		return type.cast(column);
+	}
+}
@@ -0,0 +1,423 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded pool of connections.
+ *
+ * Physical connections are opened through a {@link ConnectionSource} (such as a {@link javax.sql.DataSource})
+ * and handed out wrapped, closing the wrapper returns the physical connection to the pool. Connections pushed
+ * onto a {@link SQLStack} are thus returned when the stack closes. Open transactions are rolled back and
+ * auto-commit is reset on return, statements are expected to be closed by the borrower.
+ *
+ * Checkout is lock-free apart from the semaphore bounding the number of borrowed connections. Idle connections
+ * are reused most recently returned first, validated on borrow if idle longer than the validation age, and
+ * discarded once older than the max lifetime.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  final ConnectionPool pool = new ConnectionPool(source, 10).setMaxWait(5, TimeUnit.SECONDS);
+ *  try (SQLStack stack = new SQLStack()) {
+ *      Connection connection = stack.push(pool.getConnection());
+ *      ...
+ *  }
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public class ConnectionPool implements ConnectionSource, SQLClosable {
+	/** Default maximum time to wait for a connection. */
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 30000;
+
+	/** Default time connections may be idle before validated on borrow. */
+	public static final long DEFAULT_VALIDATION_AGE_MILLIS = 1000;
+
+	/** Default maximum lifetime of connections. */
+	public static final long DEFAULT_MAX_LIFETIME_MILLIS = 30 * 60 * 1000;
+
+	/** Default timeout of validation, in seconds. */
+	public static final int DEFAULT_VALIDATION_TIMEOUT = 5;
+
+	/**
+	 * Physical connection with bookkeeping.
+	 */
+	static final class Entry {
+		final Connection	connection;
+		final boolean		autoCommit;
+		final long			created;
+		volatile long		lastUsed;
+
+		Entry(Connection connection, boolean autoCommit, long now) {
+			this.connection = connection;
+			this.autoCommit = autoCommit;
+			this.created = now;
+			this.lastUsed = now;
+		}
+	}
+
+	private final ConnectionSource				source;
+	private final int							maxSize;
+
+	/** Permits for borrowing, one per connection that may be handed out. */
+	private final Semaphore						permits;
+
+	/** Idle connections, most recently returned first. */
+	private final ConcurrentLinkedDeque<Entry>	idle = new ConcurrentLinkedDeque<Entry>();
+	private final AtomicInteger					idleCount = new AtomicInteger();
+
+	private volatile long	maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_WAIT_MILLIS);
+	private volatile long	validationAgeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_VALIDATION_AGE_MILLIS);
+	private volatile long	maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_LIFETIME_MILLIS);
+	private volatile int	validationTimeout = DEFAULT_VALIDATION_TIMEOUT;
+	private volatile boolean closed;
+
+	private final AtomicLong	borrows = new AtomicLong();
+	private final AtomicLong	created = new AtomicLong();
+	private final AtomicLong	discarded = new AtomicLong();
+	private final AtomicLong	timeouts = new AtomicLong();
+	private final AtomicLong	waitNanos = new AtomicLong();
+	private final AtomicLong	maxWaitedNanos = new AtomicLong();
+
+	/**
+	 * Creates a pool, connections are opened on demand.
+	 * @param source	source of physical connections
+	 * @param maxSize	maximum number of connections
+	 */
+	public ConnectionPool(ConnectionSource source, int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.source = source;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+	}
+
+	/**
+	 * Sets maximum time {@link #getConnection()} waits for a connection, default is {@value #DEFAULT_MAX_WAIT_MILLIS}ms.
+	 * @param time	maximum wait
+	 * @param unit	unit of time
+	 * @return this
+	 */
+	public ConnectionPool setMaxWait(long time, TimeUnit unit) {
+		maxWaitNanos = unit.toNanos(time);
+		return this;
+	}
+
+	/**
+	 * Sets time a connection may be idle before being validated on borrow, default is {@value #DEFAULT_VALIDATION_AGE_MILLIS}ms.
+	 * Zero validates on every borrow.
+	 * @param time	idle age
+	 * @param unit	unit of time
+	 * @return this
+	 */
+	public ConnectionPool setValidationAge(long time, TimeUnit unit) {
+		validationAgeNanos = unit.toNanos(time);
+		return this;
+	}
+
+	/**
+	 * Sets timeout of validation through {@link Connection#isValid(int)}, default is {@value #DEFAULT_VALIDATION_TIMEOUT}s.
+	 * @param seconds	timeout in seconds, 0 for none
+	 * @return this
+	 */
+	public ConnectionPool setValidationTimeout(int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException("seconds must not be negative");
+		}
+		validationTimeout = seconds;
+		return this;
+	}
+
+	/**
+	 * Sets maximum lifetime of physical connections, default is {@value #DEFAULT_MAX_LIFETIME_MILLIS}ms.
+	 * Connections are closed on return or borrow once older. Zero disables.
+	 * @param time	maximum lifetime
+	 * @param unit	unit of time
+	 * @return this
+	 */
+	public ConnectionPool setMaxLifetime(long time, TimeUnit unit) {
+		maxLifetimeNanos = unit.toNanos(time);
+		return this;
+	}
+
+	/**
+	 * Borrows a connection, which is returned to the pool when closed.
+	 * @return connection
+	 * @throws SQLTransientConnectionException	if no connection became available within max wait
+	 * @throws SQLException	if the pool is closed, or opening a connection failed
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (closed) {
+			throw new SQLException("connection pool is closed");
+		}
+
+		final long start = System.nanoTime();
+		try {
+			if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+				timeouts.incrementAndGet();
+				throw new SQLTransientConnectionException("no connection available within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("interrupted while waiting for connection", e);
+		}
+		final long waited = System.nanoTime() - start;
+		waitNanos.addAndGet(waited);
+		max(maxWaitedNanos, waited);
+		borrows.incrementAndGet();
+
+		try {
+			return new PooledConnection(this, take());
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Takes a usable idle connection, or opens a new one.
+	 */
+	private Entry take() throws SQLException {
+		Entry e;
+		while ((e = idle.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			final long now = System.nanoTime();
+			if (expired(e, now)) {
+				discard(e.connection);
+			} else if (now - e.lastUsed >= validationAgeNanos && !valid(e)) {
+				discard(e.connection);
+			} else {
+				return e;
+			}
+		}
+
+		final Connection c = source.getConnection();
+		created.incrementAndGet();
+		try {
+			return new Entry(c, c.getAutoCommit(), System.nanoTime());
+		} catch (SQLException ex) {
+			discard(c);
+			throw ex;
+		}
+	}
+
+	private boolean expired(Entry e, long now) {
+		final long lifetime = maxLifetimeNanos;
+		return lifetime > 0 && now - e.created >= lifetime;
+	}
+
+	private boolean valid(Entry e) {
+		try {
+			return e.connection.isValid(validationTimeout);
+		} catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	private void discard(Connection c) {
+		discarded.incrementAndGet();
+		try {
+			c.close();
+		} catch (SQLException ex) {
+			// already broken
+		}
+	}
+
+	private static void max(AtomicLong max, long value) {
+		long prev;
+		while (value > (prev = max.get())) {
+			if (max.compareAndSet(prev, value)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns a physical connection after its wrapper is closed.
+	 * @param autoCommitChanged	true if auto-commit was changed by borrower
+	 */
+	void release(Entry e, boolean autoCommitChanged) throws SQLException {
+		final Connection c = e.connection;
+		try {
+			if (!c.getAutoCommit()) {
+				try {
+					c.rollback();
+				} finally {
+					// writes of the borrower are undone, or the connection is discarded
+					ResultCache.completed(c);
+				}
+			}
+			if (autoCommitChanged && c.getAutoCommit() != e.autoCommit) {
+				c.setAutoCommit(e.autoCommit);
+			}
+		} catch (SQLException | RuntimeException ex) {
+			discard(c);
+			permits.release();
+			throw ex;
+		}
+
+		// pooled before releasing permit, so a borrower never opens a connection while one is being returned
+		final long now = System.nanoTime();
+		if (closed || expired(e, now) || idleCount.get() >= maxSize) {
+			discard(c);
+		} else {
+			e.lastUsed = now;
+			idleCount.incrementAndGet();
+			idle.offerFirst(e);
+		}
+		permits.release();
+
+		// closed concurrently, make sure connection doesn't linger
+		if (closed) {
+			drain();
+		}
+	}
+
+	/**
+	 * Aborts a physical connection, see {@link Connection#abort(Executor)}.
+	 */
+	void abort(Entry e, Executor executor) throws SQLException {
+		discarded.incrementAndGet();
+		try {
+			e.connection.abort(executor);
+		} finally {
+			ResultCache.completed(e.connection);
+			permits.release();
+		}
+	}
+
+	private SQLException drain() {
+		SQLException err = null;
+		Entry e;
+		while ((e = idle.pollFirst()) != null) {
+			idleCount.decrementAndGet();
+			discarded.incrementAndGet();
+			try {
+				e.connection.close();
+			} catch (SQLException ex) {
+				if (err == null) {
+					err = ex;
+				} else {
+					err.setNextException(ex);
+				}
+			}
+		}
+		return err;
+	}
+
+	/**
+	 * Returns number of idle connections.
+	 * @return idle connections
+	 */
+	public int getIdle() {
+		return idleCount.get();
+	}
+
+	/**
+	 * Returns number of borrowed connections.
+	 * @return borrowed connections
+	 */
+	public int getActive() {
+		return maxSize - permits.availablePermits();
+	}
+
+	/**
+	 * Returns number of threads waiting for a connection, an estimate.
+	 * @return waiting threads
+	 */
+	public int getWaiting() {
+		return permits.getQueueLength();
+	}
+
+	/**
+	 * Returns number of successful borrows.
+	 * @return number of borrows
+	 */
+	public long getBorrows() {
+		return borrows.get();
+	}
+
+	/**
+	 * Returns number of physical connections opened.
+	 * @return connections opened
+	 */
+	public long getCreated() {
+		return created.get();
+	}
+
+	/**
+	 * Returns number of physical connections closed due to failed validation, max lifetime, errors or pool close.
+	 * @return connections closed
+	 */
+	public long getDiscarded() {
+		return discarded.get();
+	}
+
+	/**
+	 * Returns number of borrows that timed out waiting.
+	 * @return number of timeouts
+	 */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	/**
+	 * Returns total time successful borrows waited for a connection.
+	 * @return wait time in nanoseconds
+	 */
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	/**
+	 * Returns longest time a successful borrow waited for a connection.
+	 * @return wait time in nanoseconds
+	 */
+	public long getMaxWaitNanos() {
+		return maxWaitedNanos.get();
+	}
+
+	/**
+	 * Closes idle connections, borrowed connections are closed when returned.
+	 * @throws SQLException	if closing a connection failed
+	 */
+	@Override
+	public void close() throws SQLException {
+		closed = true;
+		final SQLException err = drain();
+		if (err != null) {
+			throw err;
+		}
+	}
+}
@@ -0,0 +1,328 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces small transactions from many threads into shared commits on a single writer connection.
+ *
+ * Units of work are applied by a writer thread, in groups of up to a maximum size, each group in one
+ * {@link SQLTransaction}. Each unit runs within its own savepoint, so a failing unit is rolled back
+ * without affecting the rest of its group. The future of a successful unit completes only after
+ * the group has been committed.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  try (GroupCommitter committer = new GroupCommitter(connection, 64, 2, TimeUnit.MILLISECONDS)) {
+ *      Future&lt;Integer&gt; f = committer.submit(new TransactionRunner.Work&lt;Integer&gt;() {
+ *          public Integer run(Connection connection) throws SQLException {
+ *              ...
+ *          }
+ *      });
+ *      f.get();
+ *  }
+ * </code></pre>
+ *
+ * The connection must not be in auto-commit mode and must not be used by others while the committer is open.
+ * If the writer thread fails unexpectedly, pending units fail and further submits throw {@link IllegalStateException}.
+ *
+ * @since 1.1
+ */
+public class GroupCommitter implements SQLClosable {
+	private static final Logger logger = Logger.getLogger(GroupCommitter.class.getName());
+
+	private static final class Unit<T> {
+		final TransactionRunner.Work<T>	work;
+		final SettableFuture<T>			future = new SettableFuture<T>();
+		T								result;
+
+		Unit(TransactionRunner.Work<T> work) {
+			this.work = work;
+		}
+
+		boolean run(Connection connection) throws SQLException {
+			if (future.isDone()) {
+				return false;	// cancelled before run
+			}
+			result = work.run(connection);
+			return true;
+		}
+
+		void complete() {
+			future.set(result);
+		}
+	}
+
+	/** Marks end of queue. */
+	private static final Unit<Void> STOP = new Unit<Void>(null);
+
+	private final Connection					connection;
+	private final int							maxGroupSize;
+	private final long							maxWaitNanos;
+	private final LinkedBlockingQueue<Unit<?>>	queue = new LinkedBlockingQueue<Unit<?>>();
+	private final Thread						writer;
+	private boolean								closed;		// guarded by this
+	private Throwable							failure;	// guarded by this
+
+	/** False once the driver is found to not support releasing savepoints, used by writer. */
+	private boolean								releaseSavepoints = true;
+
+	private final AtomicLong	units = new AtomicLong();
+	private final AtomicLong	failedUnits = new AtomicLong();
+	private final AtomicLong	commits = new AtomicLong();
+	private final AtomicLong	failedCommits = new AtomicLong();
+
+	/**
+	 * Creates a group committer and starts its writer thread.
+	 * @param connection	writer connection, not in auto-commit mode
+	 * @param maxGroupSize	maximum number of units per commit
+	 * @param maxWait		maximum time to wait for more units after the first unit of a group
+	 * @param unit			unit of maxWait
+	 * @throws SQLException
+	 */
+	public GroupCommitter(Connection connection, int maxGroupSize, long maxWait, TimeUnit unit) throws SQLException {
+		if (connection.getAutoCommit()) {
+			throw new IllegalArgumentException("connection mustn't be in auto-commit mode");
+		}
+		if (maxGroupSize <= 0) {
+			throw new IllegalArgumentException("maxGroupSize must be positive");
+		}
+		this.connection = connection;
+		this.maxGroupSize = maxGroupSize;
+		this.maxWaitNanos = unit.toNanos(maxWait);
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, "plipsql-group-commit");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Submits a unit of work.
+	 *
+	 * The future completes with the result of the work after it's committed, or fails with the
+	 * exception of the work or of the commit (wrapped in an {@link java.util.concurrent.ExecutionException}).
+	 * Units cancelled before they run are skipped.
+	 *
+	 * @param <T>	type of result
+	 * @param work	work to perform, must not commit or roll back
+	 * @return future result
+	 * @throws IllegalStateException if closed
+	 */
+	public <T> Future<T> submit(TransactionRunner.Work<T> work) {
+		final Unit<T> u = new Unit<T>(work);
+		synchronized (this) {
+			if (failure != null) {
+				throw new IllegalStateException("group committer failed", failure);
+			}
+			if (closed) {
+				throw new IllegalStateException("group committer is closed");
+			}
+			queue.add(u);
+		}
+		return u.future;
+	}
+
+	private void writeLoop() {
+		final List<Unit<?>> group = new ArrayList<Unit<?>>(maxGroupSize);
+		try {
+			boolean stop = false;
+			while (!stop) {
+				try {
+					Unit<?> u = queue.take();
+					final long deadline = System.nanoTime() + maxWaitNanos;
+					while (u != STOP) {
+						group.add(u);
+						if (group.size() >= maxGroupSize) {
+							break;
+						}
+						final long remaining = deadline - System.nanoTime();
+						u = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+						if (u == null) {
+							break;
+						}
+					}
+					stop = (u == STOP);
+				} catch (InterruptedException e) {
+					stop = true;
+				}
+
+				if (!group.isEmpty()) {
+					apply(group);
+					group.clear();
+				}
+			}
+		} catch (Throwable e) {
+			synchronized (this) {
+				closed = true;
+				failure = e;
+			}
+			for (Unit<?> u : group) {
+				u.future.fail(e);
+			}
+		}
+
+		// fail anything left if writer was interrupted or failed
+		final IllegalStateException closedError;
+		synchronized (this) {
+			closedError = failure != null ? new IllegalStateException("group committer failed", failure) : new IllegalStateException("group committer is closed");
+		}
+		Unit<?> u;
+		while ((u = queue.poll()) != null) {
+			u.future.fail(closedError);
+		}
+	}
+
+	private void apply(List<Unit<?>> group) {
+		final List<Unit<?>> applied = new ArrayList<Unit<?>>(group.size());
+		try (SQLTransaction trans = new SQLTransaction(connection)) {
+			for (Unit<?> u : group) {
+				final Savepoint savepoint = connection.setSavepoint();
+				try {
+					if (u.run(connection)) {
+						applied.add(u);
+					}
+				} catch (Throwable e) {
+					connection.rollback(savepoint);
+					failedUnits.incrementAndGet();
+					u.future.fail(e);
+					continue;
+				}
+				release(savepoint);
+			}
+			trans.commit();
+			commits.incrementAndGet();
+		} catch (Throwable e) {
+			// a failed commit leaves the transaction open, its changes mustn't go with the next group
+			try {
+				connection.rollback();
+			} catch (SQLException | RuntimeException re) {
+				e.addSuppressed(re);
+			}
+			failedCommits.incrementAndGet();
+			for (Unit<?> u : group) {
+				u.future.fail(e);
+			}
+			return;
+		}
+
+		units.addAndGet(applied.size());
+		for (Unit<?> u : applied) {
+			try {
+				u.complete();
+			} catch (Throwable e) {
+				// committed and completed, only a listener of the future failed
+				logger.log(Level.WARNING, "listener of committed unit failed", e);
+			}
+		}
+	}
+
+	/**
+	 * Releases the savepoint of a successful unit, so a large group doesn't pile up savepoints.
+	 */
+	private void release(Savepoint savepoint) throws SQLException {
+		if (releaseSavepoints) {
+			try {
+				connection.releaseSavepoint(savepoint);
+			} catch (SQLFeatureNotSupportedException e) {
+				releaseSavepoints = false;
+			}
+		}
+	}
+
+	/**
+	 * @return number of committed units
+	 */
+	public long getUnits() {
+		return units.get();
+	}
+
+	/**
+	 * @return number of units that failed by themselves
+	 */
+	public long getFailedUnits() {
+		return failedUnits.get();
+	}
+
+	/**
+	 * @return number of commits
+	 */
+	public long getCommits() {
+		return commits.get();
+	}
+
+	/**
+	 * @return number of failed group commits
+	 */
+	public long getFailedCommits() {
+		return failedCommits.get();
+	}
+
+	/**
+	 * Returns average number of units per commit.
+	 * @return average group size
+	 */
+	public double getAverageGroupSize() {
+		final long c = commits.get();
+		return c > 0 ? (double)units.get() / c : 0.0;
+	}
+
+	/**
+	 * Applies all submitted units and stops writer thread. Does not close the connection.
+	 * @throws SQLException
+	 */
+	@Override
+	public void close() throws SQLException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			queue.add(STOP);
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			writer.interrupt();
+			throw new SQLException("interrupted while closing group committer", e);
+		}
+	}
+}
@@ -0,0 +1,406 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.plip.sql.ParameterStatement.ParameterProvider;
+
+/**
+ * Iterates a large result page by page, seeking past the keys of the previous page instead of using an offset.
+ *
+ * The query selects the rows after a set of key parameters in key order, limited by a page size parameter, eg.
+ * <code>SELECT ... FROM foo WHERE (k1, k2) &gt; (:k1, :k2) ORDER BY k1, k2 LIMIT :n</code>.
+ * After each page the key parameters are bound to the key columns of its last row, so with an index on the keys
+ * each page costs the same however deep into the result. Key parameters are named as the labels of the key columns,
+ * which together must be unique and non-null. Initial key values (eg. the minimum values) and any other parameters
+ * are taken from {@link #setParameters(ParameterProvider)}. Some databases don't use an index for row value comparisons,
+ * <code>k1 &gt;= :k1 AND (k1 &gt; :k1 OR k2 &gt; :k2)</code> is an equivalent that does.
+ *
+ * Pages are fetched on a connection of the iterator, through one prepared statement. With an executor set by
+ * {@link #setPrefetch(ExecutorService)}, the next page is fetched on it while the current one is consumed.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  KeysetQuery&lt;Foo&gt; kq = new KeysetQuery&lt;&gt;(source, query, new String[] { "k1", "k2" }, "n", fooMapper, "k1", "k2", "name");
+ *  kq.setPageSize(1000).setParameters(start).setPrefetch(executor);
+ *  try (SQLStack stack = new SQLStack()) {
+ *      for (Foo foo : stack.push(kq.iterate())) {
+ *          ...
+ *      }
+ *  }
+ * </code></pre>
+ *
+ * @param <T> type of mapped rows
+ * @since 1.1
+ */
+public class KeysetQuery<T> {
+	/** Default number of rows per page. */
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+
+	private final ConnectionSource	source;
+	private final ParsedQuery		query;
+	private final String[]			keys;
+	private final String			limitName;
+	private final RowMapper<T>		mapper;
+	private final String[]			labels;
+
+	private ParameterProvider	parameters;
+	private ExecutorService		prefetch;
+	private int					pageSize = DEFAULT_PAGE_SIZE;
+
+	/**
+	 * Creates a keyset query.
+	 * @param source	source of connections
+	 * @param query		query with key and page size parameters
+	 * @param keys		names of key parameters, which are also labels of key columns
+	 * @param limitName	name of page size parameter
+	 * @param mapper	row mapper
+	 * @param labels	column labels for mapper, see {@link RowMapper}
+	 */
+	public KeysetQuery(ConnectionSource source, ParsedQuery query, String[] keys, String limitName, RowMapper<T> mapper, String... labels) {
+		if (keys.length == 0) {
+			throw new IllegalArgumentException("at least one key is needed");
+		}
+		for (String key : keys) {
+			query.getSlot(key);
+		}
+		query.getSlot(limitName);
+
+		this.source = source;
+		this.query = query;
+		this.keys = keys.clone();
+		this.limitName = limitName;
+		this.mapper = mapper;
+		this.labels = labels;
+	}
+
+	/**
+	 * Sets number of rows per page, also used as fetch size.
+	 * @param rows	page size
+	 * @return this
+	 */
+	public KeysetQuery<T> setPageSize(int rows) {
+		if (rows <= 0) {
+			throw new IllegalArgumentException("page size must be positive");
+		}
+		this.pageSize = rows;
+		return this;
+	}
+
+	/**
+	 * Sets provider of initial key values and remaining parameters.
+	 * @param parameters	parameter provider
+	 * @return this
+	 */
+	public KeysetQuery<T> setParameters(ParameterProvider parameters) {
+		this.parameters = parameters;
+		return this;
+	}
+
+	/**
+	 * Sets executor to fetch the next page on while the current one is consumed, by default pages are fetched
+	 * when needed by the iterating thread.
+	 * @param executor	executor, or null to not prefetch
+	 * @return this
+	 */
+	public KeysetQuery<T> setPrefetch(ExecutorService executor) {
+		this.prefetch = executor;
+		return this;
+	}
+
+	/**
+	 * Opens a connection and returns a lazy iterator over all pages, closing the connection when exhausted or closed.
+	 * @return iterator of rows, SQL errors are thrown as {@link UncheckedSQLException}
+	 * @throws SQLException	if the connection or statement can't be opened
+	 */
+	public PageIterator iterate() throws SQLException {
+		return new PageIterator();
+	}
+
+	/**
+	 * Rows of a page, and key values of its last row.
+	 */
+	private static final class Page<R> {
+		final List<R>	rows;
+		final Object[]	last;
+
+		Page(List<R> rows, Object[] last) {
+			this.rows = rows;
+			this.last = last;
+		}
+	}
+
+	/**
+	 * Iterator of rows of consecutive pages.
+	 */
+	public final class PageIterator implements Iterator<T>, Iterable<T>, SQLClosable {
+		private final SQLStack				stack = new SQLStack();
+		private final ParameterStatement	stmt;
+		private final ParsedQuery.Slot[]	keySlots;
+		private final ExecutorService		exec = prefetch;
+		private final int					size = pageSize;
+
+		/** Resolved on first page. */
+		private RowMapper<T>	pageMapper = mapper;
+		private int[]			columns;
+		private int[]			keyColumns;
+		private int[]			keyTypes;
+
+		private Page<T>			page;
+		private int				index;
+		private Future<Page<T>>	pending;
+		private boolean			closed;
+		private long			pageCount;
+		private long			rowCount;
+
+		PageIterator() throws SQLException {
+			try {
+				final Connection connection = stack.push(source.getConnection());
+				stmt = stack.push(new ParameterStatement(connection, query));
+				if (parameters != null) {
+					stmt.setParameters(parameters);
+				}
+				stmt.setInt(limitName, size);
+				stmt.setFetchSize(size);
+				keySlots = new ParsedQuery.Slot[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					keySlots[i] = query.getSlot(keys[i]);
+				}
+			} catch (SQLException | RuntimeException e) {
+				try {
+					stack.close();
+				} catch (SQLException s) {
+					e.addSuppressed(s);
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * Fetches the page after keys, or the first page.
+		 */
+		private Page<T> fetch(Object[] after) throws SQLException {
+			if (after != null) {
+				for (int i = 0; i < keySlots.length; i++) {
+					stmt.setObject(keySlots[i], after[i], keyTypes[i], null);
+				}
+			}
+			final List<T> rows = new ArrayList<T>(size);
+			Object[] last = null;
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					if (columns == null) {
+						resolve(rs);
+					}
+					rows.add(pageMapper.map(rs, columns));
+					if (last == null) {
+						last = new Object[keyColumns.length];
+					}
+					for (int i = 0; i < keyColumns.length; i++) {
+						last[i] = rs.getObject(keyColumns[i]);
+					}
+				}
+			}
+			return new Page<T>(rows, last);
+		}
+
+		private void resolve(ResultSet rs) throws SQLException {
+			pageMapper = RowMapper.Adapter.bind(pageMapper, rs);
+			final int[] c = new int[labels.length];
+			for (int i = 0; i < labels.length; i++) {
+				c[i] = rs.findColumn(labels[i]);
+			}
+			final ResultSetMetaData md = rs.getMetaData();
+			keyColumns = new int[keys.length];
+			keyTypes = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				keyColumns[i] = rs.findColumn(keys[i]);
+				keyTypes[i] = md.getColumnType(keyColumns[i]);
+			}
+			columns = c;
+		}
+
+		/**
+		 * Returns true if there may be a page after the current one.
+		 */
+		private boolean hasMore(Page<T> p) {
+			return p.rows.size() >= size;
+		}
+
+		/**
+		 * Starts fetching the page after the current one.
+		 */
+		private void prefetch() {
+			if (exec != null && hasMore(page)) {
+				final Object[] after = page.last;
+				pending = exec.submit(new Callable<Page<T>>() {
+					@Override
+					public Page<T> call() throws SQLException {
+						return fetch(after);
+					}
+				});
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!closed && (page == null || index >= page.rows.size())) {
+				if (page != null && !hasMore(page)) {
+					closeSuppress();
+					break;
+				}
+				try {
+					if (pending != null) {
+						final Future<Page<T>> f = pending;
+						pending = null;
+						page = await(f);
+					} else {
+						page = fetch(page != null ? page.last : null);
+					}
+				} catch (SQLException e) {
+					closeSuppress();
+					throw new UncheckedSQLException(e);
+				} catch (RuntimeException e) {
+					closeSuppress();
+					throw e;
+				}
+				index = 0;
+				pageCount++;
+				prefetch();
+			}
+			return !closed;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			rowCount++;
+			return page.rows.get(index++);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Returns this iterator, for use in for-each loops. Can only be iterated once.
+		 * @return this
+		 */
+		@Override
+		public Iterator<T> iterator() {
+			return this;
+		}
+
+		/**
+		 * Returns number of pages fetched so far, not counting a prefetched page.
+		 * @return number of pages
+		 */
+		public long getPageCount() {
+			return pageCount;
+		}
+
+		/**
+		 * Returns number of rows returned so far.
+		 * @return number of rows
+		 */
+		public long getRowCount() {
+			return rowCount;
+		}
+
+		/**
+		 * Waits for any prefetch, and closes the statement and connection.
+		 * @throws SQLException
+		 */
+		@Override
+		public void close() throws SQLException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			page = null;
+			try {
+				final Future<Page<T>> f = pending;
+				pending = null;
+				if (f != null && !f.cancel(false)) {
+					// running on the connection, abort before closing it
+					stmt.borrowStatement().cancel();
+					try {
+						f.get();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} catch (ExecutionException | CancellationException e) {
+						// result unused
+					}
+				}
+			} finally {
+				stack.close();
+			}
+		}
+
+		private void closeSuppress() {
+			try {
+				close();
+			} catch (SQLException e) {
+				// reporting original error, if any
+			}
+		}
+	}
+
+	private static <R> R await(Future<R> future) throws SQLException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("interrupted", e);
+		} catch (CancellationException e) {
+			throw new SQLException("prefetch cancelled", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new SQLException("prefetch failed", cause);
+		}
+	}
+}
@@ -0,0 +1,447 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.plip.sql.ParameterStatement.ParameterProvider;
+
+/**
+ * Executes a range query concurrently over partitions of the key space, using one connection per running partition.
+ *
+ * The query binds the bounds of each partition through two named parameters, eg.
+ * <code>SELECT ... FROM foo WHERE id &gt;= :lo AND id &lt; :hi</code>.
+ * Partitions run on an executor with at most {@link #setParallelism(int)} partitions (and connections) at a time,
+ * each with its resources cleaned up through an {@link SQLStack}.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  ParallelQuery&lt;Foo&gt; pq = new ParallelQuery&lt;&gt;(source, query, "lo", "hi", fooMapper, "id", "name");
+ *  pq.setParallelism(4).setFetchSize(1000);
+ *  List&lt;Foo&gt; all = pq.collect(ParallelQuery.Range.split(0, maxId+1, 16));
+ * </code></pre>
+ *
+ * @param <T> type of mapped rows
+ * @since 1.1
+ */
+public class ParallelQuery<T> {
+
+	/**
+	 * Key range partition, bound to the lower and upper bound parameters.
+	 */
+	public static final class Range {
+		private final SQLParameter lo;
+		private final SQLParameter hi;
+
+		public Range(SQLParameter lo, SQLParameter hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		public SQLParameter getLo() {
+			return lo;
+		}
+
+		public SQLParameter getHi() {
+			return hi;
+		}
+
+		/**
+		 * Splits the half-open range [lo,hi) into evenly sized half-open ranges.
+		 * @param lo	lower bound, inclusive
+		 * @param hi	upper bound, exclusive
+		 * @param n		number of ranges
+		 * @return ranges
+		 */
+		public static List<Range> split(long lo, long hi, int n) {
+			if (n <= 0 || hi < lo) {
+				throw new IllegalArgumentException("invalid split of [" + lo + "," + hi + ") into " + n);
+			}
+			final List<Range> ranges = new ArrayList<Range>(n);
+			final long span = hi - lo;
+			long start = lo;
+			for (int i = 1; i <= n; i++) {
+				final long end = lo + (span / n) * i + Math.min(i, span % n);
+				if (end > start || (i == n && ranges.isEmpty())) {
+					ranges.add(new Range(new SQLParameter.OfLong(start), new SQLParameter.OfLong(end)));
+				}
+				start = end;
+			}
+			return ranges;
+		}
+
+		@Override
+		public String toString() {
+			return "[" + lo.getValue() + "," + hi.getValue() + ")";
+		}
+	}
+
+	/** Marks end of a partition in streaming queue. */
+	private static final Object END = new Object();
+
+	/** Marks failure of a partition in streaming queue. */
+	private static final class Failure {
+		final Throwable cause;
+
+		Failure(Throwable cause) {
+			this.cause = cause;
+		}
+	}
+
+	private final ConnectionSource	source;
+	private final ParsedQuery		query;
+	private final String			loName;
+	private final String			hiName;
+	private final RowMapper<T>		mapper;
+	private final String[]			labels;
+
+	private ParameterProvider	parameters;
+	private ExecutorService		executor;
+	private int					parallelism = Runtime.getRuntime().availableProcessors();
+	private int					fetchSize;
+
+	/**
+	 * Creates a parallel query.
+	 * @param source	source of connections
+	 * @param query		query with range parameters
+	 * @param loName	name of lower bound parameter
+	 * @param hiName	name of upper bound parameter
+	 * @param mapper	row mapper
+	 * @param labels	column labels for mapper, see {@link RowMapper}
+	 */
+	public ParallelQuery(ConnectionSource source, ParsedQuery query, String loName, String hiName, RowMapper<T> mapper, String... labels) {
+		query.getSlot(loName);
+		query.getSlot(hiName);
+
+		this.source = source;
+		this.query = query;
+		this.loName = loName;
+		this.hiName = hiName;
+		this.mapper = mapper;
+		this.labels = labels;
+	}
+
+	/**
+	 * Sets maximum number of concurrently running partitions, and thereby connections.
+	 * @param parallelism	maximum concurrency
+	 * @return this
+	 */
+	public ParallelQuery<T> setParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		this.parallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Sets fetch size of partition statements, see {@link ParameterStatement#setFetchSize(int)}.
+	 * @param rows	fetch size
+	 * @return this
+	 */
+	public ParallelQuery<T> setFetchSize(int rows) {
+		this.fetchSize = rows;
+		return this;
+	}
+
+	/**
+	 * Sets provider of remaining (non range) parameters, shared by all partitions.
+	 * @param parameters	parameter provider, must be thread-safe
+	 * @return this
+	 */
+	public ParallelQuery<T> setParameters(ParameterProvider parameters) {
+		this.parameters = parameters;
+		return this;
+	}
+
+	/**
+	 * Sets executor to run partitions on, by default a dedicated pool is created per execution.
+	 * @param executor	executor
+	 * @return this
+	 */
+	public ParallelQuery<T> setExecutor(ExecutorService executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Runs all partitions, returning rows of all partitions in partition order.
+	 * @param partitions	partitions to query
+	 * @return all rows
+	 * @throws SQLException	first error of any partition, remaining partitions are cancelled as soon as it occurs
+	 */
+	public List<T> collect(List<Range> partitions) throws SQLException {
+		final ExecutorService exec = executor != null ? executor : Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, partitions.size())));
+		final Semaphore permits = new Semaphore(parallelism);
+		final CompletionService<List<T>> completion = new ExecutorCompletionService<List<T>>(exec);
+		final List<Future<List<T>>> futures = new ArrayList<Future<List<T>>>(partitions.size());
+		try {
+			for (final Range range : partitions) {
+				futures.add(completion.submit(new Callable<List<T>>() {
+					@Override
+					public List<T> call() throws Exception {
+						final List<T> rows = new ArrayList<T>();
+						run(range, permits, new RowSink<T>() {
+							@Override
+							public void accept(T row) {
+								rows.add(row);
+							}
+						});
+						return rows;
+					}
+				}));
+			}
+
+			// in order of completion, so the first failure isn't held up by earlier partitions
+			for (int i = 0; i < futures.size(); i++) {
+				final Future<List<T>> future;
+				try {
+					future = completion.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("interrupted", e);
+				}
+				await(future);
+			}
+
+			final List<T> result = new ArrayList<T>();
+			for (Future<List<T>> future : futures) {
+				result.addAll(await(future));
+			}
+			return result;
+		} finally {
+			for (Future<List<T>> future : futures) {
+				future.cancel(true);
+			}
+			if (exec != executor) {
+				exec.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Runs all partitions, streaming rows back as they are read, in no particular order.
+	 *
+	 * At most <code>bufferRows</code> rows are buffered, partitions block while buffer is full.
+	 * Closing the returned iterator (eg. through an {@link SQLStack}) cancels running partitions.
+	 *
+	 * @param partitions	partitions to query
+	 * @param bufferRows	number of rows to buffer
+	 * @return iterator of rows, SQL errors are thrown as {@link UncheckedSQLException}
+	 */
+	public StreamIterator stream(List<Range> partitions, int bufferRows) {
+		return new StreamIterator(partitions, bufferRows);
+	}
+
+	/**
+	 * Iterator of rows streamed from concurrently running partitions.
+	 */
+	public final class StreamIterator implements Iterator<T>, Iterable<T>, SQLClosable {
+		private final BlockingQueue<Object>	queue;
+		private final List<Future<?>>		futures;
+		private final ExecutorService		exec;
+		private int							remaining;
+		private Object						next;
+		private boolean						closed;
+
+		StreamIterator(List<Range> partitions, int bufferRows) {
+			queue = new ArrayBlockingQueue<Object>(Math.max(1, bufferRows));
+			futures = new ArrayList<Future<?>>(partitions.size());
+			exec = executor != null ? executor : Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, partitions.size())));
+			remaining = partitions.size();
+
+			final Semaphore permits = new Semaphore(parallelism);
+			final RowSink<T> sink = new RowSink<T>() {
+				@Override
+				public void accept(T row) throws InterruptedException {
+					queue.put(row);
+				}
+			};
+			for (final Range range : partitions) {
+				futures.add(exec.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						try {
+							run(range, permits, sink);
+							queue.put(END);
+						} catch (InterruptedException e) {
+							// cancelled by close
+						} catch (Throwable e) {
+							// anything else would leave the consumer waiting for the end of this partition
+							queue.put(new Failure(e));
+						}
+						return null;
+					}
+				}));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && remaining > 0 && !closed) {
+				final Object o;
+				try {
+					o = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					close();
+					throw new UncheckedSQLException(new SQLException("interrupted", e));
+				}
+				if (o == END) {
+					remaining--;
+				} else if (o instanceof Failure) {
+					close();
+					final Throwable cause = ((Failure)o).cause;
+					if (cause instanceof SQLException) {
+						throw new UncheckedSQLException((SQLException)cause);
+					} else if (cause instanceof RuntimeException) {
+						throw (RuntimeException)cause;
+					} else if (cause instanceof Error) {
+						throw (Error)cause;
+					}
+					throw new UncheckedSQLException(new SQLException("partition failed", cause));
+				} else {
+					next = o;
+				}
+			}
+			if (next == null && !closed) {
+				close();
+			}
+			return next != null;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final T row = (T)next;
+			next = null;
+			return row;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return this;
+		}
+
+		/**
+		 * Cancels any running partitions.
+		 */
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				next = null;
+				for (Future<?> future : futures) {
+					future.cancel(true);
+				}
+				queue.clear();
+				if (exec != executor) {
+					exec.shutdownNow();
+				}
+			}
+		}
+	}
+
+	/** Receiver of rows from a partition. */
+	private interface RowSink<T> {
+		void accept(T row) throws InterruptedException;
+	}
+
+	private void run(final Range range, Semaphore permits, RowSink<T> sink) throws SQLException, InterruptedException {
+		permits.acquire();
+		try (SQLStack stack = SQLStack.acquire()) {
+			final Connection connection = stack.push(source.getConnection());
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, query, new ParameterProvider() {
+				@Override
+				public SQLParameter get(String paramName) {
+					if (paramName.equals(loName)) {
+						return range.getLo();
+					} else if (paramName.equals(hiName)) {
+						return range.getHi();
+					}
+					return parameters != null ? parameters.get(paramName) : null;
+				}
+			}));
+			if (fetchSize > 0) {
+				stmt.setFetchSize(fetchSize);
+			}
+
+			for (T row : stmt.iterate(stack, mapper, labels)) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				sink.accept(row);
+			}
+		} catch (UncheckedSQLException e) {
+			throw e.getCause();
+		} finally {
+			permits.release();
+		}
+	}
+
+	private static <R> R await(Future<R> future) throws SQLException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("interrupted", e);
+		} catch (CancellationException e) {
+			throw new SQLException("partition cancelled", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof SQLException) {
+				throw (SQLException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw new SQLException("partition failed", cause);
+		}
+	}
+}
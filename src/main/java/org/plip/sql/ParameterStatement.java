@@ -27,8 +27,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -47,6 +49,11 @@ import java.util.Set;
  *   SELECT colA,colB FROM mytable WHERE foo = :foo AND bar > :foo;
  * </code>
  *
+ * Collections may be bound to a parameter using {@link SQLParameter.OfCollection}, eg. <code>WHERE id IN (:ids)</code>,
+ * the statement must then be created with its initial parameters so the query can be expanded.
+ *
+ * Executions may be recorded per query template, see {@link QueryMetrics}, and logged when slow, see {@link SlowQueryLog}.
+ *
  * Initially based on article by Adam Crume (http://www.javaworld.com/article/2077706/core-java/named-parameters-for-preparedstatement.html)
  * Spring's JDBCTemplate is similar also
  *
@@ -68,10 +75,27 @@ public class ParameterStatement implements SQLClosable {
 
 	/** The statement this object is wrapping. */
 	private final PreparedStatement	statement;
-	private final Set<String>		unbound;
 
-	/** Maps parameter names to arrays of ints which are the parameter indices. */
-	private final Map<String, List<Integer>> indexMap;
+	/** Parsed query, maps parameter names to slots of parameter indices. */
+	private final ParsedQuery		query;
+
+	/** Slot ordinals of currently unbound parameters. */
+	private final BitSet			unbound;
+
+	/** Values bound to slots while slow queries are logged or results are cached, or null. */
+	private BoundValues				bound;
+
+	/** Cache of results, and tags of results read or written, or null. */
+	private ResultCache				resultCache;
+	private String[]				resultTags;
+
+	/** Cache to return statement to on close, and its entry keeping the statement and bound values, or null. */
+	private final StatementCache	cache;
+	private final StatementCache.Entry entry;
+	private boolean					released;
+
+	/** Closed after the statement, or null. */
+	private SQLClosable				onClose;
 
 	/**
 	 * Creates a NamedParameterStatement. Wraps a call to
@@ -85,13 +109,89 @@ public class ParameterStatement implements SQLClosable {
 	 *             if the statement could not be created
 	 */
 	public ParameterStatement(Connection connection, CharSequence query) throws SQLException {
-		indexMap = new HashMap<String, List<Integer>>();
-		unbound = new HashSet<String>();
-		String parsedQuery = parse(query, indexMap);
+		this(connection, ParsedQuery.parse(query));
+	}
+
+	/**
+	 * Creates a NamedParameterStatement from an already parsed query. Wraps a call to
+	 * {@link Connection#prepareStatement(java.lang.String) prepareStatement}.
+	 *
+	 * @param connection
+	 *            the database connection
+	 * @param query
+	 *            the parsed query, see {@link ParsedQueryCache}
+	 * @throws SQLException
+	 *             if the statement could not be created
+	 */
+	public ParameterStatement(Connection connection, ParsedQuery query) throws SQLException {
+		this(connection.prepareStatement(query.getSql()), query, null, null);
+	}
+
+	/**
+	 * Creates a NamedParameterStatement using a statement cache.
+	 * The prepared statement is taken from the cache if available, and returned to it on {@link #close()}.
+	 *
+	 * @param cache
+	 *            the statement cache
+	 * @param query
+	 *            the parameterized query
+	 * @throws SQLException
+	 *             if the statement could not be created
+	 */
+	public ParameterStatement(StatementCache cache, CharSequence query) throws SQLException {
+		this(cache, ParsedQuery.parse(query));
+	}
+
+	/**
+	 * Creates a NamedParameterStatement from an already parsed query using a statement cache.
+	 * The prepared statement is taken from the cache if available, and returned to it on {@link #close()}.
+	 *
+	 * @param cache
+	 *            the statement cache
+	 * @param query
+	 *            the parsed query
+	 * @throws SQLException
+	 *             if the statement could not be created
+	 */
+	public ParameterStatement(StatementCache cache, ParsedQuery query) throws SQLException {
+		this(cache.acquire(query.getSql()), query, cache);
+	}
+
+	private ParameterStatement(StatementCache.Entry entry, ParsedQuery query, StatementCache cache) {
+		this(entry.statement, query, cache, entry);
+	}
+
+	/**
+	 * Creates a NamedParameterStatement from an already parsed query using a statement cache.
+	 * This convenience constructor assigns parameters from a provider,
+	 * expanding the query for any collection parameters (see {@link ParsedQuery#expand(ParameterProvider)}).
+	 *
+	 * @param cache
+	 *            the statement cache
+	 * @param query
+	 *            the parsed query
+	 * @param sqlParameters
+	 *			  provider of initial set of parameters
+	 * @throws SQLException
+	 *             if the statement could not be created
+	 */
+	public ParameterStatement(StatementCache cache, ParsedQuery query, ParameterProvider sqlParameters) throws SQLException {
+		this(cache, query.expand(sqlParameters));
+		setParameters(sqlParameters);
+	}
 
-		unbound.addAll(indexMap.keySet());
+	private ParameterStatement(PreparedStatement statement, ParsedQuery query, StatementCache cache, StatementCache.Entry entry) {
+		this.statement = statement;
+		this.query = query;
+		this.cache = cache;
+		this.entry = entry;
+		if (entry != null && entry.values != null && entry.values.size() == query.getSlotCount()) {
+			// values captured by a previous borrower of the statement, cleared when released
+			bound = entry.values;
+		}
 
-		statement = connection.prepareStatement(parsedQuery);
+		unbound = new BitSet(query.getSlotCount());
+		unbound.set(0, query.getSlotCount());
 	}
 
 	/**
@@ -108,7 +208,25 @@ public class ParameterStatement implements SQLClosable {
 	 *             if the statement could not be created
 	 */
 	public ParameterStatement(Connection connection, String query, ParameterProvider sqlParameters) throws SQLException {
-		this(connection,query);
+		this(connection, ParsedQuery.parse(query), sqlParameters);
+	}
+
+	/**
+	 * Creates a NamedParameterStatement from an already parsed query. Wraps a call to
+	 * {@link Connection#prepareStatement(java.lang.String) prepareStatement}.
+	 * This convenience constructor assigns parameters from a provider,
+	 * expanding the query for any collection parameters (see {@link ParsedQuery#expand(ParameterProvider)}).
+	 * @param connection
+	 *            the database connection
+	 * @param query
+	 *            the parsed query
+	 * @param sqlParameters
+	 *			  provider of initial set of parameters
+	 * @throws SQLException
+	 *             if the statement could not be created
+	 */
+	public ParameterStatement(Connection connection, ParsedQuery query, ParameterProvider sqlParameters) throws SQLException {
+		this(connection, query.expand(sqlParameters));
 		setParameters(sqlParameters);
 	}
 
@@ -126,8 +244,7 @@ public class ParameterStatement implements SQLClosable {
 	 *             if the statement could not be created
 	 */
 	public ParameterStatement(Connection connection, String query, Map<String,SQLParameter> sqlParameters) throws SQLException {
-		this(connection,query);
-		setParameters(sqlParameters);
+		this(connection, ParsedQuery.parse(query), provider(sqlParameters));
 	}
 
 	/**
@@ -170,71 +287,21 @@ public class ParameterStatement implements SQLClosable {
 	 * @return the parsed query
 	 */
 	static final String parse(CharSequence query, Map<String, List<Integer>> paramMap) {
-
-		final int length = query.length();
-		final StringBuilder parsedQuery = new StringBuilder(length);
-		boolean inSingleQuote = false;
-		boolean inDoubleQuote = false;
-		int index = 1;
-
-		for (int i = 0; i < length; i++) {
-			char c = query.charAt(i);							// cur char
-			char n = (i+1)<length ? query.charAt(i+1) : '\0';	// next char
-
-			if (inSingleQuote) {
-				if (c == '\'') {
-					inSingleQuote = false;
-				}
-			} else if (inDoubleQuote) {
-				if (c == '"') {
-					inDoubleQuote = false;
-				}
-			} else {
-				if (c == '\'') {
-					inSingleQuote = true;
-				} else if (c == '"') {
-					inDoubleQuote = true;
-
-				// Check for casts, starts with double-colon "::..."
-				} else if (c == ':' && n == ':') {
-					parsedQuery.append(':');
-					i++;	// skip one character
-					c = ':';
-
-				// Replace :varname with ? and keep varname in mapping
-				} else if (c == ':' && Character.isJavaIdentifierStart(n)) {
-					int j = i + 2;
-					while (j < length && Character.isJavaIdentifierPart(query.charAt(j))) {
-						j++;
-					}
-
-					CharSequence nameseq = query.subSequence(i+1, j);
-					final String name;
-					if (nameseq instanceof String) {
-						name = (String)nameseq;
-					} else {
-						name = nameseq.toString();
-					}
-					c = '?';			// replace the parameter with a question mark
-					i = j-1;			// skip past the end if the parameter
-
-					List<Integer> indexList = paramMap.get(name);
-					if (indexList == null) {
-						indexList = new LinkedList<Integer>();	// slightly smaller than ArrayList for few elements
-						paramMap.put(name, indexList);
-					}
-
-					indexList.add(index);
-					index++;
-				}
+		final SQLLexer lexer = SQLLexer.lex(query, SQLDialect.ANSI);
+		final int count = lexer.count();
+		for (int i = 0; i < count; i++) {
+			final String name = lexer.name(i);
+			List<Integer> indexList = paramMap.get(name);
+			if (indexList == null) {
+				indexList = new LinkedList<Integer>();	// slightly smaller than ArrayList for few elements
+				paramMap.put(name, indexList);
 			}
-			parsedQuery.append(c);
+			indexList.add(i + 1);
 		}
-
-		return parsedQuery.toString();
+		return lexer.sql();
 	}
 
-	ParameterStatement setIndices(List<Integer> indices, Object x, int targetSqlType, Integer scaleOrLength) throws SQLException {
+	ParameterStatement setIndices(int[] indices, Object x, int targetSqlType, Integer scaleOrLength) throws SQLException {
 		for (int index : indices) {
 			if (x == null) {
 				statement.setNull(index, targetSqlType);
@@ -248,6 +315,40 @@ public class ParameterStatement implements SQLClosable {
 		return this;
 	}
 
+	ParameterStatement setIndices(ParsedQuery.Slot slot, SQLParameter sqlParameter) throws SQLException {
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setParameter(slot.ordinal, sqlParameter);
+		}
+		if (sqlParameter instanceof SQLParameter.OfCollection) {
+			((SQLParameter.OfCollection)sqlParameter).bind(statement, slot.indices, slot.width);
+		} else {
+			for (int index : slot.indices) {
+				sqlParameter.bind(statement, index);
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Returns values to capture bindings into while slow queries are logged or results are cached, or null.
+	 * Values are kept with a cached statement, so they're allocated once per prepared statement rather than
+	 * per borrower, and only copied when logged or cached.
+	 */
+	private BoundValues capture() {
+		if (!SlowQueryLog.isEnabled() && resultCache == null) {
+			return null;
+		}
+		if (bound == null) {
+			bound = new BoundValues(query.getSlotCount());
+			if (entry != null) {
+				entry.values = bound;
+			}
+		}
+		return bound;
+	}
+
 	/**
 	 * See {@link PreparedStatement#setObject(int, java.lang.Object, int)}
 	 * See {@link PreparedStatement#setObject(int, java.lang.Object, int, int)}
@@ -259,13 +360,28 @@ public class ParameterStatement implements SQLClosable {
 	 * @throws SQLException
 	 */
     public ParameterStatement setObject(String name, Object x, int targetSqlType, Integer scaleOrLength) throws SQLException {
-		final List<Integer> indices = indexMap.get(name);
-		if (indices == null) {
-			throw new IllegalArgumentException("Parameter not found: " + name);
-		}
+		return setObject(query.getSlot(name), x, targetSqlType, scaleOrLength);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setObject(int, java.lang.Object, int)}
+	 * See {@link PreparedStatement#setObject(int, java.lang.Object, int, int)}
+	 * @param slot			parameter slot, see {@link #getSlot(java.lang.String)}
+	 * @param x				parameter value
+	 * @param targetSqlType	parameter type (typically one of java.sql.Types.X)
+	 * @param scaleOrLength	parameter scale (usually null)
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setObject(ParsedQuery.Slot slot, Object x, int targetSqlType, Integer scaleOrLength) throws SQLException {
+		query.checkSlot(slot);
 
-		unbound.remove(name);
-		return setIndices(indices, x, targetSqlType, scaleOrLength);
+		unbound.clear(slot.ordinal);
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setObject(slot.ordinal, x, targetSqlType, scaleOrLength);
+		}
+		return setIndices(slot.indices, x, targetSqlType, scaleOrLength);
 	}
 
 	/**
@@ -276,7 +392,225 @@ public class ParameterStatement implements SQLClosable {
 	 * @throws SQLException
 	 */
 	public ParameterStatement setParameter(String name, SQLParameter sqlParameter) throws SQLException {
-		return setObject(name, sqlParameter.value, sqlParameter.sqlType, sqlParameter.scaleOrLength);
+		return setParameter(query.getSlot(name), sqlParameter);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setObject(int, java.lang.Object, int)}
+	 * @param slot			parameter slot, see {@link #getSlot(java.lang.String)}
+	 * @param sqlParameter
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setParameter(ParsedQuery.Slot slot, SQLParameter sqlParameter) throws SQLException {
+		query.checkSlot(slot);
+
+		unbound.clear(slot.ordinal);
+		return setIndices(slot, sqlParameter);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setLong(int, long)}
+	 * @param name			parameter name
+	 * @param x				parameter value
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setLong(String name, long x) throws SQLException {
+		return setLong(query.getSlot(name), x);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setLong(int, long)}
+	 * @param slot			parameter slot
+	 * @param x				parameter value
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setLong(ParsedQuery.Slot slot, long x) throws SQLException {
+		query.checkSlot(slot);
+
+		unbound.clear(slot.ordinal);
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setLong(slot.ordinal, x);
+		}
+		for (int index : slot.indices) {
+			statement.setLong(index, x);
+		}
+		return this;
+	}
+
+	/**
+	 * See {@link PreparedStatement#setInt(int, int)}
+	 * @param name			parameter name
+	 * @param x				parameter value
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setInt(String name, int x) throws SQLException {
+		return setInt(query.getSlot(name), x);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setInt(int, int)}
+	 * @param slot			parameter slot
+	 * @param x				parameter value
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setInt(ParsedQuery.Slot slot, int x) throws SQLException {
+		query.checkSlot(slot);
+
+		unbound.clear(slot.ordinal);
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setInt(slot.ordinal, x);
+		}
+		for (int index : slot.indices) {
+			statement.setInt(index, x);
+		}
+		return this;
+	}
+
+	/**
+	 * See {@link PreparedStatement#setDouble(int, double)}
+	 * @param name			parameter name
+	 * @param x				parameter value
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setDouble(String name, double x) throws SQLException {
+		return setDouble(query.getSlot(name), x);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setDouble(int, double)}
+	 * @param slot			parameter slot
+	 * @param x				parameter value
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setDouble(ParsedQuery.Slot slot, double x) throws SQLException {
+		query.checkSlot(slot);
+
+		unbound.clear(slot.ordinal);
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setDouble(slot.ordinal, x);
+		}
+		for (int index : slot.indices) {
+			statement.setDouble(index, x);
+		}
+		return this;
+	}
+
+	/**
+	 * See {@link PreparedStatement#setString(int, java.lang.String)}
+	 * @param name			parameter name
+	 * @param x				parameter value, null for SQL NULL
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setString(String name, String x) throws SQLException {
+		return setString(query.getSlot(name), x);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setString(int, java.lang.String)}
+	 * @param slot			parameter slot
+	 * @param x				parameter value, null for SQL NULL
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setString(ParsedQuery.Slot slot, String x) throws SQLException {
+		query.checkSlot(slot);
+
+		unbound.clear(slot.ordinal);
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setObject(slot.ordinal, x);
+		}
+		for (int index : slot.indices) {
+			if (x == null) {
+				statement.setNull(index, java.sql.Types.VARCHAR);
+			} else {
+				statement.setString(index, x);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * See {@link PreparedStatement#setTimestamp(int, java.sql.Timestamp)}
+	 * @param name			parameter name
+	 * @param x				parameter value, null for SQL NULL
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setTimestamp(String name, Timestamp x) throws SQLException {
+		return setTimestamp(query.getSlot(name), x);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setTimestamp(int, java.sql.Timestamp)}
+	 * @param slot			parameter slot
+	 * @param x				parameter value, null for SQL NULL
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setTimestamp(ParsedQuery.Slot slot, Timestamp x) throws SQLException {
+		query.checkSlot(slot);
+
+		unbound.clear(slot.ordinal);
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setObject(slot.ordinal, x);
+		}
+		for (int index : slot.indices) {
+			if (x == null) {
+				statement.setNull(index, java.sql.Types.TIMESTAMP);
+			} else {
+				statement.setTimestamp(index, x);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * See {@link PreparedStatement#setBytes(int, byte[])}
+	 * @param name			parameter name
+	 * @param x				parameter value, null for SQL NULL
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setBytes(String name, byte[] x) throws SQLException {
+		return setBytes(query.getSlot(name), x);
+	}
+
+	/**
+	 * See {@link PreparedStatement#setBytes(int, byte[])}
+	 * @param slot			parameter slot
+	 * @param x				parameter value, null for SQL NULL
+	 * @return this
+	 * @throws SQLException
+	 */
+	public ParameterStatement setBytes(ParsedQuery.Slot slot, byte[] x) throws SQLException {
+		query.checkSlot(slot);
+
+		unbound.clear(slot.ordinal);
+		final BoundValues b = capture();
+		if (b != null) {
+			b.setObject(slot.ordinal, x);
+		}
+		for (int index : slot.indices) {
+			if (x == null) {
+				statement.setNull(index, java.sql.Types.VARBINARY);
+			} else {
+				statement.setBytes(index, x);
+			}
+		}
+		return this;
 	}
 
 	/**
@@ -287,12 +621,16 @@ public class ParameterStatement implements SQLClosable {
 	 * @throws SQLException
 	 */
 	public final ParameterStatement setParameters(ParameterProvider paramProvider) throws SQLException {
-		for (Map.Entry<String,List<Integer>> entry : indexMap.entrySet()) {
-			final String name = entry.getKey();
-			SQLParameter sqlParameter = paramProvider.get(name);
+		if (BeanParameters.bindProvider(this, paramProvider) >= 0) {
+			return this;
+		}
+		final int count = query.getSlotCount();
+		for (int i = 0; i < count; i++) {
+			final ParsedQuery.Slot slot = query.slot(i);
+			SQLParameter sqlParameter = paramProvider.get(slot.getName());
 			if (sqlParameter != null) {
-				setIndices(entry.getValue(), sqlParameter.value, sqlParameter.sqlType, sqlParameter.scaleOrLength);
-				unbound.remove(name);
+				setIndices(slot, sqlParameter);
+				unbound.clear(i);
 			}
 		}
 		return this;
@@ -306,12 +644,16 @@ public class ParameterStatement implements SQLClosable {
 	 * @throws SQLException
 	 */
 	public final ParameterStatement setParameters(final Map<String,SQLParameter> namedParameters) throws SQLException {
-		return setParameters(new ParameterProvider() {
+		return setParameters(provider(namedParameters));
+	}
+
+	private static ParameterProvider provider(final Map<String,SQLParameter> namedParameters) {
+		return new ParameterProvider() {
 			@Override
 			public SQLParameter get(String paramName) {
 				return namedParameters.get(paramName);
 			}
-		});
+		};
 	}
 
 	/**
@@ -319,15 +661,55 @@ public class ParameterStatement implements SQLClosable {
 	 * @return parameter names
 	 */
 	public Set<String> getParameters() {
-		return Collections.unmodifiableSet(indexMap.keySet());
+		return query.getParameters();
 	}
 
 	/**
-	 * Returns an unmodifiable set of currently unbound parameter names
+	 * Returns an unmodifiable snapshot of currently unbound parameter names
 	 * @return unbound parameter names
 	 */
 	public Set<String> getUnboundParameters() {
-		return Collections.unmodifiableSet(unbound);
+		final Set<String> names = new HashSet<String>();
+		for (int i = unbound.nextSetBit(0); i >= 0; i = unbound.nextSetBit(i+1)) {
+			names.add(query.slot(i).getName());
+		}
+		return Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * Returns true if all parameters are bound.
+	 * @return true if no parameters are unbound
+	 */
+	public boolean isBound() {
+		return unbound.isEmpty();
+	}
+
+	/**
+	 * Marks all parameters unbound, without clearing their values.
+	 */
+	void unbind() {
+		unbound.set(0, query.getSlotCount());
+	}
+
+	/**
+	 * Returns the parsed query of this statement.
+	 * @return parsed query
+	 */
+	public ParsedQuery getParsedQuery() {
+		return query;
+	}
+
+	/**
+	 * Resolves a parameter name to a slot, for repeated binding without by-name lookups.
+	 *
+	 * @param name
+	 *            parameter name
+	 * @return parameter slot
+	 * @throws IllegalArgumentException
+	 *             if the parameter does not exist
+	 */
+	public ParsedQuery.Slot getSlot(String name) {
+		return query.getSlot(name);
 	}
 
 
@@ -341,11 +723,7 @@ public class ParameterStatement implements SQLClosable {
 	 *             if the parameter does not exist
 	 */
 	public List<Integer> getIndices(String name) {
-		List<Integer> indices = indexMap.get(name);
-		if (indices == null) {
-			throw new IllegalArgumentException("Parameter not found: " + name);
-		}
-		return Collections.unmodifiableList(indices);
+		return query.getIndices(name);
 	}
 
 	/**
@@ -357,6 +735,39 @@ public class ParameterStatement implements SQLClosable {
 		return statement;
 	}
 
+	/**
+	 * Sets a cache of query results, which must be set before parameters are bound.
+	 *
+	 * Results of {@link #executeQuery()} are cached by query and bound values, tagged by the tags.
+	 * Executing an update or batch instead invalidates cached results with any of the tags,
+	 * in a transaction again when completed through {@link SQLTransaction} or a connection of {@link ConnectionPool}.
+	 * Until then, queries of this connection with any of the tags bypass the cache.
+	 *
+	 * @param cache	result cache, or null to not cache
+	 * @param tags	tags of results (typically names of tables read), or tags to invalidate (names of tables written)
+	 * @return this
+	 * @throws IllegalStateException	if parameters were bound before, as their values are unknown to the cache
+	 * @see ResultCache
+	 */
+	public ParameterStatement setResultCache(ResultCache cache, String... tags) {
+		for (String tag : tags) {
+			if (tag == null) {
+				throw new IllegalArgumentException("tags mustn't be null");
+			}
+		}
+		if (cache != null) {
+			final int count = query.getSlotCount();
+			for (int i = unbound.nextClearBit(0); i < count; i = unbound.nextClearBit(i + 1)) {
+				if (bound == null || !bound.isBound(i)) {
+					throw new IllegalStateException("result cache must be set before parameters are bound");
+				}
+			}
+		}
+		resultCache = cache;
+		resultTags = tags.clone();
+		return this;
+	}
+
 	/**
 	 * Executes the statement.
 	 *
@@ -366,7 +777,27 @@ public class ParameterStatement implements SQLClosable {
 	 * @see PreparedStatement#execute()
 	 */
 	public boolean execute() throws SQLException {
-		return statement.execute();
+		final boolean ret = doExecute();
+		if (!ret && resultCache != null) {
+			written();
+		}
+		return ret;
+	}
+
+	private boolean doExecute() throws SQLException {
+		if (!QueryMetrics.isEnabled() && !SlowQueryLog.isEnabled()) {
+			return statement.execute();
+		}
+		final long start = System.nanoTime();
+		final boolean ret;
+		try {
+			ret = statement.execute();
+		} catch (SQLException | RuntimeException e) {
+			executed(System.nanoTime() - start, -1, null, e);
+			throw e;
+		}
+		executed(System.nanoTime() - start, -1, null, null);
+		return ret;
 	}
 
 	/**
@@ -378,7 +809,41 @@ public class ParameterStatement implements SQLClosable {
 	 * @see PreparedStatement#executeQuery()
 	 */
 	public ResultSet executeQuery() throws SQLException {
-		return statement.executeQuery();
+		return resultCache == null ? doExecuteQuery() : cachedQuery();
+	}
+
+	private ResultSet doExecuteQuery() throws SQLException {
+		if (!QueryMetrics.isEnabled() && !SlowQueryLog.isEnabled()) {
+			return statement.executeQuery();
+		}
+		final long start = System.nanoTime();
+		final ResultSet ret;
+		try {
+			ret = statement.executeQuery();
+		} catch (SQLException | RuntimeException e) {
+			executed(System.nanoTime() - start, -1, null, e);
+			throw e;
+		}
+		executed(System.nanoTime() - start, -1, null, null);
+		return ret;
+	}
+
+	/**
+	 * Executes the statement, which must be a query, returning a lazy iterator of mapped rows.
+	 * The iterator is pushed onto the stack, so the result set is closed with the stack
+	 * even if not iterated to the end. Rows are fetched according to {@link #setFetchSize(int)}.
+	 *
+	 * @param <T>		type of mapped rows
+	 * @param stack		stack to register iterator with
+	 * @param mapper	row mapper
+	 * @param labels	column labels to resolve once to indices for mapper
+	 * @return row iterator
+	 * @throws SQLException
+	 *             if an error occurred
+	 * @see ResultIterator
+	 */
+	public <T> ResultIterator<T> iterate(SQLStack stack, RowMapper<T> mapper, String... labels) throws SQLException {
+		return stack.push(new ResultIterator<T>(executeQuery(), mapper, labels));
 	}
 
 	/**
@@ -392,11 +857,174 @@ public class ParameterStatement implements SQLClosable {
 	 * @see PreparedStatement#executeUpdate()
 	 */
 	public int executeUpdate() throws SQLException {
-		return statement.executeUpdate();
+		final int ret = doExecuteUpdate();
+		if (resultCache != null) {
+			written();
+		}
+		return ret;
+	}
+
+	private int doExecuteUpdate() throws SQLException {
+		if (!QueryMetrics.isEnabled() && !SlowQueryLog.isEnabled()) {
+			return statement.executeUpdate();
+		}
+		final long start = System.nanoTime();
+		final int ret;
+		try {
+			ret = statement.executeUpdate();
+		} catch (SQLException | RuntimeException e) {
+			executed(System.nanoTime() - start, -1, null, e);
+			throw e;
+		}
+		executed(System.nanoTime() - start, ret, null, null);
+		return ret;
+	}
+
+	/**
+	 * Executes the statement asynchronously, see {@link #executeUpdate()}.
+	 * The statement must not be used until the returned future is done.
+	 *
+	 * @param executor	executor to run on
+	 * @param stack		stack closed when execution is done (typically holding this statement and its connection), or null
+	 * @return future number of rows affected
+	 * @see AsyncExecutor
+	 */
+	public SQLFuture<Integer> executeUpdateAsync(AsyncExecutor executor, SQLStack stack) {
+		return executor.submit(new AsyncExecutor.Work<Integer>(statement) {
+			@Override
+			Integer run() throws SQLException {
+				return executeUpdate();
+			}
+		}, stack);
 	}
 
 	/**
-	 * Closes the statement.
+	 * Executes all of the batched statements asynchronously, see {@link #executeBatch()}.
+	 * The statement must not be used until the returned future is done.
+	 *
+	 * @param executor	executor to run on
+	 * @param stack		stack closed when execution is done (typically holding this statement and its connection), or null
+	 * @return future update counts for each statement
+	 * @see AsyncExecutor
+	 */
+	public SQLFuture<int[]> executeBatchAsync(AsyncExecutor executor, SQLStack stack) {
+		return executor.submit(new AsyncExecutor.Work<int[]>(statement) {
+			@Override
+			int[] run() throws SQLException {
+				return executeBatch();
+			}
+		}, stack);
+	}
+
+	/**
+	 * Executes the statement, which must be a query, asynchronously reading all mapped rows into a list.
+	 * The statement must not be used until the returned future is done.
+	 *
+	 * @param <T>		type of mapped rows
+	 * @param executor	executor to run on
+	 * @param stack		stack closed when execution is done (typically holding this statement and its connection), or null
+	 * @param mapper	row mapper
+	 * @param labels	column labels to resolve once to indices for mapper
+	 * @return future list of mapped rows
+	 * @see AsyncExecutor
+	 */
+	public <T> SQLFuture<List<T>> executeQueryAsync(AsyncExecutor executor, SQLStack stack, final RowMapper<T> mapper, final String... labels) {
+		return executor.submit(new AsyncExecutor.Work<List<T>>(statement) {
+			@Override
+			List<T> run() throws SQLException {
+				final List<T> rows = new ArrayList<T>();
+				try (ResultIterator<T> it = new ResultIterator<T>(executeQuery(), mapper, labels)) {
+					while (it.hasNext()) {
+						rows.add(it.next());
+					}
+				} catch (UncheckedSQLException e) {
+					throw e.getCause();
+				}
+				return rows;
+			}
+		}, stack);
+	}
+
+	/**
+	 * Returns cached results, or executes the query and caches its results.
+	 */
+	private ResultSet cachedQuery() throws SQLException {
+		final ResultCache c = resultCache;
+		if (bound == null || !bound.isComplete()) {
+			// not all parameters bound, fails in the driver
+			return doExecuteQuery();
+		}
+		if (ResultCache.isWritten(statement.getConnection(), c, resultTags)) {
+			// uncommitted writes by this connection
+			return doExecuteQuery();
+		}
+		final String sql = query.getSql();
+		CachedResultSet.Rows rows = c.get(sql, bound);
+		if (rows == null) {
+			final long epoch = c.epoch();
+			final ResultSet rs = doExecuteQuery();
+			try {
+				rows = CachedResultSet.Rows.read(rs, c.maxEntryWeight());
+			} catch (SQLException | RuntimeException e) {
+				try {
+					rs.close();
+				} catch (SQLException s) {
+					e.addSuppressed(s);
+				}
+				throw e;
+			}
+			if (!rows.isComplete()) {
+				// too large to cache, the remaining rows are streamed
+				return CachedResultSet.concat(rows, rs);
+			}
+			rs.close();
+			c.put(sql, bound, rows, resultTags, epoch);
+		}
+		return new CachedResultSet(rows);
+	}
+
+	/**
+	 * Invalidates cached results after a write, and again when committed if in a transaction.
+	 */
+	private void written() throws SQLException {
+		if (resultTags.length == 0) {
+			return;
+		}
+		resultCache.invalidate(resultTags);
+		final Connection connection = statement.getConnection();
+		if (!connection.getAutoCommit()) {
+			ResultCache.written(connection, resultCache, resultTags);
+		}
+	}
+
+	/**
+	 * Records an execution while metrics or the slow query log are enabled, and logs it if slow.
+	 *
+	 * @param elapsed	execution time in nanoseconds
+	 * @param count		update count of {@link #executeUpdate()}, or -1
+	 * @param counts	update counts of {@link #executeBatch()}, or null
+	 * @param error		exception thrown by the execution, or null if successful
+	 */
+	private void executed(long elapsed, int count, int[] counts, Throwable error) {
+		final QueryStats stats = QueryMetrics.recorder(query);
+		if (stats != null) {
+			if (error != null) {
+				stats.recordError(elapsed);
+			} else if (counts != null) {
+				stats.recordBatch(elapsed, counts);
+			} else if (count >= 0) {
+				stats.recordUpdate(elapsed, count);
+			} else {
+				stats.recordQuery(elapsed);
+			}
+		}
+		if (elapsed >= SlowQueryLog.threshold()) {
+			SlowQueryLog.log(query, bound, statement, elapsed, counts != null ? counts.length : -1, error);
+		}
+	}
+
+	/**
+	 * Closes the statement, or returns it to the statement cache this was created from.
 	 *
 	 * @throws SQLException
 	 *             if an error occurred
@@ -404,7 +1032,27 @@ public class ParameterStatement implements SQLClosable {
 	 */
 	@Override
 	public void close() throws SQLException {
-		statement.close();
+		try {
+			if (cache == null) {
+				statement.close();
+			} else if (!released) {
+				released = true;
+				cache.release(query.getSql(), entry);
+			}
+		} finally {
+			final SQLClosable c = onClose;
+			if (c != null) {
+				onClose = null;
+				c.close();
+			}
+		}
+	}
+
+	/**
+	 * Sets a resource closed once after this statement, eg. to track statements in use.
+	 */
+	void onClose(SQLClosable c) {
+		onClose = c;
 	}
 
 	/**
@@ -439,7 +1087,27 @@ public class ParameterStatement implements SQLClosable {
 	 *             if something went wrong
 	 */
 	public int[] executeBatch() throws SQLException {
-		return statement.executeBatch();
+		final int[] ret = doExecuteBatch();
+		if (resultCache != null) {
+			written();
+		}
+		return ret;
+	}
+
+	private int[] doExecuteBatch() throws SQLException {
+		if (!QueryMetrics.isEnabled() && !SlowQueryLog.isEnabled()) {
+			return statement.executeBatch();
+		}
+		final long start = System.nanoTime();
+		final int[] ret;
+		try {
+			ret = statement.executeBatch();
+		} catch (SQLException | RuntimeException e) {
+			executed(System.nanoTime() - start, -1, null, e);
+			throw e;
+		}
+		executed(System.nanoTime() - start, -1, ret, null);
+		return ret;
 	}
 
 	/**
@@ -451,6 +1119,9 @@ public class ParameterStatement implements SQLClosable {
 	 */
 	public void clearParameters() throws SQLException {
 		statement.clearParameters();
-		unbound.addAll(indexMap.keySet());
+		unbound.set(0, query.getSlotCount());
+		if (bound != null) {
+			bound.clear();
+		}
 	}
 }
@@ -0,0 +1,478 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.plip.sql.ParameterStatement.ParameterProvider;
+
+/**
+ * Immutable, pre-parsed query with named parameters.
+ *
+ * Holds the JDBC query text (with question marks) together with a frozen
+ * table of parameter names to indices. Instances are thread-safe and may be
+ * shared freely, see {@link ParsedQueryCache} for a shared cache of these.
+ *
+ * Collection parameters (see {@link SQLParameter.OfCollection}) are supported by expanding
+ * the query, see {@link #expand(ParameterStatement.ParameterProvider)}.
+ *
+ * @see ParameterStatement#ParameterStatement(java.sql.Connection, ParsedQuery)
+ * @since 1.1
+ */
+public final class ParsedQuery {
+	/** Largest power-of-two size for expanded collection parameters, larger collections are padded to multiples of this. */
+	public static final int MAX_LIST_BUCKET = 256;
+
+	/** Maximum number of memoized expansions per query. */
+	private static final int MAX_EXPANSIONS = 64;
+
+	private final String	query;
+	private final String	sql;
+
+	/**
+	 * Resolved handle to a named parameter of a specific {@link ParsedQuery}.
+	 *
+	 * Binding through a slot avoids the by-name lookup, see {@link ParameterStatement#setObject(Slot, Object, int, Integer)}.
+	 */
+	public static final class Slot {
+		private final String	name;
+		final int				ordinal;
+		final int[]				indices;
+		final int				width;
+
+		Slot(String name, int ordinal, int[] indices, int width) {
+			this.name = name;
+			this.ordinal = ordinal;
+			this.indices = indices;
+			this.width = width;
+		}
+
+		/**
+		 * Returns parameter name
+		 * @return parameter name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns number of placeholders per occurrence, greater than one for expanded collection parameters.
+		 * @return placeholders per occurrence
+		 */
+		public int getWidth() {
+			return width;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/** Maps parameter names to unmodifiable lists of parameter indices. */
+	private final Map<String, List<Integer>> indexMap;
+
+	private final Map<String, Slot>	slotMap;
+	private final Slot[]			slots;
+	private final int				indexCount;
+
+	/** Character offsets of placeholders in parsed query, null for expanded queries. */
+	private final int[]				offsets;
+
+	/** Character offsets of parentheses of the first VALUES tuple in parsed query, or -1. */
+	private final int				valuesOpen;
+	private final int				valuesClose;
+
+	/** Query this was expanded from, or this. */
+	private final ParsedQuery		base;
+	private final ConcurrentMap<String, ParsedQuery> expansions;
+
+	/** Statistics of base query, resolved on first recorded execution. */
+	private QueryStats				stats;
+
+	/** 1 if read-only, 2 if not, 0 until classified. */
+	private byte					readOnly;
+
+	/** Properties of the last bean class bound to this query, typically the only one. */
+	private BeanParameters.Binding	binding;
+
+	private ParsedQuery(String query, String sql, Map<String, List<Integer>> indexMap, int[] offsets, int valuesOpen, int valuesClose,
+			Map<String, Integer> widths, ParsedQuery base) {
+		this.query = query;
+		this.sql = sql;
+		this.indexMap = indexMap;
+		this.offsets = offsets;
+		this.valuesOpen = valuesOpen;
+		this.valuesClose = valuesClose;
+		this.base = base != null ? base : this;
+		this.expansions = base != null ? null : new ConcurrentHashMap<String, ParsedQuery>();
+
+		slotMap = new HashMap<String, Slot>(indexMap.size()*2);
+		slots = new Slot[indexMap.size()];
+
+		int ordinal = 0;
+		int count = 0;
+		for (Map.Entry<String, List<Integer>> entry : indexMap.entrySet()) {
+			final List<Integer> list = entry.getValue();
+			count += list.size();
+			final int[] indices = new int[list.size()];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = list.get(i);
+			}
+			final Integer width = widths != null ? widths.get(entry.getKey()) : null;
+			final Slot slot = new Slot(entry.getKey(), ordinal, indices, width != null ? width : 1);
+			slots[ordinal++] = slot;
+			slotMap.put(slot.getName(), slot);
+		}
+		indexCount = count;
+	}
+
+	/**
+	 * Parses a query with named parameters, using {@link SQLDialect#ANSI} lexical rules.
+	 *
+	 * @param query
+	 *				query to parse
+	 * @return the parsed query
+	 * @see ParameterStatement
+	 */
+	public static ParsedQuery parse(CharSequence query) {
+		return parse(query, SQLDialect.ANSI);
+	}
+
+	/**
+	 * Parses a query with named parameters.
+	 * Parameters within quoted strings, quoted identifiers and comments are left as is.
+	 *
+	 * @param query
+	 *				query to parse
+	 * @param dialect
+	 *				lexical rules of query
+	 * @return the parsed query
+	 * @see ParameterStatement
+	 */
+	public static ParsedQuery parse(CharSequence query, SQLDialect dialect) {
+		final SQLLexer lexer = SQLLexer.lex(query, dialect);
+		final int count = lexer.count();
+		// in order of first occurrence, which orders slots
+		final Map<String, List<Integer>> paramMap = new LinkedHashMap<String, List<Integer>>();
+		final int[] offsets = new int[count];
+		for (int i = 0; i < count; i++) {
+			final String name = lexer.name(i);
+			List<Integer> indexList = paramMap.get(name);
+			if (indexList == null) {
+				indexList = new ArrayList<Integer>(2);
+				paramMap.put(name, indexList);
+			}
+			indexList.add(i + 1);
+			offsets[i] = lexer.offset(i);
+		}
+
+		return new ParsedQuery(query.toString(), lexer.sql(), freeze(paramMap), offsets, lexer.valuesOpen(), lexer.valuesClose(), null, null);
+	}
+
+	private static Map<String, List<Integer>> freeze(Map<String, List<Integer>> paramMap) {
+		final Map<String, List<Integer>> frozen = new LinkedHashMap<String, List<Integer>>(paramMap.size()*2);
+		for (Map.Entry<String, List<Integer>> entry : paramMap.entrySet()) {
+			frozen.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<Integer>(entry.getValue())));
+		}
+		return Collections.unmodifiableMap(frozen);
+	}
+
+	/**
+	 * Returns number of placeholders used for a collection of given size.
+	 *
+	 * Sizes are rounded up to 1, 2, 4, ... {@link #MAX_LIST_BUCKET} and then to multiples of {@link #MAX_LIST_BUCKET},
+	 * bounding the number of distinct statements for varying collection sizes.
+	 *
+	 * @param size	collection size
+	 * @return number of placeholders
+	 */
+	public static int bucketSize(int size) {
+		if (size <= 1) {
+			return 1;
+		} else if (size > MAX_LIST_BUCKET) {
+			return ((size + MAX_LIST_BUCKET - 1) / MAX_LIST_BUCKET) * MAX_LIST_BUCKET;
+		}
+		return Integer.highestOneBit(size - 1) << 1;
+	}
+
+	/**
+	 * Expands collection parameters into multiple placeholders, eg. <code>WHERE id IN (:ids)</code>
+	 * into <code>WHERE id IN (?, ?, ?, ?)</code>.
+	 *
+	 * Each {@link SQLParameter.OfCollection} given by provider gets {@link #bucketSize(int)} placeholders,
+	 * remaining placeholders are filled by repeating the last element when bound.
+	 * Expansions are memoized per query.
+	 *
+	 * @param params	parameters to be bound
+	 * @return expanded query, or this if no expansion is needed
+	 */
+	public ParsedQuery expand(ParameterProvider params) {
+		if (base != this) {
+			return base.expand(params);
+		}
+
+		int[] widths = null;
+		for (int i = 0; i < slots.length; i++) {
+			final SQLParameter p = params.get(slots[i].getName());
+			if (p instanceof SQLParameter.OfCollection) {
+				final int width = bucketSize(((SQLParameter.OfCollection)p).size());
+				if (width > 1) {
+					if (widths == null) {
+						widths = new int[slots.length];
+						Arrays.fill(widths, 1);
+					}
+					widths[i] = width;
+				}
+			}
+		}
+		return widths != null ? expand(widths) : this;
+	}
+
+	private ParsedQuery expand(int[] widths) {
+		final StringBuilder key = new StringBuilder(widths.length*2);
+		for (int width : widths) {
+			key.append(width).append(',');
+		}
+		ParsedQuery expanded = expansions.get(key.toString());
+		if (expanded != null) {
+			return expanded;
+		}
+
+		final int[] slotOfIndex = new int[indexCount+1];
+		final Map<String, Integer> widthMap = new HashMap<String, Integer>();
+		for (Slot slot : slots) {
+			for (int index : slot.indices) {
+				slotOfIndex[index] = slot.ordinal;
+			}
+			widthMap.put(slot.getName(), widths[slot.ordinal]);
+		}
+
+		final Map<String, List<Integer>> paramMap = new LinkedHashMap<String, List<Integer>>();
+		final StringBuilder sb = new StringBuilder(sql.length() + indexCount*8);
+		int prev = 0;
+		int next = 1;
+		for (int i = 0; i < offsets.length; i++) {
+			sb.append(sql, prev, offsets[i]);
+			prev = offsets[i] + 1;
+
+			final Slot slot = slots[slotOfIndex[i+1]];
+			List<Integer> indexList = paramMap.get(slot.getName());
+			if (indexList == null) {
+				indexList = new ArrayList<Integer>();
+				paramMap.put(slot.getName(), indexList);
+			}
+			for (int j = 0; j < widths[slot.ordinal]; j++) {
+				if (j > 0) {
+					sb.append(", ");
+				}
+				sb.append('?');
+				indexList.add(next++);
+			}
+		}
+		sb.append(sql, prev, sql.length());
+
+		expanded = new ParsedQuery(query, sb.toString(), freeze(paramMap), null, -1, -1, widthMap, this);
+		if (expansions.size() < MAX_EXPANSIONS) {
+			final ParsedQuery prevExpanded = expansions.putIfAbsent(key.toString(), expanded);
+			if (prevExpanded != null) {
+				return prevExpanded;
+			}
+		}
+		return expanded;
+	}
+
+	/**
+	 * Returns execution statistics of this query, shared with its expansions and equal queries.
+	 */
+	QueryStats stats() {
+		// racy but benign, all threads resolve the same instance
+		QueryStats s = stats;
+		if (s == null) {
+			s = base.stats != null ? base.stats : QueryMetrics.getStats(base.query);
+			stats = s;
+		}
+		return s;
+	}
+
+	/**
+	 * Returns true if the query only reads, see {@link SQLLexer#isReadOnly(String)}.
+	 */
+	boolean isReadOnly() {
+		// racy but benign, all threads classify the same
+		byte r = readOnly;
+		if (r == 0) {
+			r = SQLLexer.isReadOnly(query) ? (byte)1 : (byte)2;
+			readOnly = r;
+		}
+		return r == 1;
+	}
+
+	/**
+	 * Returns the bean binding of this query, or null, see {@link BeanParameters}.
+	 */
+	BeanParameters.Binding getBinding() {
+		return binding;
+	}
+
+	/**
+	 * Sets the bean binding of this query, racy but benign as bindings are immutable.
+	 */
+	void setBinding(BeanParameters.Binding binding) {
+		this.binding = binding;
+	}
+
+	/**
+	 * Returns the original query, with named parameters.
+	 * @return original query
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * Returns the parsed query, suitable for {@link java.sql.Connection#prepareStatement(java.lang.String)}.
+	 * @return parsed query
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * Returns an unmodifiable set of parameter names
+	 * @return parameter names
+	 */
+	public Set<String> getParameters() {
+		return indexMap.keySet();
+	}
+
+	/**
+	 * Returns the indices for a parameter.
+	 *
+	 * @param name
+	 *            parameter name
+	 * @return parameter indices, unmodifiable
+	 * @throws IllegalArgumentException
+	 *             if the parameter does not exist
+	 */
+	public List<Integer> getIndices(String name) {
+		final List<Integer> indices = indexMap.get(name);
+		if (indices == null) {
+			throw new IllegalArgumentException("Parameter not found: " + name);
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the slot for a parameter.
+	 *
+	 * @param name
+	 *            parameter name
+	 * @return parameter slot
+	 * @throws IllegalArgumentException
+	 *             if the parameter does not exist
+	 */
+	public Slot getSlot(String name) {
+		final Slot slot = slotMap.get(name);
+		if (slot == null) {
+			throw new IllegalArgumentException("Parameter not found: " + name);
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns number of distinct parameters (slots).
+	 * @return number of slots
+	 */
+	public int getSlotCount() {
+		return slots.length;
+	}
+
+	/**
+	 * Returns total number of parameter indices (question marks) in parsed query.
+	 * @return number of parameter indices
+	 */
+	public int getIndexCount() {
+		return indexCount;
+	}
+
+	Slot slot(int ordinal) {
+		return slots[ordinal];
+	}
+
+	/**
+	 * Checks that a slot belongs to this query.
+	 * @throws IllegalArgumentException if not
+	 */
+	void checkSlot(Slot slot) {
+		if (slot.ordinal >= slots.length || slots[slot.ordinal] != slot) {
+			throw new IllegalArgumentException("Parameter slot not from this query: " + slot.getName());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return sql;
+	}
+
+	/**
+	 * Rewrites the VALUES tuple of a single row insert into multiple rows, eg.
+	 * <code>INSERT INTO t (a,b) VALUES (?,?)</code> into <code>INSERT INTO t (a,b) VALUES (?,?),(?,?)</code>.
+	 * Parameter index i of row r in the rewritten query is <code>i + r*getIndexCount()</code>.
+	 * The tuple and its placeholders are located when parsed, by the same lexical rules.
+	 *
+	 * @param rows	number of rows
+	 * @return rewritten query
+	 * @throws IllegalArgumentException
+	 *				if there is no VALUES tuple, or there are parameters outside of it
+	 */
+	String expandValues(int rows) {
+		if (valuesClose < 0) {
+			throw new IllegalArgumentException("No VALUES tuple found in query: " + query);
+		}
+		for (int offset : offsets) {
+			if (offset < valuesOpen || offset > valuesClose) {
+				throw new IllegalArgumentException("Parameters outside of VALUES tuple in query: " + query);
+			}
+		}
+
+		final int length = sql.length();
+		final String tuple = sql.substring(valuesOpen, valuesClose+1);
+		final StringBuilder sb = new StringBuilder(length + (tuple.length()+1)*(rows-1));
+		sb.append(sql, 0, valuesClose+1);
+		for (int r = 1; r < rows; r++) {
+			sb.append(',').append(tuple);
+		}
+		sb.append(sql, valuesClose+1, length);
+		return sb.toString();
+	}
+}
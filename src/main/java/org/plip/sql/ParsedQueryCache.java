@@ -0,0 +1,167 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe cache of {@link ParsedQuery} instances with LRU eviction.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  ParsedQuery q = ParsedQueryCache.getDefault().get("SELECT * FROM foo WHERE bar = :bar");
+ *  try (ParameterStatement stmt = new ParameterStatement(connection, q)) {
+ *      ...
+ *  }
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public final class ParsedQueryCache {
+	/** Capacity of the default cache. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final ParsedQueryCache defaultCache = new ParsedQueryCache(DEFAULT_CAPACITY);
+
+	private final SQLDialect				dialect;
+	private final Map<String, ParsedQuery>	cache;
+	private final AtomicLong				hits = new AtomicLong();
+	private final AtomicLong				misses = new AtomicLong();
+	private final AtomicLong				evictions = new AtomicLong();
+
+	/**
+	 * Creates a new cache.
+	 * @param capacity	maximum number of queries held
+	 */
+	public ParsedQueryCache(final int capacity) {
+		this(capacity, SQLDialect.ANSI);
+	}
+
+	/**
+	 * Creates a new cache parsing queries of a dialect.
+	 * @param capacity	maximum number of queries held
+	 * @param dialect	dialect of queries
+	 */
+	public ParsedQueryCache(final int capacity, SQLDialect dialect) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.dialect = dialect;
+		cache = new LinkedHashMap<String, ParsedQuery>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ParsedQuery> eldest) {
+				if (size() > capacity) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the JVM-wide default cache.
+	 * @return default cache
+	 */
+	public static ParsedQueryCache getDefault() {
+		return defaultCache;
+	}
+
+	/**
+	 * Returns a cached parsed query, parsing and caching it if needed.
+	 * @param query	query with named parameters
+	 * @return parsed query
+	 */
+	public ParsedQuery get(CharSequence query) {
+		final String key = query.toString();
+
+		ParsedQuery parsed;
+		synchronized (cache) {
+			parsed = cache.get(key);
+		}
+		if (parsed != null) {
+			hits.incrementAndGet();
+			return parsed;
+		}
+
+		// parse outside of lock, concurrent misses of the same query keeps the first one
+		misses.incrementAndGet();
+		parsed = ParsedQuery.parse(key, dialect);
+		synchronized (cache) {
+			final ParsedQuery prev = cache.get(key);
+			if (prev != null) {
+				return prev;
+			}
+			cache.put(key, parsed);
+		}
+		return parsed;
+	}
+
+	/**
+	 * Removes all cached queries, does not reset counters.
+	 */
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Returns number of currently cached queries.
+	 * @return number of cached queries
+	 */
+	public int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Returns number of cache hits.
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns number of cache misses.
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns number of queries evicted due to capacity.
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+}
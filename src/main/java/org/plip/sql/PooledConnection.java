@@ -0,0 +1,388 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Connection handed out by {@link ConnectionPool}, returns the physical connection to the pool when closed.
+ *
+ * A new instance is created for each checkout, so a closed instance stays unusable after its physical connection is reused.
+ *
+ * Statements, their result sets and the database meta data are wrapped by plain delegating classes, so their
+ * <code>getConnection()</code> returns this connection rather than the physical one, which would bypass the pool when
+ * closed.
+ * Commit and rollback complete the transaction for {@link ResultCache}, as by {@link SQLTransaction}.
+ */
+final class PooledConnection implements Connection {
+	private final ConnectionPool		pool;
+	private final ConnectionPool.Entry	entry;
+	private volatile boolean			closed;
+
+	/** True if auto-commit was changed, and needs to be reset on return. */
+	private boolean						autoCommitChanged;
+
+	PooledConnection(ConnectionPool pool, ConnectionPool.Entry entry) {
+		this.pool = pool;
+		this.entry = entry;
+	}
+
+	private Connection delegate() throws SQLException {
+		if (closed) {
+			throw new SQLNonTransientConnectionException("connection is closed");
+		}
+		return entry.connection;
+	}
+
+	/**
+	 * Returns the physical connection, also if closed.
+	 */
+	Connection physical() {
+		return entry.connection;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		pool.release(entry, autoCommitChanged);
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return closed || entry.connection.isClosed();
+	}
+
+	@Override
+	public void abort(Executor executor) throws SQLException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		pool.abort(entry, executor);
+	}
+
+	@Override
+	public boolean isValid(int timeout) throws SQLException {
+		return !closed && entry.connection.isValid(timeout);
+	}
+
+	@Override
+	public void setAutoCommit(boolean autoCommit) throws SQLException {
+		final Connection c = delegate();
+		try {
+			c.setAutoCommit(autoCommit);
+		} finally {
+			autoCommitChanged = true;
+			if (autoCommit) {
+				// commits a transaction in progress
+				ResultCache.completed(c);
+			}
+		}
+	}
+
+	@Override
+	public void setClientInfo(String name, String value) throws SQLClientInfoException {
+		if (closed) {
+			throw new SQLClientInfoException();
+		}
+		entry.connection.setClientInfo(name, value);
+	}
+
+	@Override
+	public void setClientInfo(Properties properties) throws SQLClientInfoException {
+		if (closed) {
+			throw new SQLClientInfoException();
+		}
+		entry.connection.setClientInfo(properties);
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return delegate().unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || delegate().isWrapperFor(iface);
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		delegate().clearWarnings();
+	}
+
+	@Override
+	public void commit() throws SQLException {
+		final Connection c = delegate();
+		try {
+			c.commit();
+		} finally {
+			// also if commit failed, as it's unknown whether changes were committed
+			ResultCache.completed(c);
+		}
+	}
+
+	@Override
+	public Array createArrayOf(String name, Object[] elements) throws SQLException {
+		return delegate().createArrayOf(name, elements);
+	}
+
+	@Override
+	public Blob createBlob() throws SQLException {
+		return delegate().createBlob();
+	}
+
+	@Override
+	public Clob createClob() throws SQLException {
+		return delegate().createClob();
+	}
+
+	@Override
+	public NClob createNClob() throws SQLException {
+		return delegate().createNClob();
+	}
+
+	@Override
+	public SQLXML createSQLXML() throws SQLException {
+		return delegate().createSQLXML();
+	}
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		return new PooledStatement(this, delegate().createStatement());
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return new PooledStatement(this, delegate().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability));
+	}
+
+	@Override
+	public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+		return new PooledStatement(this, delegate().createStatement(resultSetType, resultSetConcurrency));
+	}
+
+	@Override
+	public Struct createStruct(String name, Object[] elements) throws SQLException {
+		return delegate().createStruct(name, elements);
+	}
+
+	@Override
+	public boolean getAutoCommit() throws SQLException {
+		return delegate().getAutoCommit();
+	}
+
+	@Override
+	public String getCatalog() throws SQLException {
+		return delegate().getCatalog();
+	}
+
+	@Override
+	public Properties getClientInfo() throws SQLException {
+		return delegate().getClientInfo();
+	}
+
+	@Override
+	public String getClientInfo(String name) throws SQLException {
+		return delegate().getClientInfo(name);
+	}
+
+	@Override
+	public int getHoldability() throws SQLException {
+		return delegate().getHoldability();
+	}
+
+	@Override
+	public DatabaseMetaData getMetaData() throws SQLException {
+		return new PooledMetaData(this, delegate().getMetaData());
+	}
+
+	@Override
+	public int getNetworkTimeout() throws SQLException {
+		return delegate().getNetworkTimeout();
+	}
+
+	@Override
+	public String getSchema() throws SQLException {
+		return delegate().getSchema();
+	}
+
+	@Override
+	public int getTransactionIsolation() throws SQLException {
+		return delegate().getTransactionIsolation();
+	}
+
+	@Override
+	public Map<String, Class<?>> getTypeMap() throws SQLException {
+		return delegate().getTypeMap();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return delegate().getWarnings();
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		return delegate().isReadOnly();
+	}
+
+	@Override
+	public String nativeSQL(String sql) throws SQLException {
+		return delegate().nativeSQL(sql);
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return new PooledStatement.Callable(this, delegate().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		return new PooledStatement.Callable(this, delegate().prepareCall(sql, resultSetType, resultSetConcurrency));
+	}
+
+	@Override
+	public CallableStatement prepareCall(String sql) throws SQLException {
+		return new PooledStatement.Callable(this, delegate().prepareCall(sql));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+		return new PooledStatement.Prepared(this, delegate().prepareStatement(sql, columnIndexes));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+		return new PooledStatement.Prepared(this, delegate().prepareStatement(sql, columnNames));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+		return new PooledStatement.Prepared(this, delegate().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		return new PooledStatement.Prepared(this, delegate().prepareStatement(sql, resultSetType, resultSetConcurrency));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+		return new PooledStatement.Prepared(this, delegate().prepareStatement(sql, autoGeneratedKeys));
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		return new PooledStatement.Prepared(this, delegate().prepareStatement(sql));
+	}
+
+	@Override
+	public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+		delegate().releaseSavepoint(savepoint);
+	}
+
+	@Override
+	public void rollback() throws SQLException {
+		final Connection c = delegate();
+		try {
+			c.rollback();
+		} finally {
+			ResultCache.completed(c);
+		}
+	}
+
+	@Override
+	public void rollback(Savepoint savepoint) throws SQLException {
+		delegate().rollback(savepoint);
+	}
+
+	@Override
+	public void setCatalog(String name) throws SQLException {
+		delegate().setCatalog(name);
+	}
+
+	@Override
+	public void setHoldability(int holdability) throws SQLException {
+		delegate().setHoldability(holdability);
+	}
+
+	@Override
+	public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+		delegate().setNetworkTimeout(executor, milliseconds);
+	}
+
+	@Override
+	public void setReadOnly(boolean readOnly) throws SQLException {
+		delegate().setReadOnly(readOnly);
+	}
+
+	@Override
+	public Savepoint setSavepoint() throws SQLException {
+		return delegate().setSavepoint();
+	}
+
+	@Override
+	public Savepoint setSavepoint(String name) throws SQLException {
+		return delegate().setSavepoint(name);
+	}
+
+	@Override
+	public void setSchema(String name) throws SQLException {
+		delegate().setSchema(name);
+	}
+
+	@Override
+	public void setTransactionIsolation(int level) throws SQLException {
+		delegate().setTransactionIsolation(level);
+	}
+
+	@Override
+	public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+		delegate().setTypeMap(map);
+	}
+}
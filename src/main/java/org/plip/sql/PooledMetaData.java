@@ -0,0 +1,930 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.RowIdLifetime;
+import java.sql.SQLException;
+
+/**
+ * Database meta data of a {@link PooledConnection}, returning the pooled connection from <code>getConnection()</code>.
+ *
+ * The returned result sets have no statement, as allowed for meta data.
+ */
+final class PooledMetaData implements DatabaseMetaData {
+	private final PooledConnection	connection;
+	private final DatabaseMetaData	meta;
+
+	PooledMetaData(PooledConnection connection, DatabaseMetaData meta) {
+		this.connection = connection;
+		this.meta = meta;
+	}
+
+	private static ResultSet wrap(ResultSet rs) {
+		return rs == null ? null : new PooledResultSet(rs, null);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return connection;
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return meta.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || meta.isWrapperFor(iface);
+	}
+
+	@Override
+	public boolean allProceduresAreCallable() throws SQLException {
+		return meta.allProceduresAreCallable();
+	}
+
+	@Override
+	public boolean allTablesAreSelectable() throws SQLException {
+		return meta.allTablesAreSelectable();
+	}
+
+	@Override
+	public boolean autoCommitFailureClosesAllResultSets() throws SQLException {
+		return meta.autoCommitFailureClosesAllResultSets();
+	}
+
+	@Override
+	public boolean dataDefinitionCausesTransactionCommit() throws SQLException {
+		return meta.dataDefinitionCausesTransactionCommit();
+	}
+
+	@Override
+	public boolean dataDefinitionIgnoredInTransactions() throws SQLException {
+		return meta.dataDefinitionIgnoredInTransactions();
+	}
+
+	@Override
+	public boolean deletesAreDetected(int type) throws SQLException {
+		return meta.deletesAreDetected(type);
+	}
+
+	@Override
+	public boolean doesMaxRowSizeIncludeBlobs() throws SQLException {
+		return meta.doesMaxRowSizeIncludeBlobs();
+	}
+
+	@Override
+	public boolean generatedKeyAlwaysReturned() throws SQLException {
+		return meta.generatedKeyAlwaysReturned();
+	}
+
+	@Override
+	public ResultSet getAttributes(String catalog, String schemaPattern, String typeNamePattern, String attributeNamePattern) throws SQLException {
+		return wrap(meta.getAttributes(catalog, schemaPattern, typeNamePattern, attributeNamePattern));
+	}
+
+	@Override
+	public ResultSet getBestRowIdentifier(String catalog, String schema, String table, int scope, boolean nullable) throws SQLException {
+		return wrap(meta.getBestRowIdentifier(catalog, schema, table, scope, nullable));
+	}
+
+	@Override
+	public String getCatalogSeparator() throws SQLException {
+		return meta.getCatalogSeparator();
+	}
+
+	@Override
+	public String getCatalogTerm() throws SQLException {
+		return meta.getCatalogTerm();
+	}
+
+	@Override
+	public ResultSet getCatalogs() throws SQLException {
+		return wrap(meta.getCatalogs());
+	}
+
+	@Override
+	public ResultSet getClientInfoProperties() throws SQLException {
+		return wrap(meta.getClientInfoProperties());
+	}
+
+	@Override
+	public ResultSet getColumnPrivileges(String catalog, String schema, String table, String columnNamePattern) throws SQLException {
+		return wrap(meta.getColumnPrivileges(catalog, schema, table, columnNamePattern));
+	}
+
+	@Override
+	public ResultSet getColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+		return wrap(meta.getColumns(catalog, schemaPattern, tableNamePattern, columnNamePattern));
+	}
+
+	@Override
+	public ResultSet getCrossReference(String parentCatalog, String parentSchema, String parentTable, String foreignCatalog, String foreignSchema, String foreignTable) throws SQLException {
+		return wrap(meta.getCrossReference(parentCatalog, parentSchema, parentTable, foreignCatalog, foreignSchema, foreignTable));
+	}
+
+	@Override
+	public int getDatabaseMajorVersion() throws SQLException {
+		return meta.getDatabaseMajorVersion();
+	}
+
+	@Override
+	public int getDatabaseMinorVersion() throws SQLException {
+		return meta.getDatabaseMinorVersion();
+	}
+
+	@Override
+	public String getDatabaseProductName() throws SQLException {
+		return meta.getDatabaseProductName();
+	}
+
+	@Override
+	public String getDatabaseProductVersion() throws SQLException {
+		return meta.getDatabaseProductVersion();
+	}
+
+	@Override
+	public int getDefaultTransactionIsolation() throws SQLException {
+		return meta.getDefaultTransactionIsolation();
+	}
+
+	@Override
+	public int getDriverMajorVersion() {
+		return meta.getDriverMajorVersion();
+	}
+
+	@Override
+	public int getDriverMinorVersion() {
+		return meta.getDriverMinorVersion();
+	}
+
+	@Override
+	public String getDriverName() throws SQLException {
+		return meta.getDriverName();
+	}
+
+	@Override
+	public String getDriverVersion() throws SQLException {
+		return meta.getDriverVersion();
+	}
+
+	@Override
+	public ResultSet getExportedKeys(String catalog, String schema, String table) throws SQLException {
+		return wrap(meta.getExportedKeys(catalog, schema, table));
+	}
+
+	@Override
+	public String getExtraNameCharacters() throws SQLException {
+		return meta.getExtraNameCharacters();
+	}
+
+	@Override
+	public ResultSet getFunctionColumns(String catalog, String schemaPattern, String functionNamePattern, String columnNamePattern) throws SQLException {
+		return wrap(meta.getFunctionColumns(catalog, schemaPattern, functionNamePattern, columnNamePattern));
+	}
+
+	@Override
+	public ResultSet getFunctions(String catalog, String schemaPattern, String functionNamePattern) throws SQLException {
+		return wrap(meta.getFunctions(catalog, schemaPattern, functionNamePattern));
+	}
+
+	@Override
+	public String getIdentifierQuoteString() throws SQLException {
+		return meta.getIdentifierQuoteString();
+	}
+
+	@Override
+	public ResultSet getImportedKeys(String catalog, String schema, String table) throws SQLException {
+		return wrap(meta.getImportedKeys(catalog, schema, table));
+	}
+
+	@Override
+	public ResultSet getIndexInfo(String catalog, String schema, String table, boolean unique, boolean approximate) throws SQLException {
+		return wrap(meta.getIndexInfo(catalog, schema, table, unique, approximate));
+	}
+
+	@Override
+	public int getJDBCMajorVersion() throws SQLException {
+		return meta.getJDBCMajorVersion();
+	}
+
+	@Override
+	public int getJDBCMinorVersion() throws SQLException {
+		return meta.getJDBCMinorVersion();
+	}
+
+	@Override
+	public int getMaxBinaryLiteralLength() throws SQLException {
+		return meta.getMaxBinaryLiteralLength();
+	}
+
+	@Override
+	public int getMaxCatalogNameLength() throws SQLException {
+		return meta.getMaxCatalogNameLength();
+	}
+
+	@Override
+	public int getMaxCharLiteralLength() throws SQLException {
+		return meta.getMaxCharLiteralLength();
+	}
+
+	@Override
+	public int getMaxColumnNameLength() throws SQLException {
+		return meta.getMaxColumnNameLength();
+	}
+
+	@Override
+	public int getMaxColumnsInGroupBy() throws SQLException {
+		return meta.getMaxColumnsInGroupBy();
+	}
+
+	@Override
+	public int getMaxColumnsInIndex() throws SQLException {
+		return meta.getMaxColumnsInIndex();
+	}
+
+	@Override
+	public int getMaxColumnsInOrderBy() throws SQLException {
+		return meta.getMaxColumnsInOrderBy();
+	}
+
+	@Override
+	public int getMaxColumnsInSelect() throws SQLException {
+		return meta.getMaxColumnsInSelect();
+	}
+
+	@Override
+	public int getMaxColumnsInTable() throws SQLException {
+		return meta.getMaxColumnsInTable();
+	}
+
+	@Override
+	public int getMaxConnections() throws SQLException {
+		return meta.getMaxConnections();
+	}
+
+	@Override
+	public int getMaxCursorNameLength() throws SQLException {
+		return meta.getMaxCursorNameLength();
+	}
+
+	@Override
+	public int getMaxIndexLength() throws SQLException {
+		return meta.getMaxIndexLength();
+	}
+
+	@Override
+	public int getMaxProcedureNameLength() throws SQLException {
+		return meta.getMaxProcedureNameLength();
+	}
+
+	@Override
+	public int getMaxRowSize() throws SQLException {
+		return meta.getMaxRowSize();
+	}
+
+	@Override
+	public int getMaxSchemaNameLength() throws SQLException {
+		return meta.getMaxSchemaNameLength();
+	}
+
+	@Override
+	public int getMaxStatementLength() throws SQLException {
+		return meta.getMaxStatementLength();
+	}
+
+	@Override
+	public int getMaxStatements() throws SQLException {
+		return meta.getMaxStatements();
+	}
+
+	@Override
+	public int getMaxTableNameLength() throws SQLException {
+		return meta.getMaxTableNameLength();
+	}
+
+	@Override
+	public int getMaxTablesInSelect() throws SQLException {
+		return meta.getMaxTablesInSelect();
+	}
+
+	@Override
+	public int getMaxUserNameLength() throws SQLException {
+		return meta.getMaxUserNameLength();
+	}
+
+	@Override
+	public String getNumericFunctions() throws SQLException {
+		return meta.getNumericFunctions();
+	}
+
+	@Override
+	public ResultSet getPrimaryKeys(String catalog, String schema, String table) throws SQLException {
+		return wrap(meta.getPrimaryKeys(catalog, schema, table));
+	}
+
+	@Override
+	public ResultSet getProcedureColumns(String catalog, String schemaPattern, String procedureNamePattern, String columnNamePattern) throws SQLException {
+		return wrap(meta.getProcedureColumns(catalog, schemaPattern, procedureNamePattern, columnNamePattern));
+	}
+
+	@Override
+	public String getProcedureTerm() throws SQLException {
+		return meta.getProcedureTerm();
+	}
+
+	@Override
+	public ResultSet getProcedures(String catalog, String schemaPattern, String procedureNamePattern) throws SQLException {
+		return wrap(meta.getProcedures(catalog, schemaPattern, procedureNamePattern));
+	}
+
+	@Override
+	public ResultSet getPseudoColumns(String catalog, String schemaPattern, String tableNamePattern, String columnNamePattern) throws SQLException {
+		return wrap(meta.getPseudoColumns(catalog, schemaPattern, tableNamePattern, columnNamePattern));
+	}
+
+	@Override
+	public int getResultSetHoldability() throws SQLException {
+		return meta.getResultSetHoldability();
+	}
+
+	@Override
+	public RowIdLifetime getRowIdLifetime() throws SQLException {
+		return meta.getRowIdLifetime();
+	}
+
+	@Override
+	public String getSQLKeywords() throws SQLException {
+		return meta.getSQLKeywords();
+	}
+
+	@Override
+	public int getSQLStateType() throws SQLException {
+		return meta.getSQLStateType();
+	}
+
+	@Override
+	public String getSchemaTerm() throws SQLException {
+		return meta.getSchemaTerm();
+	}
+
+	@Override
+	public ResultSet getSchemas() throws SQLException {
+		return wrap(meta.getSchemas());
+	}
+
+	@Override
+	public ResultSet getSchemas(String catalog, String schemaPattern) throws SQLException {
+		return wrap(meta.getSchemas(catalog, schemaPattern));
+	}
+
+	@Override
+	public String getSearchStringEscape() throws SQLException {
+		return meta.getSearchStringEscape();
+	}
+
+	@Override
+	public String getStringFunctions() throws SQLException {
+		return meta.getStringFunctions();
+	}
+
+	@Override
+	public ResultSet getSuperTables(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+		return wrap(meta.getSuperTables(catalog, schemaPattern, tableNamePattern));
+	}
+
+	@Override
+	public ResultSet getSuperTypes(String catalog, String schemaPattern, String typeNamePattern) throws SQLException {
+		return wrap(meta.getSuperTypes(catalog, schemaPattern, typeNamePattern));
+	}
+
+	@Override
+	public String getSystemFunctions() throws SQLException {
+		return meta.getSystemFunctions();
+	}
+
+	@Override
+	public ResultSet getTablePrivileges(String catalog, String schemaPattern, String tableNamePattern) throws SQLException {
+		return wrap(meta.getTablePrivileges(catalog, schemaPattern, tableNamePattern));
+	}
+
+	@Override
+	public ResultSet getTableTypes() throws SQLException {
+		return wrap(meta.getTableTypes());
+	}
+
+	@Override
+	public ResultSet getTables(String catalog, String schemaPattern, String tableNamePattern, String[] types) throws SQLException {
+		return wrap(meta.getTables(catalog, schemaPattern, tableNamePattern, types));
+	}
+
+	@Override
+	public String getTimeDateFunctions() throws SQLException {
+		return meta.getTimeDateFunctions();
+	}
+
+	@Override
+	public ResultSet getTypeInfo() throws SQLException {
+		return wrap(meta.getTypeInfo());
+	}
+
+	@Override
+	public ResultSet getUDTs(String catalog, String schemaPattern, String typeNamePattern, int[] types) throws SQLException {
+		return wrap(meta.getUDTs(catalog, schemaPattern, typeNamePattern, types));
+	}
+
+	@Override
+	public String getURL() throws SQLException {
+		return meta.getURL();
+	}
+
+	@Override
+	public String getUserName() throws SQLException {
+		return meta.getUserName();
+	}
+
+	@Override
+	public ResultSet getVersionColumns(String catalog, String schema, String table) throws SQLException {
+		return wrap(meta.getVersionColumns(catalog, schema, table));
+	}
+
+	@Override
+	public boolean insertsAreDetected(int type) throws SQLException {
+		return meta.insertsAreDetected(type);
+	}
+
+	@Override
+	public boolean isCatalogAtStart() throws SQLException {
+		return meta.isCatalogAtStart();
+	}
+
+	@Override
+	public boolean isReadOnly() throws SQLException {
+		return meta.isReadOnly();
+	}
+
+	@Override
+	public boolean locatorsUpdateCopy() throws SQLException {
+		return meta.locatorsUpdateCopy();
+	}
+
+	@Override
+	public boolean nullPlusNonNullIsNull() throws SQLException {
+		return meta.nullPlusNonNullIsNull();
+	}
+
+	@Override
+	public boolean nullsAreSortedAtEnd() throws SQLException {
+		return meta.nullsAreSortedAtEnd();
+	}
+
+	@Override
+	public boolean nullsAreSortedAtStart() throws SQLException {
+		return meta.nullsAreSortedAtStart();
+	}
+
+	@Override
+	public boolean nullsAreSortedHigh() throws SQLException {
+		return meta.nullsAreSortedHigh();
+	}
+
+	@Override
+	public boolean nullsAreSortedLow() throws SQLException {
+		return meta.nullsAreSortedLow();
+	}
+
+	@Override
+	public boolean othersDeletesAreVisible(int type) throws SQLException {
+		return meta.othersDeletesAreVisible(type);
+	}
+
+	@Override
+	public boolean othersInsertsAreVisible(int type) throws SQLException {
+		return meta.othersInsertsAreVisible(type);
+	}
+
+	@Override
+	public boolean othersUpdatesAreVisible(int type) throws SQLException {
+		return meta.othersUpdatesAreVisible(type);
+	}
+
+	@Override
+	public boolean ownDeletesAreVisible(int type) throws SQLException {
+		return meta.ownDeletesAreVisible(type);
+	}
+
+	@Override
+	public boolean ownInsertsAreVisible(int type) throws SQLException {
+		return meta.ownInsertsAreVisible(type);
+	}
+
+	@Override
+	public boolean ownUpdatesAreVisible(int type) throws SQLException {
+		return meta.ownUpdatesAreVisible(type);
+	}
+
+	@Override
+	public boolean storesLowerCaseIdentifiers() throws SQLException {
+		return meta.storesLowerCaseIdentifiers();
+	}
+
+	@Override
+	public boolean storesLowerCaseQuotedIdentifiers() throws SQLException {
+		return meta.storesLowerCaseQuotedIdentifiers();
+	}
+
+	@Override
+	public boolean storesMixedCaseIdentifiers() throws SQLException {
+		return meta.storesMixedCaseIdentifiers();
+	}
+
+	@Override
+	public boolean storesMixedCaseQuotedIdentifiers() throws SQLException {
+		return meta.storesMixedCaseQuotedIdentifiers();
+	}
+
+	@Override
+	public boolean storesUpperCaseIdentifiers() throws SQLException {
+		return meta.storesUpperCaseIdentifiers();
+	}
+
+	@Override
+	public boolean storesUpperCaseQuotedIdentifiers() throws SQLException {
+		return meta.storesUpperCaseQuotedIdentifiers();
+	}
+
+	@Override
+	public boolean supportsANSI92EntryLevelSQL() throws SQLException {
+		return meta.supportsANSI92EntryLevelSQL();
+	}
+
+	@Override
+	public boolean supportsANSI92FullSQL() throws SQLException {
+		return meta.supportsANSI92FullSQL();
+	}
+
+	@Override
+	public boolean supportsANSI92IntermediateSQL() throws SQLException {
+		return meta.supportsANSI92IntermediateSQL();
+	}
+
+	@Override
+	public boolean supportsAlterTableWithAddColumn() throws SQLException {
+		return meta.supportsAlterTableWithAddColumn();
+	}
+
+	@Override
+	public boolean supportsAlterTableWithDropColumn() throws SQLException {
+		return meta.supportsAlterTableWithDropColumn();
+	}
+
+	@Override
+	public boolean supportsBatchUpdates() throws SQLException {
+		return meta.supportsBatchUpdates();
+	}
+
+	@Override
+	public boolean supportsCatalogsInDataManipulation() throws SQLException {
+		return meta.supportsCatalogsInDataManipulation();
+	}
+
+	@Override
+	public boolean supportsCatalogsInIndexDefinitions() throws SQLException {
+		return meta.supportsCatalogsInIndexDefinitions();
+	}
+
+	@Override
+	public boolean supportsCatalogsInPrivilegeDefinitions() throws SQLException {
+		return meta.supportsCatalogsInPrivilegeDefinitions();
+	}
+
+	@Override
+	public boolean supportsCatalogsInProcedureCalls() throws SQLException {
+		return meta.supportsCatalogsInProcedureCalls();
+	}
+
+	@Override
+	public boolean supportsCatalogsInTableDefinitions() throws SQLException {
+		return meta.supportsCatalogsInTableDefinitions();
+	}
+
+	@Override
+	public boolean supportsColumnAliasing() throws SQLException {
+		return meta.supportsColumnAliasing();
+	}
+
+	@Override
+	public boolean supportsConvert() throws SQLException {
+		return meta.supportsConvert();
+	}
+
+	@Override
+	public boolean supportsConvert(int fromType, int toType) throws SQLException {
+		return meta.supportsConvert(fromType, toType);
+	}
+
+	@Override
+	public boolean supportsCoreSQLGrammar() throws SQLException {
+		return meta.supportsCoreSQLGrammar();
+	}
+
+	@Override
+	public boolean supportsCorrelatedSubqueries() throws SQLException {
+		return meta.supportsCorrelatedSubqueries();
+	}
+
+	@Override
+	public boolean supportsDataDefinitionAndDataManipulationTransactions() throws SQLException {
+		return meta.supportsDataDefinitionAndDataManipulationTransactions();
+	}
+
+	@Override
+	public boolean supportsDataManipulationTransactionsOnly() throws SQLException {
+		return meta.supportsDataManipulationTransactionsOnly();
+	}
+
+	@Override
+	public boolean supportsDifferentTableCorrelationNames() throws SQLException {
+		return meta.supportsDifferentTableCorrelationNames();
+	}
+
+	@Override
+	public boolean supportsExpressionsInOrderBy() throws SQLException {
+		return meta.supportsExpressionsInOrderBy();
+	}
+
+	@Override
+	public boolean supportsExtendedSQLGrammar() throws SQLException {
+		return meta.supportsExtendedSQLGrammar();
+	}
+
+	@Override
+	public boolean supportsFullOuterJoins() throws SQLException {
+		return meta.supportsFullOuterJoins();
+	}
+
+	@Override
+	public boolean supportsGetGeneratedKeys() throws SQLException {
+		return meta.supportsGetGeneratedKeys();
+	}
+
+	@Override
+	public boolean supportsGroupBy() throws SQLException {
+		return meta.supportsGroupBy();
+	}
+
+	@Override
+	public boolean supportsGroupByBeyondSelect() throws SQLException {
+		return meta.supportsGroupByBeyondSelect();
+	}
+
+	@Override
+	public boolean supportsGroupByUnrelated() throws SQLException {
+		return meta.supportsGroupByUnrelated();
+	}
+
+	@Override
+	public boolean supportsIntegrityEnhancementFacility() throws SQLException {
+		return meta.supportsIntegrityEnhancementFacility();
+	}
+
+	@Override
+	public boolean supportsLikeEscapeClause() throws SQLException {
+		return meta.supportsLikeEscapeClause();
+	}
+
+	@Override
+	public boolean supportsLimitedOuterJoins() throws SQLException {
+		return meta.supportsLimitedOuterJoins();
+	}
+
+	@Override
+	public boolean supportsMinimumSQLGrammar() throws SQLException {
+		return meta.supportsMinimumSQLGrammar();
+	}
+
+	@Override
+	public boolean supportsMixedCaseIdentifiers() throws SQLException {
+		return meta.supportsMixedCaseIdentifiers();
+	}
+
+	@Override
+	public boolean supportsMixedCaseQuotedIdentifiers() throws SQLException {
+		return meta.supportsMixedCaseQuotedIdentifiers();
+	}
+
+	@Override
+	public boolean supportsMultipleOpenResults() throws SQLException {
+		return meta.supportsMultipleOpenResults();
+	}
+
+	@Override
+	public boolean supportsMultipleResultSets() throws SQLException {
+		return meta.supportsMultipleResultSets();
+	}
+
+	@Override
+	public boolean supportsMultipleTransactions() throws SQLException {
+		return meta.supportsMultipleTransactions();
+	}
+
+	@Override
+	public boolean supportsNamedParameters() throws SQLException {
+		return meta.supportsNamedParameters();
+	}
+
+	@Override
+	public boolean supportsNonNullableColumns() throws SQLException {
+		return meta.supportsNonNullableColumns();
+	}
+
+	@Override
+	public boolean supportsOpenCursorsAcrossCommit() throws SQLException {
+		return meta.supportsOpenCursorsAcrossCommit();
+	}
+
+	@Override
+	public boolean supportsOpenCursorsAcrossRollback() throws SQLException {
+		return meta.supportsOpenCursorsAcrossRollback();
+	}
+
+	@Override
+	public boolean supportsOpenStatementsAcrossCommit() throws SQLException {
+		return meta.supportsOpenStatementsAcrossCommit();
+	}
+
+	@Override
+	public boolean supportsOpenStatementsAcrossRollback() throws SQLException {
+		return meta.supportsOpenStatementsAcrossRollback();
+	}
+
+	@Override
+	public boolean supportsOrderByUnrelated() throws SQLException {
+		return meta.supportsOrderByUnrelated();
+	}
+
+	@Override
+	public boolean supportsOuterJoins() throws SQLException {
+		return meta.supportsOuterJoins();
+	}
+
+	@Override
+	public boolean supportsPositionedDelete() throws SQLException {
+		return meta.supportsPositionedDelete();
+	}
+
+	@Override
+	public boolean supportsPositionedUpdate() throws SQLException {
+		return meta.supportsPositionedUpdate();
+	}
+
+	@Override
+	public boolean supportsResultSetConcurrency(int type, int concurrency) throws SQLException {
+		return meta.supportsResultSetConcurrency(type, concurrency);
+	}
+
+	@Override
+	public boolean supportsResultSetHoldability(int holdability) throws SQLException {
+		return meta.supportsResultSetHoldability(holdability);
+	}
+
+	@Override
+	public boolean supportsResultSetType(int type) throws SQLException {
+		return meta.supportsResultSetType(type);
+	}
+
+	@Override
+	public boolean supportsSavepoints() throws SQLException {
+		return meta.supportsSavepoints();
+	}
+
+	@Override
+	public boolean supportsSchemasInDataManipulation() throws SQLException {
+		return meta.supportsSchemasInDataManipulation();
+	}
+
+	@Override
+	public boolean supportsSchemasInIndexDefinitions() throws SQLException {
+		return meta.supportsSchemasInIndexDefinitions();
+	}
+
+	@Override
+	public boolean supportsSchemasInPrivilegeDefinitions() throws SQLException {
+		return meta.supportsSchemasInPrivilegeDefinitions();
+	}
+
+	@Override
+	public boolean supportsSchemasInProcedureCalls() throws SQLException {
+		return meta.supportsSchemasInProcedureCalls();
+	}
+
+	@Override
+	public boolean supportsSchemasInTableDefinitions() throws SQLException {
+		return meta.supportsSchemasInTableDefinitions();
+	}
+
+	@Override
+	public boolean supportsSelectForUpdate() throws SQLException {
+		return meta.supportsSelectForUpdate();
+	}
+
+	@Override
+	public boolean supportsStatementPooling() throws SQLException {
+		return meta.supportsStatementPooling();
+	}
+
+	@Override
+	public boolean supportsStoredFunctionsUsingCallSyntax() throws SQLException {
+		return meta.supportsStoredFunctionsUsingCallSyntax();
+	}
+
+	@Override
+	public boolean supportsStoredProcedures() throws SQLException {
+		return meta.supportsStoredProcedures();
+	}
+
+	@Override
+	public boolean supportsSubqueriesInComparisons() throws SQLException {
+		return meta.supportsSubqueriesInComparisons();
+	}
+
+	@Override
+	public boolean supportsSubqueriesInExists() throws SQLException {
+		return meta.supportsSubqueriesInExists();
+	}
+
+	@Override
+	public boolean supportsSubqueriesInIns() throws SQLException {
+		return meta.supportsSubqueriesInIns();
+	}
+
+	@Override
+	public boolean supportsSubqueriesInQuantifieds() throws SQLException {
+		return meta.supportsSubqueriesInQuantifieds();
+	}
+
+	@Override
+	public boolean supportsTableCorrelationNames() throws SQLException {
+		return meta.supportsTableCorrelationNames();
+	}
+
+	@Override
+	public boolean supportsTransactionIsolationLevel(int level) throws SQLException {
+		return meta.supportsTransactionIsolationLevel(level);
+	}
+
+	@Override
+	public boolean supportsTransactions() throws SQLException {
+		return meta.supportsTransactions();
+	}
+
+	@Override
+	public boolean supportsUnion() throws SQLException {
+		return meta.supportsUnion();
+	}
+
+	@Override
+	public boolean supportsUnionAll() throws SQLException {
+		return meta.supportsUnionAll();
+	}
+
+	@Override
+	public boolean updatesAreDetected(int type) throws SQLException {
+		return meta.updatesAreDetected(type);
+	}
+
+	@Override
+	public boolean usesLocalFilePerTable() throws SQLException {
+		return meta.usesLocalFilePerTable();
+	}
+
+	@Override
+	public boolean usesLocalFiles() throws SQLException {
+		return meta.usesLocalFiles();
+	}
+}
@@ -0,0 +1,1167 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Statement of a {@link PooledConnection}, returning the pooled connection from <code>getConnection()</code> and itself
+ * from <code>getStatement()</code> of its result sets. Everything else is delegated to the physical statement.
+ */
+class PooledStatement implements Statement {
+	private final PooledConnection	connection;
+	private final Statement			delegate;
+
+	/** Last wrapped result set, handed out again while the physical statement returns the same one. */
+	private PooledResultSet			result;
+
+	PooledStatement(PooledConnection connection, Statement delegate) {
+		this.connection = connection;
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Wraps a result set of this statement.
+	 */
+	final ResultSet wrap(ResultSet rs) {
+		if (rs == null) {
+			return null;
+		}
+		if (result == null || result.delegate != rs) {
+			result = new PooledResultSet(rs, this);
+		}
+		return result;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return connection;
+	}
+
+	@Override
+	public ResultSet executeQuery(String sql) throws SQLException {
+		return wrap(delegate.executeQuery(sql));
+	}
+
+	@Override
+	public ResultSet getResultSet() throws SQLException {
+		return wrap(delegate.getResultSet());
+	}
+
+	@Override
+	public ResultSet getGeneratedKeys() throws SQLException {
+		return wrap(delegate.getGeneratedKeys());
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return delegate.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || delegate.isWrapperFor(iface);
+	}
+
+	@Override
+	public void addBatch(String sql) throws SQLException {
+		delegate.addBatch(sql);
+	}
+
+	@Override
+	public void cancel() throws SQLException {
+		delegate.cancel();
+	}
+
+	@Override
+	public void clearBatch() throws SQLException {
+		delegate.clearBatch();
+	}
+
+	@Override
+	public void clearWarnings() throws SQLException {
+		delegate.clearWarnings();
+	}
+
+	@Override
+	public void close() throws SQLException {
+		delegate.close();
+	}
+
+	@Override
+	public void closeOnCompletion() throws SQLException {
+		delegate.closeOnCompletion();
+	}
+
+	@Override
+	public boolean execute(String sql) throws SQLException {
+		return delegate.execute(sql);
+	}
+
+	@Override
+	public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+		return delegate.execute(sql, autoGeneratedKeys);
+	}
+
+	@Override
+	public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+		return delegate.execute(sql, columnIndexes);
+	}
+
+	@Override
+	public boolean execute(String sql, String[] columnNames) throws SQLException {
+		return delegate.execute(sql, columnNames);
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		return delegate.executeBatch();
+	}
+
+	@Override
+	public int executeUpdate(String sql) throws SQLException {
+		return delegate.executeUpdate(sql);
+	}
+
+	@Override
+	public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+		return delegate.executeUpdate(sql, autoGeneratedKeys);
+	}
+
+	@Override
+	public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+		return delegate.executeUpdate(sql, columnIndexes);
+	}
+
+	@Override
+	public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+		return delegate.executeUpdate(sql, columnNames);
+	}
+
+	@Override
+	public int getFetchDirection() throws SQLException {
+		return delegate.getFetchDirection();
+	}
+
+	@Override
+	public int getFetchSize() throws SQLException {
+		return delegate.getFetchSize();
+	}
+
+	@Override
+	public int getMaxFieldSize() throws SQLException {
+		return delegate.getMaxFieldSize();
+	}
+
+	@Override
+	public int getMaxRows() throws SQLException {
+		return delegate.getMaxRows();
+	}
+
+	@Override
+	public boolean getMoreResults() throws SQLException {
+		return delegate.getMoreResults();
+	}
+
+	@Override
+	public boolean getMoreResults(int current) throws SQLException {
+		return delegate.getMoreResults(current);
+	}
+
+	@Override
+	public int getQueryTimeout() throws SQLException {
+		return delegate.getQueryTimeout();
+	}
+
+	@Override
+	public int getResultSetConcurrency() throws SQLException {
+		return delegate.getResultSetConcurrency();
+	}
+
+	@Override
+	public int getResultSetHoldability() throws SQLException {
+		return delegate.getResultSetHoldability();
+	}
+
+	@Override
+	public int getResultSetType() throws SQLException {
+		return delegate.getResultSetType();
+	}
+
+	@Override
+	public int getUpdateCount() throws SQLException {
+		return delegate.getUpdateCount();
+	}
+
+	@Override
+	public SQLWarning getWarnings() throws SQLException {
+		return delegate.getWarnings();
+	}
+
+	@Override
+	public boolean isCloseOnCompletion() throws SQLException {
+		return delegate.isCloseOnCompletion();
+	}
+
+	@Override
+	public boolean isClosed() throws SQLException {
+		return delegate.isClosed();
+	}
+
+	@Override
+	public boolean isPoolable() throws SQLException {
+		return delegate.isPoolable();
+	}
+
+	@Override
+	public void setCursorName(String name) throws SQLException {
+		delegate.setCursorName(name);
+	}
+
+	@Override
+	public void setEscapeProcessing(boolean enable) throws SQLException {
+		delegate.setEscapeProcessing(enable);
+	}
+
+	@Override
+	public void setFetchDirection(int direction) throws SQLException {
+		delegate.setFetchDirection(direction);
+	}
+
+	@Override
+	public void setFetchSize(int rows) throws SQLException {
+		delegate.setFetchSize(rows);
+	}
+
+	@Override
+	public void setMaxFieldSize(int max) throws SQLException {
+		delegate.setMaxFieldSize(max);
+	}
+
+	@Override
+	public void setMaxRows(int max) throws SQLException {
+		delegate.setMaxRows(max);
+	}
+
+	@Override
+	public void setPoolable(boolean poolable) throws SQLException {
+		delegate.setPoolable(poolable);
+	}
+
+	@Override
+	public void setQueryTimeout(int seconds) throws SQLException {
+		delegate.setQueryTimeout(seconds);
+	}
+
+	/**
+	 * Prepared statement of a {@link PooledConnection}.
+	 */
+	static class Prepared extends PooledStatement implements PreparedStatement {
+		private final PreparedStatement	prepared;
+
+		Prepared(PooledConnection connection, PreparedStatement prepared) {
+			super(connection, prepared);
+			this.prepared = prepared;
+		}
+
+		@Override
+		public ResultSet executeQuery() throws SQLException {
+			return wrap(prepared.executeQuery());
+		}
+
+		@Override
+		public void addBatch() throws SQLException {
+			prepared.addBatch();
+		}
+
+		@Override
+		public void clearParameters() throws SQLException {
+			prepared.clearParameters();
+		}
+
+		@Override
+		public boolean execute() throws SQLException {
+			return prepared.execute();
+		}
+
+		@Override
+		public int executeUpdate() throws SQLException {
+			return prepared.executeUpdate();
+		}
+
+		@Override
+		public ResultSetMetaData getMetaData() throws SQLException {
+			return prepared.getMetaData();
+		}
+
+		@Override
+		public ParameterMetaData getParameterMetaData() throws SQLException {
+			return prepared.getParameterMetaData();
+		}
+
+		@Override
+		public void setArray(int parameterIndex, Array x) throws SQLException {
+			prepared.setArray(parameterIndex, x);
+		}
+
+		@Override
+		public void setAsciiStream(int parameterIndex, InputStream x, int length) throws SQLException {
+			prepared.setAsciiStream(parameterIndex, x, length);
+		}
+
+		@Override
+		public void setAsciiStream(int parameterIndex, InputStream x, long length) throws SQLException {
+			prepared.setAsciiStream(parameterIndex, x, length);
+		}
+
+		@Override
+		public void setAsciiStream(int parameterIndex, InputStream x) throws SQLException {
+			prepared.setAsciiStream(parameterIndex, x);
+		}
+
+		@Override
+		public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+			prepared.setBigDecimal(parameterIndex, x);
+		}
+
+		@Override
+		public void setBinaryStream(int parameterIndex, InputStream x, int length) throws SQLException {
+			prepared.setBinaryStream(parameterIndex, x, length);
+		}
+
+		@Override
+		public void setBinaryStream(int parameterIndex, InputStream x, long length) throws SQLException {
+			prepared.setBinaryStream(parameterIndex, x, length);
+		}
+
+		@Override
+		public void setBinaryStream(int parameterIndex, InputStream x) throws SQLException {
+			prepared.setBinaryStream(parameterIndex, x);
+		}
+
+		@Override
+		public void setBlob(int parameterIndex, Blob x) throws SQLException {
+			prepared.setBlob(parameterIndex, x);
+		}
+
+		@Override
+		public void setBlob(int parameterIndex, InputStream inputStream, long length) throws SQLException {
+			prepared.setBlob(parameterIndex, inputStream, length);
+		}
+
+		@Override
+		public void setBlob(int parameterIndex, InputStream inputStream) throws SQLException {
+			prepared.setBlob(parameterIndex, inputStream);
+		}
+
+		@Override
+		public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+			prepared.setBoolean(parameterIndex, x);
+		}
+
+		@Override
+		public void setByte(int parameterIndex, byte x) throws SQLException {
+			prepared.setByte(parameterIndex, x);
+		}
+
+		@Override
+		public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+			prepared.setBytes(parameterIndex, x);
+		}
+
+		@Override
+		public void setCharacterStream(int parameterIndex, Reader reader, int length) throws SQLException {
+			prepared.setCharacterStream(parameterIndex, reader, length);
+		}
+
+		@Override
+		public void setCharacterStream(int parameterIndex, Reader reader, long length) throws SQLException {
+			prepared.setCharacterStream(parameterIndex, reader, length);
+		}
+
+		@Override
+		public void setCharacterStream(int parameterIndex, Reader reader) throws SQLException {
+			prepared.setCharacterStream(parameterIndex, reader);
+		}
+
+		@Override
+		public void setClob(int parameterIndex, Clob x) throws SQLException {
+			prepared.setClob(parameterIndex, x);
+		}
+
+		@Override
+		public void setClob(int parameterIndex, Reader reader, long length) throws SQLException {
+			prepared.setClob(parameterIndex, reader, length);
+		}
+
+		@Override
+		public void setClob(int parameterIndex, Reader reader) throws SQLException {
+			prepared.setClob(parameterIndex, reader);
+		}
+
+		@Override
+		public void setDate(int parameterIndex, Date x) throws SQLException {
+			prepared.setDate(parameterIndex, x);
+		}
+
+		@Override
+		public void setDate(int parameterIndex, Date x, Calendar cal) throws SQLException {
+			prepared.setDate(parameterIndex, x, cal);
+		}
+
+		@Override
+		public void setDouble(int parameterIndex, double x) throws SQLException {
+			prepared.setDouble(parameterIndex, x);
+		}
+
+		@Override
+		public void setFloat(int parameterIndex, float x) throws SQLException {
+			prepared.setFloat(parameterIndex, x);
+		}
+
+		@Override
+		public void setInt(int parameterIndex, int x) throws SQLException {
+			prepared.setInt(parameterIndex, x);
+		}
+
+		@Override
+		public void setLong(int parameterIndex, long x) throws SQLException {
+			prepared.setLong(parameterIndex, x);
+		}
+
+		@Override
+		public void setNCharacterStream(int parameterIndex, Reader value, long length) throws SQLException {
+			prepared.setNCharacterStream(parameterIndex, value, length);
+		}
+
+		@Override
+		public void setNCharacterStream(int parameterIndex, Reader value) throws SQLException {
+			prepared.setNCharacterStream(parameterIndex, value);
+		}
+
+		@Override
+		public void setNClob(int parameterIndex, NClob value) throws SQLException {
+			prepared.setNClob(parameterIndex, value);
+		}
+
+		@Override
+		public void setNClob(int parameterIndex, Reader reader, long length) throws SQLException {
+			prepared.setNClob(parameterIndex, reader, length);
+		}
+
+		@Override
+		public void setNClob(int parameterIndex, Reader reader) throws SQLException {
+			prepared.setNClob(parameterIndex, reader);
+		}
+
+		@Override
+		public void setNString(int parameterIndex, String value) throws SQLException {
+			prepared.setNString(parameterIndex, value);
+		}
+
+		@Override
+		public void setNull(int parameterIndex, int sqlType) throws SQLException {
+			prepared.setNull(parameterIndex, sqlType);
+		}
+
+		@Override
+		public void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException {
+			prepared.setNull(parameterIndex, sqlType, typeName);
+		}
+
+		@Override
+		public void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException {
+			prepared.setObject(parameterIndex, x, targetSqlType);
+		}
+
+		@Override
+		public void setObject(int parameterIndex, Object x) throws SQLException {
+			prepared.setObject(parameterIndex, x);
+		}
+
+		@Override
+		public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) throws SQLException {
+			prepared.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+		}
+
+		@Override
+		public void setRef(int parameterIndex, Ref x) throws SQLException {
+			prepared.setRef(parameterIndex, x);
+		}
+
+		@Override
+		public void setRowId(int parameterIndex, RowId x) throws SQLException {
+			prepared.setRowId(parameterIndex, x);
+		}
+
+		@Override
+		public void setSQLXML(int parameterIndex, SQLXML xmlObject) throws SQLException {
+			prepared.setSQLXML(parameterIndex, xmlObject);
+		}
+
+		@Override
+		public void setShort(int parameterIndex, short x) throws SQLException {
+			prepared.setShort(parameterIndex, x);
+		}
+
+		@Override
+		public void setString(int parameterIndex, String x) throws SQLException {
+			prepared.setString(parameterIndex, x);
+		}
+
+		@Override
+		public void setTime(int parameterIndex, Time x) throws SQLException {
+			prepared.setTime(parameterIndex, x);
+		}
+
+		@Override
+		public void setTime(int parameterIndex, Time x, Calendar cal) throws SQLException {
+			prepared.setTime(parameterIndex, x, cal);
+		}
+
+		@Override
+		public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+			prepared.setTimestamp(parameterIndex, x);
+		}
+
+		@Override
+		public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) throws SQLException {
+			prepared.setTimestamp(parameterIndex, x, cal);
+		}
+
+		@Override
+		public void setURL(int parameterIndex, URL x) throws SQLException {
+			prepared.setURL(parameterIndex, x);
+		}
+
+		@Override
+		@Deprecated
+		public void setUnicodeStream(int parameterIndex, InputStream x, int length) throws SQLException {
+			prepared.setUnicodeStream(parameterIndex, x, length);
+		}
+	}
+
+	/**
+	 * Callable statement of a {@link PooledConnection}.
+	 */
+	static final class Callable extends Prepared implements CallableStatement {
+		private final CallableStatement	callable;
+
+		Callable(PooledConnection connection, CallableStatement callable) {
+			super(connection, callable);
+			this.callable = callable;
+		}
+
+		@Override
+		public Array getArray(int parameterIndex) throws SQLException {
+			return callable.getArray(parameterIndex);
+		}
+
+		@Override
+		public Array getArray(String parameterName) throws SQLException {
+			return callable.getArray(parameterName);
+		}
+
+		@Override
+		@Deprecated
+		public BigDecimal getBigDecimal(int parameterIndex, int scale) throws SQLException {
+			return callable.getBigDecimal(parameterIndex, scale);
+		}
+
+		@Override
+		public BigDecimal getBigDecimal(int parameterIndex) throws SQLException {
+			return callable.getBigDecimal(parameterIndex);
+		}
+
+		@Override
+		public BigDecimal getBigDecimal(String parameterName) throws SQLException {
+			return callable.getBigDecimal(parameterName);
+		}
+
+		@Override
+		public Blob getBlob(int parameterIndex) throws SQLException {
+			return callable.getBlob(parameterIndex);
+		}
+
+		@Override
+		public Blob getBlob(String parameterName) throws SQLException {
+			return callable.getBlob(parameterName);
+		}
+
+		@Override
+		public boolean getBoolean(int parameterIndex) throws SQLException {
+			return callable.getBoolean(parameterIndex);
+		}
+
+		@Override
+		public boolean getBoolean(String parameterName) throws SQLException {
+			return callable.getBoolean(parameterName);
+		}
+
+		@Override
+		public byte getByte(int parameterIndex) throws SQLException {
+			return callable.getByte(parameterIndex);
+		}
+
+		@Override
+		public byte getByte(String parameterName) throws SQLException {
+			return callable.getByte(parameterName);
+		}
+
+		@Override
+		public byte[] getBytes(int parameterIndex) throws SQLException {
+			return callable.getBytes(parameterIndex);
+		}
+
+		@Override
+		public byte[] getBytes(String parameterName) throws SQLException {
+			return callable.getBytes(parameterName);
+		}
+
+		@Override
+		public Reader getCharacterStream(int parameterIndex) throws SQLException {
+			return callable.getCharacterStream(parameterIndex);
+		}
+
+		@Override
+		public Reader getCharacterStream(String parameterName) throws SQLException {
+			return callable.getCharacterStream(parameterName);
+		}
+
+		@Override
+		public Clob getClob(int parameterIndex) throws SQLException {
+			return callable.getClob(parameterIndex);
+		}
+
+		@Override
+		public Clob getClob(String parameterName) throws SQLException {
+			return callable.getClob(parameterName);
+		}
+
+		@Override
+		public Date getDate(int parameterIndex) throws SQLException {
+			return callable.getDate(parameterIndex);
+		}
+
+		@Override
+		public Date getDate(int parameterIndex, Calendar cal) throws SQLException {
+			return callable.getDate(parameterIndex, cal);
+		}
+
+		@Override
+		public Date getDate(String parameterName) throws SQLException {
+			return callable.getDate(parameterName);
+		}
+
+		@Override
+		public Date getDate(String parameterName, Calendar cal) throws SQLException {
+			return callable.getDate(parameterName, cal);
+		}
+
+		@Override
+		public double getDouble(int parameterIndex) throws SQLException {
+			return callable.getDouble(parameterIndex);
+		}
+
+		@Override
+		public double getDouble(String parameterName) throws SQLException {
+			return callable.getDouble(parameterName);
+		}
+
+		@Override
+		public float getFloat(int parameterIndex) throws SQLException {
+			return callable.getFloat(parameterIndex);
+		}
+
+		@Override
+		public float getFloat(String parameterName) throws SQLException {
+			return callable.getFloat(parameterName);
+		}
+
+		@Override
+		public int getInt(int parameterIndex) throws SQLException {
+			return callable.getInt(parameterIndex);
+		}
+
+		@Override
+		public int getInt(String parameterName) throws SQLException {
+			return callable.getInt(parameterName);
+		}
+
+		@Override
+		public long getLong(int parameterIndex) throws SQLException {
+			return callable.getLong(parameterIndex);
+		}
+
+		@Override
+		public long getLong(String parameterName) throws SQLException {
+			return callable.getLong(parameterName);
+		}
+
+		@Override
+		public Reader getNCharacterStream(int parameterIndex) throws SQLException {
+			return callable.getNCharacterStream(parameterIndex);
+		}
+
+		@Override
+		public Reader getNCharacterStream(String parameterName) throws SQLException {
+			return callable.getNCharacterStream(parameterName);
+		}
+
+		@Override
+		public NClob getNClob(int parameterIndex) throws SQLException {
+			return callable.getNClob(parameterIndex);
+		}
+
+		@Override
+		public NClob getNClob(String parameterName) throws SQLException {
+			return callable.getNClob(parameterName);
+		}
+
+		@Override
+		public String getNString(int parameterIndex) throws SQLException {
+			return callable.getNString(parameterIndex);
+		}
+
+		@Override
+		public String getNString(String parameterName) throws SQLException {
+			return callable.getNString(parameterName);
+		}
+
+		@Override
+		public Object getObject(int parameterIndex) throws SQLException {
+			return callable.getObject(parameterIndex);
+		}
+
+		@Override
+		public Object getObject(int parameterIndex, Map<String, Class<?>> map) throws SQLException {
+			return callable.getObject(parameterIndex, map);
+		}
+
+		@Override
+		public Object getObject(String parameterName) throws SQLException {
+			return callable.getObject(parameterName);
+		}
+
+		@Override
+		public Object getObject(String parameterName, Map<String, Class<?>> map) throws SQLException {
+			return callable.getObject(parameterName, map);
+		}
+
+		@Override
+		public <T> T getObject(int parameterIndex, Class<T> type) throws SQLException {
+			return callable.getObject(parameterIndex, type);
+		}
+
+		@Override
+		public <T> T getObject(String parameterName, Class<T> type) throws SQLException {
+			return callable.getObject(parameterName, type);
+		}
+
+		@Override
+		public Ref getRef(int parameterIndex) throws SQLException {
+			return callable.getRef(parameterIndex);
+		}
+
+		@Override
+		public Ref getRef(String parameterName) throws SQLException {
+			return callable.getRef(parameterName);
+		}
+
+		@Override
+		public RowId getRowId(int parameterIndex) throws SQLException {
+			return callable.getRowId(parameterIndex);
+		}
+
+		@Override
+		public RowId getRowId(String parameterName) throws SQLException {
+			return callable.getRowId(parameterName);
+		}
+
+		@Override
+		public SQLXML getSQLXML(int parameterIndex) throws SQLException {
+			return callable.getSQLXML(parameterIndex);
+		}
+
+		@Override
+		public SQLXML getSQLXML(String parameterName) throws SQLException {
+			return callable.getSQLXML(parameterName);
+		}
+
+		@Override
+		public short getShort(int parameterIndex) throws SQLException {
+			return callable.getShort(parameterIndex);
+		}
+
+		@Override
+		public short getShort(String parameterName) throws SQLException {
+			return callable.getShort(parameterName);
+		}
+
+		@Override
+		public String getString(int parameterIndex) throws SQLException {
+			return callable.getString(parameterIndex);
+		}
+
+		@Override
+		public String getString(String parameterName) throws SQLException {
+			return callable.getString(parameterName);
+		}
+
+		@Override
+		public Time getTime(int parameterIndex) throws SQLException {
+			return callable.getTime(parameterIndex);
+		}
+
+		@Override
+		public Time getTime(int parameterIndex, Calendar cal) throws SQLException {
+			return callable.getTime(parameterIndex, cal);
+		}
+
+		@Override
+		public Time getTime(String parameterName) throws SQLException {
+			return callable.getTime(parameterName);
+		}
+
+		@Override
+		public Time getTime(String parameterName, Calendar cal) throws SQLException {
+			return callable.getTime(parameterName, cal);
+		}
+
+		@Override
+		public Timestamp getTimestamp(int parameterIndex) throws SQLException {
+			return callable.getTimestamp(parameterIndex);
+		}
+
+		@Override
+		public Timestamp getTimestamp(int parameterIndex, Calendar cal) throws SQLException {
+			return callable.getTimestamp(parameterIndex, cal);
+		}
+
+		@Override
+		public Timestamp getTimestamp(String parameterName) throws SQLException {
+			return callable.getTimestamp(parameterName);
+		}
+
+		@Override
+		public Timestamp getTimestamp(String parameterName, Calendar cal) throws SQLException {
+			return callable.getTimestamp(parameterName, cal);
+		}
+
+		@Override
+		public URL getURL(int parameterIndex) throws SQLException {
+			return callable.getURL(parameterIndex);
+		}
+
+		@Override
+		public URL getURL(String parameterName) throws SQLException {
+			return callable.getURL(parameterName);
+		}
+
+		@Override
+		public void registerOutParameter(int parameterIndex, int sqlType) throws SQLException {
+			callable.registerOutParameter(parameterIndex, sqlType);
+		}
+
+		@Override
+		public void registerOutParameter(int parameterIndex, int sqlType, int scale) throws SQLException {
+			callable.registerOutParameter(parameterIndex, sqlType, scale);
+		}
+
+		@Override
+		public void registerOutParameter(int parameterIndex, int sqlType, String typeName) throws SQLException {
+			callable.registerOutParameter(parameterIndex, sqlType, typeName);
+		}
+
+		@Override
+		public void registerOutParameter(String parameterName, int sqlType) throws SQLException {
+			callable.registerOutParameter(parameterName, sqlType);
+		}
+
+		@Override
+		public void registerOutParameter(String parameterName, int sqlType, int scale) throws SQLException {
+			callable.registerOutParameter(parameterName, sqlType, scale);
+		}
+
+		@Override
+		public void registerOutParameter(String parameterName, int sqlType, String typeName) throws SQLException {
+			callable.registerOutParameter(parameterName, sqlType, typeName);
+		}
+
+		@Override
+		public void setAsciiStream(String parameterName, InputStream x, int length) throws SQLException {
+			callable.setAsciiStream(parameterName, x, length);
+		}
+
+		@Override
+		public void setAsciiStream(String parameterName, InputStream x, long length) throws SQLException {
+			callable.setAsciiStream(parameterName, x, length);
+		}
+
+		@Override
+		public void setAsciiStream(String parameterName, InputStream x) throws SQLException {
+			callable.setAsciiStream(parameterName, x);
+		}
+
+		@Override
+		public void setBigDecimal(String parameterName, BigDecimal x) throws SQLException {
+			callable.setBigDecimal(parameterName, x);
+		}
+
+		@Override
+		public void setBinaryStream(String parameterName, InputStream x, int length) throws SQLException {
+			callable.setBinaryStream(parameterName, x, length);
+		}
+
+		@Override
+		public void setBinaryStream(String parameterName, InputStream x, long length) throws SQLException {
+			callable.setBinaryStream(parameterName, x, length);
+		}
+
+		@Override
+		public void setBinaryStream(String parameterName, InputStream x) throws SQLException {
+			callable.setBinaryStream(parameterName, x);
+		}
+
+		@Override
+		public void setBlob(String parameterName, InputStream inputStream, long length) throws SQLException {
+			callable.setBlob(parameterName, inputStream, length);
+		}
+
+		@Override
+		public void setBlob(String parameterName, Blob x) throws SQLException {
+			callable.setBlob(parameterName, x);
+		}
+
+		@Override
+		public void setBlob(String parameterName, InputStream inputStream) throws SQLException {
+			callable.setBlob(parameterName, inputStream);
+		}
+
+		@Override
+		public void setBoolean(String parameterName, boolean x) throws SQLException {
+			callable.setBoolean(parameterName, x);
+		}
+
+		@Override
+		public void setByte(String parameterName, byte x) throws SQLException {
+			callable.setByte(parameterName, x);
+		}
+
+		@Override
+		public void setBytes(String parameterName, byte[] x) throws SQLException {
+			callable.setBytes(parameterName, x);
+		}
+
+		@Override
+		public void setCharacterStream(String parameterName, Reader reader, int length) throws SQLException {
+			callable.setCharacterStream(parameterName, reader, length);
+		}
+
+		@Override
+		public void setCharacterStream(String parameterName, Reader reader, long length) throws SQLException {
+			callable.setCharacterStream(parameterName, reader, length);
+		}
+
+		@Override
+		public void setCharacterStream(String parameterName, Reader reader) throws SQLException {
+			callable.setCharacterStream(parameterName, reader);
+		}
+
+		@Override
+		public void setClob(String parameterName, Reader reader, long length) throws SQLException {
+			callable.setClob(parameterName, reader, length);
+		}
+
+		@Override
+		public void setClob(String parameterName, Clob x) throws SQLException {
+			callable.setClob(parameterName, x);
+		}
+
+		@Override
+		public void setClob(String parameterName, Reader reader) throws SQLException {
+			callable.setClob(parameterName, reader);
+		}
+
+		@Override
+		public void setDate(String parameterName, Date x) throws SQLException {
+			callable.setDate(parameterName, x);
+		}
+
+		@Override
+		public void setDate(String parameterName, Date x, Calendar cal) throws SQLException {
+			callable.setDate(parameterName, x, cal);
+		}
+
+		@Override
+		public void setDouble(String parameterName, double x) throws SQLException {
+			callable.setDouble(parameterName, x);
+		}
+
+		@Override
+		public void setFloat(String parameterName, float x) throws SQLException {
+			callable.setFloat(parameterName, x);
+		}
+
+		@Override
+		public void setInt(String parameterName, int x) throws SQLException {
+			callable.setInt(parameterName, x);
+		}
+
+		@Override
+		public void setLong(String parameterName, long x) throws SQLException {
+			callable.setLong(parameterName, x);
+		}
+
+		@Override
+		public void setNCharacterStream(String parameterName, Reader value, long length) throws SQLException {
+			callable.setNCharacterStream(parameterName, value, length);
+		}
+
+		@Override
+		public void setNCharacterStream(String parameterName, Reader value) throws SQLException {
+			callable.setNCharacterStream(parameterName, value);
+		}
+
+		@Override
+		public void setNClob(String parameterName, NClob value) throws SQLException {
+			callable.setNClob(parameterName, value);
+		}
+
+		@Override
+		public void setNClob(String parameterName, Reader reader, long length) throws SQLException {
+			callable.setNClob(parameterName, reader, length);
+		}
+
+		@Override
+		public void setNClob(String parameterName, Reader reader) throws SQLException {
+			callable.setNClob(parameterName, reader);
+		}
+
+		@Override
+		public void setNString(String parameterName, String value) throws SQLException {
+			callable.setNString(parameterName, value);
+		}
+
+		@Override
+		public void setNull(String parameterName, int sqlType) throws SQLException {
+			callable.setNull(parameterName, sqlType);
+		}
+
+		@Override
+		public void setNull(String parameterName, int sqlType, String typeName) throws SQLException {
+			callable.setNull(parameterName, sqlType, typeName);
+		}
+
+		@Override
+		public void setObject(String parameterName, Object x, int targetSqlType, int scale) throws SQLException {
+			callable.setObject(parameterName, x, targetSqlType, scale);
+		}
+
+		@Override
+		public void setObject(String parameterName, Object x, int targetSqlType) throws SQLException {
+			callable.setObject(parameterName, x, targetSqlType);
+		}
+
+		@Override
+		public void setObject(String parameterName, Object x) throws SQLException {
+			callable.setObject(parameterName, x);
+		}
+
+		@Override
+		public void setRowId(String parameterName, RowId x) throws SQLException {
+			callable.setRowId(parameterName, x);
+		}
+
+		@Override
+		public void setSQLXML(String parameterName, SQLXML xmlObject) throws SQLException {
+			callable.setSQLXML(parameterName, xmlObject);
+		}
+
+		@Override
+		public void setShort(String parameterName, short x) throws SQLException {
+			callable.setShort(parameterName, x);
+		}
+
+		@Override
+		public void setString(String parameterName, String x) throws SQLException {
+			callable.setString(parameterName, x);
+		}
+
+		@Override
+		public void setTime(String parameterName, Time x) throws SQLException {
+			callable.setTime(parameterName, x);
+		}
+
+		@Override
+		public void setTime(String parameterName, Time x, Calendar cal) throws SQLException {
+			callable.setTime(parameterName, x, cal);
+		}
+
+		@Override
+		public void setTimestamp(String parameterName, Timestamp x) throws SQLException {
+			callable.setTimestamp(parameterName, x);
+		}
+
+		@Override
+		public void setTimestamp(String parameterName, Timestamp x, Calendar cal) throws SQLException {
+			callable.setTimestamp(parameterName, x, cal);
+		}
+
+		@Override
+		public void setURL(String parameterName, URL val) throws SQLException {
+			callable.setURL(parameterName, val);
+		}
+
+		@Override
+		public boolean wasNull() throws SQLException {
+			return callable.wasNull();
+		}
+	}
+}
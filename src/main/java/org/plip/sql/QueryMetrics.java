@@ -0,0 +1,208 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * JVM-wide execution statistics of {@link ParameterStatement}s per query template.
+ *
+ * Statistics are keyed by the query with named parameters, so executions with different parameter
+ * values are aggregated, as are expansions of collection parameters. Recording is disabled by default
+ * and then costs a single volatile read per execution.
+ *
+ * At most {@value #MAX_QUERIES} query templates are tracked, so queries with inlined literals can't grow
+ * the registry without bound. Executions of further templates are aggregated as {@value #OTHER_QUERIES}.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  QueryMetrics.setEnabled(true);
+ *  QueryMetrics.registerMBean();
+ *  ...
+ *  for (QueryStats.Snapshot s : QueryMetrics.getSnapshots()) {
+ *      System.out.println(s);
+ *  }
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public final class QueryMetrics {
+	/** Name of registered MBean. */
+	public static final String OBJECT_NAME = "org.plip.sql:type=QueryMetrics";
+
+	/** Maximum number of tracked query templates. */
+	public static final int MAX_QUERIES = 1000;
+
+	/** Query of statistics aggregating templates beyond {@link #MAX_QUERIES}. */
+	public static final String OTHER_QUERIES = "(other queries)";
+
+	private static volatile boolean enabled;
+
+	private static final ConcurrentMap<String, QueryStats> stats = new ConcurrentHashMap<String, QueryStats>();
+
+	private static final QueryStats other = new QueryStats(OTHER_QUERIES);
+
+	private QueryMetrics() {
+	}
+
+	/**
+	 * Returns true if executions are recorded.
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables recording of executions, recorded statistics are kept.
+	 * @param enabled	true to record executions
+	 */
+	public static void setEnabled(boolean enabled) {
+		QueryMetrics.enabled = enabled;
+	}
+
+	/**
+	 * Returns statistics of a query template, creating them if needed.
+	 * Once {@value #MAX_QUERIES} templates are tracked, statistics of {@value #OTHER_QUERIES} are returned for new ones.
+	 * @param query	query with named parameters
+	 * @return statistics
+	 */
+	public static QueryStats getStats(String query) {
+		QueryStats s = stats.get(query);
+		if (s == null) {
+			if (stats.size() >= MAX_QUERIES) {
+				// racy, may slightly exceed the limit
+				return other;
+			}
+			final QueryStats created = new QueryStats(query);
+			s = stats.putIfAbsent(query, created);
+			if (s == null) {
+				s = created;
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Returns snapshots of all query templates executed while enabled.
+	 * @return snapshots
+	 */
+	public static List<QueryStats.Snapshot> getSnapshots() {
+		final List<QueryStats.Snapshot> ret = new ArrayList<QueryStats.Snapshot>(stats.size() + 1);
+		for (QueryStats s : stats.values()) {
+			ret.add(s.snapshot());
+		}
+		final QueryStats.Snapshot o = other.snapshot();
+		if (o.getInvocations() > 0) {
+			ret.add(o);
+		}
+		return ret;
+	}
+
+	/**
+	 * Resets statistics of all query templates.
+	 */
+	public static void reset() {
+		for (QueryStats s : stats.values()) {
+			s.reset();
+		}
+		other.reset();
+	}
+
+	/**
+	 * Removes all query templates, non-private so JUnit code can start from an empty registry.
+	 * Parsed queries which already resolved their statistics keep recording into the removed ones.
+	 */
+	static void clear() {
+		stats.clear();
+		other.reset();
+	}
+
+	/**
+	 * Registers the {@link QueryMetricsMXBean} with the platform MBean server as {@value #OBJECT_NAME}, unless already registered.
+	 * @throws JMException	if registration failed
+	 */
+	public static void registerMBean() throws JMException {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName(OBJECT_NAME);
+		synchronized (QueryMetrics.class) {
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new MXBean(), name);
+			}
+		}
+	}
+
+	/**
+	 * Unregisters the MBean registered by {@link #registerMBean()}, if registered.
+	 * @throws JMException	if unregistration failed
+	 */
+	public static void unregisterMBean() throws JMException {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName name = new ObjectName(OBJECT_NAME);
+		synchronized (QueryMetrics.class) {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		}
+	}
+
+	/**
+	 * Returns statistics to record an execution of a query into, or null if disabled.
+	 */
+	static QueryStats recorder(ParsedQuery query) {
+		if (!enabled) {
+			return null;
+		}
+		return query.stats();
+	}
+
+	private static final class MXBean implements QueryMetricsMXBean {
+		@Override
+		public boolean isEnabled() {
+			return QueryMetrics.isEnabled();
+		}
+
+		@Override
+		public void setEnabled(boolean enabled) {
+			QueryMetrics.setEnabled(enabled);
+		}
+
+		@Override
+		public List<QueryStats.Snapshot> getQueries() {
+			return getSnapshots();
+		}
+
+		@Override
+		public void reset() {
+			QueryMetrics.reset();
+		}
+	}
+}
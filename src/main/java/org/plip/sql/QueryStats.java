@@ -0,0 +1,343 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Execution counters and latency histogram of a single query template.
+ *
+ * Latencies are recorded lock-free into log-linear buckets, each power of two is split into
+ * {@value #SUB_BUCKETS} linear buckets giving a relative error of at most 12.5%.
+ * Latencies of about 18 minutes and above are recorded into the last bucket.
+ *
+ * @see QueryMetrics
+ * @since 1.1
+ */
+public final class QueryStats {
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	/** Highest recorded bit of latencies in nanoseconds, about 18 minutes. */
+	private static final int MAX_BIT = 40;
+
+	private static final int BUCKETS = (MAX_BIT - SUB_BITS + 2) * SUB_BUCKETS;
+
+	private final String			query;
+	private final AtomicLong		invocations = new AtomicLong();
+	private final AtomicLong		errors = new AtomicLong();
+	private final AtomicLong		rows = new AtomicLong();
+	private final AtomicLong		batches = new AtomicLong();
+	private final AtomicLong		batchEntries = new AtomicLong();
+	private final AtomicLong		maxBatchSize = new AtomicLong();
+	private final AtomicLong		totalNanos = new AtomicLong();
+	private final AtomicLong		maxNanos = new AtomicLong();
+	private final AtomicLongArray	buckets = new AtomicLongArray(BUCKETS);
+
+	QueryStats(String query) {
+		this.query = query;
+	}
+
+	/**
+	 * Returns bucket of a latency.
+	 */
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return nanos < 0 ? 0 : (int)nanos;
+		}
+		final int bit = 63 - Long.numberOfLeadingZeros(nanos);
+		if (bit > MAX_BIT) {
+			return BUCKETS - 1;
+		}
+		final int shift = bit - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int)((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Returns highest latency of a bucket.
+	 */
+	static long bucketMax(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int shift = (bucket >>> SUB_BITS) - 1;
+		final long lower = (long)(SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+		return lower + (1L << shift) - 1;
+	}
+
+	private static void max(AtomicLong max, long value) {
+		long prev;
+		while (value > (prev = max.get())) {
+			if (max.compareAndSet(prev, value)) {
+				break;
+			}
+		}
+	}
+
+	private void record(long nanos) {
+		invocations.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		max(maxNanos, nanos);
+		buckets.incrementAndGet(bucket(nanos));
+	}
+
+	void recordQuery(long nanos) {
+		record(nanos);
+	}
+
+	void recordUpdate(long nanos, int count) {
+		record(nanos);
+		if (count > 0) {
+			rows.addAndGet(count);
+		}
+	}
+
+	void recordBatch(long nanos, int[] counts) {
+		record(nanos);
+		long sum = 0;
+		for (int count : counts) {
+			if (count > 0) {
+				sum += count;
+			}
+		}
+		rows.addAndGet(sum);
+		batches.incrementAndGet();
+		batchEntries.addAndGet(counts.length);
+		max(maxBatchSize, counts.length);
+	}
+
+	void recordError(long nanos) {
+		errors.incrementAndGet();
+		record(nanos);
+	}
+
+	/**
+	 * Resets all counters, concurrent recordings may be partially reset.
+	 */
+	void reset() {
+		invocations.set(0);
+		errors.set(0);
+		rows.set(0);
+		batches.set(0);
+		batchEntries.set(0);
+		maxBatchSize.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+	}
+
+	/**
+	 * Returns query template these statistics are for.
+	 * @return query with named parameters
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * Returns a point in time copy of these statistics.
+	 * @return snapshot
+	 */
+	public Snapshot snapshot() {
+		final long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		final long max = maxNanos.get();
+		return new Snapshot(query, invocations.get(), errors.get(), rows.get(), batches.get(), batchEntries.get(), maxBatchSize.get(),
+				totalNanos.get(), max,
+				percentile(counts, total, max, 0.50), percentile(counts, total, max, 0.90),
+				percentile(counts, total, max, 0.99), percentile(counts, total, max, 0.999));
+	}
+
+	private static long percentile(long[] counts, long total, long max, double p) {
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = (long)Math.ceil(total * p);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(bucketMax(i), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+	/**
+	 * Immutable copy of {@link QueryStats}, latencies are in nanoseconds.
+	 * Percentiles are upper bounds of their histogram buckets.
+	 */
+	public static final class Snapshot {
+		private final String	query;
+		private final long		invocations;
+		private final long		errors;
+		private final long		rows;
+		private final long		batches;
+		private final long		batchEntries;
+		private final long		maxBatchSize;
+		private final long		totalNanos;
+		private final long		maxNanos;
+		private final long		p50Nanos;
+		private final long		p90Nanos;
+		private final long		p99Nanos;
+		private final long		p999Nanos;
+
+		@ConstructorProperties({"query", "invocations", "errors", "rows", "batches", "batchEntries", "maxBatchSize",
+				"totalNanos", "maxNanos", "p50Nanos", "p90Nanos", "p99Nanos", "p999Nanos"})
+		public Snapshot(String query, long invocations, long errors, long rows, long batches, long batchEntries, long maxBatchSize,
+				long totalNanos, long maxNanos, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos) {
+			this.query = query;
+			this.invocations = invocations;
+			this.errors = errors;
+			this.rows = rows;
+			this.batches = batches;
+			this.batchEntries = batchEntries;
+			this.maxBatchSize = maxBatchSize;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+			this.p50Nanos = p50Nanos;
+			this.p90Nanos = p90Nanos;
+			this.p99Nanos = p99Nanos;
+			this.p999Nanos = p999Nanos;
+		}
+
+		/**
+		 * @return query with named parameters
+		 */
+		public String getQuery() {
+			return query;
+		}
+
+		/**
+		 * @return number of executions, including failed ones
+		 */
+		public long getInvocations() {
+			return invocations;
+		}
+
+		/**
+		 * @return number of executions that threw
+		 */
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * @return number of rows affected by updates and batches
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return number of executed batches
+		 */
+		public long getBatches() {
+			return batches;
+		}
+
+		/**
+		 * @return total number of entries of executed batches
+		 */
+		public long getBatchEntries() {
+			return batchEntries;
+		}
+
+		/**
+		 * @return largest executed batch
+		 */
+		public long getMaxBatchSize() {
+			return maxBatchSize;
+		}
+
+		/**
+		 * @return sum of all latencies
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * @return mean latency, or 0 if never executed
+		 */
+		public long getMeanNanos() {
+			return invocations == 0 ? 0 : totalNanos / invocations;
+		}
+
+		/**
+		 * @return highest latency
+		 */
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * @return median latency
+		 */
+		public long getP50Nanos() {
+			return p50Nanos;
+		}
+
+		/**
+		 * @return 90th percentile latency
+		 */
+		public long getP90Nanos() {
+			return p90Nanos;
+		}
+
+		/**
+		 * @return 99th percentile latency
+		 */
+		public long getP99Nanos() {
+			return p99Nanos;
+		}
+
+		/**
+		 * @return 99.9th percentile latency
+		 */
+		public long getP999Nanos() {
+			return p999Nanos;
+		}
+
+		@Override
+		public String toString() {
+			final long us = TimeUnit.MICROSECONDS.toNanos(1);
+			return "invocations=" + invocations + " errors=" + errors + " rows=" + rows + " batches=" + batches
+					+ " mean=" + getMeanNanos()/us + "us p50=" + p50Nanos/us + "us p99=" + p99Nanos/us + "us max=" + maxNanos/us + "us"
+					+ " query=" + query;
+		}
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routes statements to a primary database or to read-only replicas.
+ *
+ * Statements are prepared through a {@link Session}, holding at most one connection per database.
+ * A read-only statement goes to the replica with the least outstanding (prepared but not yet closed)
+ * statements of all sessions, everything else goes to the primary. Statements are read-only if classified so
+ * by their query (a <code>SELECT</code> that doesn't lock or call <code>nextval()</code>, and similar), or by an
+ * explicit hint.
+ *
+ * Reads go to the primary while the session is in a transaction (the primary connection isn't in auto-commit
+ * mode, eg. by {@link Session#begin()}), while a writing statement is open and after it for the sticky time,
+ * so a session reads its own writes regardless of replication lag. If a replica connection can't be opened the primary is used.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  ReadWriteRouter router = new ReadWriteRouter(primaryPool, replicaPool1, replicaPool2);
+ *  ...
+ *  try (SQLStack stack = new SQLStack()) {
+ *      ReadWriteRouter.Session session = stack.push(router.openSession());
+ *      ParameterStatement stmt = stack.push(session.prepare("SELECT * FROM foo WHERE id = :id"));
+ *      ...
+ *  }
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public final class ReadWriteRouter {
+	private final ConnectionSource		primary;
+	private final ConnectionSource[]	replicas;
+
+	/** Open statements per replica. */
+	private final AtomicIntegerArray	outstanding;
+
+	/** Rotates the first replica considered, spreading ties. */
+	private final AtomicInteger			rotation = new AtomicInteger();
+
+	private volatile long				stickyNanos = Long.MAX_VALUE;
+
+	private final AtomicLong			replicaReads = new AtomicLong();
+	private final AtomicLong			primaryReads = new AtomicLong();
+	private final AtomicLong			writes = new AtomicLong();
+	private final AtomicLong			fallbacks = new AtomicLong();
+
+	/**
+	 * Creates a new router.
+	 * @param primary	source of primary connections
+	 * @param replicas	sources of replica connections, if none all statements go to the primary
+	 */
+	public ReadWriteRouter(ConnectionSource primary, ConnectionSource... replicas) {
+		if (primary == null) {
+			throw new NullPointerException("primary mustn't be null");
+		}
+		for (ConnectionSource replica : replicas) {
+			if (replica == null) {
+				throw new NullPointerException("replicas mustn't be null");
+			}
+		}
+		this.primary = primary;
+		this.replicas = replicas.clone();
+		outstanding = new AtomicIntegerArray(replicas.length);
+	}
+
+	/**
+	 * Sets time reads of a session go to the primary after a write, default is the rest of the session.
+	 * @param duration	sticky time after a write, 0 to route reads to replicas right after writes
+	 * @param unit		unit of duration
+	 * @return this
+	 */
+	public ReadWriteRouter setStickyTime(long duration, TimeUnit unit) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("sticky time mustn't be negative");
+		}
+		stickyNanos = unit.toNanos(duration);
+		return this;
+	}
+
+	/**
+	 * Opens a session, which holds connections until closed.
+	 * @return session
+	 */
+	public Session openSession() {
+		return new Session(this);
+	}
+
+	/**
+	 * Returns replica with the least outstanding statements.
+	 */
+	private int pick() {
+		final int n = replicas.length;
+		final int start = (rotation.getAndIncrement() & Integer.MAX_VALUE) % n;
+		int best = start;
+		int min = Integer.MAX_VALUE;
+		for (int k = 0; k < n; k++) {
+			final int i = (start + k) % n;
+			final int o = outstanding.get(i);
+			if (o < min) {
+				min = o;
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns number of open statements on a replica.
+	 * @param replica	index of replica, in order given to constructor
+	 * @return number of open statements
+	 */
+	public int getOutstanding(int replica) {
+		return outstanding.get(replica);
+	}
+
+	/**
+	 * Returns number of read-only statements routed to replicas.
+	 * @return number of replica reads
+	 */
+	public long getReplicaReads() {
+		return replicaReads.get();
+	}
+
+	/**
+	 * Returns number of read-only statements routed to the primary, due to transactions, writes or fallbacks.
+	 * @return number of primary reads
+	 */
+	public long getPrimaryReads() {
+		return primaryReads.get();
+	}
+
+	/**
+	 * Returns number of statements that aren't read-only, always routed to the primary.
+	 * @return number of writes
+	 */
+	public long getWrites() {
+		return writes.get();
+	}
+
+	/**
+	 * Returns number of read-only statements routed to the primary since a replica connection couldn't be opened.
+	 * @return number of fallbacks
+	 */
+	public long getFallbacks() {
+		return fallbacks.get();
+	}
+
+	/**
+	 * Routes the statements of a single thread, opening connections when first needed.
+	 *
+	 * Statements should be closed before the session, which closes its connections.
+	 * Not thread-safe.
+	 */
+	public static final class Session implements SQLClosable {
+		private final ReadWriteRouter	router;
+		private Connection				primary;
+		private final Connection[]		replicas;
+
+		/** Time of latest write, valid if wrote. */
+		private long					lastWrite;
+		private boolean					wrote;
+		private int						openWrites;
+		private boolean					closed;
+
+		private Session(ReadWriteRouter router) {
+			this.router = router;
+			replicas = new Connection[router.replicas.length];
+		}
+
+		/**
+		 * Prepares a statement, routed by whether the query is read-only.
+		 * @param query	query with named parameters
+		 * @return statement
+		 * @throws SQLException
+		 */
+		public ParameterStatement prepare(CharSequence query) throws SQLException {
+			return prepare(ParsedQuery.parse(query));
+		}
+
+		/**
+		 * Prepares a statement, routed by whether the query is read-only.
+		 * @param query	parsed query
+		 * @return statement
+		 * @throws SQLException
+		 */
+		public ParameterStatement prepare(ParsedQuery query) throws SQLException {
+			return prepare(query, query.isReadOnly());
+		}
+
+		/**
+		 * Prepares a statement, routed by an explicit hint.
+		 * @param query		parsed query
+		 * @param readOnly	true if the statement only reads and may go to a replica
+		 * @return statement
+		 * @throws SQLException
+		 */
+		public ParameterStatement prepare(ParsedQuery query, boolean readOnly) throws SQLException {
+			if (closed) {
+				throw new SQLException("session is closed");
+			}
+			if (!readOnly) {
+				router.writes.incrementAndGet();
+				final ParameterStatement stmt = new ParameterStatement(getPrimary(), query);
+				openWrites++;
+				written();
+				stmt.onClose(new SQLClosable() {
+					@Override
+					public void close() {
+						// replication of the write starts when done
+						openWrites--;
+						written();
+					}
+				});
+				return stmt;
+			}
+			if (replicas.length == 0 || sticky() || isInTransaction()) {
+				router.primaryReads.incrementAndGet();
+				return new ParameterStatement(getPrimary(), query);
+			}
+
+			final int r = router.pick();
+			final Connection c;
+			try {
+				c = replica(r);
+			} catch (SQLException e) {
+				router.fallbacks.incrementAndGet();
+				router.primaryReads.incrementAndGet();
+				return new ParameterStatement(getPrimary(), query);
+			}
+			final ParameterStatement stmt = new ParameterStatement(c, query);
+			router.outstanding.incrementAndGet(r);
+			stmt.onClose(new SQLClosable() {
+				@Override
+				public void close() {
+					router.outstanding.decrementAndGet(r);
+				}
+			});
+			router.replicaReads.incrementAndGet();
+			return stmt;
+		}
+
+		private void written() {
+			lastWrite = System.nanoTime();
+			wrote = true;
+		}
+
+		private boolean sticky() {
+			return openWrites > 0 || (wrote && System.nanoTime() - lastWrite < router.stickyNanos);
+		}
+
+		private Connection replica(int r) throws SQLException {
+			Connection c = replicas[r];
+			if (c == null) {
+				c = router.replicas[r].getConnection();
+				replicas[r] = c;
+			}
+			return c;
+		}
+
+		/**
+		 * Returns the primary connection, opening it if needed.
+		 * @return primary connection, closed with the session
+		 * @throws SQLException
+		 */
+		public Connection getPrimary() throws SQLException {
+			if (closed) {
+				throw new SQLException("session is closed");
+			}
+			if (primary == null) {
+				primary = router.primary.getConnection();
+			}
+			return primary;
+		}
+
+		/**
+		 * Returns true if in a transaction, that is the primary connection isn't in auto-commit mode.
+		 * @return true if in transaction
+		 * @throws SQLException
+		 */
+		public boolean isInTransaction() throws SQLException {
+			return primary != null && !primary.getAutoCommit();
+		}
+
+		/**
+		 * Begins a transaction on the primary connection, all statements go to the primary until it's done.
+		 * Auto-commit is enabled again when the transaction is closed.
+		 * @return transaction
+		 * @throws SQLException
+		 */
+		public SQLTransaction begin() throws SQLException {
+			final Connection c = getPrimary();
+			c.setAutoCommit(false);
+			return new SQLTransaction(c) {
+				@Override
+				public void close() throws SQLException {
+					try {
+						super.close();
+					} finally {
+						c.setAutoCommit(true);
+					}
+				}
+			};
+		}
+
+		/**
+		 * Closes connections of this session.
+		 * @throws SQLException
+		 */
+		@Override
+		public void close() throws SQLException {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try (SQLStack stack = new SQLStack()) {
+				if (primary != null) {
+					stack.push(primary);
+				}
+				for (Connection c : replicas) {
+					if (c != null) {
+						stack.push(c);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,554 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe cache of query results, keyed by query and bound parameter values.
+ *
+ * A statement opts in by {@link ParameterStatement#setResultCache(ResultCache, String...)}, naming tags (typically
+ * the tables read) of its results. A hit is served from memory without touching the database. Statements that write
+ * name the tags they affect, and invalidate them when executed. Writes in a transaction are invalidated both when
+ * executed and again when committed (or rolled back) through {@link SQLTransaction}, so results read concurrently
+ * before the commit aren't kept.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  ResultCache results = new ResultCache(1000, 16 &lt;&lt; 20).setTimeToLive(5, TimeUnit.MINUTES);
+ *  ...
+ *  try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT * FROM country WHERE code = :code")) {
+ *      stmt.setResultCache(results, "country");
+ *      stmt.setString("code", code);
+ *      try (ResultSet rs = stmt.executeQuery()) {
+ *          ...
+ *      }
+ *  }
+ *  ...
+ *  try (ParameterStatement stmt = new ParameterStatement(connection, "UPDATE country SET name = :name WHERE code = :code")) {
+ *      stmt.setResultCache(results, "country");
+ *      ...
+ *      stmt.executeUpdate();
+ *  }
+ * </code></pre>
+ *
+ * Queries on a connection that has written any of their tags in a transaction not yet completed through
+ * {@link SQLTransaction}, or by commit or rollback of a connection of {@link ConnectionPool}, bypass the cache,
+ * so uncommitted results aren't shared. Other connections must complete their transactions through {@link SQLTransaction}.
+ *
+ * Results are read fully into memory on a miss. Results heavier than an eighth of the max weight aren't cached,
+ * the rows read until then are returned followed by the remaining rows of the same execution.
+ * Entries are evicted in LRU order when exceeding max entries or max weight, and expire after an optional time to live.
+ * Only writes through statements using the cache invalidate it, other writes need {@link #invalidate(String...)}
+ * or rely on the time to live.
+ *
+ * @since 1.1
+ */
+public final class ResultCache {
+	/** Default maximum number of cached results. */
+	public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+	/** Default maximum estimated heap size of cached results, in bytes. */
+	public static final long DEFAULT_MAX_WEIGHT = 64L << 20;
+
+	/**
+	 * Tags of writes in uncommitted transactions, by physical connection, in stripes by connection
+	 * so queries on different connections don't contend for a lock.
+	 */
+	private static final Pending[] pending = new Pending[16];
+	static {
+		for (int i = 0; i < pending.length; i++) {
+			pending[i] = new Pending();
+		}
+	}
+
+	private final int						maxEntries;
+	private final long						maxWeight;
+	private volatile long					ttlNanos;
+
+	/** Entries in access order, and keys by tag, guarded by this. */
+	private final LinkedHashMap<Key, Entry>	entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+	private final Map<String, Set<Key>>		tagged = new HashMap<String, Set<Key>>();
+	private long							weight;
+
+	/** Incremented by each invalidation, guarded by this. */
+	private long							epoch;
+
+	private final AtomicLong				hits = new AtomicLong();
+	private final AtomicLong				misses = new AtomicLong();
+	private final AtomicLong				evictions = new AtomicLong();
+	private final AtomicLong				expirations = new AtomicLong();
+	private final AtomicLong				invalidations = new AtomicLong();
+
+	/**
+	 * Query and bound values of a cached result.
+	 */
+	private static final class Key {
+		final String		sql;
+		final BoundValues	values;
+		final int			hash;
+
+		Key(String sql, BoundValues values) {
+			this.sql = sql;
+			this.values = values;
+			hash = 31 * sql.hashCode() + values.valuesHash();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			final Key k = (Key)o;
+			return hash == k.hash && sql.equals(k.sql) && values.valuesEqual(k.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/**
+	 * Written tags by cache, of physical connections compared by identity and referenced weakly, so connections
+	 * that never complete aren't leaked. A stripe only holds the few connections with pending writes, so it's scanned.
+	 */
+	private static final class Pending {
+		private final ArrayList<Writes>	writes = new ArrayList<Writes>();
+
+		boolean isEmpty() {
+			return writes.isEmpty();
+		}
+
+		/**
+		 * Returns the written tags of a connection, or null.
+		 */
+		Map<ResultCache, Set<String>> get(Connection c) {
+			final int i = indexOf(c);
+			return i >= 0 ? writes.get(i).caches : null;
+		}
+
+		/**
+		 * Returns the written tags of a connection, adding them if absent.
+		 */
+		Map<ResultCache, Set<String>> add(Connection c) {
+			final int i = indexOf(c);
+			if (i >= 0) {
+				return writes.get(i).caches;
+			}
+			final Writes w = new Writes(c);
+			writes.add(w);
+			return w.caches;
+		}
+
+		/**
+		 * Removes and returns the written tags of a connection, or null.
+		 */
+		Map<ResultCache, Set<String>> remove(Connection c) {
+			final int i = indexOf(c);
+			if (i < 0) {
+				return null;
+			}
+			final Map<ResultCache, Set<String>> caches = writes.get(i).caches;
+			removeAt(i);
+			return caches;
+		}
+
+		/**
+		 * Returns the index of a connection or -1, removing collected connections on the way.
+		 */
+		private int indexOf(Connection c) {
+			for (int i = writes.size() - 1; i >= 0; i--) {
+				final Connection w = writes.get(i).get();
+				if (w == c) {
+					return i;
+				} else if (w == null) {
+					removeAt(i);
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Removes by moving the last element, already scanned, into place.
+		 */
+		private void removeAt(int i) {
+			final Writes last = writes.remove(writes.size() - 1);
+			if (i < writes.size()) {
+				writes.set(i, last);
+			}
+		}
+	}
+
+	/**
+	 * Written tags by cache of a physical connection.
+	 */
+	private static final class Writes extends WeakReference<Connection> {
+		final Map<ResultCache, Set<String>>	caches = new HashMap<ResultCache, Set<String>>();
+
+		Writes(Connection connection) {
+			super(connection);
+		}
+	}
+
+	private static final class Entry {
+		final CachedResultSet.Rows	rows;
+		final String[]				tags;
+		final long					expires;
+
+		Entry(CachedResultSet.Rows rows, String[] tags, long expires) {
+			this.rows = rows;
+			this.tags = tags;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * Creates a new cache with default bounds.
+	 */
+	public ResultCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+	}
+
+	/**
+	 * Creates a new cache.
+	 * @param maxEntries	maximum number of cached results
+	 * @param maxWeight		maximum estimated heap size of cached results, in bytes
+	 */
+	public ResultCache(int maxEntries, long maxWeight) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("max entries must be positive");
+		}
+		if (maxWeight <= 0) {
+			throw new IllegalArgumentException("max weight must be positive");
+		}
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Sets time results are cached, default is until evicted or invalidated.
+	 * @param duration	time to live, 0 for no expiry
+	 * @param unit		unit of duration
+	 * @return this
+	 */
+	public ResultCache setTimeToLive(long duration, TimeUnit unit) {
+		if (duration < 0) {
+			throw new IllegalArgumentException("time to live mustn't be negative");
+		}
+		ttlNanos = unit.toNanos(duration);
+		return this;
+	}
+
+	/**
+	 * Returns maximum estimated heap size of a single cached result.
+	 */
+	long maxEntryWeight() {
+		return maxWeight / 8;
+	}
+
+	/**
+	 * Returns cached rows of a query.
+	 * @param sql		query
+	 * @param values	bound values, all slots bound
+	 * @return rows, or null if not cached
+	 */
+	CachedResultSet.Rows get(String sql, BoundValues values) {
+		final Key key = new Key(sql, values);
+		synchronized (this) {
+			final Entry e = entries.get(key);
+			if (e != null) {
+				if (e.expires == 0 || e.expires - System.nanoTime() > 0) {
+					hits.incrementAndGet();
+					return e.rows;
+				}
+				remove(key, e);
+				expirations.incrementAndGet();
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Returns current epoch, to pass to {@link #put(String, BoundValues, CachedResultSet.Rows, String[], long)}
+	 * when a result is read from the database.
+	 */
+	synchronized long epoch() {
+		return epoch;
+	}
+
+	/**
+	 * Caches rows of a query, unless any invalidation happened since they were read.
+	 * @param sql		query
+	 * @param values	bound values, copied
+	 * @param rows		rows
+	 * @param tags		tags of rows
+	 * @param epoch		epoch before the query was executed, see {@link #epoch()}
+	 */
+	void put(String sql, BoundValues values, CachedResultSet.Rows rows, String[] tags, long epoch) {
+		// expiry time is odd, as 0 means no expiry
+		final long ttl = ttlNanos;
+		final Entry e = new Entry(rows, tags, ttl > 0 ? (System.nanoTime() + ttl) | 1 : 0);
+		final Key key = new Key(sql, values.copy());
+		synchronized (this) {
+			if (epoch != this.epoch) {
+				return;
+			}
+			final Entry prev = entries.get(key);
+			if (prev != null) {
+				remove(key, prev);
+			}
+			entries.put(key, e);
+			weight += rows.weight();
+			for (String tag : tags) {
+				Set<Key> keys = tagged.get(tag);
+				if (keys == null) {
+					keys = new HashSet<Key>();
+					tagged.put(tag, keys);
+				}
+				keys.add(key);
+			}
+
+			final Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+			while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+				final Map.Entry<Key, Entry> eldest = it.next();
+				it.remove();
+				untag(eldest.getKey(), eldest.getValue());
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Removes an entry, holding the lock.
+	 */
+	private void remove(Key key, Entry e) {
+		entries.remove(key);
+		untag(key, e);
+	}
+
+	/**
+	 * Removes a removed entry from the tag index, holding the lock.
+	 */
+	private void untag(Key key, Entry e) {
+		weight -= e.rows.weight();
+		for (String tag : e.tags) {
+			final Set<Key> keys = tagged.get(tag);
+			if (keys != null && keys.remove(key) && keys.isEmpty()) {
+				tagged.remove(tag);
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached results with any of the tags.
+	 * Results being read concurrently are not cached.
+	 * @param tags	tags to invalidate
+	 */
+	public void invalidate(String... tags) {
+		invalidate(tags.length == 1 ? Collections.singleton(tags[0]) : new HashSet<String>(Arrays.asList(tags)));
+	}
+
+	private synchronized void invalidate(Set<String> tags) {
+		epoch++;
+		for (String tag : tags) {
+			final Set<Key> keys = tagged.remove(tag);
+			if (keys == null) {
+				continue;
+			}
+			for (Key key : keys) {
+				final Entry e = entries.remove(key);
+				if (e != null) {
+					untag(key, e);
+					invalidations.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all cached results, does not reset counters.
+	 */
+	public synchronized void clear() {
+		epoch++;
+		entries.clear();
+		tagged.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Returns number of currently cached results.
+	 * @return number of cached results
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns estimated heap size of currently cached results.
+	 * @return weight in bytes
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Returns number of cache hits.
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns number of cache misses.
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns number of results evicted due to max entries or max weight.
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns number of results expired due to time to live.
+	 * @return number of expirations
+	 */
+	public long getExpirations() {
+		return expirations.get();
+	}
+
+	/**
+	 * Returns number of results removed by invalidation.
+	 * @return number of invalidations
+	 */
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * Returns the physical connection of a connection handed out by {@link ConnectionPool}, which is completed
+	 * by the pool after the handed out connection is closed.
+	 */
+	private static Connection physical(Connection connection) {
+		return connection instanceof PooledConnection ? ((PooledConnection)connection).physical() : connection;
+	}
+
+	/**
+	 * Returns the stripe of pending tags of a physical connection.
+	 */
+	private static Pending pending(Connection physical) {
+		final int h = System.identityHashCode(physical);
+		return pending[(h ^ h >>> 16) & (pending.length - 1)];
+	}
+
+	/**
+	 * Registers tags written in an uncommitted transaction, invalidated again when it completes.
+	 * @param connection	connection of transaction
+	 * @param cache			cache to invalidate
+	 * @param tags			tags written
+	 */
+	static void written(Connection connection, ResultCache cache, String[] tags) {
+		final Connection c = physical(connection);
+		final Pending p = pending(c);
+		synchronized (p) {
+			final Map<ResultCache, Set<String>> caches = p.add(c);
+			Set<String> written = caches.get(cache);
+			if (written == null) {
+				written = new HashSet<String>();
+				caches.put(cache, written);
+			}
+			Collections.addAll(written, tags);
+		}
+	}
+
+	/**
+	 * Returns true if any of the tags are written in an uncommitted transaction, whose results mustn't be cached.
+	 * @param connection	connection of transaction
+	 * @param cache			cache of results
+	 * @param tags			tags of results
+	 */
+	static boolean isWritten(Connection connection, ResultCache cache, String[] tags) {
+		final Connection c = physical(connection);
+		final Pending p = pending(c);
+		synchronized (p) {
+			if (p.isEmpty()) {
+				return false;
+			}
+			final Map<ResultCache, Set<String>> caches = p.get(c);
+			final Set<String> written = caches != null ? caches.get(cache) : null;
+			if (written != null) {
+				for (String tag : tags) {
+					if (written.contains(tag)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Invalidates tags written in a transaction, after commit or rollback.
+	 * @param connection	connection of transaction
+	 */
+	static void completed(Connection connection) {
+		final Connection c = physical(connection);
+		final Pending p = pending(c);
+		final Map<ResultCache, Set<String>> caches;
+		synchronized (p) {
+			if (p.isEmpty()) {
+				return;
+			}
+			caches = p.remove(c);
+		}
+		if (caches != null) {
+			for (Map.Entry<ResultCache, Set<String>> e : caches.entrySet()) {
+				e.getKey().invalidate(e.getValue());
+			}
+		}
+	}
+}
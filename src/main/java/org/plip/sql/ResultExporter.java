@@ -0,0 +1,772 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams query results to files, encoding rows directly into a reused buffer.
+ *
+ * Rows are fetched according to the fetch size and encoded into a single buffer of fixed size
+ * (direct unless gzip compressed), which is written to the channel whenever full,
+ * so memory use is bounded regardless of result size.
+ *
+ * Formats:
+ * <ul>
+ * <li>{@link Format#CSV}: RFC 4180 style, UTF-8, one line per row terminated by <code>\n</code>, an optional header line of
+ * column labels. Fields are quoted when containing the delimiter, quotes or line breaks. NULL is written as an empty field,
+ * binary values as hex and temporal values in JDBC escape format.</li>
+ * <li>{@link Format#BINARY}: big-endian; the int {@link #BINARY_MAGIC}, a varint column count and for each column a type byte,
+ * the int SQL type and its label. Each row is the byte 1, a null bitmap of (columns+7)/8 bytes (bit i%8 of byte i/8 set for
+ * null) and the non-null values: 8 byte longs for {@link #TYPE_LONG} (integral, boolean as 0/1 and temporal types as epoch
+ * milliseconds), 8 byte doubles for {@link #TYPE_DOUBLE}, and varint length prefixed UTF-8 or bytes for {@link #TYPE_STRING}
+ * (including decimals, as plain strings) and {@link #TYPE_BYTES}. The byte 0 ends the rows.</li>
+ * </ul>
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT * FROM foo WHERE day = :day")) {
+ *      stmt.setTimestamp("day", day);
+ *      ResultExporter.Result result = new ResultExporter(ResultExporter.Format.CSV)
+ *              .setGzip(true)
+ *              .export(stmt, Paths.get("foo.csv.gz"));
+ *  }
+ * </code></pre>
+ *
+ * An exporter may be reused for several exports, but not concurrently.
+ *
+ * @since 1.1
+ */
+public class ResultExporter {
+	/** Default number of rows fetched per round trip. */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+
+	/** Default size of the encoding buffer. */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/** First four bytes of the binary format, "PLR1". */
+	public static final int BINARY_MAGIC = 0x504c5231;
+
+	/** Column types of the binary format. */
+	public static final byte TYPE_LONG = 1, TYPE_DOUBLE = 2, TYPE_STRING = 3, TYPE_BYTES = 4;
+
+	/** Column kinds when encoding, TYPE_X or one of these for CSV. */
+	private static final byte BOOLEAN = 5, DECIMAL = 6, DATE = 7, TIME = 8, TIMESTAMP = 9;
+
+	/** Longest encoding of a varint. */
+	private static final int MAX_VARINT = 5;
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * Output format.
+	 */
+	public enum Format {
+		CSV,
+		BINARY
+	}
+
+	/**
+	 * Result of an export.
+	 */
+	public static final class Result {
+		long	rows;
+		long	bytes;
+		long	writtenBytes;
+		long	elapsedNanos;
+
+		/**
+		 * @return number of rows exported
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return number of encoded bytes, before compression
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return number of bytes written to the channel
+		 */
+		public long getWrittenBytes() {
+			return writtenBytes;
+		}
+
+		/**
+		 * @return elapsed time in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return rows exported per second
+		 */
+		public double getRowsPerSecond() {
+			return elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0.0;
+		}
+
+		/**
+		 * @return encoded bytes per second, before compression
+		 */
+		public double getBytesPerSecond() {
+			return elapsedNanos > 0 ? bytes * 1e9 / elapsedNanos : 0.0;
+		}
+
+		@Override
+		public String toString() {
+			return "rows=" + rows + " bytes=" + bytes + " writtenBytes=" + writtenBytes
+					+ " elapsed=" + (elapsedNanos / 1000000) + "ms"
+					+ " rate=" + (long)getRowsPerSecond() + " rows/s " + (long)(getBytesPerSecond() / (1024 * 1024)) + " MiB/s";
+		}
+	}
+
+	/**
+	 * Writes compressed output to a channel.
+	 */
+	private static final class ChannelOutputStream extends OutputStream {
+		final WritableByteChannel	channel;
+		long						count;
+
+		ChannelOutputStream(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			final ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+			while (bb.hasRemaining()) {
+				count += channel.write(bb);
+			}
+		}
+	}
+
+	private final Format	format;
+	private int				fetchSize = DEFAULT_FETCH_SIZE;
+	private int				bufferSize = DEFAULT_BUFFER_SIZE;
+	private boolean			gzip;
+	private boolean			header = true;
+	private byte			delimiter = ',';
+
+	/** Encoding buffer, kept between exports. */
+	private ByteBuffer		buffer;
+
+	/** Digits of a long, in reverse. */
+	private final byte[]	digits = new byte[20];
+
+	/** Output of current export. */
+	private WritableByteChannel	channel;
+	private GZIPOutputStream	compressed;
+	private long				bytes;
+	private long				written;
+
+	/**
+	 * Creates an exporter.
+	 * @param format	output format
+	 */
+	public ResultExporter(Format format) {
+		if (format == null) {
+			throw new NullPointerException("format mustn't be null");
+		}
+		this.format = format;
+	}
+
+	/**
+	 * Sets number of rows fetched per round trip, default is {@link #DEFAULT_FETCH_SIZE}.
+	 * @param rows	fetch size, or 0 for driver default
+	 * @return this
+	 */
+	public ResultExporter setFetchSize(int rows) {
+		if (rows < 0) {
+			throw new IllegalArgumentException("rows mustn't be negative");
+		}
+		this.fetchSize = rows;
+		return this;
+	}
+
+	/**
+	 * Sets size of the encoding buffer, default is {@link #DEFAULT_BUFFER_SIZE}.
+	 * @param bytes	buffer size, at least 64 bytes
+	 * @return this
+	 */
+	public ResultExporter setBufferSize(int bytes) {
+		if (bytes < 64) {
+			throw new IllegalArgumentException("bytes must be at least 64");
+		}
+		if (bytes != bufferSize) {
+			bufferSize = bytes;
+			buffer = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Sets whether output is gzip compressed, default is false.
+	 * Compressed output is encoded into a heap buffer, as the deflater takes arrays.
+	 * @param gzip	true to compress
+	 * @return this
+	 */
+	public ResultExporter setGzip(boolean gzip) {
+		if (gzip != this.gzip) {
+			this.gzip = gzip;
+			buffer = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Sets whether a CSV header line of column labels is written, default is true.
+	 * @param header	true to write header
+	 * @return this
+	 */
+	public ResultExporter setHeader(boolean header) {
+		this.header = header;
+		return this;
+	}
+
+	/**
+	 * Sets CSV field delimiter, default is comma.
+	 * @param delimiter	ASCII delimiter
+	 * @return this
+	 */
+	public ResultExporter setDelimiter(char delimiter) {
+		if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+			throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+		}
+		this.delimiter = (byte)delimiter;
+		return this;
+	}
+
+	/**
+	 * Executes a query and exports its result to a file, replacing any existing file.
+	 *
+	 * The result is written to a temporary file in the same directory, which is moved over the file once complete,
+	 * so an existing file is left unchanged if the query or export fails.
+	 * @param stmt	statement to execute
+	 * @param file	file to write
+	 * @return result
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public Result export(ParameterStatement stmt, Path file) throws SQLException, IOException {
+		stmt.setFetchSize(fetchSize);
+		final Path temp = file.resolveSibling("." + file.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+		try {
+			final Result result;
+			try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+					ResultSet rs = stmt.executeQuery()) {
+				result = export(rs, ch);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return result;
+		} catch (SQLException | IOException | RuntimeException e) {
+			try {
+				Files.deleteIfExists(temp);
+			} catch (IOException d) {
+				e.addSuppressed(d);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Exports all remaining rows of a result set to a channel, neither is closed.
+	 * @param rs		result set
+	 * @param channel	channel to write
+	 * @return result
+	 * @throws SQLException
+	 * @throws IOException
+	 */
+	public Result export(ResultSet rs, WritableByteChannel channel) throws SQLException, IOException {
+		final long start = System.nanoTime();
+		final Result result = new Result();
+
+		if (buffer == null) {
+			buffer = gzip ? ByteBuffer.allocate(bufferSize) : ByteBuffer.allocateDirect(bufferSize);
+		}
+		buffer.clear();
+		this.channel = channel;
+		bytes = 0;
+		written = 0;
+		final ChannelOutputStream out = gzip ? new ChannelOutputStream(channel) : null;
+		// closing the gzip stream finishes it and releases its deflater, the channel is left open
+		try (GZIPOutputStream gz = out != null ? new GZIPOutputStream(out, bufferSize) : null) {
+			compressed = gz;
+
+			final ResultSetMetaData md = rs.getMetaData();
+			final int count = md.getColumnCount();
+			final byte[] kinds = new byte[count];
+			for (int i = 0; i < count; i++) {
+				kinds[i] = kind(md, i + 1);
+			}
+
+			if (format == Format.CSV) {
+				if (header) {
+					for (int i = 0; i < count; i++) {
+						if (i > 0) {
+							put(delimiter);
+						}
+						putCsv(md.getColumnLabel(i + 1));
+					}
+					put((byte)'\n');
+				}
+				while (rs.next()) {
+					for (int i = 0; i < count; i++) {
+						if (i > 0) {
+							put(delimiter);
+						}
+						csvValue(rs, i + 1, kinds[i]);
+					}
+					put((byte)'\n');
+					result.rows++;
+				}
+			} else {
+				ensure(4);
+				buffer.putInt(BINARY_MAGIC);
+				bytes += 4;
+				putVarint(count);
+				for (int i = 0; i < count; i++) {
+					ensure(5);
+					buffer.put(binaryType(kinds[i]));
+					buffer.putInt(md.getColumnType(i + 1));
+					bytes += 5;
+					putUtf8(md.getColumnLabel(i + 1), true);
+				}
+				final byte[] nulls = new byte[(count + 7) / 8];
+				final long[] longs = new long[count];
+				final Object[] objects = new Object[count];
+				while (rs.next()) {
+					binaryRow(rs, kinds, nulls, longs, objects);
+					result.rows++;
+				}
+				put((byte)0);
+			}
+
+			drain();
+		} finally {
+			this.channel = null;
+			compressed = null;
+		}
+		if (out != null) {
+			written = out.count;
+		}
+
+		result.bytes = bytes;
+		result.writtenBytes = written;
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	private static byte kind(ResultSetMetaData md, int column) throws SQLException {
+		switch (md.getColumnType(column)) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+		case Types.BIGINT:
+			return TYPE_LONG;
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return BOOLEAN;
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return TYPE_DOUBLE;
+		case Types.NUMERIC:
+		case Types.DECIMAL:
+			return DECIMAL;
+		case Types.DATE:
+			return DATE;
+		case Types.TIME:
+			return TIME;
+		case Types.TIMESTAMP:
+			return TIMESTAMP;
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+			return TYPE_BYTES;
+		default:
+			return TYPE_STRING;
+		}
+	}
+
+	private static byte binaryType(byte kind) {
+		switch (kind) {
+		case BOOLEAN:
+		case DATE:
+		case TIME:
+		case TIMESTAMP:
+			return TYPE_LONG;
+		case DECIMAL:
+			return TYPE_STRING;
+		default:
+			return kind;
+		}
+	}
+
+	private void csvValue(ResultSet rs, int column, byte kind) throws SQLException, IOException {
+		switch (kind) {
+		case TYPE_LONG: {
+			final long x = rs.getLong(column);
+			if (!rs.wasNull()) {
+				putLong(x);
+			}
+			break;
+		}
+		case BOOLEAN: {
+			final boolean x = rs.getBoolean(column);
+			if (!rs.wasNull()) {
+				putAscii(x ? "true" : "false");
+			}
+			break;
+		}
+		case TYPE_DOUBLE: {
+			final double x = rs.getDouble(column);
+			if (!rs.wasNull()) {
+				putAscii(Double.toString(x));
+			}
+			break;
+		}
+		case DECIMAL: {
+			final BigDecimal x = rs.getBigDecimal(column);
+			if (x != null) {
+				putAscii(x.toPlainString());
+			}
+			break;
+		}
+		case DATE: {
+			final java.sql.Date x = rs.getDate(column);
+			if (x != null) {
+				putAscii(x.toString());
+			}
+			break;
+		}
+		case TIME: {
+			final java.sql.Time x = rs.getTime(column);
+			if (x != null) {
+				putAscii(x.toString());
+			}
+			break;
+		}
+		case TIMESTAMP: {
+			final Timestamp x = rs.getTimestamp(column);
+			if (x != null) {
+				putAscii(x.toString());
+			}
+			break;
+		}
+		case TYPE_BYTES: {
+			final byte[] x = rs.getBytes(column);
+			if (x != null) {
+				for (byte b : x) {
+					ensure(2);
+					buffer.put(HEX[(b >> 4) & 0xf]).put(HEX[b & 0xf]);
+				}
+				bytes += 2L * x.length;
+			}
+			break;
+		}
+		default: {
+			final String x = rs.getString(column);
+			if (x != null) {
+				putCsv(x);
+			}
+			break;
+		}
+		}
+	}
+
+	/**
+	 * Reads a row into longs (doubles as raw bits) and objects, then writes its null bitmap and values.
+	 */
+	private void binaryRow(ResultSet rs, byte[] kinds, byte[] nulls, long[] longs, Object[] objects) throws SQLException, IOException {
+		Arrays.fill(nulls, (byte)0);
+		for (int i = 0; i < kinds.length; i++) {
+			final int column = i + 1;
+			boolean isNull;
+			switch (kinds[i]) {
+			case TYPE_LONG:
+				longs[i] = rs.getLong(column);
+				isNull = rs.wasNull();
+				break;
+			case BOOLEAN:
+				longs[i] = rs.getBoolean(column) ? 1 : 0;
+				isNull = rs.wasNull();
+				break;
+			case TYPE_DOUBLE:
+				longs[i] = Double.doubleToRawLongBits(rs.getDouble(column));
+				isNull = rs.wasNull();
+				break;
+			case DATE:
+			case TIME:
+			case TIMESTAMP: {
+				final java.util.Date x = kinds[i] == DATE ? rs.getDate(column) : kinds[i] == TIME ? rs.getTime(column) : rs.getTimestamp(column);
+				isNull = x == null;
+				longs[i] = isNull ? 0 : x.getTime();
+				break;
+			}
+			case DECIMAL: {
+				final BigDecimal x = rs.getBigDecimal(column);
+				isNull = x == null;
+				objects[i] = isNull ? null : x.toPlainString();
+				break;
+			}
+			case TYPE_BYTES:
+				objects[i] = rs.getBytes(column);
+				isNull = objects[i] == null;
+				break;
+			default:
+				objects[i] = rs.getString(column);
+				isNull = objects[i] == null;
+				break;
+			}
+			if (isNull) {
+				nulls[i >> 3] |= 1 << (i & 7);
+			}
+		}
+
+		ensure(1 + nulls.length);
+		buffer.put((byte)1);
+		buffer.put(nulls);
+		bytes += 1 + nulls.length;
+		for (int i = 0; i < kinds.length; i++) {
+			if ((nulls[i >> 3] & (1 << (i & 7))) != 0) {
+				continue;
+			}
+			switch (binaryType(kinds[i])) {
+			case TYPE_LONG:
+			case TYPE_DOUBLE:
+				putLong8(longs[i]);
+				break;
+			case TYPE_BYTES: {
+				final byte[] x = (byte[])objects[i];
+				putVarint(x.length);
+				putBytes(x);
+				break;
+			}
+			default:
+				putUtf8((String)objects[i], true);
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Writes buffered bytes to output.
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		if (compressed != null) {
+			compressed.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			while (buffer.hasRemaining()) {
+				written += channel.write(buffer);
+			}
+		}
+		buffer.clear();
+	}
+
+	private void ensure(int n) throws IOException {
+		if (buffer.remaining() < n) {
+			drain();
+		}
+	}
+
+	private void put(byte b) throws IOException {
+		ensure(1);
+		buffer.put(b);
+		bytes++;
+	}
+
+	private void putBytes(byte[] b) throws IOException {
+		int off = 0;
+		while (off < b.length) {
+			ensure(1);
+			final int n = Math.min(buffer.remaining(), b.length - off);
+			buffer.put(b, off, n);
+			off += n;
+		}
+		bytes += b.length;
+	}
+
+	private void putLong8(long x) throws IOException {
+		ensure(8);
+		buffer.putLong(x);
+		bytes += 8;
+	}
+
+	private void putVarint(int x) throws IOException {
+		ensure(MAX_VARINT);
+		while ((x & ~0x7f) != 0) {
+			buffer.put((byte)((x & 0x7f) | 0x80));
+			x >>>= 7;
+			bytes++;
+		}
+		buffer.put((byte)x);
+		bytes++;
+	}
+
+	/**
+	 * Writes decimal digits of a long.
+	 */
+	private void putLong(long x) throws IOException {
+		ensure(20);
+		if (x == Long.MIN_VALUE) {
+			putAscii("-9223372036854775808");
+			return;
+		}
+		if (x < 0) {
+			buffer.put((byte)'-');
+			bytes++;
+			x = -x;
+		}
+		int n = 0;
+		do {
+			digits[n++] = (byte)('0' + (int)(x % 10));
+			x /= 10;
+		} while (x != 0);
+		bytes += n;
+		while (n > 0) {
+			buffer.put(digits[--n]);
+		}
+	}
+
+	private void putAscii(String s) throws IOException {
+		for (int i = 0, n = s.length(); i < n; i++) {
+			ensure(1);
+			buffer.put((byte)s.charAt(i));
+		}
+		bytes += s.length();
+	}
+
+	/**
+	 * Writes a CSV field, quoted if needed.
+	 */
+	private void putCsv(String s) throws IOException {
+		boolean quote = false;
+		for (int i = 0, n = s.length(); i < n && !quote; i++) {
+			final char c = s.charAt(i);
+			quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+		}
+		if (quote) {
+			put((byte)'"');
+			putUtf8(s, false);
+			put((byte)'"');
+		} else {
+			putUtf8(s, false);
+		}
+	}
+
+	/**
+	 * Writes a string as UTF-8, optionally prefixed by its varint length.
+	 * Without prefix quotes are doubled, as within a quoted CSV field.
+	 */
+	private void putUtf8(String s, boolean prefixed) throws IOException {
+		final int n = s.length();
+		if (prefixed) {
+			putVarint(utf8Length(s));
+		}
+		for (int i = 0; i < n; i++) {
+			final char c = s.charAt(i);
+			ensure(4);
+			if (c < 0x80) {
+				if (c == '"' && !prefixed) {
+					buffer.put((byte)'"');
+					bytes++;
+				}
+				buffer.put((byte)c);
+				bytes++;
+			} else if (c < 0x800) {
+				buffer.put((byte)(0xc0 | (c >> 6)));
+				buffer.put((byte)(0x80 | (c & 0x3f)));
+				bytes += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+				final int cp = Character.toCodePoint(c, s.charAt(++i));
+				buffer.put((byte)(0xf0 | (cp >> 18)));
+				buffer.put((byte)(0x80 | ((cp >> 12) & 0x3f)));
+				buffer.put((byte)(0x80 | ((cp >> 6) & 0x3f)));
+				buffer.put((byte)(0x80 | (cp & 0x3f)));
+				bytes += 4;
+			} else if (Character.isSurrogate(c)) {
+				buffer.put((byte)'?');	// unpaired, as by String.getBytes()
+				bytes++;
+			} else {
+				buffer.put((byte)(0xe0 | (c >> 12)));
+				buffer.put((byte)(0x80 | ((c >> 6) & 0x3f)));
+				buffer.put((byte)(0x80 | (c & 0x3f)));
+				bytes += 3;
+			}
+		}
+	}
+
+	private static int utf8Length(String s) {
+		final int n = s.length();
+		int len = n;
+		for (int i = 0; i < n; i++) {
+			final char c = s.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					len += 1;
+				} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+					len += 2;	// four bytes for two chars
+					i++;
+				} else if (!Character.isSurrogate(c)) {
+					len += 2;
+				}
+			}
+		}
+		return len;
+	}
+}
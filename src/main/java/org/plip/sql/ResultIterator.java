@@ -0,0 +1,164 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazy iterator of mapped rows over a forward-only {@link ResultSet}.
+ *
+ * Rows are fetched from the result set as the iterator advances, so memory use is bounded by the
+ * fetch size of the statement (see {@link ParameterStatement#setFetchSize(int)}).
+ * The result set is closed when exhausted, on error, or when this iterator is closed,
+ * typically through the {@link SQLStack} it was registered with.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  try (SQLStack stack = new SQLStack()) {
+ *      ParameterStatement stmt = stack.push(new ParameterStatement(connection, query));
+ *      stmt.setFetchSize(1000);
+ *      for (Foo foo : stmt.iterate(stack, fooMapper, "id", "name")) {
+ *          ...
+ *      }
+ *  }
+ * </code></pre>
+ *
+ * SQL errors while iterating are thrown as {@link UncheckedSQLException}.
+ *
+ * @param <T> type of mapped rows
+ * @since 1.1
+ */
+public class ResultIterator<T> implements Iterator<T>, Iterable<T>, SQLClosable {
+	private final ResultSet		rs;
+	private RowMapper<T>		mapper;
+	private final String[]		labels;
+	private int[]				columns;
+
+	private boolean	fetched;
+	private boolean	hasRow;
+	private boolean	closed;
+	private long	rowCount;
+
+	/**
+	 * Creates an iterator over a result set
+	 * @param rs		result set, owned by this iterator
+	 * @param mapper	row mapper
+	 * @param labels	column labels to resolve to indices for mapper
+	 */
+	public ResultIterator(ResultSet rs, RowMapper<T> mapper, String... labels) {
+		this.rs = rs;
+		this.mapper = mapper;
+		this.labels = labels;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!fetched) {
+			if (closed) {
+				return false;
+			}
+			try {
+				hasRow = rs.next();
+				fetched = true;
+				if (!hasRow) {
+					close();
+				}
+			} catch (SQLException e) {
+				closeSuppress();
+				throw new UncheckedSQLException(e);
+			}
+		}
+		return hasRow;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		try {
+			if (columns == null) {
+				mapper = RowMapper.Adapter.bind(mapper, rs);
+				columns = new int[labels.length];
+				for (int i = 0; i < labels.length; i++) {
+					columns[i] = rs.findColumn(labels[i]);
+				}
+			}
+			final T row = mapper.map(rs, columns);
+			fetched = false;
+			rowCount++;
+			return row;
+		} catch (SQLException e) {
+			closeSuppress();
+			throw new UncheckedSQLException(e);
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns this iterator, for use in for-each loops. Can only be iterated once.
+	 * @return this
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return this;
+	}
+
+	/**
+	 * Returns number of rows returned so far.
+	 * @return number of rows
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Closes the underlying result set, ending iteration.
+	 * @throws SQLException
+	 */
+	@Override
+	public void close() throws SQLException {
+		if (!closed) {
+			closed = true;
+			fetched = true;
+			hasRow = false;
+			rs.close();
+		}
+	}
+
+	private void closeSuppress() {
+		try {
+			close();
+		} catch (SQLException e) {
+			// reporting original error
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object.
+ *
+ * @param <T> type of mapped rows
+ * @see ResultIterator
+ * @since 1.1
+ */
+public interface RowMapper<T> {
+	/**
+	 * Maps current row. Must not move the cursor.
+	 * @param rs		result set positioned at row to map
+	 * @param columns	column indices of the labels given to the iterator, resolved once per result set
+	 * @return mapped row
+	 * @throws SQLException
+	 */
+	T map(ResultSet rs, int[] columns) throws SQLException;
+
+	/**
+	 * Row mapper that can prepare itself for a result set, once positioned at its first row and before mapping it.
+	 * {@link ResultIterator} and {@link KeysetQuery} call {@link #bind(ResultSet)} once per non-empty result set
+	 * and map its rows with the returned mapper, so per result set work such as inspecting
+	 * the {@link java.sql.ResultSetMetaData} isn't repeated per row.
+	 *
+	 * @param <T> type of mapped rows
+	 * @see BeanRowMapper
+	 * @since 1.1
+	 */
+	abstract class Adapter<T> implements RowMapper<T> {
+		/**
+		 * Returns the mapper for the rows of a result set. Returns this by default.
+		 * @param rs	result set, positioned at its first row, which is mapped next. Must not move the cursor
+		 * @return row mapper for the result set
+		 * @throws SQLException
+		 */
+		public RowMapper<T> bind(ResultSet rs) throws SQLException {
+			return this;
+		}
+
+		/**
+		 * Returns the mapper bound to a result set if it's an adapter, otherwise the mapper itself.
+		 */
+		static <T> RowMapper<T> bind(RowMapper<T> mapper, ResultSet rs) throws SQLException {
+			return mapper instanceof Adapter ? ((Adapter<T>)mapper).bind(rs) : mapper;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+/**
+ * Lexical rules of an SQL dialect, used to find named parameters outside of quoted regions and comments.
+ *
+ * All dialects treat <code>'...'</code> as string literals and <code>"..."</code> as quoted identifiers,
+ * where a doubled quote escapes the quote, and skip <code>--</code> line comments and <code>/* *&#47;</code> block comments.
+ *
+ * @see ParsedQuery#parse(CharSequence, SQLDialect)
+ * @since 1.1
+ */
+public enum SQLDialect {
+	/** Standard SQL, the default. */
+	ANSI			(false, false, false, false, false, false, false),
+
+	/** PostgreSQL, adds nested block comments, <code>$tag$...$tag$</code> dollar-quoting and <code>E'...'</code> strings with backslash escapes. */
+	POSTGRESQL		(true, true, true, false, false, false, false),
+
+	/** MySQL and MariaDB, adds backslash escapes in strings, <code>#</code> line comments and <code>`...`</code> quoted identifiers, <code>--</code> must be followed by whitespace. */
+	MYSQL			(false, false, false, true, true, true, false),
+
+	/** Microsoft SQL Server, adds nested block comments and <code>[...]</code> quoted identifiers. */
+	SQLSERVER		(true, false, false, false, false, false, true);
+
+	/** Block comments nest. */
+	final boolean	nestedComments;
+
+	/** Dollar-quoted strings, <code>$$...$$</code> or <code>$tag$...$tag$</code>. */
+	final boolean	dollarQuotes;
+
+	/** Strings prefixed by E use backslash escapes. */
+	final boolean	escapeStrings;
+
+	/** All strings use backslash escapes, and <code>--</code> starts a comment only if followed by whitespace. */
+	final boolean	backslashEscapes;
+
+	/** <code>#</code> starts a line comment. */
+	final boolean	hashComments;
+
+	/** Backticks quote identifiers. */
+	final boolean	backtickQuotes;
+
+	/** Square brackets quote identifiers. */
+	final boolean	bracketQuotes;
+
+	private SQLDialect(boolean nestedComments, boolean dollarQuotes, boolean escapeStrings, boolean backslashEscapes,
+			boolean hashComments, boolean backtickQuotes, boolean bracketQuotes) {
+		this.nestedComments = nestedComments;
+		this.dollarQuotes = dollarQuotes;
+		this.escapeStrings = escapeStrings;
+		this.backslashEscapes = backslashEscapes;
+		this.hashComments = hashComments;
+		this.backtickQuotes = backtickQuotes;
+		this.bracketQuotes = bracketQuotes;
+	}
+}
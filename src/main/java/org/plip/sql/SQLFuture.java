@@ -0,0 +1,76 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Future allowing completion listeners, for non-blocking use of asynchronous results.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  final SQLFuture&lt;Integer&gt; f = stmt.executeUpdateAsync(executor, stack);
+ *  f.addCallback(new SQLFuture.Callback&lt;Integer&gt;() {
+ *      public void onSuccess(Integer count) { ... }
+ *      public void onFailure(Throwable error) { ... }
+ *  });
+ * </code></pre>
+ *
+ * @param <T> type of result
+ * @see AsyncExecutor
+ * @since 1.1
+ */
+public interface SQLFuture<T> extends Future<T> {
+	/**
+	 * Receives the outcome of a future.
+	 * @param <T> type of result
+	 */
+	public interface Callback<T> {
+		/**
+		 * Called when the future completed with a result.
+		 * @param result	result
+		 */
+		public void onSuccess(T result);
+
+		/**
+		 * Called when the future failed or was cancelled.
+		 * @param error		cause of failure, or a {@link java.util.concurrent.CancellationException}
+		 */
+		public void onFailure(Throwable error);
+	}
+
+	/**
+	 * Runs a listener on an executor once this future is done, immediately if already done.
+	 * @param listener	listener to run
+	 * @param executor	executor to run listener on
+	 */
+	public void addListener(Runnable listener, Executor executor);
+
+	/**
+	 * Calls a callback once this future is done, in the thread completing it or immediately if already done.
+	 * Callbacks should be short and not block.
+	 * @param callback	callback to call
+	 */
+	public void addCallback(Callback<? super T> callback);
+}
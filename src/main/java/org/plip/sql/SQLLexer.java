@@ -0,0 +1,485 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Single-pass lexer replacing named parameters of a query with question marks.
+ *
+ * The query is copied once into a char array that is then rewritten in place, quoted regions and comments
+ * are copied verbatim. Parameter names are interned through a small hash table keyed on the characters,
+ * so only one string is created per distinct name.
+ */
+final class SQLLexer {
+	/** First words of statements that may only read. */
+	private static final Set<String> READ_STATEMENTS = new HashSet<String>(Arrays.asList(
+			"SELECT", "WITH", "VALUES", "TABLE", "SHOW", "EXPLAIN", "DESCRIBE", "DESC"));
+
+	/** Words making a reading statement write or lock, eg. <code>FOR UPDATE</code>, <code>SELECT INTO</code> and <code>nextval()</code>. */
+	private static final Set<String> WRITE_WORDS = new HashSet<String>(Arrays.asList(
+			"INSERT", "UPDATE", "DELETE", "MERGE", "UPSERT", "INTO", "LOCK", "SHARE", "NEXTVAL", "SETVAL", "ANALYZE"));
+
+	private final SQLDialect	dialect;
+	private final char[]		buf;
+	private final int			length;
+
+	/** Length of rewritten query. */
+	private int			out;
+
+	/** Name and offset of each placeholder, in order. */
+	private String[]	placeholders = new String[4];
+	private int[]		offsets = new int[4];
+	private int			count;
+
+	/** Offsets of parentheses of the first VALUES tuple in the rewritten query, or -1. */
+	private int			valuesOpen = -1;
+	private int			valuesClose = -1;
+
+	/** Nesting depth within the VALUES tuple, and whether the VALUES keyword was just seen. */
+	private int			depth;
+	private boolean		afterValues;
+
+	/** Open addressing table of distinct names. */
+	private String[]	names = new String[8];
+	private int			nameCount;
+
+	private SQLLexer(CharSequence query, SQLDialect dialect) {
+		this.dialect = dialect;
+		length = query.length();
+		buf = new char[length];
+		if (query instanceof String) {
+			((String)query).getChars(0, length, buf, 0);
+		} else if (query instanceof StringBuilder) {
+			((StringBuilder)query).getChars(0, length, buf, 0);
+		} else {
+			for (int i = 0; i < length; i++) {
+				buf[i] = query.charAt(i);
+			}
+		}
+	}
+
+	/**
+	 * Lexes a query.
+	 * @param query		query with named parameters
+	 * @param dialect	lexical rules
+	 * @return lexer holding the result
+	 */
+	static SQLLexer lex(CharSequence query, SQLDialect dialect) {
+		final SQLLexer lexer = new SQLLexer(query, dialect);
+		lexer.run();
+		return lexer;
+	}
+
+	/**
+	 * Returns the rewritten query.
+	 */
+	String sql() {
+		return new String(buf, 0, out);
+	}
+
+	/**
+	 * Returns number of placeholders.
+	 */
+	int count() {
+		return count;
+	}
+
+	/**
+	 * Returns parameter name of a placeholder, equal names are the same instance.
+	 */
+	String name(int placeholder) {
+		return placeholders[placeholder];
+	}
+
+	/**
+	 * Returns character offset of a placeholder in the rewritten query.
+	 */
+	int offset(int placeholder) {
+		return offsets[placeholder];
+	}
+
+	/**
+	 * Returns offset of the opening parenthesis of the first VALUES tuple in the rewritten query, or -1 if none.
+	 */
+	int valuesOpen() {
+		return valuesOpen;
+	}
+
+	/**
+	 * Returns offset of the closing parenthesis of the first VALUES tuple in the rewritten query, or -1 if none.
+	 */
+	int valuesClose() {
+		return valuesClose;
+	}
+
+	/**
+	 * Returns true if a query only reads, so it may run on a read-only replica.
+	 *
+	 * The check is conservative: words are matched also within quotes and comments, so a query mentioning
+	 * a writing keyword anywhere, or holding more than one statement, is not read-only.
+	 * @param sql	query
+	 * @return true if read-only
+	 */
+	static boolean isReadOnly(String sql) {
+		final int n = sql.length();
+		boolean first = true;
+		boolean ended = false;
+		int i = 0;
+		while (i < n) {
+			final char c = sql.charAt(i);
+			if (Character.isJavaIdentifierPart(c)) {
+				final int start = i;
+				while (i < n && Character.isJavaIdentifierPart(sql.charAt(i))) {
+					i++;
+				}
+				final String word = sql.substring(start, i).toUpperCase(Locale.ROOT);
+				if (ended || (first ? !READ_STATEMENTS.contains(word) : WRITE_WORDS.contains(word))) {
+					return false;
+				}
+				first = false;
+			} else if (first && c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+				// leading comments may hide the first word
+				while (i < n && sql.charAt(i) != '\n') {
+					i++;
+				}
+			} else if (first && c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+				final int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? n : end + 2;
+			} else {
+				if (c == ';') {
+					ended = true;
+				}
+				i++;
+			}
+		}
+		return !first;
+	}
+
+	private void run() {
+		final char[] b = buf;
+		final int n = length;
+		int i = 0;
+		while (i < n) {
+			final char c = b[i];
+			final int end;
+			switch (c) {
+			case '\'':
+				end = quoted(i + 1, '\'', dialect.backslashEscapes);
+				break;
+			case '"':
+				end = quoted(i + 1, '"', false);
+				break;
+			case '`':
+				end = dialect.backtickQuotes ? quoted(i + 1, '`', false) : i + 1;
+				break;
+			case '[':
+				end = dialect.bracketQuotes ? quoted(i + 1, ']', false) : i + 1;
+				break;
+			case '-':
+				end = dashComment(i);
+				break;
+			case '#':
+				end = dialect.hashComments ? lineComment(i + 1) : i + 1;
+				break;
+			case '/':
+				end = (i + 1 < n && b[i + 1] == '*') ? blockComment(i + 2) : i + 1;
+				break;
+			case '$':
+				end = dialect.dollarQuotes ? dollarQuoted(i) : i + 1;
+				break;
+			case 'E':
+			case 'e':
+				end = (dialect.escapeStrings && i + 1 < n && b[i + 1] == '\'' && !identifierBefore(i)) ? quoted(i + 2, '\'', true) : i + 1;
+				break;
+			case ':':
+				if (i + 1 < n && b[i + 1] == ':') {
+					// cast, keep both colons
+					end = i + 2;
+				} else if (i + 1 < n && Character.isJavaIdentifierStart(b[i + 1])) {
+					i = parameter(i + 1);
+					continue;
+				} else {
+					end = i + 1;
+				}
+				break;
+			default:
+				end = valuesClose < 0 ? tuple(i) : i + 1;
+				break;
+			}
+			copy(i, end);
+			i = end;
+		}
+	}
+
+	/**
+	 * Tracks the first VALUES tuple through a character outside of quotes and comments.
+	 * @return end of the character, or of the VALUES keyword
+	 */
+	private int tuple(int i) {
+		final char c = buf[i];
+		if (depth > 0) {
+			if (c == '(') {
+				depth++;
+			} else if (c == ')' && --depth == 0) {
+				valuesClose = out;
+			}
+		} else if (afterValues) {
+			if (c == '(') {
+				valuesOpen = out;
+				depth = 1;
+			} else if (!Character.isWhitespace(c)) {
+				afterValues = false;
+			}
+		} else if ((c == 'V' || c == 'v') && keyword(i, "VALUES")) {
+			afterValues = true;
+			return i + 6;
+		}
+		return i + 1;
+	}
+
+	/**
+	 * Returns true if an upper case keyword starts at an input position, as a whole word in any case.
+	 */
+	private boolean keyword(int i, String word) {
+		final int end = i + word.length();
+		if (end > length || identifierBefore(i) || (end < length && Character.isJavaIdentifierPart(buf[end]))) {
+			return false;
+		}
+		for (int k = 0; k < word.length(); k++) {
+			if (Character.toUpperCase(buf[i + k]) != word.charAt(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies a region to the output position, which never is ahead of input.
+	 */
+	private void copy(int from, int to) {
+		if (out != from) {
+			System.arraycopy(buf, from, buf, out, to - from);
+		}
+		out += to - from;
+	}
+
+	/**
+	 * Returns true if the character before an input position is part of an identifier, input before the position is unchanged.
+	 */
+	private boolean identifierBefore(int i) {
+		return i > 0 && Character.isJavaIdentifierPart(buf[i - 1]);
+	}
+
+	/**
+	 * Returns end of a quoted region starting after the opening quote, a doubled closing quote is part of the region.
+	 */
+	private int quoted(int i, char close, boolean backslash) {
+		final char[] b = buf;
+		final int n = length;
+		while (i < n) {
+			final char c = b[i];
+			if (backslash && c == '\\') {
+				i += 2;
+			} else if (c == close) {
+				if (i + 1 < n && b[i + 1] == close) {
+					i += 2;
+				} else {
+					return i + 1;
+				}
+			} else {
+				i++;
+			}
+		}
+		return n;
+	}
+
+	private int dashComment(int i) {
+		final int n = length;
+		if (i + 1 >= n || buf[i + 1] != '-') {
+			return i + 1;
+		}
+		if (dialect.backslashEscapes && i + 2 < n && !Character.isWhitespace(buf[i + 2])) {
+			return i + 1;
+		}
+		return lineComment(i + 2);
+	}
+
+	/**
+	 * Returns end of a line comment, excluding the line break.
+	 */
+	private int lineComment(int i) {
+		final char[] b = buf;
+		final int n = length;
+		while (i < n && b[i] != '\n' && b[i] != '\r') {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns end of a block comment starting after the opening delimiter.
+	 */
+	private int blockComment(int i) {
+		final char[] b = buf;
+		final int n = length;
+		int depth = 1;
+		while (i < n) {
+			final char c = b[i];
+			if (c == '*' && i + 1 < n && b[i + 1] == '/') {
+				i += 2;
+				if (--depth == 0) {
+					return i;
+				}
+			} else if (c == '/' && i + 1 < n && b[i + 1] == '*' && dialect.nestedComments) {
+				i += 2;
+				depth++;
+			} else {
+				i++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Returns end of a dollar-quoted string, or of the dollar sign if it doesn't start one.
+	 */
+	private int dollarQuoted(int start) {
+		final char[] b = buf;
+		final int n = length;
+		if (identifierBefore(start)) {
+			return start + 1;
+		}
+
+		// opening tag, $$ or $tag$ where tag is an identifier without dollars
+		int i = start + 1;
+		if (i < n && Character.isJavaIdentifierStart(b[i]) && b[i] != '$') {
+			i++;
+			while (i < n && Character.isJavaIdentifierPart(b[i]) && b[i] != '$') {
+				i++;
+			}
+		}
+		if (i >= n || b[i] != '$') {
+			return start + 1;
+		}
+		final int tagLength = i + 1 - start;
+
+		// closing tag
+		for (i = i + 1; i + tagLength <= n; i++) {
+			if (b[i] == '$' && regionEquals(start, i, tagLength)) {
+				return i + tagLength;
+			}
+		}
+		return n;
+	}
+
+	private boolean regionEquals(int a, int b, int len) {
+		final char[] c = buf;
+		for (int k = 0; k < len; k++) {
+			if (c[a + k] != c[b + k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces a parameter by a question mark.
+	 * @param start	start of name, after the colon
+	 * @return end of name
+	 */
+	private int parameter(int start) {
+		final char[] b = buf;
+		final int n = length;
+		int h = b[start];
+		int i = start + 1;
+		while (i < n && Character.isJavaIdentifierPart(b[i])) {
+			h = 31 * h + b[i];
+			i++;
+		}
+
+		afterValues = false;
+		final String name = intern(start, i - start, h);
+		if (count == placeholders.length) {
+			placeholders = Arrays.copyOf(placeholders, count * 2);
+			offsets = Arrays.copyOf(offsets, count * 2);
+		}
+		placeholders[count] = name;
+		offsets[count] = out;
+		count++;
+
+		b[out++] = '?';
+		return i;
+	}
+
+	/**
+	 * Returns the string of a name, creating it on first occurrence.
+	 * @param hash	hash of name as by {@link String#hashCode()}
+	 */
+	private String intern(int start, int len, int hash) {
+		int mask = names.length - 1;
+		int slot = mix(hash) & mask;
+		String s;
+		while ((s = names[slot]) != null) {
+			if (s.length() == len && s.hashCode() == hash && matches(s, start)) {
+				return s;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		s = new String(buf, start, len);
+		names[slot] = s;
+		if (++nameCount * 2 > names.length) {
+			final String[] old = names;
+			names = new String[old.length * 2];
+			mask = names.length - 1;
+			for (String o : old) {
+				if (o != null) {
+					int k = mix(o.hashCode()) & mask;
+					while (names[k] != null) {
+						k = (k + 1) & mask;
+					}
+					names[k] = o;
+				}
+			}
+		}
+		return s;
+	}
+
+	private boolean matches(String s, int start) {
+		final char[] b = buf;
+		for (int k = 0, len = s.length(); k < len; k++) {
+			if (s.charAt(k) != b[start + k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int mix(int h) {
+		return h ^ (h >>> 16);
+	}
+}
@@ -24,12 +24,24 @@ package org.plip.sql;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 
 
 /**
  * SQL value together with necessary type information
+ *
+ * The nested {@link OfLong}, {@link OfInt} and {@link OfDouble} variants carry unboxed values
+ * and are bound through the typed setters of {@link PreparedStatement}, for those {@link #value} is null
+ * and {@link #getValue()} should be used instead.
+ *
+ * The {@link OfCollection} variant binds a collection to a list of placeholders, eg. <code>WHERE id IN (:ids)</code>.
+ *
  * @since 1.1
  */
 public class SQLParameter {
@@ -106,4 +118,315 @@ public class SQLParameter {
 		this(value, java.sql.Types.NUMERIC, "NUMERIC", scaleOrLength);
 	}
 
+	/**
+	 * Returns the parameter value, boxed for primitive variants.
+	 * @return value, or null for SQL NULL
+	 */
+	public Object getValue() {
+		return value;
+	}
+
+	/**
+	 * Parameters are equal if of the same class, with equal values and types.
+	 * Byte arrays are compared by content.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || o.getClass() != getClass()) {
+			return false;
+		}
+		final SQLParameter p = (SQLParameter)o;
+		return sqlType == p.sqlType
+				&& valueEquals(getValue(), p.getValue())
+				&& (typeName == null ? p.typeName == null : typeName.equals(p.typeName))
+				&& (scaleOrLength == null ? p.scaleOrLength == null : scaleOrLength.equals(p.scaleOrLength));
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * valueHash(getValue()) + sqlType;
+	}
+
+	/**
+	 * Returns true if two values are equal, byte arrays are compared by content.
+	 */
+	static boolean valueEquals(Object a, Object b) {
+		if (a == b) {
+			return true;
+		} else if (a == null || b == null) {
+			return false;
+		} else if (a instanceof byte[] && b instanceof byte[]) {
+			return Arrays.equals((byte[])a, (byte[])b);
+		}
+		return a.equals(b);
+	}
+
+	/**
+	 * Returns hash code of a value, consistent with {@link #valueEquals(Object, Object)}.
+	 */
+	static int valueHash(Object v) {
+		if (v == null) {
+			return 0;
+		} else if (v instanceof byte[]) {
+			return Arrays.hashCode((byte[])v);
+		}
+		return v.hashCode();
+	}
+
+	/**
+	 * Returns a copy of a value if mutable, byte arrays and dates are copied while other values are shared.
+	 */
+	static Object valueCopy(Object v) {
+		if (v instanceof byte[]) {
+			return ((byte[])v).clone();
+		} else if (v instanceof java.util.Date) {
+			// also copies nanos of timestamps
+			return ((java.util.Date)v).clone();
+		}
+		return v;
+	}
+
+	/**
+	 * Returns a parameter that isn't changed with a mutable value of this one, see {@link #valueCopy(Object)}.
+	 * Subclasses other than the nested ones are returned as is.
+	 */
+	SQLParameter copy() {
+		if (getClass() != SQLParameter.class) {
+			return this;
+		}
+		final Object v = valueCopy(value);
+		return v == value ? this : new SQLParameter(v, sqlType, typeName, scaleOrLength);
+	}
+
+	/**
+	 * Returns a rough estimate of the number of bytes sent to the database for this value.
+	 * @return estimated size in bytes
+	 */
+	int estimateSize() {
+		if (value == null) {
+			return 1;
+		} else if (value instanceof CharSequence) {
+			return 2 * ((CharSequence)value).length();
+		} else if (value instanceof byte[]) {
+			return ((byte[])value).length;
+		}
+		return 8;
+	}
+
+	/**
+	 * Binds this value to a statement parameter.
+	 * @param statement
+	 * @param index		parameter index
+	 * @throws SQLException
+	 */
+	void bind(PreparedStatement statement, int index) throws SQLException {
+		if (value == null) {
+			statement.setNull(index, sqlType);
+		} else if (scaleOrLength != null) {
+			statement.setObject(index, value, sqlType, scaleOrLength);
+		} else {
+			statement.setObject(index, value, sqlType);
+		}
+	}
+
+	/**
+	 * Unboxed BIGINT parameter, bound using {@link PreparedStatement#setLong(int, long)}
+	 */
+	public static final class OfLong extends SQLParameter {
+		public final long longValue;
+
+		public OfLong(long value) {
+			super(null, java.sql.Types.BIGINT, "BIGINT");
+			this.longValue = value;
+		}
+
+		@Override
+		public Object getValue() {
+			return longValue;
+		}
+
+		@Override
+		int estimateSize() {
+			return 8;
+		}
+
+		@Override
+		void bind(PreparedStatement statement, int index) throws SQLException {
+			statement.setLong(index, longValue);
+		}
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof OfLong && ((OfLong)o).longValue == longValue;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int)(longValue ^ (longValue >>> 32));
+		}
+	}
+
+	/**
+	 * Unboxed INTEGER parameter, bound using {@link PreparedStatement#setInt(int, int)}
+	 */
+	public static final class OfInt extends SQLParameter {
+		public final int intValue;
+
+		public OfInt(int value) {
+			super(null, java.sql.Types.INTEGER, "INTEGER");
+			this.intValue = value;
+		}
+
+		@Override
+		public Object getValue() {
+			return intValue;
+		}
+
+		@Override
+		int estimateSize() {
+			return 4;
+		}
+
+		@Override
+		void bind(PreparedStatement statement, int index) throws SQLException {
+			statement.setInt(index, intValue);
+		}
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof OfInt && ((OfInt)o).intValue == intValue;
+		}
+
+		@Override
+		public int hashCode() {
+			return intValue;
+		}
+	}
+
+	/**
+	 * Unboxed DOUBLE PRECISION parameter, bound using {@link PreparedStatement#setDouble(int, double)}
+	 */
+	public static final class OfDouble extends SQLParameter {
+		public final double doubleValue;
+
+		public OfDouble(double value) {
+			super(null, java.sql.Types.DOUBLE, "DOUBLE PRECISION");
+			this.doubleValue = value;
+		}
+
+		@Override
+		public Object getValue() {
+			return doubleValue;
+		}
+
+		@Override
+		int estimateSize() {
+			return 8;
+		}
+
+		@Override
+		void bind(PreparedStatement statement, int index) throws SQLException {
+			statement.setDouble(index, doubleValue);
+		}
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof OfDouble && Double.doubleToLongBits(((OfDouble)o).doubleValue) == Double.doubleToLongBits(doubleValue);
+		}
+
+		@Override
+		public int hashCode() {
+			final long bits = Double.doubleToLongBits(doubleValue);
+			return (int)(bits ^ (bits >>> 32));
+		}
+	}
+
+	/**
+	 * Collection of values of a single SQL type, bound to an expanded parameter.
+	 *
+	 * A query using collection parameters needs to be expanded before it's prepared,
+	 * this is done by the {@link ParameterStatement} constructors taking initial parameters,
+	 * or explicitly through {@link ParsedQuery#expand(ParameterStatement.ParameterProvider)}.
+	 * An empty collection is bound as NULL.
+	 */
+	public static final class OfCollection extends SQLParameter {
+		private final Object[] elements;
+
+		/**
+		 * @param values	collection values, null elements are bound as NULL
+		 * @param sqlType	type of elements (typically one of java.sql.Types.X)
+		 */
+		public OfCollection(Collection<?> values, int sqlType) {
+			this(values.toArray(), sqlType);
+		}
+
+		private OfCollection(Object[] elements, int sqlType) {
+			super(Collections.unmodifiableList(Arrays.asList(elements)), sqlType, null);
+			this.elements = elements;
+		}
+
+		/**
+		 * Returns number of elements
+		 * @return collection size
+		 */
+		public int size() {
+			return elements.length;
+		}
+
+		@Override
+		int estimateSize() {
+			return 8 * elements.length;
+		}
+
+		@Override
+		SQLParameter copy() {
+			Object[] copy = null;
+			for (int i = 0; i < elements.length; i++) {
+				final Object v = valueCopy(elements[i]);
+				if (v != elements[i]) {
+					if (copy == null) {
+						copy = elements.clone();
+					}
+					copy[i] = v;
+				}
+			}
+			return copy == null ? this : new OfCollection(copy, sqlType);
+		}
+
+		/**
+		 * Binds the single element of a collection to a non expanded parameter.
+		 */
+		@Override
+		void bind(PreparedStatement statement, int index) throws SQLException {
+			if (elements.length > 1) {
+				throw new IllegalArgumentException("Collection of " + elements.length + " elements bound to a single placeholder, query needs to be expanded");
+			}
+			bindElement(statement, index, 0);
+		}
+
+		/**
+		 * Binds elements to expanded parameter indices.
+		 * @param statement
+		 * @param indices	parameter indices, consecutive groups of width for each occurrence
+		 * @param width		number of placeholders per occurrence
+		 * @throws SQLException
+		 */
+		void bind(PreparedStatement statement, int[] indices, int width) throws SQLException {
+			if (elements.length > width) {
+				throw new IllegalArgumentException("Collection of " + elements.length + " elements exceeds " + width + " placeholders, query needs to be expanded");
+			}
+			for (int i = 0; i < indices.length; i++) {
+				bindElement(statement, indices[i], i % width);
+			}
+		}
+
+		private void bindElement(PreparedStatement statement, int index, int element) throws SQLException {
+			final Object x = elements.length > 0 ? elements[Math.min(element, elements.length-1)] : null;
+			if (x == null) {
+				statement.setNull(index, sqlType);
+			} else {
+				statement.setObject(index, x, sqlType);
+			}
+		}
+	}
 }
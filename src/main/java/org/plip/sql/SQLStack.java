@@ -26,29 +26,59 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Deque;
-import java.util.concurrent.LinkedBlockingDeque;
+import java.util.Arrays;
 
 /**
  * A stack of SQLClosable items that are closed in correct order.
+ *
+ * JDBC resources are stored directly in a growable array, without wrappers.
+ * Stacks created through the constructor are thread-safe, since 1.1 single-threaded
+ * stacks are available through {@link #local()} and pooled per thread through {@link #acquire()}.
+ *
  * @since 1.0
  */
 public final class SQLStack implements SQLClosable {
 //	private static Logger _logger = LoggerFactory.getLogger(SQLStack.class);
 
-	private final Deque<SQLClosable> _deque;
+	private static final int INITIAL_CAPACITY = 8;
 
-	public SQLStack() {
-		_deque = new LinkedBlockingDeque<>();
-	}
+	/** Pooled stacks growing beyond this are trimmed on release. */
+	private static final int MAX_POOLED_CAPACITY = 64;
 
-	private SQLStack(Deque<SQLClosable> d) {
-		_deque = new LinkedBlockingDeque<>(d.size());
+	/** Maximum number of free stacks per thread. */
+	private static final int MAX_POOLED = 4;
 
-		// iterate from first to last in deque
-		for (SQLClosable c : d) {
-			_deque.addLast(c);
+	/** Free stacks of a thread. */
+	private static final class Pool {
+		final SQLStack[]	free = new SQLStack[MAX_POOLED];
+		int					count;
+	}
+
+	private static final ThreadLocal<Pool> _pool = new ThreadLocal<Pool>() {
+		@Override
+		protected Pool initialValue() {
+			return new Pool();
 		}
+	};
+
+	private AutoCloseable[]	_items;
+	private int				_size;
+
+	/** True if access is synchronized. */
+	private final boolean	_sync;
+
+	/** True if returned to the thread pool on close, and if currently in pool. */
+	private final boolean	_pooled;
+	private boolean			_free;
+
+	public SQLStack() {
+		this(true, false);
+	}
+
+	private SQLStack(boolean sync, boolean pooled) {
+		_items = new AutoCloseable[INITIAL_CAPACITY];
+		_sync = sync;
+		_pooled = pooled;
 	}
 
 
@@ -62,63 +92,158 @@ public final class SQLStack implements SQLClosable {
 		push(g);
 	}
 
+	/**
+	 * Creates a stack for use by a single thread at a time, without synchronization.
+	 * @return new stack
+	 * @since 1.1
+	 */
+	public static SQLStack local() {
+		return new SQLStack(false, false);
+	}
+
+	/**
+	 * Takes a single-threaded stack (see {@link #local()}) from a pool of the current thread, or creates one.
+	 * The stack is returned to the pool of the closing thread on {@link #close()} and must not be used after that.
+	 * @return empty stack
+	 * @since 1.1
+	 */
+	public static SQLStack acquire() {
+		final Pool pool = _pool.get();
+		if (pool.count > 0) {
+			final SQLStack s = pool.free[--pool.count];
+			pool.free[pool.count] = null;
+			s._free = false;
+			return s;
+		}
+		return new SQLStack(false, true);
+	}
+
+	private void release() {
+		if (_free) {
+			return;
+		}
+		if (_items.length > MAX_POOLED_CAPACITY) {
+			_items = new AutoCloseable[INITIAL_CAPACITY];
+		}
+		final Pool pool = _pool.get();
+		if (pool.count < MAX_POOLED) {
+			_free = true;
+			pool.free[pool.count++] = this;
+		}
+	}
+
+	private void add(AutoCloseable c) {
+		if (_sync) {
+			synchronized (this) {
+				addLast(c);
+			}
+		} else {
+			addLast(c);
+		}
+	}
+
+	private void addLast(AutoCloseable c) {
+		if (_size == _items.length) {
+			_items = Arrays.copyOf(_items, _size * 2);
+		}
+		_items[_size++] = c;
+	}
+
+	private AutoCloseable remove() {
+		if (_sync) {
+			synchronized (this) {
+				return removeLast();
+			}
+		}
+		return removeLast();
+	}
+
+	private AutoCloseable removeLast() {
+		if (_size == 0) {
+			return null;
+		}
+		final AutoCloseable c = _items[--_size];
+		_items[_size] = null;
+		return c;
+	}
+
 	public <T extends SQLClosable> T push(T g) {
-		_deque.addLast(g);
+		add(g);
 		return g;
 	}
 
 	public <T extends Connection> T push(final T db) {
-		push(new SQLClosable() {
-			@Override
-			public void close() throws SQLException {
-				db.close();
-			}
-		});
+		add(db);
 		return db;
 	}
 	public <T extends Statement> T push(final T stmt) {
-		push(new SQLClosable() {
-			@Override
-			public void close() throws SQLException {
-				stmt.close();
-			}
-		});
+		add(stmt);
 		return stmt;
 	}
 	public <T extends ResultSet> T push(final T rs) {
-		push(new SQLClosable() {
-			@Override
-			public void close() throws SQLException {
-				rs.close();
-			}
-		});
+		add(rs);
 		return rs;
 	}
 
 	public SQLClosable pop() {
-		return _deque.pollLast();
+		final AutoCloseable c = remove();
+		if (c == null || c instanceof SQLClosable) {
+			return (SQLClosable)c;
+		}
+		return new SQLClosable() {
+			@Override
+			public void close() throws SQLException {
+				closeJdbc(c);
+			}
+		};
 	}
 
 	/**
-	 * Transfers all elements of this stack into a new instance, making this one empty.
+	 * Transfers all elements of this stack into a new (thread-safe) instance, making this one empty.
 	 * @return this
 	 */
 	public SQLStack claim() {
-		SQLStack ret = new SQLStack(_deque);
-		_deque.clear();
+		final SQLStack ret = new SQLStack(true, false);
+		if (_sync) {
+			synchronized (this) {
+				transferTo(ret);
+			}
+		} else {
+			transferTo(ret);
+		}
 		return ret;
 	}
 
+	private void transferTo(SQLStack ret) {
+		ret._items = Arrays.copyOf(_items, Math.max(_size, INITIAL_CAPACITY));
+		ret._size = _size;
+		Arrays.fill(_items, 0, _size, null);
+		_size = 0;
+	}
+
+	/**
+	 * Closes a JDBC resource, these only throw SQLExceptions.
+	 */
+	private static void closeJdbc(AutoCloseable c) throws SQLException {
+		try {
+			c.close();
+		} catch (SQLException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new SQLException("caught exception during close", e);
+		}
+	}
+
 	@Override
 	public void close() throws SQLException {
 		SQLException err = null;
 
 		int suppressedCount = 0;
 
-		SQLClosable g;
-		while ((g = _deque.pollLast()) != null) {
+		AutoCloseable g;
+		while ((g = remove()) != null) {
 			try {
-				g.close();
+				closeJdbc(g);
 			} catch (SQLException e) {
 				if (err == null) {
 					err = e;
@@ -137,6 +262,10 @@ public final class SQLStack implements SQLClosable {
 			}
 		}
 
+		if (_pooled) {
+			release();
+		}
+
 		if (err != null) {
 			//_logger.warn("suppressed {} additional exceptions", suppressedCount);
 			throw err;
@@ -56,6 +56,7 @@ public class SQLTransaction implements SQLClosable {
 	/**
 	 * Commits any changes in this transaction.
 	 *
+	 * Results cached by {@link ResultCache} and written in this transaction are invalidated, as also by rollback.
 	 *
 	 * @throws java.sql.SQLException
 	 * @throws java.lang.IllegalStateException
@@ -66,10 +67,13 @@ public class SQLTransaction implements SQLClosable {
 		if (connection == null) {
 			throw new IllegalStateException("not in transaction");
 		}
+		final Connection c = connection;
 		try {
-			connection.commit();
+			c.commit();
 		} finally {
 			connection = null;
+			// also if commit failed, as it's unknown whether changes were committed
+			ResultCache.completed(c);
 		}
 	}
 
@@ -90,10 +94,12 @@ public class SQLTransaction implements SQLClosable {
 		if (connection == null) {
 			throw new IllegalStateException("not in transaction");
 		}
+		final Connection c = connection;
 		try {
-			connection.rollback();
+			c.rollback();
 		} finally {
 			connection = null;
+			ResultCache.completed(c);
 		}
 	}
 
@@ -108,10 +114,12 @@ public class SQLTransaction implements SQLClosable {
 	@Override
 	public void close() throws SQLException {
 		if (connection != null) {
+			final Connection c = connection;
 			try {
-				connection.rollback();
+				c.rollback();
 			} finally {
 				connection = null;
+				ResultCache.completed(c);
 			}
 		}
 	}
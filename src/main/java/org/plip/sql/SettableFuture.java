@@ -0,0 +1,224 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Future completed explicitly by its producer.
+ *
+ * Exceptions thrown by listeners and callbacks are logged, they don't reach the producer completing the future.
+ * @param <T> type of result
+ * @since 1.1
+ */
+class SettableFuture<T> implements SQLFuture<T> {
+	private static final Logger logger = Logger.getLogger(SettableFuture.class.getName());
+
+	private static final int PENDING = 0;
+	private static final int SUCCEEDED = 1;
+	private static final int FAILED = 2;
+	private static final int CANCELLED = 3;
+
+	private int			state = PENDING;
+	private T			value;
+	private Throwable	error;
+
+	/** Listeners to run on completion, null once completed. */
+	private List<Runnable>	listeners = new ArrayList<Runnable>(2);
+
+	/**
+	 * Completes with a result.
+	 * @return false if already completed
+	 */
+	boolean set(T value) {
+		synchronized (this) {
+			if (state != PENDING) {
+				return false;
+			}
+			this.value = value;
+			state = SUCCEEDED;
+			notifyAll();
+		}
+		done();
+		return true;
+	}
+
+	/**
+	 * Completes with a failure.
+	 * @return false if already completed
+	 */
+	boolean fail(Throwable error) {
+		synchronized (this) {
+			if (state != PENDING) {
+				return false;
+			}
+			this.error = error;
+			state = FAILED;
+			notifyAll();
+		}
+		done();
+		return true;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		synchronized (this) {
+			if (state != PENDING) {
+				return false;
+			}
+			state = CANCELLED;
+			notifyAll();
+		}
+		cancelled(mayInterruptIfRunning);
+		done();
+		return true;
+	}
+
+	/**
+	 * Runs listeners after completion, outside of lock.
+	 */
+	private void done() {
+		final List<Runnable> run;
+		synchronized (this) {
+			run = listeners;
+			listeners = null;
+		}
+		for (Runnable listener : run) {
+			run(listener);
+		}
+	}
+
+	/**
+	 * Runs a listener, logging instead of propagating its exceptions.
+	 */
+	private static void run(Runnable listener) {
+		try {
+			listener.run();
+		} catch (Throwable e) {
+			logger.log(Level.WARNING, "listener of future failed", e);
+		}
+	}
+
+	@Override
+	public void addListener(final Runnable listener, final Executor executor) {
+		final Runnable r = new Runnable() {
+			@Override
+			public void run() {
+				executor.execute(listener);
+			}
+		};
+		synchronized (this) {
+			if (listeners != null) {
+				listeners.add(r);
+				return;
+			}
+		}
+		run(r);
+	}
+
+	@Override
+	public void addCallback(final Callback<? super T> callback) {
+		final Runnable r = new Runnable() {
+			@Override
+			public void run() {
+				final int s;
+				final T result;
+				final Throwable failure;
+				synchronized (SettableFuture.this) {
+					s = state;
+					result = value;
+					failure = error;
+				}
+				if (s == SUCCEEDED) {
+					callback.onSuccess(result);
+				} else {
+					callback.onFailure(s == FAILED ? failure : new CancellationException());
+				}
+			}
+		};
+		synchronized (this) {
+			if (listeners != null) {
+				listeners.add(r);
+				return;
+			}
+		}
+		run(r);
+	}
+
+	/**
+	 * Called after successful cancellation, for producers to abort work.
+	 * @param mayInterruptIfRunning	as given to {@link #cancel(boolean)}
+	 */
+	protected void cancelled(boolean mayInterruptIfRunning) {
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return state == CANCELLED;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return state != PENDING;
+	}
+
+	@Override
+	public synchronized T get() throws InterruptedException, ExecutionException {
+		while (state == PENDING) {
+			wait();
+		}
+		return result();
+	}
+
+	@Override
+	public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (state == PENDING) {
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				throw new TimeoutException();
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return result();
+	}
+
+	private T result() throws ExecutionException {
+		switch (state) {
+		case SUCCEEDED:
+			return value;
+		case FAILED:
+			throw new ExecutionException(error);
+		default:
+			throw new CancellationException();
+		}
+	}
+}
@@ -0,0 +1,354 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.plip.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * JVM-wide log of {@link ParameterStatement} executions exceeding a latency threshold.
+ *
+ * Entries are logged at {@link Level#WARNING} to the {@value #LOGGER_NAME} logger, with an {@link Entry}
+ * as the single parameter of the log record for handlers wanting structured output. Entries hold the
+ * query with named parameters, the values bound at execution, elapsed time and fetch settings.
+ *
+ * Bound values are only captured while enabled, by reference into storage kept with the prepared statement, and
+ * copied into an entry only when the threshold is exceeded. Statements of a {@link StatementCache} reuse that storage,
+ * so their executions below the threshold do not allocate. Volume is capped by {@link #setMaxPerSecond(int)}, entries above the cap are dropped
+ * and counted in the next logged entry. Sensitive values may be masked through a {@link Redactor}.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  SlowQueryLog.setRedactor(SlowQueryLog.redactNames("password", "ssn"));
+ *  SlowQueryLog.setThreshold(500, TimeUnit.MILLISECONDS);
+ * </code></pre>
+ *
+ * @since 1.1
+ */
+public final class SlowQueryLog {
+	/** Name of logger entries are logged to. */
+	public static final String LOGGER_NAME = "org.plip.sql.SlowQueryLog";
+
+	/** Default maximum number of entries logged per second. */
+	public static final int DEFAULT_MAX_PER_SECOND = 10;
+
+	/** Replacement of redacted values. */
+	public static final String REDACTED = "***";
+
+	/** Longest string value included in formatted entries. */
+	private static final int MAX_FORMATTED_LENGTH = 256;
+
+	private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static final Logger logger = Logger.getLogger(LOGGER_NAME);
+
+	/** Threshold in nanoseconds, Long.MAX_VALUE if disabled. */
+	private static volatile long		thresholdNanos = Long.MAX_VALUE;
+	private static volatile int			maxPerSecond = DEFAULT_MAX_PER_SECOND;
+	private static volatile Redactor	redactor;
+
+	private static final AtomicLong		windowStart = new AtomicLong(System.nanoTime());
+	private static final AtomicInteger	windowCount = new AtomicInteger();
+	private static final AtomicLong		suppressed = new AtomicLong();
+
+	/**
+	 * Masks or transforms bound values before they are logged.
+	 */
+	public interface Redactor {
+		/**
+		 * Returns the value to log in place of a bound value.
+		 * @param query	query with named parameters
+		 * @param name	parameter name
+		 * @param value	bound value, boxed for primitives, or null
+		 * @return value to log
+		 */
+		public Object redact(String query, String name, Object value);
+	}
+
+	private SlowQueryLog() {
+	}
+
+	/**
+	 * Returns true if slow executions are logged.
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled() {
+		return thresholdNanos != Long.MAX_VALUE;
+	}
+
+	/**
+	 * Enables logging of executions taking at least the given time.
+	 * @param threshold	latency threshold
+	 * @param unit		unit of threshold
+	 */
+	public static void setThreshold(long threshold, TimeUnit unit) {
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold must not be negative");
+		}
+		thresholdNanos = Math.min(unit.toNanos(threshold), Long.MAX_VALUE - 1);
+	}
+
+	/**
+	 * Disables logging, statements stop capturing bound values.
+	 */
+	public static void disable() {
+		thresholdNanos = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Sets maximum number of entries logged per second, default is {@value #DEFAULT_MAX_PER_SECOND}.
+	 * @param max	maximum entries per second
+	 */
+	public static void setMaxPerSecond(int max) {
+		if (max <= 0) {
+			throw new IllegalArgumentException("max must be positive");
+		}
+		maxPerSecond = max;
+	}
+
+	/**
+	 * Sets redactor applied to all logged values.
+	 * @param redactor	redactor, or null to log values as bound
+	 */
+	public static void setRedactor(Redactor redactor) {
+		SlowQueryLog.redactor = redactor;
+	}
+
+	/**
+	 * Returns a redactor replacing values of the named parameters with {@value #REDACTED}, ignoring case.
+	 * @param names	parameter names to redact
+	 * @return redactor
+	 */
+	public static Redactor redactNames(String... names) {
+		final Set<String> set = new HashSet<String>();
+		for (String name : names) {
+			set.add(name.toLowerCase());
+		}
+		return new Redactor() {
+			@Override
+			public Object redact(String query, String name, Object value) {
+				return set.contains(name.toLowerCase()) ? REDACTED : value;
+			}
+		};
+	}
+
+	/**
+	 * Returns number of entries dropped due to the rate cap.
+	 * @return number of dropped entries not yet reported by a logged entry
+	 */
+	public static long getSuppressed() {
+		return suppressed.get();
+	}
+
+	static long threshold() {
+		return thresholdNanos;
+	}
+
+	/**
+	 * Returns true if an entry may be logged within the rate cap, counting it.
+	 */
+	private static boolean sample() {
+		final long now = System.nanoTime();
+		final long start = windowStart.get();
+		if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+			windowCount.set(0);
+		}
+		if (windowCount.incrementAndGet() > maxPerSecond) {
+			suppressed.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Logs an execution that exceeded the threshold.
+	 * @param bound		values bound at execution, or null if not captured
+	 * @param batchSize	number of batch entries, or -1 if not a batch
+	 * @param error		error thrown by execution, or null
+	 */
+	static void log(ParsedQuery query, BoundValues bound, PreparedStatement statement, long elapsedNanos, int batchSize, Throwable error) {
+		if (!logger.isLoggable(Level.WARNING) || !sample()) {
+			return;
+		}
+
+		final String sql = query.getQuery();
+		final Redactor r = redactor;
+		final Map<String, Object> parameters = new LinkedHashMap<String, Object>();
+		if (bound != null) {
+			final int count = query.getSlotCount();
+			for (int i = 0; i < count; i++) {
+				if (bound.isBound(i)) {
+					final String name = query.slot(i).getName();
+					final Object value = bound.get(i);
+					parameters.put(name, r != null ? r.redact(sql, name, value) : value);
+				}
+			}
+		}
+
+		int fetchSize = 0;
+		int fetchDirection = ResultSet.FETCH_FORWARD;
+		try {
+			fetchSize = statement.getFetchSize();
+			fetchDirection = statement.getFetchDirection();
+		} catch (SQLException e) {
+			// closed or unsupported, keep defaults
+		}
+
+		final Entry entry = new Entry(sql, parameters, elapsedNanos, fetchSize, fetchDirection, batchSize, error, suppressed.getAndSet(0));
+		final LogRecord record = new LogRecord(Level.WARNING, entry.toString());
+		record.setLoggerName(LOGGER_NAME);
+		record.setParameters(new Object[] { entry });
+		record.setThrown(error);
+		logger.log(record);
+	}
+
+	/**
+	 * A logged slow execution.
+	 */
+	public static final class Entry {
+		private final String				query;
+		private final Map<String, Object>	parameters;
+		private final long					elapsedNanos;
+		private final int					fetchSize;
+		private final int					fetchDirection;
+		private final int					batchSize;
+		private final Throwable				error;
+		private final long					suppressed;
+
+		Entry(String query, Map<String, Object> parameters, long elapsedNanos, int fetchSize, int fetchDirection, int batchSize, Throwable error, long suppressed) {
+			this.query = query;
+			this.parameters = Collections.unmodifiableMap(parameters);
+			this.elapsedNanos = elapsedNanos;
+			this.fetchSize = fetchSize;
+			this.fetchDirection = fetchDirection;
+			this.batchSize = batchSize;
+			this.error = error;
+			this.suppressed = suppressed;
+		}
+
+		/**
+		 * @return query with named parameters
+		 */
+		public String getQuery() {
+			return query;
+		}
+
+		/**
+		 * @return redacted values by parameter name in query order, empty if values were not captured
+		 */
+		public Map<String, Object> getParameters() {
+			return parameters;
+		}
+
+		/**
+		 * @return execution time in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return fetch size of statement, see {@link PreparedStatement#getFetchSize()}
+		 */
+		public int getFetchSize() {
+			return fetchSize;
+		}
+
+		/**
+		 * @return fetch direction of statement, see {@link PreparedStatement#getFetchDirection()}
+		 */
+		public int getFetchDirection() {
+			return fetchDirection;
+		}
+
+		/**
+		 * @return number of batch entries, or -1 if not a batch execution (parameters are then those of the last entry)
+		 */
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		/**
+		 * @return error thrown by execution, or null
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		/**
+		 * @return number of entries dropped due to the rate cap since the previous logged entry
+		 */
+		public long getSuppressed() {
+			return suppressed;
+		}
+
+		private static String format(Object value) {
+			if (value instanceof byte[]) {
+				return "byte[" + ((byte[])value).length + "]";
+			} else if (value instanceof Object[]) {
+				return Arrays.toString((Object[])value);
+			}
+			final String s = String.valueOf(value);
+			return s.length() > MAX_FORMATTED_LENGTH ? s.substring(0, MAX_FORMATTED_LENGTH) + "..." : s;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder sb = new StringBuilder("slow query ");
+			sb.append(TimeUnit.NANOSECONDS.toMicros(elapsedNanos) / 1000.0).append("ms");
+			sb.append(" fetchSize=").append(fetchSize);
+			if (fetchDirection != ResultSet.FETCH_FORWARD) {
+				sb.append(" fetchDirection=").append(fetchDirection);
+			}
+			if (batchSize >= 0) {
+				sb.append(" batchSize=").append(batchSize);
+			}
+			if (error != null) {
+				sb.append(" error=").append(error);
+			}
+			if (suppressed > 0) {
+				sb.append(" suppressed=").append(suppressed);
+			}
+			sb.append(": ").append(query).append(" {");
+			String sep = "";
+			for (Map.Entry<String, Object> p : parameters.entrySet()) {
+				sb.append(sep).append(p.getKey()).append('=').append(format(p.getValue()));
+				sep = ", ";
+			}
+			return sb.append('}').toString();
+		}
+	}
+}
@@ -0,0 +1,323 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection LRU cache of idle prepared statements, keyed by parsed SQL.
+ *
+ * {@link ParameterStatement}s created from a cache take a matching idle statement if available,
+ * and return it to the cache on {@link ParameterStatement#close()} instead of closing it. Returned statements have
+ * parameters and batch cleared, and fetch size, fetch direction, max rows and query timeout reset to the driver
+ * defaults. Statements evicted from the cache are closed.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  try (SQLStack stack = new SQLStack()) {
+ *      Connection connection = stack.push(dataSource.getConnection());
+ *      StatementCache cache = stack.push(new StatementCache(connection));
+ *      ...
+ *      try (ParameterStatement stmt = new ParameterStatement(cache, query)) {
+ *          ...
+ *      }
+ *  }
+ * </code></pre>
+ *
+ * Closing the cache closes all idle statements, but not the connection.
+ *
+ * @since 1.1
+ */
+public final class StatementCache implements SQLClosable {
+	/** Default maximum number of idle statements. */
+	public static final int DEFAULT_CAPACITY = 64;
+
+	private final Connection	connection;
+	private final int			capacity;
+
+	/** Idle statements in LRU order, guarded by this. */
+	private final LinkedHashMap<String, Entry> idle;
+	private boolean				closed;
+
+	/** Driver defaults of statement settings, captured from the first prepared statement. */
+	private volatile Settings	defaults;
+
+	private final AtomicLong	hits = new AtomicLong();
+	private final AtomicLong	misses = new AtomicLong();
+	private final AtomicLong	evictions = new AtomicLong();
+
+	/**
+	 * Creates a statement cache with {@link #DEFAULT_CAPACITY}.
+	 * @param connection	the database connection
+	 */
+	public StatementCache(Connection connection) {
+		this(connection, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a statement cache.
+	 * @param connection	the database connection
+	 * @param capacity		maximum number of idle statements
+	 */
+	public StatementCache(Connection connection, int capacity) {
+		if (connection == null) {
+			throw new NullPointerException("connection mustn't be null");
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.connection = connection;
+		this.capacity = capacity;
+		this.idle = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns the connection of this cache.
+	 * @return connection
+	 */
+	public Connection getConnection() {
+		return connection;
+	}
+
+	/**
+	 * A prepared statement, with the values captured by its borrowers for {@link SlowQueryLog} and {@link ResultCache}.
+	 */
+	static final class Entry {
+		final PreparedStatement	statement;
+
+		/** Bound values, allocated by the first borrower capturing them and cleared on release, or null. */
+		BoundValues				values;
+
+		Entry(PreparedStatement statement) {
+			this.statement = statement;
+		}
+	}
+
+	/**
+	 * Takes an idle statement from cache or prepares a new one.
+	 * @param sql	parsed query
+	 * @return entry of prepared statement, to be handed back through {@link #release(java.lang.String, Entry)}
+	 * @throws SQLException
+	 */
+	Entry acquire(String sql) throws SQLException {
+		final Entry entry;
+		synchronized (this) {
+			if (closed) {
+				throw new IllegalStateException("statement cache is closed");
+			}
+			entry = idle.remove(sql);
+		}
+		if (entry != null && !entry.statement.isClosed()) {
+			hits.incrementAndGet();
+			return entry;
+		}
+
+		misses.incrementAndGet();
+		final PreparedStatement prepared = connection.prepareStatement(sql);
+		if (defaults == null) {
+			try {
+				defaults = new Settings(prepared);
+			} catch (SQLException e) {
+				prepared.close();
+				throw e;
+			}
+		}
+		return new Entry(prepared);
+	}
+
+	/**
+	 * Returns a statement to cache, closing it if it can't be cached.
+	 * @param sql	parsed query
+	 * @param entry	statement from {@link #acquire(java.lang.String)}
+	 * @throws SQLException
+	 */
+	void release(String sql, Entry entry) throws SQLException {
+		PreparedStatement stmt = entry.statement;
+		if (entry.values != null) {
+			entry.values.clear();
+		}
+		try {
+			final ResultSet rs = stmt.getResultSet();
+			if (rs != null) {
+				rs.close();
+			}
+			stmt.clearParameters();
+			stmt.clearBatch();
+			defaults.reset(stmt);
+		} catch (SQLException e) {
+			stmt.close();
+			throw e;
+		}
+
+		List<PreparedStatement> evicted = null;
+		synchronized (this) {
+			if (!closed && !idle.containsKey(sql)) {
+				idle.put(sql, entry);
+				stmt = null;
+
+				if (idle.size() > capacity) {
+					evicted = new ArrayList<PreparedStatement>();
+					final Iterator<Entry> it = idle.values().iterator();
+					while (idle.size() > capacity) {
+						evicted.add(it.next().statement);
+						it.remove();
+					}
+					evictions.addAndGet(evicted.size());
+				}
+			}
+		}
+
+		if (stmt != null) {
+			// cache closed or an equal statement is already idle
+			stmt.close();
+		}
+		if (evicted != null) {
+			closeAll(evicted);
+		}
+	}
+
+	/**
+	 * Returns number of statements taken from cache.
+	 * @return number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns number of statements that had to be prepared.
+	 * @return number of misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns number of statements closed due to capacity.
+	 * @return number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns ratio of hits to total number of acquired statements.
+	 * @return hit rate in range [0,1]
+	 */
+	public double getHitRate() {
+		final long h = hits.get();
+		final long total = h + misses.get();
+		return total > 0 ? (double)h / total : 0.0;
+	}
+
+	/**
+	 * Returns number of currently idle statements.
+	 * @return number of idle statements
+	 */
+	public synchronized int size() {
+		return idle.size();
+	}
+
+	/**
+	 * Closes all idle statements, statements in use are closed when released.
+	 * Does not close the connection.
+	 * @throws SQLException
+	 */
+	@Override
+	public void close() throws SQLException {
+		final List<PreparedStatement> stmts;
+		synchronized (this) {
+			closed = true;
+			stmts = new ArrayList<PreparedStatement>(idle.size());
+			for (Entry entry : idle.values()) {
+				stmts.add(entry.statement);
+			}
+			idle.clear();
+		}
+		closeAll(stmts);
+	}
+
+	/**
+	 * Statement settings that may be changed by a borrower.
+	 */
+	private static final class Settings {
+		final int	fetchSize;
+		final int	fetchDirection;
+		final int	maxRows;
+		final int	queryTimeout;
+
+		Settings(PreparedStatement stmt) throws SQLException {
+			fetchSize = stmt.getFetchSize();
+			fetchDirection = stmt.getFetchDirection();
+			maxRows = stmt.getMaxRows();
+			queryTimeout = stmt.getQueryTimeout();
+		}
+
+		/**
+		 * Resets changed settings of a statement to these.
+		 */
+		void reset(PreparedStatement stmt) throws SQLException {
+			// before fetch size, which some drivers limit to max rows
+			if (stmt.getMaxRows() != maxRows) {
+				stmt.setMaxRows(maxRows);
+			}
+			if (stmt.getFetchSize() != fetchSize) {
+				stmt.setFetchSize(fetchSize);
+			}
+			if (stmt.getFetchDirection() != fetchDirection) {
+				stmt.setFetchDirection(fetchDirection);
+			}
+			if (stmt.getQueryTimeout() != queryTimeout) {
+				stmt.setQueryTimeout(queryTimeout);
+			}
+		}
+	}
+
+	private static void closeAll(List<PreparedStatement> stmts) throws SQLException {
+		SQLException err = null;
+		for (PreparedStatement stmt : stmts) {
+			try {
+				stmt.close();
+			} catch (SQLException e) {
+				if (err == null) {
+					err = e;
+				} else {
+					err.setNextException(e);
+					err.addSuppressed(e);
+				}
+			}
+		}
+		if (err != null) {
+			throw err;
+		}
+	}
+}
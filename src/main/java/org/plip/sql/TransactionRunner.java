@@ -0,0 +1,283 @@
+/*
+ * This file is part of plipsql Copyright (c) 2010-2015 Jakob Kemi <jakob.kemi@gmail.com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs units of work in {@link SQLTransaction}s, retrying on transient contention failures
+ * such as serialization failures and deadlocks.
+ *
+ * Retries are delayed using exponential backoff with full jitter, and limited by a maximum number of
+ * attempts and a maximum total time per execution.
+ *
+ * Example usage:
+ *
+ * <pre><code>
+ *  TransactionRunner runner = new TransactionRunner().setMaxAttempts(5);
+ *  long id = runner.execute(connection, new TransactionRunner.Work&lt;Long&gt;() {
+ *      public Long run(Connection connection) throws SQLException {
+ *          ...
+ *      }
+ *  });
+ * </code></pre>
+ *
+ * Instances are thread-safe and may be shared, configure before use.
+ *
+ * @since 1.1
+ */
+public class TransactionRunner {
+	/** SQLStates retried by default, serialization failure and deadlock detected. */
+	public static final String[] DEFAULT_RETRYABLE_STATES = { "40001", "40P01" };
+
+	/**
+	 * Unit of work, may be run multiple times.
+	 * @param <T> type of result
+	 */
+	public interface Work<T> {
+		/**
+		 * Performs work within a transaction, which is committed after this returns.
+		 * @param connection	the database connection
+		 * @return result
+		 * @throws SQLException
+		 */
+		T run(Connection connection) throws SQLException;
+	}
+
+	private int			maxAttempts = 5;
+	private long		initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(10);
+	private long		maxBackoffNanos = TimeUnit.SECONDS.toNanos(1);
+	private long		maxElapsedNanos = TimeUnit.SECONDS.toNanos(10);
+	private Set<String>	retryableStates = new HashSet<String>(Arrays.asList(DEFAULT_RETRYABLE_STATES));
+
+	private final AtomicLong	executions = new AtomicLong();
+	private final AtomicLong	attempts = new AtomicLong();
+	private final AtomicLong	failures = new AtomicLong();
+	private final AtomicLong	wastedNanos = new AtomicLong();
+
+	/**
+	 * Sets maximum number of attempts per execution, default 5.
+	 * @param maxAttempts	maximum attempts, 1 disables retries
+	 * @return this
+	 */
+	public TransactionRunner setMaxAttempts(int maxAttempts) {
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("maxAttempts must be positive");
+		}
+		this.maxAttempts = maxAttempts;
+		return this;
+	}
+
+	/**
+	 * Sets backoff range, default 10ms to 1s. Backoff doubles per retry up to max.
+	 * @param initial	backoff of first retry
+	 * @param max		maximum backoff
+	 * @param unit		unit of backoff
+	 * @return this
+	 */
+	public TransactionRunner setBackoff(long initial, long max, TimeUnit unit) {
+		if (initial < 0 || max < initial) {
+			throw new IllegalArgumentException("invalid backoff range");
+		}
+		this.initialBackoffNanos = unit.toNanos(initial);
+		this.maxBackoffNanos = unit.toNanos(max);
+		return this;
+	}
+
+	/**
+	 * Sets maximum total time per execution, no retries are started after this, default 10s.
+	 * @param max	maximum time
+	 * @param unit	unit of time
+	 * @return this
+	 */
+	public TransactionRunner setMaxElapsed(long max, TimeUnit unit) {
+		this.maxElapsedNanos = unit.toNanos(max);
+		return this;
+	}
+
+	/**
+	 * Sets SQLStates considered retryable, default {@link #DEFAULT_RETRYABLE_STATES}.
+	 * {@link SQLTransactionRollbackException}s are always retryable.
+	 * @param states	SQLStates
+	 * @return this
+	 */
+	public TransactionRunner setRetryableStates(String... states) {
+		this.retryableStates = new HashSet<String>(Arrays.asList(states));
+		return this;
+	}
+
+	/**
+	 * Runs work in a transaction, retrying on retryable failures.
+	 *
+	 * The transaction is rolled back before each retry. If connection is in auto-commit mode, auto-commit
+	 * is disabled while executing so that a failed attempt is rolled back as a whole, and enabled again when done.
+	 *
+	 * @param <T>			type of result
+	 * @param connection	the database connection
+	 * @param work			work to perform
+	 * @return result of work
+	 * @throws SQLException	last failure, if not retryable or out of attempts or time
+	 */
+	public <T> T execute(Connection connection, Work<T> work) throws SQLException {
+		executions.incrementAndGet();
+		if (!connection.getAutoCommit()) {
+			return run(connection, work);
+		}
+
+		// retrying statements committed one by one would repeat those that succeeded
+		connection.setAutoCommit(false);
+		final T result;
+		try {
+			result = run(connection, work);
+		} catch (SQLException | RuntimeException | Error e) {
+			try {
+				connection.setAutoCommit(true);
+			} catch (SQLException s) {
+				e.addSuppressed(s);
+			}
+			throw e;
+		}
+		connection.setAutoCommit(true);
+		return result;
+	}
+
+	private <T> T run(Connection connection, Work<T> work) throws SQLException {
+		final long start = System.nanoTime();
+		long attemptStart = start;
+
+		for (int attempt = 1; ; attempt++) {
+			attempts.incrementAndGet();
+			try (SQLTransaction trans = new SQLTransaction(connection)) {
+				final T result = work.run(connection);
+				trans.commit();
+				return result;
+			} catch (SQLException e) {
+				final long now = System.nanoTime();
+				wastedNanos.addAndGet(now - attemptStart);
+
+				if (!isRetryable(e) || attempt >= maxAttempts) {
+					failures.incrementAndGet();
+					throw e;
+				}
+
+				final long backoff = backoffNanos(attempt);
+				if (now + backoff - start > maxElapsedNanos) {
+					failures.incrementAndGet();
+					throw e;
+				}
+				try {
+					TimeUnit.NANOSECONDS.sleep(backoff);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					failures.incrementAndGet();
+					e.addSuppressed(ie);
+					throw e;
+				}
+				attemptStart = System.nanoTime();
+				wastedNanos.addAndGet(attemptStart - now);
+			} catch (RuntimeException | Error e) {
+				// never retried
+				wastedNanos.addAndGet(System.nanoTime() - attemptStart);
+				failures.incrementAndGet();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if failure should be retried, checks SQLState of exception, its chained exceptions
+	 * (see {@link SQLException#getNextException()}, used by some drivers for batch failures) and their causes.
+	 * @param e	failure
+	 * @return true if retryable
+	 */
+	protected boolean isRetryable(SQLException e) {
+		for (SQLException next = e; next != null; next = next.getNextException()) {
+			for (Throwable t = next; t != null; t = t.getCause()) {
+				if (t instanceof SQLTransactionRollbackException) {
+					return true;
+				}
+				if (t instanceof SQLException) {
+					final String state = ((SQLException)t).getSQLState();
+					if (state != null && retryableStates.contains(state)) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns jittered backoff before given retry.
+	 */
+	long backoffNanos(int attempt) {
+		final int shift = Math.min(attempt - 1, 62);
+		final long ceiling = initialBackoffNanos > (maxBackoffNanos >> shift) ? maxBackoffNanos : initialBackoffNanos << shift;
+		return ceiling > 0 ? ThreadLocalRandom.current().nextLong(ceiling + 1) : 0;
+	}
+
+	/**
+	 * @return number of executions
+	 */
+	public long getExecutions() {
+		return executions.get();
+	}
+
+	/**
+	 * @return number of attempts of all executions
+	 */
+	public long getAttempts() {
+		return attempts.get();
+	}
+
+	/**
+	 * @return number of retries, that is attempts beyond the first of each execution
+	 */
+	public long getRetries() {
+		return attempts.get() - executions.get();
+	}
+
+	/**
+	 * @return number of executions that failed
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Returns time spent in failed attempts and backoff.
+	 * @param unit	unit of time
+	 * @return wasted time
+	 */
+	public long getWastedTime(TimeUnit unit) {
+		return unit.convert(wastedNanos.get(), TimeUnit.NANOSECONDS);
+	}
+}
@@ -0,0 +1,236 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class AsyncExecutorTest {
+	private Connection connection;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:async;DB_CLOSE_DELAY=-1");
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id INT)");
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("DROP TABLE foo");
+		}
+		connection.close();
+	}
+
+	/** Work waiting for a latch, tracking concurrent executions. */
+	private static final class Blocking extends AsyncExecutor.Work<Integer> {
+		final CountDownLatch	release;
+		final AtomicInteger		concurrent;
+		final AtomicInteger		maxConcurrent;
+		final int				result;
+
+		Blocking(CountDownLatch release, AtomicInteger concurrent, AtomicInteger maxConcurrent, int result) {
+			super(null);
+			this.release = release;
+			this.concurrent = concurrent;
+			this.maxConcurrent = maxConcurrent;
+			this.result = result;
+		}
+
+		@Override
+		Integer run() throws SQLException {
+			final int n = concurrent.incrementAndGet();
+			synchronized (maxConcurrent) {
+				maxConcurrent.set(Math.max(maxConcurrent.get(), n));
+			}
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new SQLException("interrupted", e);
+			} finally {
+				concurrent.decrementAndGet();
+			}
+			return result;
+		}
+	}
+
+	/** Closable counting closes. */
+	private static final class Counter implements SQLClosable {
+		final AtomicInteger closes = new AtomicInteger();
+
+		@Override
+		public void close() {
+			closes.incrementAndGet();
+		}
+	}
+
+	private static SQLStack stack(SQLClosable closable) {
+		final SQLStack stack = new SQLStack();
+		stack.push(closable);
+		return stack;
+	}
+
+	@Test(timeout = 10000)
+	public void concurrency() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger concurrent = new AtomicInteger();
+		final AtomicInteger maxConcurrent = new AtomicInteger();
+		final List<SQLFuture<Integer>> futures = new ArrayList<>();
+		try (AsyncExecutor async = new AsyncExecutor(2)) {
+			for (int i = 0; i < 5; i++) {
+				futures.add(async.submit(new Blocking(release, concurrent, maxConcurrent, i), null));
+			}
+			Assert.assertEquals(2, async.getRunning());
+			Assert.assertEquals(3, async.getQueued());
+			// wait for both workers to start before releasing them
+			while (concurrent.get() < 2) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			for (int i = 0; i < 5; i++) {
+				Assert.assertEquals(i, (int)futures.get(i).get());
+			}
+		}
+		Assert.assertEquals(2, maxConcurrent.get());
+	}
+
+	@Test(timeout = 10000)
+	public void rejected() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger concurrent = new AtomicInteger();
+		final Counter counter = new Counter();
+		final List<SQLFuture<Integer>> rejected = new ArrayList<>();
+		try (AsyncExecutor async = new AsyncExecutor(null, 1, 1)) {
+			final SQLFuture<Integer> first = async.submit(new Blocking(release, concurrent, new AtomicInteger(), 1), null);
+			final SQLFuture<Integer> second = async.submit(new Blocking(release, concurrent, new AtomicInteger(), 2), null);
+			// queue full
+			rejected.add(async.submit(new Blocking(release, concurrent, new AtomicInteger(), 3), stack(counter)));
+			release.countDown();
+			Assert.assertEquals(1, (int)first.get());
+			Assert.assertEquals(2, (int)second.get());
+		}
+		final AsyncExecutor closed = new AsyncExecutor(1);
+		closed.close();
+		rejected.add(closed.submit(new Blocking(release, concurrent, new AtomicInteger(), 4), stack(counter)));
+		Assert.assertEquals(2, counter.closes.get());
+		for (SQLFuture<Integer> f : rejected) {
+			Assert.assertTrue(f.isDone());
+			try {
+				f.get();
+				Assert.fail("rejected");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void executorRejects() throws Exception {
+		// executor accepts the first task, then rejects all pending ones handed over when it finishes
+		final List<Runnable> accepted = new ArrayList<>();
+		final Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				if (!accepted.isEmpty()) {
+					throw new RejectedExecutionException("rejected");
+				}
+				accepted.add(command);
+			}
+		};
+		final int n = 100000;
+		final CountDownLatch release = new CountDownLatch(0);
+		final AtomicInteger concurrent = new AtomicInteger();
+		final Counter counter = new Counter();
+		final AsyncExecutor async = new AsyncExecutor(executor, 1, n);
+		final SQLFuture<Integer> first = async.submit(new Blocking(release, concurrent, new AtomicInteger(), -1), null);
+		final List<SQLFuture<Integer>> pending = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			pending.add(async.submit(new Blocking(release, concurrent, new AtomicInteger(), i), stack(counter)));
+		}
+		Assert.assertEquals(n, async.getQueued());
+
+		// handing over the slot doesn't recurse per rejected task
+		accepted.get(0).run();
+		Assert.assertEquals(-1, (int)first.get());
+		Assert.assertEquals(0, async.getRunning());
+		Assert.assertEquals(0, async.getQueued());
+		Assert.assertEquals(n, counter.closes.get());
+		for (SQLFuture<Integer> f : pending) {
+			try {
+				f.get();
+				Assert.fail("rejected");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+		}
+		async.close();
+	}
+
+	@Test(timeout = 10000)
+	public void cancelPending() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger concurrent = new AtomicInteger();
+		final Counter counter = new Counter();
+		try (AsyncExecutor async = new AsyncExecutor(1)) {
+			final SQLFuture<Integer> first = async.submit(new Blocking(release, concurrent, new AtomicInteger(), 1), null);
+			final SQLFuture<Integer> second = async.submit(new Blocking(release, concurrent, new AtomicInteger(), 2), stack(counter));
+			Assert.assertTrue(second.cancel(false));
+			// stack of work not yet started is closed immediately
+			Assert.assertEquals(1, counter.closes.get());
+			release.countDown();
+			Assert.assertEquals(1, (int)first.get());
+		}
+		Assert.assertEquals(1, counter.closes.get());
+	}
+
+	@Test(timeout = 10000)
+	public void statements() throws Exception {
+		try (AsyncExecutor async = new AsyncExecutor(2)) {
+			final Counter counter = new Counter();
+			final SQLStack stack = stack(counter);
+			final ParameterStatement insert = stack.push(new ParameterStatement(connection, "INSERT INTO foo VALUES (:id)"));
+			for (int i = 0; i < 3; i++) {
+				insert.setInt("id", i);
+				insert.addBatch();
+			}
+			Assert.assertArrayEquals(new int[] { 1, 1, 1 }, insert.executeBatchAsync(async, stack).get());
+			// stack closed before completion
+			Assert.assertEquals(1, counter.closes.get());
+
+			final SQLStack queryStack = new SQLStack();
+			final ParameterStatement query = queryStack.push(new ParameterStatement(connection, "SELECT id FROM foo WHERE id >= :min ORDER BY id"));
+			query.setInt("min", 1);
+			final SQLFuture<List<Integer>> rows = query.executeQueryAsync(async, queryStack, new RowMapper<Integer>() {
+				@Override
+				public Integer map(java.sql.ResultSet rs, int[] columns) throws SQLException {
+					return rs.getInt(columns[0]);
+				}
+			}, "id");
+			Assert.assertEquals("[1, 2]", rows.get(10, TimeUnit.SECONDS).toString());
+
+			final SQLStack failStack = new SQLStack();
+			final ParameterStatement update = failStack.push(new ParameterStatement(connection, "INSERT INTO foo VALUES (1 / :zero)"));
+			update.setInt("zero", 0);
+			try {
+				update.executeUpdateAsync(async, failStack).get();
+				Assert.fail("unknown column");
+			} catch (ExecutionException e) {
+				Assert.assertTrue(e.getCause() instanceof SQLException);
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class BatchWriterTest {
+	private static final String INSERT = "INSERT INTO foo (id, name) VALUES (:id, :name)";
+
+	private Connection connection;
+	private Connection other;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1");
+		other = DriverManager.getConnection("jdbc:h2:mem:batch");
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id INT PRIMARY KEY, name VARCHAR(10))");
+		}
+		connection.setAutoCommit(false);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connection.setAutoCommit(true);
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("DROP TABLE foo");
+		}
+		other.close();
+		connection.close();
+	}
+
+	private static List<Map<String, SQLParameter>> rows(int from, int to) {
+		final List<Map<String, SQLParameter>> rows = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			rows.add(row(i));
+		}
+		return rows;
+	}
+
+	private static Map<String, SQLParameter> row(int id) {
+		final Map<String, SQLParameter> row = new HashMap<>();
+		row.put("id", new SQLParameter.OfInt(id));
+		row.put("name", new SQLParameter("n" + id));
+		return row;
+	}
+
+	/**
+	 * Returns number of committed rows.
+	 */
+	private int committed() throws SQLException {
+		try (SQLStack stack = new SQLStack()) {
+			final ResultSet rs = stack.push(stack.push(other.createStatement()).executeQuery("SELECT COUNT(*) FROM foo"));
+			Assert.assertTrue(rs.next());
+			return rs.getInt(1);
+		}
+	}
+
+	@Test
+	public void commits() throws Exception {
+		for (int valuesRows : new int[] { 1, 3 }) {
+			try (BatchWriter writer = new BatchWriter(connection, INSERT)) {
+				writer.setBatchRows(10).setCommitBatches(2).setValuesRows(valuesRows);
+				final BatchWriter.Result result = writer.writeMaps(rows(valuesRows * 100, valuesRows * 100 + 25).iterator());
+				Assert.assertEquals(25, result.getRows());
+				Assert.assertEquals(25, result.getUpdateCount());
+				Assert.assertEquals(2, result.getCommits());
+			}
+		}
+		Assert.assertEquals(50, committed());
+	}
+
+	@Test
+	public void rollback() throws Exception {
+		final List<Map<String, SQLParameter>> rows = rows(0, 30);
+		rows.add(row(30));
+		rows.add(row(5));
+		try (BatchWriter writer = new BatchWriter(connection, INSERT)) {
+			writer.setBatchRows(10).setCommitBatches(2);
+			writer.writeMaps(rows.iterator());
+			Assert.fail("duplicate key");
+		} catch (SQLException e) {
+			// expected
+		}
+		// third batch was written but not committed
+		Assert.assertEquals(20, committed());
+		connection.commit();
+		Assert.assertEquals(20, committed());
+	}
+
+	@Test
+	public void unbound() throws Exception {
+		for (int valuesRows : new int[] { 1, 3 }) {
+			final List<Map<String, SQLParameter>> rows = rows(0, 2);
+			rows.get(1).remove("name");
+			try (BatchWriter writer = new BatchWriter(connection, INSERT)) {
+				writer.setCommitBatches(1).setValuesRows(valuesRows);
+				writer.writeMaps(rows.iterator());
+				Assert.fail("second row leaves name unbound");
+			} catch (IllegalArgumentException e) {
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains("name"));
+			}
+			Assert.assertEquals(0, committed());
+		}
+	}
+}
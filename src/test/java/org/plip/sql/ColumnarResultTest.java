@@ -0,0 +1,129 @@
+package org.plip.sql;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Types;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ColumnarResultTest {
+	/** More rows than initial capacity, every third amount and every fourth name NULL. */
+	private static final String QUERY = "SELECT X AS id,"
+			+ " CASE WHEN MOD(X, 3) = 0 THEN NULL ELSE CAST(X AS DOUBLE) / 2 END AS amount,"
+			+ " CASE WHEN MOD(X, 4) = 0 THEN NULL ELSE 'v' || MOD(X, 4) END AS name,"
+			+ " MOD(X, 2) = 0 AS even"
+			+ " FROM SYSTEM_RANGE(0, :n - 1)";
+
+	private static final int ROWS = 3000;
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:columnar");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	private ColumnarResult read(int rows, boolean offHeap) throws Exception {
+		try (ParameterStatement stmt = new ParameterStatement(connection, QUERY)) {
+			stmt.setInt("n", rows);
+			return ColumnarResult.read(stmt, offHeap);
+		}
+	}
+
+	@Test
+	public void columns() throws Exception {
+		for (boolean offHeap : new boolean[] { false, true }) {
+			final ColumnarResult result = read(ROWS, offHeap);
+			Assert.assertEquals(ROWS, result.getRowCount());
+			Assert.assertEquals(4, result.getColumnCount());
+
+			final ColumnarResult.LongColumn id = result.getLongColumn("ID");
+			final ColumnarResult.DoubleColumn amount = result.getDoubleColumn("amount");
+			final ColumnarResult.StringColumn name = result.getStringColumn("name");
+			final ColumnarResult.LongColumn even = result.getLongColumn("even");
+			Assert.assertSame(id, result.getColumn(1));
+			Assert.assertEquals(Types.BOOLEAN, even.getSqlType());
+
+			for (int row = 0; row < ROWS; row++) {
+				Assert.assertEquals(row, id.get(row));
+				Assert.assertFalse(id.isNull(row));
+
+				Assert.assertEquals(row % 3 == 0, amount.isNull(row));
+				Assert.assertEquals(row % 3 == 0 ? 0 : row / 2.0, amount.get(row), 0);
+
+				Assert.assertEquals(row % 4 == 0, name.isNull(row));
+				Assert.assertEquals(row % 4 == 0 ? null : "v" + row % 4, name.get(row));
+
+				Assert.assertEquals(row % 2 == 0 ? 1 : 0, even.get(row));
+			}
+
+			// dictionary in order of first occurrence
+			Assert.assertArrayEquals(new String[] { "v1", "v2", "v3" }, name.getDictionary());
+			Assert.assertEquals(-1, name.getCode(0));
+			Assert.assertEquals(0, name.getCode(5));
+			Assert.assertEquals(2, name.getCode(ROWS - 1));
+
+			final long[] ids = id.toArray();
+			Assert.assertEquals(ROWS, ids.length);
+			Assert.assertEquals(ROWS - 1, ids[ROWS - 1]);
+			Assert.assertEquals(ROWS - 1, amount.toArray()[ROWS - 1] * 2, 0);
+
+			final ByteBuffer buffer = amount.getBuffer();
+			if (offHeap) {
+				Assert.assertTrue(buffer.isDirect());
+				Assert.assertTrue(buffer.isReadOnly());
+				Assert.assertEquals(ROWS * 8, buffer.remaining());
+				Assert.assertEquals(0.5, buffer.getDouble(8), 0);
+				Assert.assertEquals(ROWS * 8, id.getBuffer().remaining());
+			} else {
+				Assert.assertNull(buffer);
+				Assert.assertNull(id.getBuffer());
+			}
+
+			try {
+				id.get(ROWS);
+				Assert.fail("out of range");
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+			try {
+				result.getDoubleColumn("id");
+				Assert.fail("not a double column");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void empty() throws Exception {
+		final ColumnarResult result = read(0, true);
+		Assert.assertEquals(0, result.getRowCount());
+		Assert.assertEquals(0, result.getLongColumn("id").toArray().length);
+		Assert.assertEquals(0, result.getStringColumn("name").getDictionary().length);
+		Assert.assertEquals(0, result.getDoubleColumn("amount").getBuffer().remaining());
+	}
+
+	@Test
+	public void capacity() {
+		Assert.assertEquals(8 << 10, ColumnarResult.allocate(1 << 10).capacity());
+		// byte size of 2^32 doesn't fit an int
+		try {
+			ColumnarResult.allocate(1 << 29);
+			Assert.fail("too large");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertEquals(Integer.MAX_VALUE / 8, ColumnarResult.MAX_BUFFER_ROWS);
+		Assert.assertTrue((ColumnarResult.MAX_BUFFER_ROWS - 1) << 3 > 0);
+	}
+}
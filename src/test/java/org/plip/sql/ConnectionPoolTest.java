@@ -0,0 +1,206 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.jdbc.JdbcPreparedStatement;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ConnectionPoolTest {
+
+	private static final String URL = "jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1";
+
+	private static final ConnectionSource source = new ConnectionSource() {
+		@Override
+		public Connection getConnection() throws SQLException {
+			return DriverManager.getConnection(URL);
+		}
+	};
+
+	private ConnectionPool pool;
+
+	@Before
+	public void setUp() throws SQLException {
+		try (Connection c = source.getConnection()) {
+			c.createStatement().execute("CREATE TABLE foo (id INT PRIMARY KEY)");
+		}
+		pool = new ConnectionPool(source, 2).setMaxWait(100, TimeUnit.MILLISECONDS);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		pool.close();
+		try (Connection c = source.getConnection()) {
+			c.createStatement().execute("DROP ALL OBJECTS");
+		}
+	}
+
+	private static int count(Connection c) throws SQLException {
+		try (ResultSet rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM foo")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+
+	@Test
+	public void statements() throws SQLException {
+		try (SQLStack stack = new SQLStack()) {
+			final Connection c = stack.push(pool.getConnection());
+			Assert.assertSame(c, stack.push(c.createStatement()).getConnection());
+
+			final PreparedStatement ps = stack.push(c.prepareStatement("SELECT id FROM foo"));
+			Assert.assertSame(c, ps.getConnection());
+			Assert.assertTrue(ps.isWrapperFor(JdbcPreparedStatement.class));
+			Assert.assertNotNull(ps.unwrap(JdbcPreparedStatement.class));
+			Assert.assertSame(ps, ps.unwrap(PreparedStatement.class));
+			Assert.assertEquals(ps, ps);
+
+			final ResultSet rs = stack.push(ps.executeQuery());
+			Assert.assertSame(ps, rs.getStatement());
+			Assert.assertSame(c, rs.getStatement().getConnection());
+			Assert.assertSame(rs, ps.getResultSet());
+			Assert.assertSame(c, stack.push(c.prepareCall("CALL 1")).getConnection());
+
+			final DatabaseMetaData meta = c.getMetaData();
+			Assert.assertSame(c, meta.getConnection());
+			try (ResultSet tables = meta.getTables(null, null, "FOO", null)) {
+				Assert.assertTrue(tables.next());
+				if (tables.getStatement() != null) {
+					Assert.assertSame(c, tables.getStatement().getConnection());
+				}
+			}
+
+			try (ParameterStatement stmt = new ParameterStatement(c, "SELECT :a")) {
+				Assert.assertSame(c, stmt.borrowStatement().getConnection());
+			}
+		}
+	}
+
+	@Test
+	public void releaseCompletes() throws SQLException {
+		final ResultCache cache = new ResultCache();
+		final Connection physical;
+		try (SQLStack stack = new SQLStack()) {
+			final Connection c = stack.push(pool.getConnection());
+			physical = c.unwrap(JdbcConnection.class);
+			c.setAutoCommit(false);
+			final ParameterStatement stmt = stack.push(new ParameterStatement(c, "INSERT INTO foo VALUES (:id)"))
+					.setResultCache(cache, "foo");
+			stmt.setInt("id", 1);
+			stmt.executeUpdate();
+			Assert.assertTrue(ResultCache.isWritten(c, cache, new String[] { "foo" }));
+		}
+		// rolled back on release without commit, pending writes are forgotten
+		Assert.assertFalse(ResultCache.isWritten(physical, cache, new String[] { "foo" }));
+		try (Connection c = pool.getConnection()) {
+			Assert.assertEquals(0, count(c));
+		}
+	}
+
+	@Test
+	public void reuse() throws SQLException {
+		JdbcConnection physical;
+		try (SQLStack stack = new SQLStack()) {
+			physical = stack.push(pool.getConnection()).unwrap(JdbcConnection.class);
+		}
+		Assert.assertEquals(1, pool.getIdle());
+		Assert.assertEquals(0, pool.getActive());
+		Assert.assertFalse(physical.isClosed());
+
+		try (SQLStack stack = new SQLStack()) {
+			Connection c = stack.push(pool.getConnection());
+			Assert.assertSame(physical, c.unwrap(JdbcConnection.class));
+			Assert.assertEquals(1, pool.getActive());
+		}
+		Assert.assertEquals(1, pool.getCreated());
+		Assert.assertEquals(2, pool.getBorrows());
+	}
+
+	@Test
+	public void closedWrapper() throws SQLException {
+		Connection c = pool.getConnection();
+		c.close();
+		c.close();
+		Assert.assertTrue(c.isClosed());
+		try {
+			c.createStatement();
+			Assert.fail();
+		} catch (SQLException e) {
+			// expected
+		}
+		Assert.assertEquals(1, pool.getIdle());
+	}
+
+	@Test
+	public void rollbackOnReturn() throws SQLException {
+		try (SQLStack stack = new SQLStack()) {
+			Connection c = stack.push(pool.getConnection());
+			c.setAutoCommit(false);
+			c.createStatement().execute("INSERT INTO foo VALUES (1)");
+		}
+		try (SQLStack stack = new SQLStack()) {
+			Connection c = stack.push(pool.getConnection());
+			Assert.assertTrue(c.getAutoCommit());
+			Assert.assertEquals(0, count(c));
+		}
+	}
+
+	@Test
+	public void bounded() throws SQLException {
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(pool.getConnection());
+			stack.push(pool.getConnection());
+			try {
+				pool.getConnection();
+				Assert.fail();
+			} catch (SQLTransientConnectionException e) {
+				// expected
+			}
+			Assert.assertEquals(1, pool.getTimeouts());
+		}
+		Assert.assertEquals(2, pool.getIdle());
+		pool.getConnection().close();
+		Assert.assertEquals(2, pool.getCreated());
+	}
+
+	@Test
+	public void maxLifetime() throws SQLException, InterruptedException {
+		pool.setMaxLifetime(10, TimeUnit.MILLISECONDS);
+		JdbcConnection physical;
+		try (Connection c = pool.getConnection()) {
+			physical = c.unwrap(JdbcConnection.class);
+		}
+		Thread.sleep(20);
+		try (Connection c = pool.getConnection()) {
+			Assert.assertNotSame(physical, c.unwrap(JdbcConnection.class));
+		}
+		Assert.assertTrue(physical.isClosed());
+		Assert.assertEquals(1, pool.getDiscarded());
+	}
+
+	@Test
+	public void validation() throws SQLException {
+		pool.setValidationAge(0, TimeUnit.MILLISECONDS);
+		JdbcConnection physical;
+		try (Connection c = pool.getConnection()) {
+			physical = c.unwrap(JdbcConnection.class);
+		}
+		physical.close();
+		try (Connection c = pool.getConnection()) {
+			Assert.assertNotSame(physical, c.unwrap(JdbcConnection.class));
+			Assert.assertEquals(0, count(c));
+		}
+		Assert.assertEquals(2, pool.getCreated());
+		Assert.assertEquals(1, pool.getDiscarded());
+	}
+}
@@ -0,0 +1,197 @@
+package org.plip.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class GroupCommitterTest {
+	private Connection connection;
+
+	/** Set to make commits of {@link #failingCommits()} fail. */
+	private volatile boolean failCommit;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:group");
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id INT)");
+		}
+		connection.setAutoCommit(false);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	private List<Integer> ids() throws SQLException {
+		final List<Integer> ids = new ArrayList<>();
+		try (SQLStack stack = new SQLStack()) {
+			final ResultSet rs = stack.push(stack.push(connection.createStatement()).executeQuery("SELECT id FROM foo ORDER BY id"));
+			while (rs.next()) {
+				ids.add(rs.getInt(1));
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Inserts a row, then fails with the given exception if any.
+	 */
+	private static TransactionRunner.Work<Integer> insert(final int id, final Throwable failure) {
+		return new TransactionRunner.Work<Integer>() {
+			@Override
+			public Integer run(Connection connection) throws SQLException {
+				try (ParameterStatement stmt = new ParameterStatement(connection, "INSERT INTO foo VALUES (:id)")) {
+					stmt.setInt("id", id);
+					stmt.executeUpdate();
+				}
+				if (failure instanceof SQLException) {
+					throw (SQLException)failure;
+				} else if (failure instanceof RuntimeException) {
+					throw (RuntimeException)failure;
+				} else if (failure != null) {
+					throw (Error)failure;
+				}
+				return id;
+			}
+		};
+	}
+
+	/**
+	 * Returns the connection, with commits failing while {@link #failCommit} is set.
+	 */
+	private Connection failingCommits() {
+		return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (failCommit && method.getName().equals("commit")) {
+					throw new SQLException("commit failed");
+				}
+				try {
+					return method.invoke(connection, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+
+	private static Throwable failure(Future<?> future) throws InterruptedException {
+		try {
+			future.get();
+			Assert.fail("unit fails");
+			return null;
+		} catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void grouping() throws Exception {
+		final List<Future<Integer>> futures = new ArrayList<>();
+		try (GroupCommitter committer = new GroupCommitter(connection, 5, 10, TimeUnit.SECONDS)) {
+			// full groups are applied without waiting
+			for (int i = 0; i < 10; i++) {
+				futures.add(committer.submit(insert(i, null)));
+			}
+			for (int i = 0; i < 10; i++) {
+				Assert.assertEquals(i, (int)futures.get(i).get());
+			}
+			Assert.assertEquals(2, committer.getCommits());
+			Assert.assertEquals(10, committer.getUnits());
+			Assert.assertEquals(5.0, committer.getAverageGroupSize(), 0);
+
+			// partial group applied on close
+			futures.add(committer.submit(insert(10, null)));
+		}
+		Assert.assertEquals(10, (int)futures.get(10).get());
+		Assert.assertEquals(11, ids().size());
+	}
+
+	@Test(timeout = 10000)
+	public void failingUnit() throws Exception {
+		final Future<Integer> first, failing, last;
+		final SQLException failure = new SQLException("unit failed");
+		try (GroupCommitter committer = new GroupCommitter(connection, 3, 10, TimeUnit.SECONDS)) {
+			first = committer.submit(insert(1, null));
+			failing = committer.submit(insert(2, failure));
+			last = committer.submit(insert(3, null));
+
+			Assert.assertEquals(1, (int)first.get());
+			Assert.assertSame(failure, failure(failing));
+			Assert.assertEquals(3, (int)last.get());
+			Assert.assertEquals(1, committer.getCommits());
+			Assert.assertEquals(2, committer.getUnits());
+			Assert.assertEquals(1, committer.getFailedUnits());
+		}
+		// only the failing unit is rolled back
+		Assert.assertEquals("[1, 3]", ids().toString());
+	}
+
+	@Test(timeout = 10000)
+	public void errors() throws Exception {
+		final Executor direct = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		};
+		try (GroupCommitter committer = new GroupCommitter(connection, 2, 10, TimeUnit.SECONDS)) {
+			// neither an error from a unit nor from a listener of a committed unit stops the writer
+			final AssertionError error = new AssertionError("unit error");
+			final SettableFuture<Integer> committed = (SettableFuture<Integer>)committer.submit(insert(1, null));
+			committed.addListener(new Runnable() {
+				@Override
+				public void run() {
+					throw new IllegalStateException("listener failed");
+				}
+			}, direct);
+			final Future<Integer> failing = committer.submit(insert(2, error));
+			Assert.assertEquals(1, (int)committed.get());
+			Assert.assertSame(error, failure(failing));
+
+			final Future<Integer> later = committer.submit(insert(3, null));
+			Assert.assertEquals(4, (int)committer.submit(insert(4, null)).get());
+			Assert.assertEquals(3, (int)later.get());
+		}
+		Assert.assertEquals("[1, 3, 4]", ids().toString());
+	}
+
+	@Test(timeout = 10000)
+	public void failedCommit() throws Exception {
+		failCommit = true;
+		try (GroupCommitter committer = new GroupCommitter(failingCommits(), 2, 10, TimeUnit.SECONDS)) {
+			final Future<Integer> first = committer.submit(insert(1, null));
+			final Future<Integer> second = committer.submit(insert(2, null));
+			Assert.assertEquals("commit failed", failure(first).getMessage());
+			Assert.assertEquals("commit failed", failure(second).getMessage());
+			Assert.assertEquals(1, committer.getFailedCommits());
+			Assert.assertEquals(0, committer.getCommits());
+			Assert.assertEquals(0, committer.getUnits());
+
+			failCommit = false;
+			final Future<Integer> later = committer.submit(insert(3, null));
+			Assert.assertEquals(4, (int)committer.submit(insert(4, null)).get());
+			Assert.assertEquals(3, (int)later.get());
+		}
+		// failed group is rolled back as a whole
+		Assert.assertEquals("[3, 4]", ids().toString());
+	}
+}
@@ -0,0 +1,139 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class KeysetQueryTest {
+	private static final int GROUPS = 50;
+	private static final int PER_GROUP = 50;
+	private static final String QUERY = "SELECT k1, k2, name FROM foo WHERE (k1, k2) > (:k1, :k2) AND name <> :skip ORDER BY k1, k2 LIMIT :n";
+
+	private static Connection keepAlive;
+
+	private static final ConnectionSource source = new ConnectionSource() {
+		@Override
+		public Connection getConnection() throws SQLException {
+			return DriverManager.getConnection("jdbc:h2:mem:keyset");
+		}
+	};
+
+	private static final RowMapper<long[]> mapper = new RowMapper<long[]>() {
+		@Override
+		public long[] map(ResultSet rs, int[] columns) throws SQLException {
+			return new long[] { rs.getLong(columns[0]), rs.getLong(columns[1]) };
+		}
+	};
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		keepAlive = source.getConnection();
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(keepAlive.createStatement()).execute("CREATE TABLE foo (k1 INT, k2 BIGINT, name VARCHAR(10), PRIMARY KEY (k1, k2))");
+			ParameterStatement insert = stack.push(new ParameterStatement(keepAlive, "INSERT INTO foo VALUES (:k1, :k2, :name)"));
+			for (int i = 0; i < GROUPS; i++) {
+				for (int j = 0; j < PER_GROUP; j++) {
+					insert.setInt("k1", i);
+					insert.setLong("k2", j);
+					insert.setString("name", "n" + j);
+					insert.addBatch();
+				}
+			}
+			insert.executeBatch();
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() throws Exception {
+		keepAlive.close();
+	}
+
+	private static KeysetQuery<long[]> query(int pageSize) {
+		final Map<String, SQLParameter> start = new HashMap<String, SQLParameter>();
+		start.put("k1", new SQLParameter.OfInt(-1));
+		start.put("k2", new SQLParameter.OfLong(-1));
+		start.put("skip", new SQLParameter("none"));
+		return new KeysetQuery<long[]>(source, ParsedQuery.parse(QUERY), new String[] { "k1", "k2" }, "n", mapper, "k1", "k2")
+				.setPageSize(pageSize)
+				.setParameters(new ParameterStatement.ParameterProvider() {
+					@Override
+					public SQLParameter get(String paramName) {
+						return start.get(paramName);
+					}
+				});
+	}
+
+	private static void scan(KeysetQuery<long[]> kq, int expectedPages) throws Exception {
+		try (KeysetQuery<long[]>.PageIterator it = kq.iterate()) {
+			int row = 0;
+			for (long[] keys : it) {
+				Assert.assertEquals(row / PER_GROUP, keys[0]);
+				Assert.assertEquals(row % PER_GROUP, keys[1]);
+				row++;
+			}
+			Assert.assertEquals(GROUPS * PER_GROUP, row);
+			Assert.assertEquals(row, it.getRowCount());
+			Assert.assertEquals(expectedPages, it.getPageCount());
+			Assert.assertFalse(it.hasNext());
+		}
+	}
+
+	@Test
+	public void pages() throws Exception {
+		scan(query(1000), 3);
+		// last page is empty when rows are a multiple of page size
+		scan(query(500), 6);
+		scan(query(7), 358);
+	}
+
+	@Test
+	public void prefetch() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			scan(query(300).setPrefetch(executor), 9);
+			scan(query(GROUPS * PER_GROUP).setPrefetch(executor), 2);
+
+			// closed while next page is being fetched
+			try (KeysetQuery<long[]>.PageIterator it = query(100).setPrefetch(executor).iterate()) {
+				Assert.assertTrue(it.hasNext());
+				Assert.assertEquals(0, it.next()[1]);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void empty() throws Exception {
+		try (KeysetQuery<long[]>.PageIterator it = query(10).setParameters(null).iterate()) {
+			Assert.assertFalse(it.hasNext());
+			Assert.fail("unbound keys");
+		} catch (UncheckedSQLException e) {
+			// expected
+		}
+
+		final Map<String, SQLParameter> start = new HashMap<String, SQLParameter>();
+		start.put("k1", new SQLParameter.OfInt(GROUPS));
+		start.put("k2", new SQLParameter.OfLong(0));
+		start.put("skip", new SQLParameter("none"));
+		try (KeysetQuery<long[]>.PageIterator it = query(10).setParameters(new ParameterStatement.ParameterProvider() {
+			@Override
+			public SQLParameter get(String paramName) {
+				return start.get(paramName);
+			}
+		}).iterate()) {
+			Assert.assertFalse(it.hasNext());
+			Assert.assertEquals(1, it.getPageCount());
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class ParallelQueryTest {
+	private static final int ROWS = 1000;
+	private static final String QUERY = "SELECT id FROM foo WHERE id >= :lo AND id < :hi AND id <> :skip ORDER BY id";
+
+	private static Connection keepAlive;
+
+	private static final ConnectionSource source = new ConnectionSource() {
+		@Override
+		public Connection getConnection() throws SQLException {
+			return DriverManager.getConnection("jdbc:h2:mem:parallel");
+		}
+	};
+
+	/** Maps ids, failing on the given id and blocking on id 0 until released. */
+	private static final class Mapper implements RowMapper<Long> {
+		final CountDownLatch	release = new CountDownLatch(1);
+		final long				failOn;
+		final boolean			error;
+
+		Mapper(long failOn, boolean error) {
+			this.failOn = failOn;
+			this.error = error;
+		}
+
+		@Override
+		public Long map(ResultSet rs, int[] columns) throws SQLException {
+			final long id = rs.getLong(columns[0]);
+			if (id == failOn) {
+				if (error) {
+					throw new AssertionError("row " + id);
+				}
+				throw new SQLException("row " + id);
+			}
+			if (id == 0 && failOn >= 0) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new SQLException("interrupted", e);
+				}
+			}
+			return id;
+		}
+	}
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		keepAlive = source.getConnection();
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(keepAlive.createStatement()).execute("CREATE TABLE foo (id BIGINT PRIMARY KEY)");
+			stack.push(keepAlive.createStatement()).execute("INSERT INTO foo SELECT X FROM SYSTEM_RANGE(0, " + (ROWS - 1) + ")");
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() throws Exception {
+		keepAlive.close();
+	}
+
+	private static ParallelQuery<Long> query(RowMapper<Long> mapper) {
+		return new ParallelQuery<Long>(source, ParsedQuery.parse(QUERY), "lo", "hi", mapper, "id")
+				.setParallelism(3)
+				.setFetchSize(50)
+				.setParameters(new ParameterStatement.ParameterProvider() {
+					@Override
+					public SQLParameter get(String paramName) {
+						return paramName.equals("skip") ? new SQLParameter.OfLong(-1) : null;
+					}
+				});
+	}
+
+	@Test
+	public void split() {
+		Assert.assertEquals("[[0,4), [4,7), [7,10)]", ParallelQuery.Range.split(0, 10, 3).toString());
+		Assert.assertEquals("[[5,6)]", ParallelQuery.Range.split(5, 6, 4).toString());
+		Assert.assertEquals("[[5,5)]", ParallelQuery.Range.split(5, 5, 2).toString());
+	}
+
+	@Test(timeout = 10000)
+	public void collect() throws Exception {
+		final List<Long> rows = query(new Mapper(-1, false)).collect(ParallelQuery.Range.split(0, ROWS, 7));
+		Assert.assertEquals(ROWS, rows.size());
+		for (int i = 0; i < ROWS; i++) {
+			Assert.assertEquals(i, (long)rows.get(i));
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void collectFailure() throws Exception {
+		// first partition blocks until released, so the failure of the last one must be reported first
+		final Mapper mapper = new Mapper(ROWS - 1, false);
+		try {
+			query(mapper).collect(ParallelQuery.Range.split(0, ROWS, 3));
+			Assert.fail("last row fails");
+		} catch (SQLException e) {
+			Assert.assertEquals("row " + (ROWS - 1), e.getMessage());
+		} finally {
+			mapper.release.countDown();
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void stream() throws Exception {
+		final List<Long> rows = new ArrayList<>();
+		try (ParallelQuery<Long>.StreamIterator it = query(new Mapper(-1, false)).stream(ParallelQuery.Range.split(0, ROWS, 7), 16)) {
+			for (Long id : it) {
+				rows.add(id);
+			}
+		}
+		Collections.sort(rows);
+		Assert.assertEquals(ROWS, rows.size());
+		Assert.assertEquals(ROWS - 1, (long)rows.get(ROWS - 1));
+	}
+
+	@Test(timeout = 10000)
+	public void streamFailure() throws Exception {
+		for (boolean error : new boolean[] { false, true }) {
+			final Mapper mapper = new Mapper(ROWS / 2, error);
+			mapper.release.countDown();
+			try (ParallelQuery<Long>.StreamIterator it = query(mapper).stream(ParallelQuery.Range.split(0, ROWS, 4), 16)) {
+				while (it.hasNext()) {
+					it.next();
+				}
+				Assert.fail("row fails");
+			} catch (UncheckedSQLException e) {
+				Assert.assertFalse(error);
+				Assert.assertEquals("row " + (ROWS / 2), e.getCause().getMessage());
+			} catch (AssertionError e) {
+				Assert.assertTrue(error);
+				Assert.assertEquals("row " + (ROWS / 2), e.getMessage());
+			}
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void streamClose() throws Exception {
+		final Mapper mapper = new Mapper(-1, false);
+		try (ParallelQuery<Long>.StreamIterator it = query(mapper).stream(ParallelQuery.Range.split(0, ROWS, 4), 1)) {
+			Assert.assertTrue(it.hasNext());
+			it.next();
+		}
+		// partitions blocked on the full buffer are cancelled
+	}
+}
@@ -1,7 +1,15 @@
 package org.plip.sql;
 
+import java.beans.ConstructorProperties;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
@@ -47,4 +55,403 @@ public class ParameterStatementTest {
 
 		Assert.assertEquals(expected, params);
 	}
+
+	@Test
+	public void parsedQueryCache() {
+		ParsedQueryCache cache = new ParsedQueryCache(2);
+		ParsedQuery q1 = cache.get("SELECT * FROM foo WHERE bar=:bar;");
+		Assert.assertEquals("SELECT * FROM foo WHERE bar=?;", q1.getSql());
+		Assert.assertEquals(Arrays.asList(1), q1.getIndices("bar"));
+
+		Assert.assertSame(q1, cache.get("SELECT * FROM foo WHERE bar=:bar;"));
+		cache.get("SELECT :a");
+		cache.get("SELECT :b");
+		Assert.assertNotSame(q1, cache.get("SELECT * FROM foo WHERE bar=:bar;"));
+
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(4, cache.getMisses());
+		Assert.assertEquals(2, cache.getEvictions());
+		Assert.assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void slots() {
+		ParsedQuery q = ParsedQuery.parse("SELECT * FROM foo WHERE bar=:bar,:baz,:bar;");
+		Assert.assertEquals(2, q.getSlotCount());
+
+		ParsedQuery.Slot bar = q.getSlot("bar");
+		Assert.assertEquals("bar", bar.getName());
+		Assert.assertArrayEquals(new int[]{1,3}, bar.indices);
+		Assert.assertArrayEquals(new int[]{2}, q.getSlot("baz").indices);
+
+		q.checkSlot(bar);
+		try {
+			ParsedQuery.parse("SELECT :foo").checkSlot(bar);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void slotBinding() throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:slots");
+				ParameterStatement stmt = new ParameterStatement(connection, "SELECT :a, :b, :a")) {
+			final ParsedQuery.Slot a = stmt.getSlot("a");
+			Assert.assertFalse(stmt.isBound());
+			Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), stmt.getUnboundParameters());
+
+			// bound to all indices of the slot
+			stmt.setInt(a, 1);
+			Assert.assertFalse(stmt.isBound());
+			Assert.assertEquals(Collections.singleton("b"), stmt.getUnboundParameters());
+			stmt.setString("b", "x");
+			Assert.assertTrue(stmt.isBound());
+			Assert.assertTrue(stmt.getUnboundParameters().isEmpty());
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(1, rs.getInt(1));
+				Assert.assertEquals("x", rs.getString(2));
+				Assert.assertEquals(1, rs.getInt(3));
+			}
+
+			// rebinding keeps the other slot
+			stmt.setLong(a, 2);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(2, rs.getInt(1));
+				Assert.assertEquals("x", rs.getString(2));
+				Assert.assertEquals(2, rs.getInt(3));
+			}
+
+			stmt.clearParameters();
+			Assert.assertFalse(stmt.isBound());
+			Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), stmt.getUnboundParameters());
+			try {
+				stmt.executeQuery();
+				Assert.fail("parameters cleared");
+			} catch (SQLException e) {
+				// expected
+			}
+
+			// slots of other queries are rejected
+			try {
+				stmt.setInt(ParsedQuery.parse("SELECT :a").getSlot("a"), 1);
+				Assert.fail("other query");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			Assert.assertFalse(stmt.isBound());
+		}
+	}
+
+	@Test
+	public void expandValues() {
+		ParsedQuery q = ParsedQuery.parse("INSERT INTO foo (a,b,c) VALUES (:a, lower(:b), ')'); ");
+		Assert.assertEquals(2, q.getIndexCount());
+		Assert.assertEquals("INSERT INTO foo (a,b,c) VALUES (?, lower(?), ')'),(?, lower(?), ')'),(?, lower(?), ')'); ", q.expandValues(3));
+
+		try {
+			ParsedQuery.parse("INSERT INTO foo (a) VALUES (:a) ON CONFLICT DO UPDATE SET a = :b").expandValues(2);
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void expandValuesLexical() {
+		Assert.assertEquals("INSERT INTO t (a) -- don't\n VALUES (?),(?)",
+				ParsedQuery.parse("INSERT INTO t (a) -- don't\n VALUES (:a)").expandValues(2));
+		Assert.assertEquals("INSERT INTO t (a) /* why? */ VALUES (?),(?)",
+				ParsedQuery.parse("INSERT INTO t (a) /* why? */ VALUES (:a)").expandValues(2));
+		Assert.assertEquals("INSERT INTO t (a) values /* (:x) */ (?, '(' || ?),(?, '(' || ?)",
+				ParsedQuery.parse("INSERT INTO t (a) values /* (:x) */ (:a, '(' || :b)").expandValues(2));
+		Assert.assertEquals("INSERT INTO \"values\" (my_values) VALUES (?),(?)",
+				ParsedQuery.parse("INSERT INTO \"values\" (my_values) VALUES (:values)").expandValues(2));
+		Assert.assertEquals("INSERT INTO t (a, b) VALUES (?, E'it\\'s'),(?, E'it\\'s')",
+				ParsedQuery.parse("INSERT INTO t (a, b) VALUES (:a, E'it\\'s')", SQLDialect.POSTGRESQL).expandValues(2));
+		Assert.assertEquals("INSERT INTO t (a, b) VALUES (?, $$)?$$),(?, $$)?$$)",
+				ParsedQuery.parse("INSERT INTO t (a, b) VALUES (:a, $$)?$$)", SQLDialect.POSTGRESQL).expandValues(2));
+		Assert.assertEquals("INSERT INTO `t` (a) VALUES (?, 'it\\'s'),(?, 'it\\'s') # values (\n",
+				ParsedQuery.parse("INSERT INTO `t` (a) VALUES (:a, 'it\\'s') # values (\n", SQLDialect.MYSQL).expandValues(2));
+		Assert.assertEquals("INSERT INTO t (a) VALUES (?),(?) ON DUPLICATE KEY UPDATE a = VALUES(a)",
+				ParsedQuery.parse("INSERT INTO t (a) VALUES (:a) ON DUPLICATE KEY UPDATE a = VALUES(a)", SQLDialect.MYSQL).expandValues(2));
+
+		for (String sql : new String[] {
+				"INSERT INTO t (a) SELECT :a",
+				"INSERT INTO t DEFAULT VALUES",
+				"INSERT INTO t (a) VALUES ((:a)",
+				"INSERT INTO t (a) VALUES (1) RETURNING :a",
+				"INSERT INTO t (a) SELECT 'VALUES (:a)'" }) {
+			try {
+				ParsedQuery.parse(sql).expandValues(2);
+				Assert.fail(sql);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void expandCollections() {
+		Assert.assertEquals(1, ParsedQuery.bucketSize(0));
+		Assert.assertEquals(1, ParsedQuery.bucketSize(1));
+		Assert.assertEquals(4, ParsedQuery.bucketSize(3));
+		Assert.assertEquals(4, ParsedQuery.bucketSize(4));
+		Assert.assertEquals(256, ParsedQuery.bucketSize(129));
+		Assert.assertEquals(512, ParsedQuery.bucketSize(257));
+
+		final HashMap<String,SQLParameter> params = new HashMap<>();
+		params.put("ids", new SQLParameter.OfCollection(Arrays.asList(1,2,3), java.sql.Types.INTEGER));
+		params.put("bar", new SQLParameter("bar"));
+		ParameterStatement.ParameterProvider provider = new ParameterStatement.ParameterProvider() {
+			@Override
+			public SQLParameter get(String paramName) {
+				return params.get(paramName);
+			}
+		};
+
+		ParsedQuery q = ParsedQuery.parse("SELECT * FROM foo WHERE id IN (:ids) AND bar=:bar OR id IN (:ids);");
+		ParsedQuery e = q.expand(provider);
+		Assert.assertEquals("SELECT * FROM foo WHERE id IN (?, ?, ?, ?) AND bar=? OR id IN (?, ?, ?, ?);", e.getSql());
+		Assert.assertEquals(Arrays.asList(1,2,3,4,6,7,8,9), e.getIndices("ids"));
+		Assert.assertEquals(Arrays.asList(5), e.getIndices("bar"));
+		Assert.assertEquals(4, e.getSlot("ids").getWidth());
+		Assert.assertSame(e, q.expand(provider));
+
+		params.put("ids", new SQLParameter.OfCollection(Arrays.asList(1), java.sql.Types.INTEGER));
+		Assert.assertSame(q, q.expand(provider));
+	}
+
+	public enum Color { RED, GREEN }
+
+	public static class Bean {
+		public String	name;
+		private long	id;
+		private Integer	count;
+		private Color	color;
+		private boolean	active;
+		private double	weight;
+
+		public long getId() {
+			return id;
+		}
+
+		public Integer getCount() {
+			return count;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public Color color() {
+			return color;
+		}
+
+		public double weight() {
+			return weight;
+		}
+
+		public String getUnused() {
+			throw new IllegalStateException();
+		}
+	}
+
+	@Test
+	public void beanParameters() throws Exception {
+		BeanParameters<Bean> params = BeanParameters.of(Bean.class);
+		Assert.assertSame(params, BeanParameters.of(Bean.class));
+		Assert.assertEquals(new HashSet<>(Arrays.asList("name", "id", "count", "active", "color", "weight", "unused")), params.getProperties());
+
+		Bean a = new Bean();
+		a.id = 1;
+		a.name = "a";
+		a.count = 3;
+		a.color = Color.GREEN;
+		a.active = true;
+		a.weight = 0.5;
+		Bean b = new Bean();
+		b.id = 2;
+
+		Assert.assertEquals(1L, params.provider(a).get("id").getValue());
+		Assert.assertEquals(null, params.provider(b).get("count").getValue());
+		Assert.assertNull(params.provider(a).get("missing"));
+
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:beans");
+				SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id BIGINT, name VARCHAR(10), count INT, color VARCHAR(10), active BOOLEAN, weight DOUBLE)");
+
+			ParameterStatement insert = stack.push(new ParameterStatement(connection,
+					"INSERT INTO foo VALUES (:id, :name, :count, :color, :active, :weight)"));
+			params.bind(insert, a).addBatch();
+			insert.setParameters(params.provider(b)).addBatch();
+			insert.executeBatch();
+
+			try (BatchWriter writer = new BatchWriter(connection, "INSERT INTO foo (id, name) VALUES (:id + 10, :name)")) {
+				Assert.assertEquals(2, writer.write(params.providers(Arrays.asList(a, b).iterator())).getRows());
+			}
+
+			ResultSet rs = stack.push(connection.createStatement()).executeQuery("SELECT * FROM foo ORDER BY id");
+			Assert.assertTrue(rs.next());
+			Assert.assertEquals(1, rs.getLong("id"));
+			Assert.assertEquals("a", rs.getString("name"));
+			Assert.assertEquals(3, rs.getInt("count"));
+			Assert.assertEquals("GREEN", rs.getString("color"));
+			Assert.assertTrue(rs.getBoolean("active"));
+			Assert.assertEquals(0.5, rs.getDouble("weight"), 0.0);
+			Assert.assertTrue(rs.next());
+			Assert.assertEquals(2, rs.getLong("id"));
+			Assert.assertNull(rs.getString("name"));
+			Assert.assertNull(rs.getObject("count"));
+			Assert.assertNull(rs.getString("color"));
+			Assert.assertFalse(rs.getBoolean("active"));
+			Assert.assertTrue(rs.next());
+			Assert.assertEquals(11, rs.getLong("id"));
+			Assert.assertTrue(rs.next());
+			Assert.assertEquals(12, rs.getLong("id"));
+			Assert.assertFalse(rs.next());
+		}
+	}
+
+	@Test
+	public void beanBindings() throws Exception {
+		final BeanParameters<Bean> params = BeanParameters.of(Bean.class);
+		final Bean bean = new Bean();
+		bean.id = 7;
+		bean.name = "x";
+
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:bindings");
+				SQLStack stack = new SQLStack()) {
+			final ParameterStatement byId = stack.push(new ParameterStatement(connection, "SELECT :id"));
+			final ParameterStatement byName = stack.push(new ParameterStatement(connection, "SELECT :name, :id"));
+
+			// alternating statements keep the binding of each query
+			params.bind(byId, bean);
+			final BeanParameters.Binding binding = byId.getParsedQuery().getBinding();
+			Assert.assertNotNull(binding);
+			params.bind(byName, bean);
+			params.bind(byId, bean);
+			Assert.assertSame(binding, byId.getParsedQuery().getBinding());
+
+			try (ResultSet rs = byName.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals("x", rs.getString(1));
+				Assert.assertEquals(7, rs.getLong(2));
+			}
+			try (ResultSet rs = byId.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(7, rs.getLong(1));
+			}
+		}
+	}
+
+	public static class Mapped {
+		public String	name;
+		long			userId;
+		Integer			count;
+		Color			color;
+
+		public void setUserId(long userId) {
+			this.userId = userId;
+		}
+
+		public void setCount(Integer count) {
+			this.count = count;
+		}
+
+		public void setColor(Color color) {
+			this.color = color;
+		}
+	}
+
+	public static class Immutable {
+		final long		userId;
+		final String	name;
+		double			weight;
+
+		@ConstructorProperties({"userId", "name", "missing"})
+		public Immutable(long userId, String name, int missing) {
+			this.userId = userId;
+			this.name = name;
+		}
+
+		public void setWeight(double weight) {
+			this.weight = weight;
+		}
+	}
+
+	public static class Flags {
+		public char			grade;
+		public Character	mark;
+	}
+
+	@Test
+	public void beanRowMapperChars() throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:chars");
+				SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id INT, grade CHAR(1), mark VARCHAR(2))");
+			stack.push(connection.createStatement()).execute("INSERT INTO foo VALUES (1, 'A', 'x'), (2, NULL, NULL), (3, 'B', 'yz')");
+
+			final ParameterStatement select = stack.push(new ParameterStatement(connection, "SELECT grade, mark FROM foo WHERE id <= :id ORDER BY id"));
+			select.setInt("id", 2);
+			final List<Flags> rows = new ArrayList<>();
+			for (Flags f : select.iterate(stack, BeanRowMapper.of(Flags.class))) {
+				rows.add(f);
+			}
+			Assert.assertEquals('A', rows.get(0).grade);
+			Assert.assertEquals(Character.valueOf('x'), rows.get(0).mark);
+			Assert.assertEquals((char)0, rows.get(1).grade);
+			Assert.assertNull(rows.get(1).mark);
+
+			// longer values are not truncated
+			select.setInt("id", 3);
+			try {
+				for (Flags f : select.iterate(stack, BeanRowMapper.of(Flags.class))) {
+					Assert.assertNotNull(f);
+				}
+				Assert.fail("value too long");
+			} catch (UncheckedSQLException e) {
+				Assert.assertTrue(e.getCause().getMessage().contains("length 2"));
+			}
+		}
+	}
+
+	@Test
+	public void beanRowMapper() throws Exception {
+		try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:mapped");
+				SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (user_id BIGINT, name VARCHAR(10), count INT, color VARCHAR(10), weight DOUBLE, extra INT)");
+			stack.push(connection.createStatement()).execute("INSERT INTO foo VALUES (1, 'a', 3, 'RED', 0.5, 7), (2, NULL, NULL, NULL, NULL, NULL)");
+
+			ParameterStatement select = stack.push(new ParameterStatement(connection, "SELECT * FROM foo WHERE user_id >= :id ORDER BY user_id"));
+			select.setLong("id", 0);
+			List<Mapped> rows = new ArrayList<>();
+			for (Mapped m : select.iterate(stack, BeanRowMapper.of(Mapped.class))) {
+				rows.add(m);
+			}
+			Assert.assertEquals(2, rows.size());
+			Assert.assertEquals(1, rows.get(0).userId);
+			Assert.assertEquals("a", rows.get(0).name);
+			Assert.assertEquals(Integer.valueOf(3), rows.get(0).count);
+			Assert.assertEquals(Color.RED, rows.get(0).color);
+			Assert.assertEquals(2, rows.get(1).userId);
+			Assert.assertNull(rows.get(1).name);
+			Assert.assertNull(rows.get(1).count);
+			Assert.assertNull(rows.get(1).color);
+
+			ResultSet rs = stack.push(connection.createStatement()).executeQuery("SELECT weight, name, user_id FROM foo ORDER BY user_id");
+			BeanRowMapper<Immutable> mapper = BeanRowMapper.of(Immutable.class);
+			Assert.assertSame(mapper, BeanRowMapper.of(Immutable.class));
+			Assert.assertTrue(rs.next());
+			Immutable i = mapper.map(rs, null);
+			Assert.assertEquals(1, i.userId);
+			Assert.assertEquals("a", i.name);
+			Assert.assertEquals(0.5, i.weight, 0.0);
+			Assert.assertSame(mapper.bind(rs), mapper.bind(rs));
+			Assert.assertTrue(rs.next());
+			i = mapper.map(rs, null);
+			Assert.assertEquals(2, i.userId);
+			Assert.assertNull(i.name);
+			Assert.assertEquals(0.0, i.weight, 0.0);
+		}
+	}
 }
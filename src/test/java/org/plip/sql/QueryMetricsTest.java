@@ -0,0 +1,170 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class QueryMetricsTest {
+	private Connection connection;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:metrics");
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id INT PRIMARY KEY)");
+		}
+		QueryMetrics.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		QueryMetrics.setEnabled(false);
+		QueryMetrics.clear();
+		connection.close();
+	}
+
+	private static QueryStats.Snapshot snapshot(String query) {
+		for (QueryStats.Snapshot s : QueryMetrics.getSnapshots()) {
+			if (s.getQuery().equals(query)) {
+				return s;
+			}
+		}
+		Assert.fail("no statistics of " + query);
+		return null;
+	}
+
+	@Test
+	public void buckets() {
+		int prev = 0;
+		for (long nanos = 0; nanos < 1L << 42; nanos = nanos < 64 ? nanos + 1 : nanos + nanos / 7) {
+			final int bucket = QueryStats.bucket(nanos);
+			Assert.assertTrue(bucket >= prev);
+			prev = bucket;
+			if (nanos < 1L << 41) {
+				final long max = QueryStats.bucketMax(bucket);
+				Assert.assertTrue(nanos <= max);
+				// relative error at most 12.5%
+				Assert.assertTrue(max - nanos <= nanos / 8);
+			}
+		}
+		Assert.assertEquals(QueryStats.bucket(Long.MAX_VALUE), QueryStats.bucket(1L << 41));
+		Assert.assertEquals(0, QueryStats.bucket(-1));
+	}
+
+	@Test
+	public void percentiles() {
+		final QueryStats stats = new QueryStats("q");
+		for (int i = 0; i < 90; i++) {
+			stats.recordQuery(1000);
+		}
+		for (int i = 0; i < 10; i++) {
+			stats.recordQuery(1000000);
+		}
+		QueryStats.Snapshot s = stats.snapshot();
+		Assert.assertEquals(100, s.getInvocations());
+		Assert.assertEquals(100900, s.getMeanNanos());
+		Assert.assertEquals(1000000, s.getMaxNanos());
+		Assert.assertTrue(s.getP50Nanos() >= 1000 && s.getP50Nanos() <= 1125);
+		Assert.assertEquals(s.getP50Nanos(), s.getP90Nanos());
+		// capped by max
+		Assert.assertEquals(1000000, s.getP99Nanos());
+		Assert.assertEquals(1000000, s.getP999Nanos());
+
+		stats.recordUpdate(10, 3);
+		stats.recordBatch(10, new int[] { 1, Statement.SUCCESS_NO_INFO, 2 });
+		stats.recordError(10);
+		s = stats.snapshot();
+		Assert.assertEquals(103, s.getInvocations());
+		Assert.assertEquals(1, s.getErrors());
+		Assert.assertEquals(6, s.getRows());
+		Assert.assertEquals(1, s.getBatches());
+		Assert.assertEquals(3, s.getBatchEntries());
+		Assert.assertEquals(3, s.getMaxBatchSize());
+
+		stats.reset();
+		s = stats.snapshot();
+		Assert.assertEquals(0, s.getInvocations());
+		Assert.assertEquals(0, s.getMeanNanos());
+		Assert.assertEquals(0, s.getP99Nanos());
+	}
+
+	@Test
+	public void recording() throws Exception {
+		final String insert = "INSERT INTO foo VALUES (:id)";
+		final String select = "SELECT id FROM foo WHERE id IN (:ids)";
+		try (ParameterStatement stmt = new ParameterStatement(connection, insert)) {
+			// not recorded while disabled
+			stmt.setInt("id", 0);
+			stmt.executeUpdate();
+			Assert.assertTrue(QueryMetrics.getSnapshots().isEmpty());
+
+			QueryMetrics.setEnabled(true);
+			stmt.setInt("id", 1);
+			stmt.executeUpdate();
+			for (int id = 2; id < 5; id++) {
+				stmt.setInt("id", id);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+			stmt.setInt("id", 1);
+			try {
+				stmt.executeUpdate();
+				Assert.fail("duplicate key");
+			} catch (SQLException e) {
+				// expected
+			}
+		}
+		final QueryStats.Snapshot s = snapshot(insert);
+		Assert.assertEquals(3, s.getInvocations());
+		Assert.assertEquals(1, s.getErrors());
+		Assert.assertEquals(4, s.getRows());
+		Assert.assertEquals(1, s.getBatches());
+		Assert.assertEquals(3, s.getMaxBatchSize());
+
+		// expansions are recorded as their template
+		for (int n = 1; n < 4; n++) {
+			final List<Integer> ids = new ArrayList<>();
+			for (int id = 1; id <= n; id++) {
+				ids.add(id);
+			}
+			try (ParameterStatement stmt = new ParameterStatement(connection, select,
+					Collections.<String, SQLParameter>singletonMap("ids", new SQLParameter.OfCollection(ids, Types.INTEGER)))) {
+				try (ResultSet rs = stmt.executeQuery()) {
+					Assert.assertTrue(rs.next());
+				}
+			}
+		}
+		Assert.assertEquals(3, snapshot(select).getInvocations());
+
+		QueryMetrics.reset();
+		Assert.assertEquals(0, snapshot(insert).getInvocations());
+	}
+
+	@Test
+	public void limit() {
+		for (int i = 0; i < QueryMetrics.MAX_QUERIES; i++) {
+			Assert.assertEquals("q" + i, QueryMetrics.getStats("q" + i).getQuery());
+		}
+		final QueryStats other = QueryMetrics.getStats("one too many");
+		Assert.assertEquals(QueryMetrics.OTHER_QUERIES, other.getQuery());
+		Assert.assertSame(other, QueryMetrics.getStats("and another"));
+		Assert.assertEquals("q0", QueryMetrics.getStats("q0").getQuery());
+
+		// only listed once recorded into
+		Assert.assertEquals(QueryMetrics.MAX_QUERIES, QueryMetrics.getSnapshots().size());
+		other.recordQuery(1);
+		Assert.assertEquals(QueryMetrics.MAX_QUERIES + 1, QueryMetrics.getSnapshots().size());
+		Assert.assertEquals(1, snapshot(QueryMetrics.OTHER_QUERIES).getInvocations());
+	}
+}
@@ -0,0 +1,162 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class ReadWriteRouterTest {
+	private static final String[] DATABASES = { "primary", "replica1", "replica2" };
+	private static final String SELECT = "SELECT name FROM foo";
+
+	private static Connection[] keepAlive = new Connection[DATABASES.length];
+
+	private static ConnectionSource source(final String db) {
+		return new ConnectionSource() {
+			@Override
+			public Connection getConnection() throws SQLException {
+				return DriverManager.getConnection("jdbc:h2:mem:router_" + db);
+			}
+		};
+	}
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		for (int i = 0; i < DATABASES.length; i++) {
+			keepAlive[i] = source(DATABASES[i]).getConnection();
+			try (SQLStack stack = new SQLStack()) {
+				stack.push(keepAlive[i].createStatement()).execute("CREATE TABLE foo (name VARCHAR(40))");
+				stack.push(keepAlive[i].createStatement()).execute("INSERT INTO foo VALUES ('" + DATABASES[i] + "')");
+			}
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() throws Exception {
+		for (Connection c : keepAlive) {
+			c.close();
+		}
+	}
+
+	private static String read(ParameterStatement stmt) throws Exception {
+		try (ResultSet rs = stmt.executeQuery()) {
+			Assert.assertTrue(rs.next());
+			return rs.getString(1);
+		}
+	}
+
+	@Test
+	public void classify() {
+		Assert.assertTrue(SQLLexer.isReadOnly("SELECT * FROM foo WHERE id = :id"));
+		Assert.assertTrue(SQLLexer.isReadOnly("  -- comment\n/* update */ (select 1) union (select 2);"));
+		Assert.assertTrue(SQLLexer.isReadOnly("WITH t AS (SELECT 1) SELECT * FROM t"));
+		Assert.assertTrue(SQLLexer.isReadOnly("SELECT last_update, updated FROM foo"));
+		Assert.assertFalse(SQLLexer.isReadOnly("UPDATE foo SET a = 1"));
+		Assert.assertFalse(SQLLexer.isReadOnly("insert into foo select * from bar"));
+		Assert.assertFalse(SQLLexer.isReadOnly("SELECT * FROM foo FOR UPDATE"));
+		Assert.assertFalse(SQLLexer.isReadOnly("SELECT * FROM foo FOR SHARE"));
+		Assert.assertFalse(SQLLexer.isReadOnly("SELECT * INTO bar FROM foo"));
+		Assert.assertFalse(SQLLexer.isReadOnly("SELECT nextval('seq')"));
+		Assert.assertFalse(SQLLexer.isReadOnly("WITH d AS (DELETE FROM foo RETURNING *) SELECT * FROM d"));
+		Assert.assertFalse(SQLLexer.isReadOnly("SELECT 1; DROP TABLE foo"));
+		Assert.assertFalse(SQLLexer.isReadOnly("EXPLAIN ANALYZE DELETE FROM foo"));
+		Assert.assertFalse(SQLLexer.isReadOnly("SELECT 'update'"));
+		Assert.assertFalse(SQLLexer.isReadOnly("/* only a comment */"));
+		Assert.assertFalse(SQLLexer.isReadOnly("CALL proc()"));
+	}
+
+	@Test
+	public void route() throws Exception {
+		final ReadWriteRouter router = new ReadWriteRouter(source("primary"), source("replica1"), source("replica2"))
+				.setStickyTime(1, TimeUnit.HOURS);
+		try (SQLStack stack = new SQLStack()) {
+			final ReadWriteRouter.Session session = stack.push(router.openSession());
+
+			// least outstanding, open statements spread over replicas
+			final ParameterStatement a = stack.push(session.prepare(SELECT));
+			final ParameterStatement b = stack.push(session.prepare(SELECT));
+			final String first = read(a);
+			final String second = read(b);
+			Assert.assertTrue(first.startsWith("replica"));
+			Assert.assertTrue(second.startsWith("replica"));
+			Assert.assertNotEquals(first, second);
+			Assert.assertEquals(1, router.getOutstanding(0));
+			Assert.assertEquals(1, router.getOutstanding(1));
+			a.close();
+			Assert.assertEquals(0, router.getOutstanding(first.equals("replica1") ? 0 : 1));
+
+			// explicit hint
+			try (ParameterStatement stmt = session.prepare(ParsedQuery.parse(SELECT), false)) {
+				Assert.assertEquals("primary", read(stmt));
+			}
+			Assert.assertEquals(1, router.getWrites());
+
+			// sticky after write
+			try (ParameterStatement stmt = session.prepare(SELECT)) {
+				Assert.assertEquals("primary", read(stmt));
+			}
+			Assert.assertEquals(2, router.getReplicaReads());
+			Assert.assertEquals(1, router.getPrimaryReads());
+		}
+
+		try (SQLStack stack = new SQLStack()) {
+			final ReadWriteRouter.Session session = stack.push(router.openSession());
+			try (SQLTransaction trans = session.begin()) {
+				try (ParameterStatement stmt = session.prepare(SELECT)) {
+					Assert.assertEquals("primary", read(stmt));
+				}
+				trans.commit();
+			}
+			Assert.assertFalse(session.isInTransaction());
+			try (ParameterStatement stmt = session.prepare(SELECT)) {
+				Assert.assertTrue(read(stmt).startsWith("replica"));
+			}
+		}
+		Assert.assertEquals(0, router.getOutstanding(0));
+		Assert.assertEquals(0, router.getOutstanding(1));
+	}
+
+	@Test
+	public void writeThenRead() throws Exception {
+		final ReadWriteRouter router = new ReadWriteRouter(source("primary"), source("replica1")).setStickyTime(0, TimeUnit.SECONDS);
+		try (ReadWriteRouter.Session session = router.openSession()) {
+			try (ParameterStatement insert = session.prepare("INSERT INTO foo VALUES (:name)")) {
+				insert.setString("name", "written");
+				insert.executeUpdate();
+
+				// sticky while write is open
+				try (ParameterStatement stmt = session.prepare(SELECT + " WHERE name = 'written'")) {
+					Assert.assertEquals("written", read(stmt));
+				}
+			}
+			try (ParameterStatement stmt = session.prepare(SELECT)) {
+				Assert.assertEquals("replica1", read(stmt));
+			}
+			try (ParameterStatement delete = session.prepare("DELETE FROM foo WHERE name = :name")) {
+				delete.setString("name", "written");
+				Assert.assertEquals(1, delete.executeUpdate());
+			}
+		}
+	}
+
+	@Test
+	public void fallback() throws Exception {
+		final ReadWriteRouter router = new ReadWriteRouter(source("primary"), new ConnectionSource() {
+			@Override
+			public Connection getConnection() throws SQLException {
+				throw new SQLException("replica down");
+			}
+		});
+		try (ReadWriteRouter.Session session = router.openSession();
+				ParameterStatement stmt = session.prepare(SELECT)) {
+			Assert.assertEquals("primary", read(stmt));
+		}
+		Assert.assertEquals(1, router.getFallbacks());
+	}
+}
@@ -0,0 +1,391 @@
+package org.plip.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ResultCacheTest {
+	private static final String SELECT = "SELECT id, name, amount, created, data FROM foo WHERE id >= :id ORDER BY id";
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:cache;DB_CLOSE_DELAY=-1");
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id BIGINT, name VARCHAR(40), amount DECIMAL(10,2), created TIMESTAMP, data VARBINARY(4))");
+			stack.push(connection.createStatement()).execute("INSERT INTO foo VALUES (1, 'one', 1.50, '2015-01-02 03:04:05.6', X'01ff'), (2, NULL, NULL, NULL, NULL)");
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("DROP TABLE foo");
+		}
+		connection.close();
+	}
+
+	private static int count(ParameterStatement stmt) throws Exception {
+		int rows = 0;
+		try (ResultSet rs = stmt.executeQuery()) {
+			while (rs.next()) {
+				rows++;
+			}
+		}
+		return rows;
+	}
+
+	private void write(String sql, ResultCache cache) throws Exception {
+		try (ParameterStatement stmt = new ParameterStatement(connection, sql)) {
+			stmt.setResultCache(cache, "foo");
+			stmt.executeUpdate();
+		}
+	}
+
+	@Test
+	public void hit() throws Exception {
+		final ResultCache cache = new ResultCache();
+		try (ParameterStatement stmt = new ParameterStatement(connection, SELECT)) {
+			stmt.setResultCache(cache, "foo");
+			stmt.setLong("id", 1);
+			Assert.assertEquals(2, count(stmt));
+			Assert.assertEquals(1, cache.getMisses());
+
+			// not written through the cache, so served from memory
+			try (SQLStack stack = new SQLStack()) {
+				stack.push(connection.createStatement()).execute("DELETE FROM foo WHERE id = 2");
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(1, rs.getLong("ID"));
+				Assert.assertEquals("1", rs.getString(1));
+				Assert.assertEquals("one", rs.getString("name"));
+				Assert.assertEquals(new java.math.BigDecimal("1.50"), rs.getBigDecimal("amount"));
+				Assert.assertEquals(1.5, rs.getDouble("amount"), 0);
+				Assert.assertEquals(Timestamp.valueOf("2015-01-02 03:04:05.6"), rs.getTimestamp("created"));
+				Assert.assertArrayEquals(new byte[] { 1, (byte)0xff }, rs.getBytes("data"));
+				rs.getBytes("data")[0] = 7;
+				Assert.assertArrayEquals(new byte[] { 1, (byte)0xff }, rs.getBytes("data"));
+				Assert.assertEquals("NAME", rs.getMetaData().getColumnLabel(2));
+
+				Assert.assertTrue(rs.next());
+				Assert.assertNull(rs.getString("name"));
+				Assert.assertTrue(rs.wasNull());
+				Assert.assertEquals(0, rs.getLong("amount"));
+				Assert.assertTrue(rs.wasNull());
+				Assert.assertFalse(rs.next());
+			}
+			Assert.assertEquals(1, cache.getHits());
+
+			// other values miss
+			stmt.setLong("id", 2);
+			Assert.assertEquals(0, count(stmt));
+			stmt.setParameter("id", new SQLParameter.OfLong(1));
+			Assert.assertEquals(1, count(stmt));
+			stmt.setParameter("id", new SQLParameter.OfLong(1));
+			Assert.assertEquals(1, count(stmt));
+			Assert.assertEquals(3, cache.getMisses());
+			Assert.assertEquals(2, cache.getHits());
+			Assert.assertEquals(3, cache.size());
+		}
+	}
+
+	@Test
+	public void invalidate() throws Exception {
+		final ResultCache cache = new ResultCache();
+		try (ParameterStatement stmt = new ParameterStatement(connection, SELECT)) {
+			stmt.setResultCache(cache, "foo");
+			stmt.setLong("id", 0);
+			Assert.assertEquals(2, count(stmt));
+
+			write("DELETE FROM foo WHERE id = 2", cache);
+			Assert.assertEquals(0, cache.size());
+			Assert.assertEquals(1, cache.getInvalidations());
+			Assert.assertEquals(1, count(stmt));
+			Assert.assertEquals(1, count(stmt));
+			Assert.assertEquals(1, cache.getHits());
+
+			cache.invalidate("bar");
+			Assert.assertEquals(1, cache.size());
+			cache.invalidate("bar", "foo");
+			Assert.assertEquals(0, cache.size());
+		}
+	}
+
+	@Test
+	public void transaction() throws Exception {
+		final ResultCache cache = new ResultCache();
+		try (Connection other = DriverManager.getConnection("jdbc:h2:mem:cache");
+				ParameterStatement stmt = new ParameterStatement(connection, SELECT);
+				ParameterStatement otherStmt = new ParameterStatement(other, SELECT)) {
+			stmt.setResultCache(cache, "foo").setLong("id", 0);
+			otherStmt.setResultCache(cache, "foo").setLong("id", 0);
+
+			connection.setAutoCommit(false);
+			try (SQLTransaction trans = new SQLTransaction(connection)) {
+				write("INSERT INTO foo (id) VALUES (3)", cache);
+
+				// uncommitted rows aren't cached
+				Assert.assertEquals(3, count(stmt));
+				Assert.assertEquals(0, cache.size());
+
+				// committed rows read by others are, until commit
+				Assert.assertEquals(2, count(otherStmt));
+				Assert.assertEquals(1, cache.size());
+				Assert.assertEquals(3, count(stmt));
+				trans.commit();
+			}
+			Assert.assertEquals(0, cache.size());
+			Assert.assertEquals(3, count(otherStmt));
+			Assert.assertEquals(3, count(stmt));
+			Assert.assertEquals(1, cache.getHits());
+
+			try (SQLTransaction trans = new SQLTransaction(connection)) {
+				write("DELETE FROM foo", cache);
+				Assert.assertEquals(0, count(stmt));
+				trans.rollback();
+			}
+			Assert.assertEquals(3, count(otherStmt));
+			Assert.assertEquals(3, count(stmt));
+		} finally {
+			connection.setAutoCommit(true);
+		}
+	}
+
+	@Test
+	public void pendingByIdentity() {
+		// connections claiming to equal any other
+		final InvocationHandler equal = new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				switch (method.getName()) {
+				case "equals":		return true;
+				case "hashCode":	return 0;
+				default:			throw new UnsupportedOperationException(method.getName());
+				}
+			}
+		};
+		// more connections than stripes, so some share one
+		final Connection[] connections = new Connection[17];
+		final ResultCache[] caches = new ResultCache[connections.length];
+		final String[] tags = { "foo" };
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, equal);
+			caches[i] = new ResultCache();
+			ResultCache.written(connections[i], caches[i], tags);
+		}
+		for (int i = 0; i < connections.length; i++) {
+			for (int j = 0; j < connections.length; j++) {
+				Assert.assertEquals(i == j, ResultCache.isWritten(connections[i], caches[j], tags));
+			}
+		}
+		ResultCache.completed(connections[0]);
+		Assert.assertFalse(ResultCache.isWritten(connections[0], caches[0], tags));
+		for (int i = 1; i < connections.length; i++) {
+			Assert.assertTrue(ResultCache.isWritten(connections[i], caches[i], tags));
+			ResultCache.completed(connections[i]);
+		}
+	}
+
+	@Test
+	public void pooled() throws Exception {
+		final ResultCache cache = new ResultCache();
+		try (ConnectionPool pool = new ConnectionPool(new ConnectionSource() {
+					@Override
+					public Connection getConnection() throws SQLException {
+						return DriverManager.getConnection("jdbc:h2:mem:cache");
+					}
+				}, 1);
+				Connection c = pool.getConnection()) {
+			c.setAutoCommit(false);
+			try (ParameterStatement stmt = new ParameterStatement(c, SELECT)) {
+				stmt.setResultCache(cache, "foo").setLong("id", 0);
+				try (ParameterStatement insert = new ParameterStatement(c, "INSERT INTO foo (id) VALUES (:id)")) {
+					insert.setResultCache(cache, "foo");
+					insert.setLong("id", 3);
+					insert.executeUpdate();
+					Assert.assertEquals(3, count(stmt));
+					Assert.assertEquals(0, cache.size());
+
+					// completed by commit of the pooled connection
+					c.commit();
+					Assert.assertEquals(3, count(stmt));
+					Assert.assertEquals(1, cache.size());
+
+					insert.setLong("id", 4);
+					insert.executeUpdate();
+					Assert.assertEquals(4, count(stmt));
+					c.rollback();
+					Assert.assertEquals(3, count(stmt));
+					Assert.assertEquals(1, cache.size());
+
+					insert.setLong("id", 4);
+					insert.executeUpdate();
+					c.setAutoCommit(true);
+					Assert.assertEquals(4, count(stmt));
+					Assert.assertEquals(1, cache.size());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void keys() throws Exception {
+		final ResultCache cache = new ResultCache();
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT COUNT(*) FROM foo WHERE created < :t")) {
+			stmt.setResultCache(cache, "foo");
+			final Timestamp t = Timestamp.valueOf("2000-01-01 00:00:00");
+			stmt.setTimestamp("t", t);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(0, rs.getLong(1));
+			}
+
+			// cached key isn't changed with the bound timestamp
+			t.setTime(Timestamp.valueOf("2020-01-01 00:00:00").getTime());
+			stmt.setTimestamp("t", t);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(1, rs.getLong(1));
+			}
+			Assert.assertEquals(2, cache.getMisses());
+			stmt.setTimestamp("t", Timestamp.valueOf("2000-01-01 00:00:00"));
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(0, rs.getLong(1));
+			}
+			Assert.assertEquals(1, cache.getHits());
+		}
+
+		// nor with a timestamp bound within a parameter
+		final ResultCache params = new ResultCache();
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT COUNT(*) FROM foo WHERE created < :t")) {
+			stmt.setResultCache(params, "foo");
+			final Timestamp t = Timestamp.valueOf("2000-01-01 00:00:00");
+			stmt.setParameter("t", new SQLParameter(t));
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(0, rs.getLong(1));
+			}
+
+			t.setTime(Timestamp.valueOf("2020-01-01 00:00:00").getTime());
+			stmt.setParameter("t", new SQLParameter(t));
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(1, rs.getLong(1));
+			}
+			Assert.assertEquals(2, params.getMisses());
+			stmt.setParameter("t", new SQLParameter(Timestamp.valueOf("2000-01-01 00:00:00")));
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(0, rs.getLong(1));
+			}
+			Assert.assertEquals(1, params.getHits());
+		}
+
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT :x")) {
+			stmt.setResultCache(cache, "foo");
+			stmt.setObject("x", "1", Types.VARCHAR, null);
+			count(stmt);
+			stmt.setObject("x", "1", Types.INTEGER, null);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(Integer.valueOf(1), rs.getObject(1));
+			}
+			Assert.assertEquals(4, cache.getMisses());
+		}
+
+		// values bound before are unknown
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT :x")) {
+			stmt.setInt("x", 1);
+			try {
+				stmt.setResultCache(cache, "foo");
+				Assert.fail("bound before");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+			stmt.clearParameters();
+			stmt.setResultCache(cache, "foo").setInt("x", 1);
+			count(stmt);
+			Assert.assertEquals(5, cache.getMisses());
+		}
+	}
+
+	@Test
+	public void bounds() throws Exception {
+		final ResultCache cache = new ResultCache(2, 1 << 20);
+		try (ParameterStatement stmt = new ParameterStatement(connection, SELECT)) {
+			stmt.setResultCache(cache, "foo");
+			for (int id = 0; id < 4; id++) {
+				stmt.setLong("id", id);
+				count(stmt);
+			}
+			Assert.assertEquals(2, cache.size());
+			Assert.assertEquals(2, cache.getEvictions());
+			Assert.assertTrue(cache.getWeight() > 0);
+
+			// most recently used are kept
+			stmt.setLong("id", 3);
+			count(stmt);
+			Assert.assertEquals(1, cache.getHits());
+			stmt.setLong("id", 0);
+			count(stmt);
+			Assert.assertEquals(5, cache.getMisses());
+		}
+
+		final ResultCache expiring = new ResultCache().setTimeToLive(1, TimeUnit.NANOSECONDS);
+		try (ParameterStatement stmt = new ParameterStatement(connection, SELECT)) {
+			stmt.setResultCache(expiring, "foo");
+			stmt.setLong("id", 0);
+			count(stmt);
+			Thread.sleep(1);
+			count(stmt);
+			Assert.assertEquals(0, expiring.getHits());
+			Assert.assertEquals(1, expiring.getExpirations());
+		}
+
+		// results heavier than an eighth of max weight are streamed, from a single execution
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("INSERT INTO foo (id, name) SELECT X + 2, 'n' || X FROM SYSTEM_RANGE(1, 100)");
+		}
+		final ResultCache small = new ResultCache(16, 8000);
+		QueryMetrics.setEnabled(true);
+		try (ParameterStatement stmt = new ParameterStatement(connection, SELECT)) {
+			stmt.setResultCache(small, "foo");
+			stmt.setLong("id", 0);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertNotNull(rs.getStatement());
+				for (int row = 1; row <= 102; row++) {
+					Assert.assertTrue(rs.next());
+					Assert.assertEquals(row, rs.getRow());
+					Assert.assertEquals(row, rs.getLong("id"));
+					Assert.assertEquals(row == 1 ? "one" : row == 2 ? null : "n" + (row - 2), rs.getString(2));
+					Assert.assertEquals(row == 2, rs.wasNull());
+				}
+				Assert.assertFalse(rs.next());
+			}
+			Assert.assertEquals(0, small.size());
+			for (QueryStats.Snapshot s : QueryMetrics.getSnapshots()) {
+				if (s.getQuery().equals(SELECT)) {
+					Assert.assertEquals(1, s.getInvocations());
+				}
+			}
+		} finally {
+			QueryMetrics.setEnabled(false);
+			QueryMetrics.clear();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package org.plip.sql;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class ResultExporterTest {
+	private static final int ROWS = 5000;
+
+	private static Connection connection;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:export");
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id BIGINT, name VARCHAR(40), amount DOUBLE, price DECIMAL(10,2), flag BOOLEAN, data VARBINARY(4))");
+			ParameterStatement insert = stack.push(new ParameterStatement(connection, "INSERT INTO foo VALUES (:id, :name, :amount, :price, :flag, :data)"));
+			for (int i = 0; i < ROWS; i++) {
+				insert.setLong("id", i);
+				insert.setString("name", i % 3 == 0 ? "a,\"b\"\u00e5\ud83d\ude00" : i % 3 == 1 ? null : "plain");
+				insert.setDouble("amount", i * 0.5);
+				insert.setObject("price", new java.math.BigDecimal(i).movePointLeft(2), java.sql.Types.DECIMAL, null);
+				insert.setObject("flag", i % 2 == 0, java.sql.Types.BOOLEAN, null);
+				insert.setBytes("data", new byte[] { (byte)i, (byte)0xff });
+				insert.addBatch();
+			}
+			insert.executeBatch();
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Test
+	public void csv() throws Exception {
+		final Path file = Files.createTempFile("export", ".csv.gz");
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT * FROM foo WHERE id >= :id ORDER BY id")) {
+			stmt.setLong("id", 0);
+			ResultExporter.Result result = new ResultExporter(ResultExporter.Format.CSV)
+					.setBufferSize(64).setGzip(true).export(stmt, file);
+			Assert.assertEquals(ROWS, result.getRows());
+			Assert.assertEquals(Files.size(file), result.getWrittenBytes());
+			Assert.assertTrue(result.getBytes() > result.getWrittenBytes());
+
+			try (BufferedReader r = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+				Assert.assertEquals("ID,NAME,AMOUNT,PRICE,FLAG,DATA", r.readLine());
+				Assert.assertEquals("0,\"a,\"\"b\"\"\u00e5\ud83d\ude00\",0.0,0.00,true,00ff", r.readLine());
+				Assert.assertEquals("1,,0.5,0.01,false,01ff", r.readLine());
+				Assert.assertEquals("2,plain,1.0,0.02,true,02ff", r.readLine());
+				int lines = 3;
+				while (r.readLine() != null) {
+					lines++;
+				}
+				Assert.assertEquals(ROWS, lines);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void binary() throws Exception {
+		final Path file = Files.createTempFile("export", ".bin");
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT id, name, amount, price, data FROM foo ORDER BY id")) {
+			ResultExporter exporter = new ResultExporter(ResultExporter.Format.BINARY).setBufferSize(64).setFetchSize(100);
+			ResultExporter.Result result = exporter.export(stmt, file);
+			Assert.assertEquals(ROWS, result.getRows());
+			Assert.assertEquals(Files.size(file), result.getBytes());
+			Assert.assertEquals(result.getBytes(), result.getWrittenBytes());
+
+			try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+				Assert.assertEquals(ResultExporter.BINARY_MAGIC, in.readInt());
+				Assert.assertEquals(5, in.readByte());
+				final byte[] types = { ResultExporter.TYPE_LONG, ResultExporter.TYPE_STRING, ResultExporter.TYPE_DOUBLE, ResultExporter.TYPE_STRING, ResultExporter.TYPE_BYTES };
+				final String[] labels = { "ID", "NAME", "AMOUNT", "PRICE", "DATA" };
+				for (int i = 0; i < 5; i++) {
+					Assert.assertEquals(types[i], in.readByte());
+					in.readInt();
+					Assert.assertEquals(labels[i], readString(in));
+				}
+				for (int row = 0; row < ROWS; row++) {
+					Assert.assertEquals(1, in.readByte());
+					final int nulls = in.readByte();
+					Assert.assertEquals(row % 3 == 1 ? 2 : 0, nulls);
+					Assert.assertEquals(row, in.readLong());
+					if (row % 3 != 1) {
+						Assert.assertEquals(row % 3 == 0 ? "a,\"b\"\u00e5\ud83d\ude00" : "plain", readString(in));
+					}
+					Assert.assertEquals(row * 0.5, in.readDouble(), 0.0);
+					Assert.assertEquals(new java.math.BigDecimal(row).movePointLeft(2).toPlainString(), readString(in));
+					Assert.assertEquals(2, in.readByte());
+					Assert.assertEquals((byte)row, in.readByte());
+					Assert.assertEquals((byte)0xff, in.readByte());
+				}
+				Assert.assertEquals(0, in.readByte());
+				Assert.assertEquals(-1, in.read());
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void replace() throws Exception {
+		final Path dir = Files.createTempDirectory("export");
+		final Path file = dir.resolve("out.csv");
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT id, 1 / (id - :n) AS x FROM foo ORDER BY id")) {
+			Files.write(file, "old\n".getBytes(StandardCharsets.UTF_8));
+			final ResultExporter exporter = new ResultExporter(ResultExporter.Format.CSV).setBufferSize(64);
+
+			// failed export leaves the existing file unchanged
+			stmt.setLong("n", ROWS / 2);
+			try {
+				exporter.setGzip(true).export(stmt, file);
+				Assert.fail("division by zero");
+			} catch (SQLException e) {
+				// expected
+			}
+			Assert.assertEquals(Arrays.asList("old"), Files.readAllLines(file, StandardCharsets.UTF_8));
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+				for (Path p : files) {
+					Assert.assertEquals(file, p);
+				}
+			}
+
+			stmt.setLong("n", -1);
+			final ResultExporter.Result result = exporter.setGzip(false).setHeader(false).export(stmt, file);
+			Assert.assertEquals(ROWS, result.getRows());
+			final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+			Assert.assertEquals(ROWS, lines.size());
+			Assert.assertEquals("0,1", lines.get(0));
+		} finally {
+			Files.deleteIfExists(file);
+			Files.delete(dir);
+		}
+	}
+
+	private static String readString(InputStream in) throws Exception {
+		int len = 0;
+		for (int shift = 0; ; shift += 7) {
+			final int b = in.read();
+			len |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+		}
+		final byte[] b = new byte[len];
+		new DataInputStream(in).readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,164 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ResultIteratorTest {
+	private static final String QUERY = "SELECT X AS id, 'n' || X AS name FROM SYSTEM_RANGE(1, :n)";
+
+	private static final RowMapper<String> mapper = new RowMapper<String>() {
+		@Override
+		public String map(ResultSet rs, int[] columns) throws SQLException {
+			return rs.getLong(columns[0]) + ":" + rs.getString(columns[1]);
+		}
+	};
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:iterator");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Test
+	public void exhaust() throws Exception {
+		try (SQLStack stack = new SQLStack()) {
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, QUERY));
+			stmt.setInt("n", 3);
+			final ResultSet rs = stmt.executeQuery();
+			final ResultIterator<String> it = stack.push(new ResultIterator<String>(rs, mapper, "id", "name"));
+			int row = 0;
+			for (String s : it) {
+				row++;
+				Assert.assertEquals(row + ":n" + row, s);
+				Assert.assertFalse(rs.isClosed());
+			}
+			Assert.assertEquals(3, row);
+			Assert.assertEquals(3, it.getRowCount());
+
+			// closed when exhausted
+			Assert.assertTrue(rs.isClosed());
+			Assert.assertFalse(it.hasNext());
+			try {
+				it.next();
+				Assert.fail("exhausted");
+			} catch (NoSuchElementException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void bind() throws Exception {
+		final List<ResultSet> bound = new ArrayList<>();
+		final RowMapper<String> adapter = new RowMapper.Adapter<String>() {
+			@Override
+			public RowMapper<String> bind(ResultSet rs) throws SQLException {
+				bound.add(rs);
+				final String prefix = rs.getMetaData().getColumnLabel(2) + "=";
+				return new RowMapper<String>() {
+					@Override
+					public String map(ResultSet rs, int[] columns) throws SQLException {
+						return prefix + rs.getString(columns[1]);
+					}
+				};
+			}
+
+			@Override
+			public String map(ResultSet rs, int[] columns) throws SQLException {
+				throw new AssertionError("not bound");
+			}
+		};
+		try (SQLStack stack = new SQLStack()) {
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, QUERY));
+			stmt.setInt("n", 2);
+			final ResultSet rs = stmt.executeQuery();
+			final List<String> rows = new ArrayList<>();
+			for (String s : stack.push(new ResultIterator<String>(rs, adapter, "id", "name"))) {
+				rows.add(s);
+			}
+			Assert.assertEquals("[NAME=n1, NAME=n2]", rows.toString());
+			// bound once per result set
+			Assert.assertEquals(1, bound.size());
+			Assert.assertSame(rs, bound.get(0));
+		}
+	}
+
+	@Test
+	public void empty() throws Exception {
+		try (SQLStack stack = new SQLStack()) {
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, QUERY));
+			stmt.setInt("n", 0);
+			final ResultIterator<String> it = stmt.iterate(stack, mapper, "id", "name");
+			Assert.assertFalse(it.hasNext());
+			Assert.assertEquals(0, it.getRowCount());
+		}
+	}
+
+	@Test
+	public void closeEarly() throws Exception {
+		final ResultSet rs;
+		try (SQLStack stack = new SQLStack()) {
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, QUERY));
+			stmt.setInt("n", 10);
+			rs = stmt.executeQuery();
+			final ResultIterator<String> it = stack.push(new ResultIterator<String>(rs, mapper, "id", "name"));
+			Assert.assertEquals("1:n1", it.next());
+			it.close();
+			Assert.assertTrue(rs.isClosed());
+			Assert.assertFalse(it.hasNext());
+			it.close();
+		}
+	}
+
+	@Test
+	public void error() throws Exception {
+		try (SQLStack stack = new SQLStack()) {
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, QUERY));
+			stmt.setInt("n", 3);
+			final ResultSet rs = stmt.executeQuery();
+			final ResultIterator<String> it = stack.push(new ResultIterator<String>(rs, mapper, "id", "missing"));
+			Assert.assertTrue(it.hasNext());
+			try {
+				it.next();
+				Assert.fail("unknown label");
+			} catch (UncheckedSQLException e) {
+				Assert.assertNotNull(e.getCause());
+			}
+			// closed on error
+			Assert.assertTrue(rs.isClosed());
+			Assert.assertFalse(it.hasNext());
+		}
+
+		// error while fetching
+		try (SQLStack stack = new SQLStack()) {
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, QUERY));
+			stmt.setInt("n", 3);
+			final ResultSet rs = stmt.executeQuery();
+			final ResultIterator<String> it = stack.push(new ResultIterator<String>(rs, mapper, "id", "name"));
+			stmt.borrowStatement().close();
+			try {
+				it.hasNext();
+				Assert.fail("statement closed");
+			} catch (UncheckedSQLException e) {
+				Assert.assertTrue(e.getCause() instanceof SQLException);
+			}
+			Assert.assertFalse(it.hasNext());
+		}
+	}
+}
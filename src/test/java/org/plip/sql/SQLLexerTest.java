@@ -0,0 +1,216 @@
+package org.plip.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class SQLLexerTest {
+
+	private static void assertParsed(SQLDialect dialect, String query, String sql, String... names) {
+		final SQLLexer lexer = SQLLexer.lex(query, dialect);
+		Assert.assertEquals(sql, lexer.sql());
+		Assert.assertEquals(names.length, lexer.count());
+		for (int i = 0; i < names.length; i++) {
+			Assert.assertEquals(names[i], lexer.name(i));
+			Assert.assertEquals('?', sql.charAt(lexer.offset(i)));
+		}
+	}
+
+	@Test
+	public void comments() {
+		assertParsed(SQLDialect.ANSI, "SELECT :a -- :b\nFROM foo /* :c */ WHERE x = :d", "SELECT ? -- :b\nFROM foo /* :c */ WHERE x = ?", "a", "d");
+		assertParsed(SQLDialect.ANSI, "SELECT 1 - :a, 2/:b -- :c", "SELECT 1 - ?, 2/? -- :c", "a", "b");
+		assertParsed(SQLDialect.ANSI, "/* /* :a */ :b */", "/* /* :a */ ? */", "b");
+		assertParsed(SQLDialect.POSTGRESQL, "/* /* :a */ :b */ :c", "/* /* :a */ :b */ ?", "c");
+		assertParsed(SQLDialect.MYSQL, "SELECT 1--:a\n# :b\n-- :c", "SELECT 1--?\n# :b\n-- :c", "a");
+		assertParsed(SQLDialect.ANSI, "SELECT :a # :b", "SELECT ? # ?", "a", "b");
+		assertParsed(SQLDialect.ANSI, "SELECT :a /* :b", "SELECT ? /* :b", "a");
+	}
+
+	@Test
+	public void quotes() {
+		assertParsed(SQLDialect.ANSI, "SELECT ':a''s :b', \":c\"\"\" FROM foo WHERE bar::text = :d", "SELECT ':a''s :b', \":c\"\"\" FROM foo WHERE bar::text = ?", "d");
+		assertParsed(SQLDialect.ANSI, "SELECT 'a\\' :b", "SELECT 'a\\' ?", "b");
+		assertParsed(SQLDialect.MYSQL, "SELECT 'a\\' :b', `:c`, :d", "SELECT 'a\\' :b', `:c`, ?", "d");
+		assertParsed(SQLDialect.POSTGRESQL, "SELECT E'a\\' :b', e'\\\\', :c, 'x\\', :d", "SELECT E'a\\' :b', e'\\\\', ?, 'x\\', ?", "c", "d");
+		assertParsed(SQLDialect.POSTGRESQL, "SELECT WHERE':a'", "SELECT WHERE':a'");
+		assertParsed(SQLDialect.SQLSERVER, "SELECT [:a]]b], :c", "SELECT [:a]]b], ?", "c");
+		assertParsed(SQLDialect.ANSI, "SELECT [:a]", "SELECT [?]", "a");
+		assertParsed(SQLDialect.ANSI, "SELECT ':a", "SELECT ':a");
+	}
+
+	@Test
+	public void dollarQuotes() {
+		assertParsed(SQLDialect.POSTGRESQL, "SELECT $$ :a ' $$, :b", "SELECT $$ :a ' $$, ?", "b");
+		assertParsed(SQLDialect.POSTGRESQL, "SELECT $fn$ :a $$ $x$ $fn$ || :b", "SELECT $fn$ :a $$ $x$ $fn$ || ?", "b");
+		assertParsed(SQLDialect.POSTGRESQL, "SELECT $1, a$b, :c", "SELECT $1, a$b, ?", "c");
+		assertParsed(SQLDialect.POSTGRESQL, "SELECT $$ :a", "SELECT $$ :a");
+		assertParsed(SQLDialect.ANSI, "SELECT $$ :a $$", "SELECT $$ ? $$", "a");
+	}
+
+	@Test
+	public void names() {
+		final SQLLexer lexer = SQLLexer.lex(new StringBuilder("SELECT :a, :bb, :a, :bb, :\u00e5r"), SQLDialect.ANSI);
+		Assert.assertEquals("SELECT ?, ?, ?, ?, ?", lexer.sql());
+		Assert.assertSame(lexer.name(0), lexer.name(2));
+		Assert.assertSame(lexer.name(1), lexer.name(3));
+		Assert.assertEquals("\u00e5r", lexer.name(4));
+
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append(" :p").append(i).append(" :p").append(99 - i);
+		}
+		final SQLLexer many = SQLLexer.lex(sb, SQLDialect.ANSI);
+		Assert.assertEquals(200, many.count());
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals("p" + i, many.name(2 * i));
+			Assert.assertSame(many.name(2 * i), many.name(2 * (99 - i) + 1));
+		}
+	}
+
+	/**
+	 * Builds random queries of tokens with known rewrites.
+	 */
+	private static final class Generator {
+		final Random		random;
+		final SQLDialect	dialect;
+		final StringBuilder	query = new StringBuilder();
+		final StringBuilder	sql = new StringBuilder();
+		final List<String>	names = new ArrayList<>();
+
+		Generator(Random random, SQLDialect dialect) {
+			this.random = random;
+			this.dialect = dialect;
+		}
+
+		String noise() {
+			final String chars = "ab :x''\"\"-/*$#`[]\\?\u00e9\n";
+			final StringBuilder sb = new StringBuilder();
+			for (int i = random.nextInt(8); i > 0; i--) {
+				sb.append(chars.charAt(random.nextInt(chars.length())));
+			}
+			return sb.toString();
+		}
+
+		void verbatim(String s) {
+			query.append(s);
+			sql.append(s);
+		}
+
+		void token() {
+			switch (random.nextInt(12)) {
+			case 0:
+			case 1: {
+				final String name = "p" + random.nextInt(5) + (random.nextBoolean() ? "_\u00e9" : "");
+				query.append(':').append(name);
+				sql.append('?');
+				names.add(name);
+				break;
+			}
+			case 2:
+				verbatim("x::int");
+				break;
+			case 3:
+				verbatim("'" + noise().replace("'", "''").replace("\\", "") + "'");
+				break;
+			case 4:
+				verbatim("\"" + noise().replace("\"", "\"\"") + "\"");
+				break;
+			case 5:
+				verbatim("-- " + noise().replace("\n", "") + "\n");
+				break;
+			case 6:
+				verbatim("/*" + noise().replace("*", "").replace("/", "") + "*/");
+				break;
+			case 7:
+				if (dialect == SQLDialect.POSTGRESQL) {
+					verbatim("$q$" + noise().replace("$", "") + "$q$");
+				} else if (dialect == SQLDialect.MYSQL) {
+					verbatim("`" + noise().replace("`", "``") + "`");
+				} else if (dialect == SQLDialect.SQLSERVER) {
+					verbatim("[" + noise().replace("]", "]]") + "]");
+				}
+				break;
+			case 8:
+				if (dialect == SQLDialect.POSTGRESQL || dialect == SQLDialect.MYSQL) {
+					final String prefix = dialect == SQLDialect.POSTGRESQL ? "E'" : "'";
+					verbatim(prefix + noise().replace("\\", "\\\\").replace("'", "\\'") + "'");
+				}
+				break;
+			case 9:
+				if (dialect.nestedComments) {
+					verbatim("/* /*" + noise().replace("*", "").replace("/", "") + "*/ :x */");
+				}
+				break;
+			default:
+				verbatim(random.nextBoolean() ? "foo" : "= 1 ,");
+				break;
+			}
+			verbatim(random.nextBoolean() ? " " : "\n");
+		}
+	}
+
+	@Test
+	public void fuzz() {
+		final Random random = new Random(0x5eed);
+		for (SQLDialect dialect : SQLDialect.values()) {
+			for (int round = 0; round < 2000; round++) {
+				final Generator g = new Generator(random, dialect);
+				for (int i = random.nextInt(30); i >= 0; i--) {
+					g.token();
+				}
+				final String query = g.query.toString();
+				assertParsed(dialect, query, g.sql.toString(), g.names.toArray(new String[0]));
+
+				final ParsedQuery q = ParsedQuery.parse(query, dialect);
+				final Map<String, List<Integer>> expected = new HashMap<>();
+				for (int i = 0; i < g.names.size(); i++) {
+					if (!expected.containsKey(g.names.get(i))) {
+						expected.put(g.names.get(i), new ArrayList<Integer>());
+					}
+					expected.get(g.names.get(i)).add(i + 1);
+				}
+				Assert.assertEquals(query, expected.keySet(), q.getParameters());
+				for (Map.Entry<String, List<Integer>> e : expected.entrySet()) {
+					Assert.assertEquals(query, e.getValue(), q.getIndices(e.getKey()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void fuzzNoise() {
+		final Random random = new Random(42);
+		final char[] chars = "a:_'\"`[]-/*$#\\E\n ?".toCharArray();
+		for (SQLDialect dialect : SQLDialect.values()) {
+			for (int round = 0; round < 20000; round++) {
+				final char[] query = new char[random.nextInt(40)];
+				for (int i = 0; i < query.length; i++) {
+					query[i] = chars[random.nextInt(chars.length)];
+				}
+				final String s = new String(query);
+				final SQLLexer lexer = SQLLexer.lex(s, dialect);
+				final String sql = lexer.sql();
+
+				// each placeholder replaces a colon and its name
+				int removed = 0;
+				for (int i = 0; i < lexer.count(); i++) {
+					Assert.assertEquals(s, '?', sql.charAt(lexer.offset(i)));
+					removed += lexer.name(i).length();
+				}
+				Assert.assertEquals(s, s.length() - removed, sql.length());
+
+				// without parameters the query is unchanged
+				final String plain = s.replace(':', ' ');
+				Assert.assertEquals(plain, SQLLexer.lex(plain, dialect).sql());
+				Assert.assertEquals(Arrays.asList(), Arrays.asList(new String[SQLLexer.lex(plain, dialect).count()]));
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+public class SQLParameterTest {
+	private static Connection connection;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:parameter");
+	}
+
+	@AfterClass
+	public static void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Test
+	public void equality() {
+		Assert.assertEquals(new SQLParameter.OfLong(7), new SQLParameter.OfLong(7));
+		Assert.assertEquals(new SQLParameter.OfLong(7).hashCode(), new SQLParameter.OfLong(7).hashCode());
+		Assert.assertNotEquals(new SQLParameter.OfLong(7), new SQLParameter.OfLong(8));
+		Assert.assertNotEquals(new SQLParameter.OfLong(7), new SQLParameter.OfInt(7));
+		Assert.assertNotEquals(new SQLParameter.OfLong(7), new SQLParameter(7L));
+
+		Assert.assertEquals(new SQLParameter.OfInt(-3), new SQLParameter.OfInt(-3));
+		Assert.assertEquals(new SQLParameter.OfInt(-3).hashCode(), new SQLParameter.OfInt(-3).hashCode());
+		Assert.assertNotEquals(new SQLParameter.OfInt(-3), new SQLParameter.OfInt(3));
+
+		Assert.assertEquals(new SQLParameter.OfDouble(Double.NaN), new SQLParameter.OfDouble(Double.NaN));
+		Assert.assertEquals(new SQLParameter.OfDouble(0.5).hashCode(), new SQLParameter.OfDouble(0.5).hashCode());
+		Assert.assertNotEquals(new SQLParameter.OfDouble(0.0), new SQLParameter.OfDouble(-0.0));
+
+		Assert.assertEquals(new SQLParameter(new byte[] { 1, 2 }, Types.VARBINARY), new SQLParameter(new byte[] { 1, 2 }, Types.VARBINARY));
+		Assert.assertEquals(new SQLParameter(new byte[] { 1, 2 }, Types.VARBINARY).hashCode(), new SQLParameter(new byte[] { 1, 2 }, Types.VARBINARY).hashCode());
+		Assert.assertNotEquals(new SQLParameter("a"), new SQLParameter("a", Types.CHAR));
+		Assert.assertNotEquals(new SQLParameter("a"), new SQLParameter((String)null));
+
+		final SQLParameter.OfCollection c = new SQLParameter.OfCollection(Arrays.asList(1, 2), Types.INTEGER);
+		Assert.assertEquals(c, new SQLParameter.OfCollection(Arrays.asList(1, 2), Types.INTEGER));
+		Assert.assertEquals(c.hashCode(), new SQLParameter.OfCollection(Arrays.asList(1, 2), Types.INTEGER).hashCode());
+		Assert.assertNotEquals(c, new SQLParameter.OfCollection(Arrays.asList(2, 1), Types.INTEGER));
+		Assert.assertNotEquals(c, new SQLParameter.OfCollection(Arrays.asList(1, 2), Types.BIGINT));
+	}
+
+	@Test
+	public void estimateSize() {
+		Assert.assertEquals(8, new SQLParameter.OfLong(1).estimateSize());
+		Assert.assertEquals(4, new SQLParameter.OfInt(1).estimateSize());
+		Assert.assertEquals(8, new SQLParameter.OfDouble(1).estimateSize());
+		Assert.assertEquals(6, new SQLParameter("abc").estimateSize());
+		Assert.assertEquals(3, new SQLParameter(new byte[3], Types.VARBINARY).estimateSize());
+		Assert.assertEquals(1, new SQLParameter((String)null).estimateSize());
+		Assert.assertEquals(24, new SQLParameter.OfCollection(Arrays.asList(1, 2, 3), Types.INTEGER).estimateSize());
+		Assert.assertEquals(0, new SQLParameter.OfCollection(Collections.emptyList(), Types.INTEGER).estimateSize());
+	}
+
+	@Test
+	public void bind() throws Exception {
+		try (PreparedStatement stmt = connection.prepareStatement("SELECT CAST(? AS BIGINT), CAST(? AS INT), CAST(? AS DOUBLE), CAST(? AS INT)")) {
+			new SQLParameter.OfLong(Long.MAX_VALUE).bind(stmt, 1);
+			new SQLParameter.OfInt(Integer.MIN_VALUE).bind(stmt, 2);
+			new SQLParameter.OfDouble(0.25).bind(stmt, 3);
+			new SQLParameter.OfCollection(Arrays.asList(42), Types.INTEGER).bind(stmt, 4);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(Long.MAX_VALUE, rs.getLong(1));
+				Assert.assertEquals(Integer.MIN_VALUE, rs.getInt(2));
+				Assert.assertEquals(0.25, rs.getDouble(3), 0);
+				Assert.assertEquals(42, rs.getInt(4));
+			}
+		}
+
+		try (PreparedStatement stmt = connection.prepareStatement("SELECT CAST(? AS INT)")) {
+			try {
+				new SQLParameter.OfCollection(Arrays.asList(1, 2), Types.INTEGER).bind(stmt, 1);
+				Assert.fail("not expanded");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void bindCollection() throws Exception {
+		try (PreparedStatement stmt = connection.prepareStatement("SELECT CAST(? AS INT), CAST(? AS INT), CAST(? AS INT), CAST(? AS INT)")) {
+			// one occurrence of width 2, padded with the last element
+			new SQLParameter.OfCollection(Arrays.asList(5, 6), Types.INTEGER).bind(stmt, new int[] { 1, 2 }, 2);
+			// two occurrences of width 1, empty collection is NULL
+			new SQLParameter.OfCollection(Collections.emptyList(), Types.INTEGER).bind(stmt, new int[] { 3, 4 }, 1);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(5, rs.getInt(1));
+				Assert.assertEquals(6, rs.getInt(2));
+				rs.getInt(3);
+				Assert.assertTrue(rs.wasNull());
+				rs.getInt(4);
+				Assert.assertTrue(rs.wasNull());
+			}
+
+			new SQLParameter.OfCollection(Arrays.asList(7), Types.INTEGER).bind(stmt, new int[] { 1, 2, 3, 4 }, 4);
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				for (int i = 1; i <= 4; i++) {
+					Assert.assertEquals(7, rs.getInt(i));
+				}
+			}
+
+			try {
+				new SQLParameter.OfCollection(Arrays.asList(1, 2, 3), Types.INTEGER).bind(stmt, new int[] { 1, 2 }, 2);
+				Assert.fail("exceeds width");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+
+		// through a statement, for an expanded query
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT COUNT(*) FROM (VALUES (1), (2), (3)) t(x) WHERE x IN (:ids)")) {
+			stmt.setParameter("ids", new SQLParameter.OfCollection(Collections.emptyList(), Types.INTEGER));
+			try (ResultSet rs = stmt.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				Assert.assertEquals(0, rs.getInt(1));
+			}
+		}
+	}
+}
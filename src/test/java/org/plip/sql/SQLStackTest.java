@@ -0,0 +1,79 @@
+package org.plip.sql;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class SQLStackTest {
+
+	private static SQLClosable closable(final List<String> log, final String name, final boolean fail) {
+		return new SQLClosable() {
+			@Override
+			public void close() throws SQLException {
+				log.add(name);
+				if (fail) {
+					throw new SQLException(name);
+				}
+			}
+		};
+	}
+
+	@Test
+	public void closeOrder() throws SQLException {
+		for (SQLStack stack : Arrays.asList(new SQLStack(), SQLStack.local(), SQLStack.acquire())) {
+			List<String> log = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				stack.push(closable(log, "c" + i, false));
+			}
+			stack.pop();
+			stack.close();
+
+			Assert.assertEquals(19, log.size());
+			Assert.assertEquals("c18", log.get(0));
+			Assert.assertEquals("c0", log.get(18));
+		}
+	}
+
+	@Test
+	public void closeChainsExceptions() {
+		List<String> log = new ArrayList<>();
+		SQLStack stack = SQLStack.local();
+		stack.push(closable(log, "a", true));
+		stack.push(closable(log, "b", false));
+		stack.push(closable(log, "c", true));
+		try {
+			stack.close();
+			Assert.fail();
+		} catch (SQLException e) {
+			Assert.assertEquals("c", e.getMessage());
+			Assert.assertEquals("a", e.getNextException().getMessage());
+			Assert.assertEquals(1, e.getSuppressed().length);
+		}
+		Assert.assertEquals(Arrays.asList("c", "b", "a"), log);
+	}
+
+	@Test
+	public void claim() throws SQLException {
+		List<String> log = new ArrayList<>();
+		SQLStack stack = SQLStack.acquire();
+		stack.push(closable(log, "a", false));
+		SQLStack claimed = stack.claim();
+		stack.close();
+		Assert.assertTrue(log.isEmpty());
+		claimed.close();
+		Assert.assertEquals(Arrays.asList("a"), log);
+	}
+
+	@Test
+	public void pooled() throws SQLException {
+		SQLStack stack = SQLStack.acquire();
+		stack.close();
+		stack.close();
+		Assert.assertSame(stack, SQLStack.acquire());
+		Assert.assertNotSame(stack, SQLStack.acquire());
+	}
+}
@@ -0,0 +1,192 @@
+package org.plip.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class SettableFutureTest {
+	private static final Logger logger = Logger.getLogger(SettableFuture.class.getName());
+
+	private static final Executor direct = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	/** Records outcomes as strings. */
+	private static final class Recorder implements SQLFuture.Callback<Object> {
+		final List<String> outcomes = new ArrayList<>();
+
+		@Override
+		public void onSuccess(Object result) {
+			outcomes.add("success " + result);
+		}
+
+		@Override
+		public void onFailure(Throwable error) {
+			outcomes.add("failure " + error.getClass().getSimpleName());
+		}
+	}
+
+	@Before
+	public void setUp() {
+		// listener failures are logged
+		logger.setUseParentHandlers(false);
+	}
+
+	@After
+	public void tearDown() {
+		logger.setUseParentHandlers(true);
+	}
+
+	@Test(timeout = 10000)
+	public void set() throws Exception {
+		final SettableFuture<String> f = new SettableFuture<>();
+		final Recorder recorder = new Recorder();
+		f.addCallback(recorder);
+		Assert.assertFalse(f.isDone());
+		try {
+			f.get(1, TimeUnit.MILLISECONDS);
+			Assert.fail("pending");
+		} catch (TimeoutException e) {
+			// expected
+		}
+		Assert.assertTrue(recorder.outcomes.isEmpty());
+
+		Assert.assertTrue(f.set("a"));
+		Assert.assertFalse(f.set("b"));
+		Assert.assertFalse(f.fail(new Exception()));
+		Assert.assertFalse(f.cancel(true));
+		Assert.assertTrue(f.isDone());
+		Assert.assertFalse(f.isCancelled());
+		Assert.assertEquals("a", f.get());
+		Assert.assertEquals("a", f.get(0, TimeUnit.MILLISECONDS));
+
+		// added when done, called immediately
+		f.addCallback(recorder);
+		Assert.assertEquals("[success a, success a]", recorder.outcomes.toString());
+	}
+
+	@Test(timeout = 10000)
+	public void fail() throws Exception {
+		final SettableFuture<String> f = new SettableFuture<>();
+		final Recorder recorder = new Recorder();
+		f.addCallback(recorder);
+		final IllegalStateException error = new IllegalStateException();
+		Assert.assertTrue(f.fail(error));
+		try {
+			f.get();
+			Assert.fail("failed");
+		} catch (ExecutionException e) {
+			Assert.assertSame(error, e.getCause());
+		}
+		Assert.assertEquals("[failure IllegalStateException]", recorder.outcomes.toString());
+	}
+
+	@Test(timeout = 10000)
+	public void cancel() throws Exception {
+		final List<Boolean> cancelled = new ArrayList<>();
+		final SettableFuture<String> f = new SettableFuture<String>() {
+			@Override
+			protected void cancelled(boolean mayInterruptIfRunning) {
+				cancelled.add(mayInterruptIfRunning);
+			}
+		};
+		final Recorder recorder = new Recorder();
+		f.addCallback(recorder);
+		Assert.assertTrue(f.cancel(true));
+		Assert.assertFalse(f.cancel(false));
+		Assert.assertFalse(f.set("a"));
+		Assert.assertTrue(f.isCancelled());
+		Assert.assertEquals("[true]", cancelled.toString());
+		Assert.assertEquals("[failure CancellationException]", recorder.outcomes.toString());
+		try {
+			f.get();
+			Assert.fail("cancelled");
+		} catch (CancellationException e) {
+			// expected
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void listeners() throws Exception {
+		final SettableFuture<String> f = new SettableFuture<>();
+		final List<String> runs = new ArrayList<>();
+		final List<Runnable> later = new ArrayList<>();
+		f.addListener(new Runnable() {
+			@Override
+			public void run() {
+				runs.add("first");
+				throw new IllegalStateException("listener failed");
+			}
+		}, direct);
+		f.addListener(new Runnable() {
+			@Override
+			public void run() {
+				runs.add("second");
+			}
+		}, new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				later.add(command);
+			}
+		});
+		f.addCallback(new SQLFuture.Callback<String>() {
+			@Override
+			public void onSuccess(String result) {
+				runs.add("callback " + result);
+				throw new AssertionError("callback failed");
+			}
+
+			@Override
+			public void onFailure(Throwable error) {
+				runs.add("failure");
+			}
+		});
+
+		// failing listeners neither reach the completing thread nor stop other listeners
+		Assert.assertTrue(f.set("a"));
+		Assert.assertEquals("[first, callback a]", runs.toString());
+		Assert.assertEquals(1, later.size());
+		later.get(0).run();
+		Assert.assertEquals("[first, callback a, second]", runs.toString());
+
+		// also when added after completion
+		f.addListener(new Runnable() {
+			@Override
+			public void run() {
+				throw new IllegalStateException("listener failed");
+			}
+		}, direct);
+	}
+
+	@Test(timeout = 10000)
+	public void waiting() throws Exception {
+		final SettableFuture<String> f = new SettableFuture<>();
+		final Thread t = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					// complete anyway
+				}
+				f.set("a");
+			}
+		};
+		t.start();
+		Assert.assertEquals("a", f.get(10, TimeUnit.SECONDS));
+		t.join();
+	}
+}
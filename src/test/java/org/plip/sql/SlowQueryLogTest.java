@@ -0,0 +1,182 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class SlowQueryLogTest {
+	private static final Logger logger = Logger.getLogger(SlowQueryLog.LOGGER_NAME);
+
+	private Connection connection;
+
+	private final List<SlowQueryLog.Entry> entries = new ArrayList<>();
+
+	private final Handler handler = new Handler() {
+		@Override
+		public void publish(LogRecord record) {
+			Assert.assertEquals(Level.WARNING, record.getLevel());
+			final SlowQueryLog.Entry entry = (SlowQueryLog.Entry)record.getParameters()[0];
+			Assert.assertEquals(entry.toString(), record.getMessage());
+			Assert.assertSame(entry.getError(), record.getThrown());
+			entries.add(entry);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:slow");
+		logger.addHandler(handler);
+		logger.setUseParentHandlers(false);
+		SlowQueryLog.setMaxPerSecond(1000);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		SlowQueryLog.disable();
+		SlowQueryLog.setRedactor(null);
+		SlowQueryLog.setMaxPerSecond(SlowQueryLog.DEFAULT_MAX_PER_SECOND);
+		logger.removeHandler(handler);
+		logger.setUseParentHandlers(true);
+		connection.close();
+	}
+
+	private void select(ParameterStatement stmt, int a, String b) throws SQLException {
+		stmt.setInt("a", a);
+		stmt.setString("b", b);
+		stmt.executeQuery().close();
+	}
+
+	@Test
+	public void threshold() throws Exception {
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT :a, :b")) {
+			select(stmt, 1, "x");
+			Assert.assertFalse(SlowQueryLog.isEnabled());
+
+			SlowQueryLog.setThreshold(1, TimeUnit.HOURS);
+			Assert.assertTrue(SlowQueryLog.isEnabled());
+			select(stmt, 2, "y");
+			Assert.assertTrue(entries.isEmpty());
+
+			SlowQueryLog.setThreshold(0, TimeUnit.NANOSECONDS);
+			stmt.setFetchSize(7);
+			select(stmt, 3, "z");
+			Assert.assertEquals(1, entries.size());
+			final SlowQueryLog.Entry entry = entries.get(0);
+			Assert.assertEquals("SELECT :a, :b", entry.getQuery());
+			Assert.assertEquals("{a=3, b=z}", entry.getParameters().toString());
+			Assert.assertEquals(7, entry.getFetchSize());
+			Assert.assertEquals(-1, entry.getBatchSize());
+			Assert.assertNull(entry.getError());
+			Assert.assertTrue(entry.getElapsedNanos() >= 0);
+
+			SlowQueryLog.disable();
+			select(stmt, 4, "w");
+			Assert.assertEquals(1, entries.size());
+		}
+	}
+
+	@Test
+	public void failures() throws Exception {
+		SlowQueryLog.setThreshold(0, TimeUnit.NANOSECONDS);
+		try (StatementCache cache = new StatementCache(connection)) {
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT :a, :b")) {
+				select(stmt, 1, "x");
+			}
+			// values of the previous borrower are not logged
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT :a, :b")) {
+				stmt.setInt("a", 2);
+				stmt.executeQuery();
+				Assert.fail("b not bound");
+			} catch (SQLException e) {
+				final SlowQueryLog.Entry entry = entries.get(1);
+				Assert.assertSame(e, entry.getError());
+				Assert.assertEquals("{a=2}", entry.getParameters().toString());
+				Assert.assertTrue(entry.toString().contains(" error=" + e));
+			}
+			Assert.assertEquals(1, cache.getHits());
+		}
+	}
+
+	@Test
+	public void formatting() throws Exception {
+		SlowQueryLog.setThreshold(0, TimeUnit.NANOSECONDS);
+		SlowQueryLog.setRedactor(SlowQueryLog.redactNames("Secret"));
+		final char[] longText = new char[300];
+		Arrays.fill(longText, 'c');
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT :bytes, :text, :secret, :ids",
+				Collections.<String, SQLParameter>singletonMap("ids", new SQLParameter.OfCollection(Arrays.asList(1, 2), Types.INTEGER)))) {
+			stmt.setBytes("bytes", new byte[3]);
+			stmt.setString("text", new String(longText));
+			stmt.setString("secret", "hunter2");
+			stmt.execute();
+		}
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id INT)");
+			final ParameterStatement stmt = stack.push(new ParameterStatement(connection, "INSERT INTO foo VALUES (:id)"));
+			for (int i = 0; i < 2; i++) {
+				stmt.setInt("id", i);
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}
+		Assert.assertEquals(2, entries.size());
+
+		final SlowQueryLog.Entry entry = entries.get(0);
+		Assert.assertEquals(SlowQueryLog.REDACTED, entry.getParameters().get("secret"));
+		final String s = entry.toString();
+		Assert.assertTrue(s, s.startsWith("slow query "));
+		Assert.assertTrue(s, s.contains("ms fetchSize=100: SELECT :bytes, :text, :secret, :ids {bytes=byte[3], text=ccc"));
+		Assert.assertTrue(s, s.contains("c..., secret=***, ids=[1, 2]}"));
+		Assert.assertFalse(s, s.contains("hunter2"));
+		Assert.assertFalse(s, s.contains(new String(longText, 0, 257)));
+
+		Assert.assertEquals(2, entries.get(1).getBatchSize());
+		Assert.assertTrue(entries.get(1).toString().endsWith(" batchSize=2: INSERT INTO foo VALUES (:id) {id=1}"));
+	}
+
+	@Test(timeout = 10000)
+	public void rateCap() throws Exception {
+		SlowQueryLog.setThreshold(0, TimeUnit.NANOSECONDS);
+		SlowQueryLog.setMaxPerSecond(2);
+		try (ParameterStatement stmt = new ParameterStatement(connection, "SELECT :a, :b")) {
+			// start a new window
+			Thread.sleep(1100);
+			for (int i = 0; i < 5; i++) {
+				select(stmt, i, "x");
+			}
+			Assert.assertEquals(2, entries.size());
+			Assert.assertEquals(3, SlowQueryLog.getSuppressed());
+
+			// dropped entries are counted in the next logged one
+			Thread.sleep(1100);
+			select(stmt, 5, "x");
+			Assert.assertEquals(3, entries.size());
+			Assert.assertEquals(3, entries.get(2).getSuppressed());
+			Assert.assertTrue(entries.get(2).toString().contains(" suppressed=3: "));
+			Assert.assertEquals(0, SlowQueryLog.getSuppressed());
+		}
+	}
+}
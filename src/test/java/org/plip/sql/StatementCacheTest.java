@@ -0,0 +1,113 @@
+package org.plip.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class StatementCacheTest {
+	private Connection connection;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:statements");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Test
+	public void reuse() throws Exception {
+		try (StatementCache cache = new StatementCache(connection)) {
+			final PreparedStatement first;
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT :a")) {
+				first = stmt.borrowStatement();
+				stmt.setInt("a", 1);
+				stmt.executeQuery();
+			}
+			Assert.assertFalse(first.isClosed());
+			Assert.assertEquals(1, cache.size());
+
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT :a");
+					ParameterStatement other = new ParameterStatement(cache, "SELECT :a")) {
+				Assert.assertSame(first, stmt.borrowStatement());
+				Assert.assertNotSame(first, other.borrowStatement());
+				Assert.assertFalse(stmt.isBound());
+				stmt.setInt("a", 2);
+				try (ResultSet rs = stmt.executeQuery()) {
+					Assert.assertTrue(rs.next());
+					Assert.assertEquals(2, rs.getInt(1));
+				}
+			}
+			// only one idle statement per query, the other one is closed
+			Assert.assertEquals(1, cache.size());
+			Assert.assertEquals(1, cache.getHits());
+			Assert.assertEquals(2, cache.getMisses());
+		}
+		Assert.assertTrue(connection.isValid(1));
+	}
+
+	@Test
+	public void eviction() throws Exception {
+		final PreparedStatement[] stmts = new PreparedStatement[3];
+		try (StatementCache cache = new StatementCache(connection, 2)) {
+			for (int i = 0; i < 3; i++) {
+				try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT " + i)) {
+					stmts[i] = stmt.borrowStatement();
+				}
+			}
+			// least recently used is closed
+			Assert.assertEquals(2, cache.size());
+			Assert.assertEquals(1, cache.getEvictions());
+			Assert.assertTrue(stmts[0].isClosed());
+			Assert.assertFalse(stmts[1].isClosed());
+
+			// using 1 makes 2 least recently used
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT 1")) {
+				Assert.assertSame(stmts[1], stmt.borrowStatement());
+			}
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT 0")) {
+				Assert.assertNotSame(stmts[0], stmt.borrowStatement());
+			}
+			Assert.assertTrue(stmts[2].isClosed());
+			Assert.assertFalse(stmts[1].isClosed());
+			Assert.assertEquals(2, cache.getEvictions());
+		}
+		Assert.assertTrue(stmts[1].isClosed());
+	}
+
+	@Test
+	public void settings() throws Exception {
+		try (StatementCache cache = new StatementCache(connection)) {
+			final int fetchSize;
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT X FROM SYSTEM_RANGE(1, 10)")) {
+				final PreparedStatement ps = stmt.borrowStatement();
+				fetchSize = ps.getFetchSize();
+				stmt.setFetchSize(fetchSize + 5);
+				ps.setMaxRows(2);
+				ps.setQueryTimeout(7);
+			}
+			try (ParameterStatement stmt = new ParameterStatement(cache, "SELECT X FROM SYSTEM_RANGE(1, 10)")) {
+				final PreparedStatement ps = stmt.borrowStatement();
+				Assert.assertEquals(fetchSize, ps.getFetchSize());
+				Assert.assertEquals(0, ps.getMaxRows());
+				Assert.assertEquals(0, ps.getQueryTimeout());
+				int rows = 0;
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						rows++;
+					}
+				}
+				Assert.assertEquals(10, rows);
+			}
+			Assert.assertEquals(1, cache.getHits());
+		}
+	}
+}
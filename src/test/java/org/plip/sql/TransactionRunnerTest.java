@@ -0,0 +1,236 @@
+package org.plip.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class TransactionRunnerTest {
+	private Connection connection;
+
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:runner;DB_CLOSE_DELAY=-1");
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("CREATE TABLE foo (id INT)");
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (SQLStack stack = new SQLStack()) {
+			stack.push(connection.createStatement()).execute("DROP TABLE foo");
+		}
+		connection.close();
+	}
+
+	private int count() throws SQLException {
+		try (SQLStack stack = new SQLStack()) {
+			final ResultSet rs = stack.push(stack.push(connection.createStatement()).executeQuery("SELECT COUNT(*) FROM foo"));
+			Assert.assertTrue(rs.next());
+			return rs.getInt(1);
+		}
+	}
+
+	/**
+	 * Inserts a row, then fails with the given exceptions in turn.
+	 */
+	private static TransactionRunner.Work<Integer> work(final AtomicInteger calls, final SQLException... failures) {
+		return new TransactionRunner.Work<Integer>() {
+			@Override
+			public Integer run(Connection connection) throws SQLException {
+				final int call = calls.getAndIncrement();
+				try (ParameterStatement stmt = new ParameterStatement(connection, "INSERT INTO foo VALUES (:id)")) {
+					stmt.setInt("id", call);
+					stmt.executeUpdate();
+				}
+				if (call < failures.length) {
+					throw failures[call];
+				}
+				return call;
+			}
+		};
+	}
+
+	private static TransactionRunner runner() {
+		return new TransactionRunner().setBackoff(0, 1, TimeUnit.MILLISECONDS);
+	}
+
+	@Test
+	public void retry() throws Exception {
+		final TransactionRunner runner = runner();
+		final AtomicInteger calls = new AtomicInteger();
+		Assert.assertEquals(2, (int)runner.execute(connection, work(calls,
+				new SQLException("serialization", "40001"), new SQLTransactionRollbackException("deadlock"))));
+
+		// failed attempts are rolled back also in auto-commit mode, which is restored
+		Assert.assertEquals(1, count());
+		Assert.assertTrue(connection.getAutoCommit());
+		Assert.assertEquals(1, runner.getExecutions());
+		Assert.assertEquals(2, runner.getRetries());
+		Assert.assertEquals(0, runner.getFailures());
+	}
+
+	@Test
+	public void notRetryable() throws Exception {
+		final TransactionRunner runner = runner();
+		final SQLException failure = new SQLException("constraint", "23505");
+		try {
+			runner.execute(connection, work(new AtomicInteger(), failure));
+			Assert.fail("not retryable");
+		} catch (SQLException e) {
+			Assert.assertSame(failure, e);
+		}
+		Assert.assertEquals(0, count());
+		Assert.assertTrue(connection.getAutoCommit());
+		Assert.assertEquals(1, runner.getAttempts());
+		Assert.assertEquals(1, runner.getFailures());
+
+		// caller's transaction is left to the caller
+		connection.setAutoCommit(false);
+		try {
+			Assert.assertEquals(0, (int)runner.execute(connection, work(new AtomicInteger())));
+			Assert.assertFalse(connection.getAutoCommit());
+		} finally {
+			connection.setAutoCommit(true);
+		}
+		Assert.assertEquals(1, count());
+	}
+
+	@Test
+	public void runtimeFailure() throws Exception {
+		final TransactionRunner runner = runner();
+		final IllegalStateException failure = new IllegalStateException("bug");
+		try {
+			runner.execute(connection, new TransactionRunner.Work<Integer>() {
+				@Override
+				public Integer run(Connection connection) throws SQLException {
+					work(new AtomicInteger()).run(connection);
+					try {
+						Thread.sleep(1);
+					} catch (InterruptedException e) {
+						throw new SQLException(e);
+					}
+					throw failure;
+				}
+			});
+			Assert.fail("failed");
+		} catch (IllegalStateException e) {
+			Assert.assertSame(failure, e);
+		}
+		Assert.assertEquals(0, count());
+		Assert.assertTrue(connection.getAutoCommit());
+		Assert.assertEquals(1, runner.getAttempts());
+		Assert.assertEquals(1, runner.getFailures());
+		Assert.assertTrue(runner.getWastedTime(TimeUnit.NANOSECONDS) > 0);
+	}
+
+	@Test
+	public void autoCommitFailure() throws Exception {
+		// failing to restore auto-commit doesn't replace the failure of the work
+		final Connection failing = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("setAutoCommit") && (Boolean)args[0]) {
+					connection.setAutoCommit(true);
+					throw new SQLException("connection lost");
+				}
+				try {
+					return method.invoke(connection, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+		final SQLException failure = new SQLException("constraint", "23505");
+		try {
+			runner().execute(failing, work(new AtomicInteger(), failure));
+			Assert.fail("not retryable");
+		} catch (SQLException e) {
+			Assert.assertSame(failure, e);
+			Assert.assertEquals("connection lost", e.getSuppressed()[0].getMessage());
+		}
+		Assert.assertEquals(0, count());
+	}
+
+	@Test
+	public void limits() throws Exception {
+		final SQLException busy = new SQLException("serialization", "40001");
+		final TransactionRunner runner = runner().setMaxAttempts(3);
+		try {
+			runner.execute(connection, work(new AtomicInteger(), busy, busy, busy, busy));
+			Assert.fail("out of attempts");
+		} catch (SQLException e) {
+			Assert.assertSame(busy, e);
+		}
+		Assert.assertEquals(3, runner.getAttempts());
+
+		// no retry started past max elapsed time
+		final TransactionRunner deadline = runner().setMaxElapsed(0, TimeUnit.MILLISECONDS);
+		try {
+			deadline.execute(connection, work(new AtomicInteger(), busy));
+			Assert.fail("out of time");
+		} catch (SQLException e) {
+			Assert.assertSame(busy, e);
+		}
+		Assert.assertEquals(1, deadline.getAttempts());
+		Assert.assertEquals(1, deadline.getFailures());
+		Assert.assertEquals(0, count());
+	}
+
+	@Test
+	public void backoff() {
+		final TransactionRunner runner = new TransactionRunner().setBackoff(10, 35, TimeUnit.NANOSECONDS);
+		final long[] ceilings = { 10, 20, 35, 35 };
+		final boolean[] reached = new boolean[ceilings.length];
+		for (int i = 0; i < 1000; i++) {
+			for (int attempt = 1; attempt <= ceilings.length; attempt++) {
+				final long backoff = runner.backoffNanos(attempt);
+				Assert.assertTrue(backoff >= 0 && backoff <= ceilings[attempt - 1]);
+				reached[attempt - 1] |= backoff > ceilings[attempt - 1] / 2;
+			}
+		}
+		for (boolean r : reached) {
+			Assert.assertTrue(r);
+		}
+		// capped also when doubling would overflow
+		Assert.assertTrue(runner.backoffNanos(100) <= 35);
+	}
+
+	@Test
+	public void classify() {
+		final TransactionRunner runner = new TransactionRunner();
+		Assert.assertTrue(runner.isRetryable(new SQLException("serialization", "40001")));
+		Assert.assertTrue(runner.isRetryable(new SQLException("deadlock", "40P01")));
+		Assert.assertTrue(runner.isRetryable(new SQLTransactionRollbackException("rollback")));
+		Assert.assertFalse(runner.isRetryable(new SQLException("constraint", "23505")));
+		Assert.assertFalse(runner.isRetryable(new SQLException("no state")));
+
+		// cause
+		Assert.assertTrue(runner.isRetryable(new SQLException("wrapped", "XX000", new SQLException("deadlock", "40P01"))));
+
+		// chained, as reported for batches
+		final BatchUpdateException batch = new BatchUpdateException("batch entry 3 aborted", "XX000", new int[0]);
+		batch.setNextException(new SQLException("constraint", "23505"));
+		Assert.assertFalse(runner.isRetryable(batch));
+		batch.setNextException(new SQLException("serialization", "40001"));
+		Assert.assertTrue(runner.isRetryable(batch));
+
+		runner.setRetryableStates("23505");
+		Assert.assertTrue(runner.isRetryable(batch));
+		Assert.assertFalse(runner.isRetryable(new SQLException("serialization", "40001")));
+	}
+}